@@ -1,11 +1,14 @@
 package io.ast.jneurocarto.atlas;
 
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
@@ -125,12 +128,21 @@ public class BrainAtlas {
     private volatile ImageVolume annotation = empty;
 
     public ImageVolume reference() throws IOException {
+        return reference((ImageVolume.ProgressListener) null);
+    }
+
+    /**
+     * @param progress loading progress listener. Only used when the reference volume is not loaded yet.
+     * @return reference volume
+     * @throws IOException
+     */
+    public ImageVolume reference(ImageVolume.@Nullable ProgressListener progress) throws IOException {
         if (reference == empty) {
             var file = root.resolve(REFERENCE_FILENAME);
             synchronized (empty) {
                 if (reference == empty) {
                     log.debug("load reference {}", file);
-                    reference = ImageVolume.readTiff(file);
+                    reference = ImageVolume.readTiff(file, progress);
                     log.debug("loaded reference");
                 }
             }
@@ -138,20 +150,267 @@ public class BrainAtlas {
         return Objects.requireNonNull(reference);
     }
 
+    /**
+     * Get annotation volume. The volume is opened lazily, that only pages around accessed position are decoded.
+     *
+     * @return annotation volume
+     * @throws IOException
+     * @see #setAnnotationCacheSize(int)
+     */
     public ImageVolume annotation() throws IOException {
+        return annotation((ImageVolume.ProgressListener) null);
+    }
+
+    /**
+     * @param progress page decoding listener. Only used when the annotation volume is not opened yet.
+     * @return annotation volume
+     * @throws IOException
+     * @see #annotation()
+     */
+    public ImageVolume annotation(ImageVolume.@Nullable ProgressListener progress) throws IOException {
         if (annotation == empty) {
             var file = root.resolve(ANNOTATION_FILENAME);
             synchronized (empty) {
                 if (annotation == empty) {
-                    log.debug("load annotation {}", file);
-                    annotation = ImageVolume.readTiff(file);
-                    log.debug("loaded annotation");
+                    log.debug("open annotation {}", file);
+                    annotation = ImageVolume.openTiff(file, getAnnotationCacheSize(), progress);
+                    log.debug("opened annotation");
                 }
             }
         }
         return Objects.requireNonNull(annotation);
     }
 
+    private volatile @Nullable VolumePyramid referencePyramid;
+    private volatile @Nullable VolumePyramid annotationPyramid;
+
+    /**
+     * Get the multi-resolution pyramid of the reference volume, which downsampled levels are averaged.
+     * Downsampled levels are cached under {@link VolumePyramid#DIRNAME} in the atlas directory.
+     *
+     * @return reference pyramid, which level 0 is {@link #reference()}.
+     * @throws IOException
+     */
+    public VolumePyramid referencePyramid() throws IOException {
+        var ret = referencePyramid;
+        if (ret != null) return ret;
+
+        var source = reference();
+        synchronized (this) {
+            if ((ret = referencePyramid) != null) return ret;
+            var file = root.resolve(REFERENCE_FILENAME);
+            ret = VolumePyramid.load(source, ImageVolume.Pooling.average, root.resolve(VolumePyramid.DIRNAME), "reference", file);
+            return referencePyramid = ret;
+        }
+    }
+
+    /**
+     * Get the multi-resolution pyramid of the annotation volume, which downsampled levels are mode-pooled.
+     * Downsampled levels are cached under {@link VolumePyramid#DIRNAME} in the atlas directory.
+     *
+     * @return annotation pyramid, which level 0 is {@link #annotation()}.
+     * @throws IOException
+     */
+    public VolumePyramid annotationPyramid() throws IOException {
+        var ret = annotationPyramid;
+        if (ret != null) return ret;
+
+        var source = annotation();
+        synchronized (this) {
+            if ((ret = annotationPyramid) != null) return ret;
+            var file = root.resolve(ANNOTATION_FILENAME);
+            ret = VolumePyramid.load(source, ImageVolume.Pooling.mode, root.resolve(VolumePyramid.DIRNAME), "annotation", file);
+            return annotationPyramid = ret;
+        }
+    }
+
+    /**
+     * Default memory budget of decoded annotation pages, in bytes.
+     */
+    public static final long DEFAULT_ANNOTATION_CACHE_BYTES = 512L * 1024 * 1024;
+
+    /**
+     * Minimal default number of decoded annotation pages.
+     */
+    private static final int MIN_ANNOTATION_CACHE_SIZE = 16;
+
+    /**
+     * cache size set by user. {@code 0} for the default.
+     */
+    private volatile int annotationCacheSize = 0;
+
+    /**
+     * {@return maximal number of decoded pages of the lazy annotation volume kept in memory}
+     * By default, it is the number of pages fit in {@link #DEFAULT_ANNOTATION_CACHE_BYTES}.
+     */
+    public int getAnnotationCacheSize() {
+        var ret = annotationCacheSize;
+        if (ret > 0) return ret;
+
+        var shape = meta.shape;
+        var pageBytes = Math.max(1L, 4L * shape[1] * shape[2]);
+        return Math.clamp(DEFAULT_ANNOTATION_CACHE_BYTES / pageBytes, MIN_ANNOTATION_CACHE_SIZE, Math.max(MIN_ANNOTATION_CACHE_SIZE, shape[0]));
+    }
+
+    /**
+     * Set the maximal number of decoded pages of the lazy annotation volume kept in memory.
+     * It only takes effect before the first {@link #annotation()} call.
+     * <p>
+     * A small cache size fits the coronal view, which only touches few pages around the current plane.
+     * Other projections touch all pages for each slice, so a cache smaller than the volume makes them decode
+     * pages repeatedly. Use {@link Integer#MAX_VALUE} to keep all decoded pages.
+     *
+     * @param pages number of pages.
+     */
+    public void setAnnotationCacheSize(int pages) {
+        if (pages <= 0) throw new IllegalArgumentException("non-positive cache size : " + pages);
+        annotationCacheSize = pages;
+    }
+
+    private volatile @Nullable StructureIndex structureIndex;
+
+    /**
+     * Get the per-structure spatial index. It is loaded from {@link StructureIndex#FILENAME} under the atlas
+     * directory, or built by scanning the whole annotation volume then saved there when the file is missing or
+     * out-of-date.
+     *
+     * @return structure index
+     * @throws IOException
+     */
+    public StructureIndex structureIndex() throws IOException {
+        var ret = structureIndex;
+        if (ret != null) return ret;
+
+        synchronized (empty) {
+            if ((ret = structureIndex) != null) return ret;
+
+            var source = root.resolve(ANNOTATION_FILENAME);
+            var file = root.resolve(StructureIndex.FILENAME);
+            ret = StructureIndex.load(file, structures, source);
+            if (ret != null) {
+                log.debug("loaded {}", file);
+            } else {
+                log.debug("build structure index");
+                ret = StructureIndex.build(structures, annotation(), resolution());
+                try {
+                    ret.save(file, source);
+                    log.debug("saved {}", file);
+                } catch (IOException e) {
+                    log.warn("fail to save {}", file, e);
+                }
+            }
+            return structureIndex = ret;
+        }
+    }
+
+    private final Map<Integer, SoftReference<DistanceVolume>> distanceVolumes = new HashMap<>();
+
+    /**
+     * distance volumes being loaded or computed. Guarded by {@link #distanceVolumes}.
+     */
+    private final Map<Integer, CompletableFuture<DistanceVolume>> distanceLoading = new HashMap<>();
+
+    /**
+     * Get the signed distance volume of the structure (and its sub-structures). It is memory-mapped from
+     * {@link DistanceVolume#DIRNAME} under the atlas directory, or computed from the annotation volume
+     * then saved there when the file is missing or out-of-date.
+     * <p>
+     * Volumes are cached through soft references, so unused volumes could be dropped (and unmapped)
+     * under memory pressure, and reloaded on next request. A volume is loaded or computed without holding
+     * the cache lock, so requests of other structures are not blocked, and concurrent requests of the same
+     * structure wait for the same computation.
+     * <p>
+     * Computing a volume needs heap for the whole volume, see {@link DistanceVolume#compute(int, ImageVolume, StructureMask, double[])}.
+     *
+     * @param structure structure
+     * @return distance volume
+     * @throws IOException
+     */
+    public DistanceVolume distanceVolume(Structure structure) throws IOException {
+        var id = structure.id();
+        CompletableFuture<DistanceVolume> future;
+        boolean owner = false;
+        synchronized (distanceVolumes) {
+            var cached = distanceVolumes.get(id);
+            var ret = cached == null ? null : cached.get();
+            if (ret != null) return ret;
+
+            future = distanceLoading.get(id);
+            if (future == null) {
+                distanceLoading.put(id, future = new CompletableFuture<>());
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            DistanceVolume ret;
+            try {
+                ret = loadDistanceVolume(structure);
+            } catch (IOException | RuntimeException e) {
+                synchronized (distanceVolumes) {
+                    distanceLoading.remove(id);
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+
+            synchronized (distanceVolumes) {
+                distanceLoading.remove(id);
+                distanceVolumes.values().removeIf(it -> it.get() == null);
+                distanceVolumes.put(id, new SoftReference<>(ret));
+            }
+            future.complete(ret);
+            return ret;
+        }
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ex) throw ex;
+            if (e.getCause() instanceof RuntimeException ex) throw ex;
+            throw e;
+        }
+    }
+
+    private DistanceVolume loadDistanceVolume(Structure structure) throws IOException {
+        var id = structure.id();
+        var source = root.resolve(ANNOTATION_FILENAME);
+        var file = root.resolve(DistanceVolume.DIRNAME).resolve(DistanceVolume.filename(id));
+        var ret = DistanceVolume.load(file, source);
+        if (ret != null) {
+            log.debug("loaded {}", file);
+            return ret;
+        }
+
+        log.debug("compute distance volume of {}", structure.acronym());
+        ret = DistanceVolume.compute(id, annotation(), StructureMask.compile(structures, structure), resolution());
+        try {
+            ret.save(file, source);
+            log.debug("saved {}", file);
+            // map the saved file instead of keeping the computed volume in memory.
+            var mapped = DistanceVolume.load(file, source);
+            if (mapped != null) ret = mapped;
+        } catch (IOException e) {
+            log.warn("fail to save {}", file, e);
+        }
+        return ret;
+    }
+
+    private volatile @Nullable ElectrodeRegions electrodeRegions;
+
+    /**
+     * {@return batched and cached annotation lookup for probe electrodes}
+     */
+    public ElectrodeRegions electrodeRegions() {
+        var ret = electrodeRegions;
+        if (ret != null) return ret;
+
+        synchronized (this) {
+            if ((ret = electrodeRegions) != null) return ret;
+            return electrodeRegions = new ElectrodeRegions(this);
+        }
+    }
+
     /*=============*
      * hemispheres *
      *=============*/
@@ -188,6 +447,21 @@ public class BrainAtlas {
     }
 
     public @Nullable Structure structureAt(CoordinateIndex coor) {
+        var rid = annotationAt(coor);
+        return structures.get(rid).orElse(null);
+    }
+
+    /**
+     * {@return annotation id at {@code coor}, or 0 when outside the volume.}
+     */
+    public int annotationAt(Coordinate coor) {
+        return annotationAt(coor.toCoorIndex(resolution()));
+    }
+
+    /**
+     * {@return annotation id at {@code coor}, or 0 when outside the volume.}
+     */
+    public int annotationAt(CoordinateIndex coor) {
         ImageVolume volume;
         try {
             volume = annotation();
@@ -195,13 +469,11 @@ public class BrainAtlas {
             throw new RuntimeException(e);
         }
 
-        int rid;
         try {
-            rid = volume.get(coor);
+            return volume.get(coor);
         } catch (IndexOutOfBoundsException e) {
-            return null;
+            return 0;
         }
-        return structures.get(rid).orElse(null);
     }
 
     private static final class HemispheresFromTiff implements Hemispheres {
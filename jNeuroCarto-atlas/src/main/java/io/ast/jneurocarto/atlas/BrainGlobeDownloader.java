@@ -1,9 +1,6 @@
 package io.ast.jneurocarto.atlas;
 
-import java.io.BufferedInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.StringReader;
+import java.io.*;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -13,9 +10,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.function.Predicate;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
@@ -24,6 +23,8 @@ import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.APPEND;
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 
@@ -34,10 +35,12 @@ public class BrainGlobeDownloader {
     public static final String LAST_VERSION_FILENAME = "last_versions.conf";
 
     private BrainGlobeConfig config;
+    private String remoteRoot = REMOTE_URL;
     private @Nullable String atlasName;
     private @Nullable Path downloadDir;
     private boolean checkLatest = true;
     private boolean dryrun = false;
+    private @Nullable ProgressListener progress;
     private Logger log = LoggerFactory.getLogger(BrainGlobeDownloader.class);
 
     private BrainGlobeDownloader() {
@@ -105,6 +108,35 @@ public class BrainGlobeDownloader {
         return this;
     }
 
+    public String getRemoteRoot() {
+        return remoteRoot;
+    }
+
+    /**
+     * Set the remote repository url, which contains {@link #LAST_VERSION_FILENAME} and atlas archives.
+     *
+     * @param remoteRoot url end with '/'. Default {@link #REMOTE_URL}.
+     * @return this
+     */
+    public BrainGlobeDownloader setRemoteRoot(String remoteRoot) {
+        this.remoteRoot = remoteRoot.endsWith("/") ? remoteRoot : remoteRoot + "/";
+        lastVersionCache = null;
+        return this;
+    }
+
+    public @Nullable ProgressListener getProgressListener() {
+        return progress;
+    }
+
+    /**
+     * @param progress download progress listener, which is invoked on the downloading thread.
+     * @return this
+     */
+    public BrainGlobeDownloader setProgressListener(@Nullable ProgressListener progress) {
+        this.progress = progress;
+        return this;
+    }
+
     public BrainGlobeDownloader setConfig(BrainGlobeConfig config) {
         this.config = config;
         downloadDir = config.getBrainGlobeDir();
@@ -182,7 +214,7 @@ public class BrainGlobeDownloader {
 
         String content = force ? null : loadLastVersion(file);
         if (content == null) {
-            var remote = REMOTE_URL + LAST_VERSION_FILENAME;
+            var remote = remoteRoot + LAST_VERSION_FILENAME;
             content = downloadLastVersion(file, remote);
             if (content == null) {
                 return null;
@@ -317,6 +349,34 @@ public class BrainGlobeDownloader {
      *==========*/
 
     private static final LinkedBlockingDeque<String> DOWNLOAD_LOCK = new LinkedBlockingDeque<>();
+    private static final Map<String, DownloadProgress> DOWNLOAD_PROGRESS = new ConcurrentHashMap<>();
+
+    /**
+     * maximal number of reconnections (with HTTP Range request) for an interrupted download.
+     */
+    private static final int MAX_RESUME = 5;
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param received received bytes
+         * @param total    total bytes. {@code -1} if unknown.
+         */
+        void onProgress(long received, long total);
+    }
+
+    /**
+     * @param received received bytes
+     * @param total    total bytes. {@code -1} if unknown.
+     */
+    public record DownloadProgress(long received, long total) {
+        /**
+         * {@return downloaded fraction in range [0, 1]. {@code -1} if total size is unknown.}
+         */
+        public double fraction() {
+            return total <= 0 ? -1 : (double) received / total;
+        }
+    }
 
     public Optional<String> remoteUrl() {
         var atlas = Objects.requireNonNull(atlasName, "miss getAtlasName()");
@@ -328,7 +388,7 @@ public class BrainGlobeDownloader {
     }
 
     public String remoteUrl(String atlas, String version) {
-        return String.format("%s%s_v%s.tar.gz", REMOTE_URL, atlas, version);
+        return String.format("%s%s_v%s.tar.gz", remoteRoot, atlas, version);
     }
 
     public boolean isDownloading() {
@@ -401,6 +461,7 @@ public class BrainGlobeDownloader {
             synchronized (DOWNLOAD_LOCK) {
                 //noinspection ResultOfMethodCallIgnored
                 DOWNLOAD_LOCK.remove(atlasNameVersion);
+                DOWNLOAD_PROGRESS.remove(atlasNameVersion);
 
                 DOWNLOAD_LOCK.notifyAll();
             }
@@ -411,34 +472,97 @@ public class BrainGlobeDownloader {
         var remoteUrl = remoteUrl(atlas, version);
         log.info("download {} from {}", atlas, remoteUrl);
 
-        var i = remoteUrl.lastIndexOf('/');
-        var filename = remoteUrl.substring(i + 1);
-        var downloadFile = config.getInternDownloadDir().resolve(filename);
-        try {
-            Files.createDirectories(downloadFile.getParent());
-            if (!curlBinary(remoteUrl, downloadFile)) {
-                throw new IOException("download fail");
+        var ret = new DownloadResult(atlas, version, downloadDir);
+        var atlasNameVersion = ret.atlasNameVersion();
+
+        // extract into a staging directory, so a partial extraction never looks like a downloaded atlas.
+        var staging = downloadDir.resolve("." + atlasNameVersion + ".partial");
+        var part = partFile(downloadDir, atlasNameVersion);
+        ProgressListener listener = (received, total) -> {
+            DOWNLOAD_PROGRESS.put(atlasNameVersion, new DownloadProgress(received, total));
+            var progress = this.progress;
+            if (progress != null) progress.onProgress(received, total);
+        };
+
+        try (var client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build()) {
+            Path root;
+            for (int restart = 0; ; restart++) {
+                deleteRecursively(staging);
+                Files.createDirectories(staging);
+
+                try (var input = new RemoteInputStream(client, URI.create(remoteUrl), part, listener)) {
+                    log.debug("extra to {}", staging);
+                    root = extract(staging, input);
+                    break;
+                } catch (RestartException e) {
+                    if (restart >= MAX_RESUME) throw e;
+                    log.debug("restart download, {}", e.getMessage());
+                } catch (ZipException e) {
+                    // corrupted archive, do not resume from it again.
+                    deletePartFile(part);
+                    throw e;
+                }
             }
 
-            log.debug("extra to {}", downloadDir);
-            var root = extract(downloadDir, downloadFile);
-            var ret = new DownloadResult(atlas, version, downloadDir);
-            if (!ret.root().equals(root)) {
-                log.debug("move {} to {}", root, root.getParent().relativize(ret.root()));
-                Files.move(root, ret.root());
-            }
+            log.debug("move {} to {}", root, ret.root());
+            replace(root, ret.root());
+            deletePartFile(part);
             return ret;
         } finally {
-            Files.deleteIfExists(downloadFile);
+            deleteRecursively(staging);
         }
     }
 
-    private static Path extract(Path output, Path downloadFile) throws IOException {
+    /**
+     * {@return the file keeping the received content of an unfinished download}
+     */
+    static Path partFile(Path downloadDir, String atlasNameVersion) {
+        return downloadDir.resolve("." + atlasNameVersion + ".tar.gz.part");
+    }
+
+    /**
+     * {@return the file keeping the validator (ETag or Last-Modified) of the remote content of {@code part}}
+     */
+    static Path validatorFile(Path part) {
+        return part.resolveSibling(part.getFileName() + ".validator");
+    }
+
+    private static void deletePartFile(Path part) throws IOException {
+        Files.deleteIfExists(part);
+        Files.deleteIfExists(validatorFile(part));
+    }
+
+    /**
+     * Move the extracted {@code source} onto {@code target}. An existing {@code target}, for example,
+     * on a forced download, is moved aside first, and deleted after {@code source} is moved in.
+     */
+    private static void replace(Path source, Path target) throws IOException {
+        if (!Files.exists(target)) {
+            Files.move(source, target, ATOMIC_MOVE);
+            return;
+        }
+
+        var old = target.resolveSibling("." + target.getFileName() + ".old");
+        deleteRecursively(old);
+        Files.move(target, old, ATOMIC_MOVE);
+        try {
+            Files.move(source, target, ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.move(old, target, ATOMIC_MOVE);
+            } catch (IOException f) {
+                e.addSuppressed(f);
+            }
+            throw e;
+        }
+        deleteRecursively(old);
+    }
+
+    private static Path extract(Path output, InputStream input) throws IOException {
         Path ret = null;
 
         Files.createDirectories(output);
-        try (var input = Files.newInputStream(downloadFile);
-             var gzi = new GZIPInputStream(new BufferedInputStream(input));
+        try (var gzi = new GZIPInputStream(new BufferedInputStream(input));
              var tar = new TarArchiveInputStream(gzi)) {
 
             TarArchiveEntry entry;
@@ -469,6 +593,15 @@ public class BrainGlobeDownloader {
         return ret;
     }
 
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) return;
+        try (var walk = Files.walk(path)) {
+            for (var p : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
     public record DownloadResult(String atlas, String version, Path dir, @Nullable Throwable error) {
 
         public DownloadResult(String atlas, String version, Path dir) {
@@ -483,6 +616,13 @@ public class BrainGlobeDownloader {
             return dir.resolve(atlasNameVersion());
         }
 
+        /**
+         * {@return current download progress. {@code null} if it is not downloading.}
+         */
+        public @Nullable DownloadProgress progress() {
+            return DOWNLOAD_PROGRESS.get(atlasNameVersion());
+        }
+
         public boolean hasError() {
             return error != null;
         }
@@ -604,19 +744,216 @@ public class BrainGlobeDownloader {
         }
     }
 
-    private static boolean curlBinary(String url, Path file) throws IOException {
+    /**
+     * Thrown when the server sends the whole content while the reader has consumed a prefix of an older content.
+     */
+    private static final class RestartException extends IOException {
+        RestartException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A response body stream which reconnects with an HTTP Range request when the connection is broken.
+     * <p>
+     * Received bytes are also appended into a {@code part} file, and the validator (ETag or Last-Modified)
+     * of the remote content is kept beside it, so an unfinished download survives a restart. The existing
+     * {@code part} content is replayed first, then the rest is requested with Range and If-Range.
+     * <p>
+     * Content is only appended on a partial content (206) answer. When the server answers the whole content (200)
+     * instead, because it ignores the range or the remote content was changed, the {@code part} file is restarted,
+     * and {@link RestartException} is thrown if the reader has already consumed a prefix.
+     */
+    private static final class RemoteInputStream extends InputStream {
+        private static final Logger log = LoggerFactory.getLogger(RemoteInputStream.class);
+
+        private final HttpClient client;
+        private final URI uri;
+        private final Path part;
+        private final ProgressListener progress;
+        private @Nullable InputStream local;
+        private @Nullable InputStream body;
+        private @Nullable OutputStream out;
+        private @Nullable String validator;
+        private long position;
+        private long total = -1;
+        private int resume;
+
+        RemoteInputStream(HttpClient client, URI uri, Path part, ProgressListener progress) throws IOException {
+            this.client = client;
+            this.uri = uri;
+            this.part = part;
+            this.progress = progress;
+
+            var validatorFile = validatorFile(part);
+            if (Files.exists(part) && Files.size(part) > 0 && Files.exists(validatorFile)) {
+                validator = Files.readString(validatorFile).strip();
+                log.debug("resume {} bytes from {}", Files.size(part), part);
+                local = Files.newInputStream(part);
+            } else {
+                body = open();
+            }
+        }
 
-        var request = HttpRequest.newBuilder()
-            .uri(URI.create(url))
-            .build();
+        private InputStream open() throws IOException {
+            var builder = HttpRequest.newBuilder().uri(uri);
+            if (position > 0) {
+                builder.header("Range", "bytes=" + position + "-");
+                if (validator != null) builder.header("If-Range", validator);
+            }
 
-        HttpResponse<Path> response;
-        try (var client = HttpClient.newHttpClient()) {
-            response = client.send(request, HttpResponse.BodyHandlers.ofFile(file));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
+            HttpResponse<InputStream> response;
+            try {
+                response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("download interrupted");
+            }
+
+            var headers = response.headers();
+            var stream = response.body();
+            switch (response.statusCode()) {
+            case 200 -> {
+                // whole content. Server may not support range request, or the remote content was changed.
+                total = headers.firstValueAsLong("Content-Length").orElse(-1);
+                restart(headers.firstValue("ETag").or(() -> headers.firstValue("Last-Modified")).orElse(null));
+                if (position > 0) {
+                    stream.close();
+                    throw new RestartException("server sent whole content at " + position + " bytes : " + uri);
+                }
+            }
+            case 206 -> {
+                total = contentRangeTotal(headers.firstValue("Content-Range").orElse(""));
+                if (out == null) out = Files.newOutputStream(part, CREATE, APPEND);
+            }
+            case 416 -> {
+                // range not satisfiable. The part file is already complete, or longer than the remote content.
+                stream.close();
+                if (contentRangeTotal(headers.firstValue("Content-Range").orElse("")) == position) {
+                    total = position;
+                    return InputStream.nullInputStream();
+                }
+                restart(null);
+                throw new RestartException("unsatisfiable range at " + position + " bytes : " + uri);
+            }
+            default -> {
+                stream.close();
+                throw new IOException("download fail, HTTP status " + response.statusCode() + " : " + uri);
+            }
+            }
+            return stream;
+        }
+
+        /**
+         * {@return total length in a Content-Range header. {@code -1} if unknown.}
+         */
+        private static long contentRangeTotal(String range) {
+            var i = range.lastIndexOf('/');
+            if (i < 0 || range.endsWith("*")) return -1;
+            try {
+                return Long.parseLong(range.substring(i + 1).trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private void restart(@Nullable String validator) throws IOException {
+            var out = this.out;
+            this.out = null;
+            if (out != null) out.close();
+
+            this.out = Files.newOutputStream(part, CREATE, TRUNCATE_EXISTING);
+            this.validator = validator;
+
+            var validatorFile = validatorFile(part);
+            if (validator == null) {
+                // unable to validate the content on next download.
+                Files.deleteIfExists(validatorFile);
+            } else {
+                Files.writeString(validatorFile, validator);
+            }
+        }
+
+        private void reconnect(IOException cause) throws IOException {
+            if (cause instanceof InterruptedIOException || resume++ >= MAX_RESUME) throw cause;
+            log.warn("connection broken at {}/{} bytes, resume ({}/{})", position, total, resume, MAX_RESUME, cause);
+
+            var body = this.body;
+            this.body = null;
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException e) {
+                    cause.addSuppressed(e);
+                }
+            }
+
+            var out = this.out;
+            if (out != null) out.flush();
+
+            this.body = open();
+        }
+
+        @Override
+        public int read() throws IOException {
+            var buf = new byte[1];
+            return read(buf, 0, 1) < 0 ? -1 : buf[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+
+            var local = this.local;
+            if (local != null) {
+                var n = local.read(b, off, len);
+                if (n >= 0) {
+                    position += n;
+                    progress.onProgress(position, total);
+                    return n;
+                }
+
+                this.local = null;
+                local.close();
+                body = open();
+            }
+
+            while (true) {
+                var body = this.body;
+                if (body == null) throw new IOException("stream closed");
+
+                int n;
+                try {
+                    n = body.read(b, off, len);
+                } catch (IOException e) {
+                    reconnect(e);
+                    continue;
+                }
+
+                if (n < 0) {
+                    if (total >= 0 && position < total) {
+                        reconnect(new EOFException("unexpected end of stream at " + position + "/" + total + " bytes"));
+                        continue;
+                    }
+                    return -1;
+                }
+
+                var out = this.out;
+                if (out != null) out.write(b, off, n);
+
+                position += n;
+                progress.onProgress(position, total);
+                return n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (var _ = local; var _ = body; var _ = out) {
+                local = null;
+                body = null;
+                out = null;
+            }
         }
-        return response.statusCode() == 200;
     }
 }
@@ -0,0 +1,486 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import io.ast.jneurocarto.core.Coordinate;
+import io.ast.jneurocarto.core.ProbeCoordinate;
+import io.ast.jneurocarto.core.ProbeTransform;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A signed Euclidean distance volume of a structure (and its sub-structures).
+ * <p>
+ * Each voxel keeps the distance in um to the nearest voxel on the other side of the structure boundary,
+ * negative inside the structure and positive outside. Values are rounded into {@code short}, and saturated
+ * at {@link #MAX_DISTANCE}, which also represents an empty structure.
+ * <p>
+ * The volume is computed with the exact separable distance transform (Felzenszwalb and Huttenlocher).
+ * The ap axis runs first as two sweeps over pages, then each page runs the lower-envelope passes
+ * along ml and dv in parallel, so the working memory is bounded by a few pages besides the result.
+ * The result itself is kept on the heap as {@code short} pages, 2 bytes per voxel, until it is saved,
+ * for example, about 2.4 GB for a 10 um atlas.
+ * Computed volumes are saved under {@link #DIRNAME} in the atlas directory, and memory-mapped on reuse.
+ * Pages are kept in separate buffers, so volumes larger than 2 GB (such as 10 um atlases) are supported.
+ *
+ * @see BrainAtlas#distanceVolume(Structure)
+ */
+@NullMarked
+public final class DistanceVolume {
+
+    public static final String DIRNAME = "distance";
+
+    /**
+     * maximal distance in um.
+     */
+    public static final int MAX_DISTANCE = Short.MAX_VALUE;
+
+    private static final int MAGIC = 0x53445456; // SDTV
+    private static final int VERSION = 1;
+
+    /**
+     * magic, version, source size, source modified time, structure id, page, height, width, resolution.
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 4 + 4 + 3 * 8;
+
+    /**
+     * maximal bytes of a single memory mapping.
+     */
+    private static final long MAP_CHUNK_SIZE = 1L << 30;
+
+    private final int id;
+    private final int page;
+    private final int height;
+    private final int width;
+    private final double[] resolution;
+
+    /**
+     * page data, indexed by {@code y * width + x}.
+     */
+    private final ShortBuffer[] data;
+
+    private DistanceVolume(int id, int page, int height, int width, double[] resolution, ShortBuffer[] data) {
+        this.id = id;
+        this.page = page;
+        this.height = height;
+        this.width = width;
+        this.resolution = resolution;
+        this.data = data;
+    }
+
+    /**
+     * {@return structure id}
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * {@return {page, height, width}}
+     */
+    public int[] shape() {
+        return new int[]{page, height, width};
+    }
+
+    /**
+     * {@return voxel resolution (ap, dv, ml) in um}
+     */
+    public double[] resolution() {
+        return resolution.clone();
+    }
+
+    /**
+     * Get the distance of a voxel.
+     *
+     * @param p page (ap) index
+     * @param x x (ml) index
+     * @param y y (dv) index
+     * @return signed distance in um.
+     */
+    public int get(int p, int x, int y) {
+        return data[p].get(y * width + x);
+    }
+
+    /**
+     * Get the distance at a coordinate.
+     *
+     * @param coor coordinate in um.
+     * @return signed distance in um. {@link Double#NaN} when outside the volume.
+     */
+    public double distanceAt(Coordinate coor) {
+        var p = (int) (coor.ap() / resolution[0]);
+        var y = (int) (coor.dv() / resolution[1]);
+        var x = (int) (coor.ml() / resolution[2]);
+        if (p < 0 || p >= page || y < 0 || y >= height || x < 0 || x >= width) return Double.NaN;
+        return get(p, x, y);
+    }
+
+    /**
+     * Get distances at coordinates in bulk.
+     *
+     * @param ap     ap positions in um.
+     * @param dv     dv positions in um.
+     * @param ml     ml positions in um.
+     * @param output output array. could be {@code null}.
+     * @return signed distances in mm. {@link Double#NaN} when outside the volume.
+     */
+    public double[] distanceMm(double[] ap, double[] dv, double[] ml, double @Nullable [] output) {
+        var length = ap.length;
+        if (dv.length != length || ml.length != length) throw new IllegalArgumentException("length mismatch");
+        if (output == null) output = new double[length];
+
+        for (int i = 0; i < length; i++) {
+            output[i] = distanceMm(ap[i], dv[i], ml[i]);
+        }
+        return output;
+    }
+
+    /**
+     * Get distances at electrodes in bulk. Electrodes are placed as described in {@link Electrodes}.
+     *
+     * @param transform transform from probe to the global anatomical space.
+     * @param x         electrode x positions in um.
+     * @param y         electrode y positions in um, measured from the probe tip.
+     * @return signed distances in mm. {@link Double#NaN} when outside the volume.
+     */
+    public double[] distanceMm(ProbeTransform<ProbeCoordinate, Coordinate> transform, int[] x, int[] y) {
+        var p = Electrodes.place(transform, x, y);
+        return distanceMm(p[0], p[1], p[2], p[0]);
+    }
+
+    private double distanceMm(double ap, double dv, double ml) {
+        var p = (int) (ap / resolution[0]);
+        var y = (int) (dv / resolution[1]);
+        var x = (int) (ml / resolution[2]);
+        if (p < 0 || p >= page || y < 0 || y >= height || x < 0 || x >= width) return Double.NaN;
+        return get(p, x, y) / 1000.0;
+    }
+
+    /*=========*
+     * compute *
+     *=========*/
+
+    /**
+     * Compute the signed distance volume. The result is kept on the heap, which needs 2 bytes per voxel
+     * of {@code annotation}, besides the decoded annotation pages.
+     *
+     * @param id         structure id
+     * @param annotation annotation volume
+     * @param mask       compiled structure mask
+     * @param resolution voxel resolution (ap, dv, ml) in um.
+     * @return distance volume
+     */
+    public static DistanceVolume compute(int id, ImageVolume annotation, StructureMask mask, double[] resolution) {
+        var np = annotation.page;
+        var nh = annotation.height;
+        var nw = annotation.width;
+        var size = nh * nw;
+        var data = new ShortBuffer[np];
+
+        // ap lines: distance in voxels to the nearest voxel on the other side, with the sign of the voxel side.
+        // forward sweep
+        var last = new int[2][size]; // page index of the last {outside, inside} voxel.
+        Arrays.fill(last[0], -1);
+        Arrays.fill(last[1], -1);
+        for (int p = 0; p < np; p++) {
+            var ids = annotation.pageData(p);
+            var inside = mask.test(ids, new boolean[ids.length]);
+            var page = new short[size];
+            var q = p;
+            IntStream.range(0, size).parallel().forEach(i -> {
+                var side = inside[i] ? 1 : 0;
+                var r = last[1 - side][i];
+                var d = r < 0 ? MAX_DISTANCE : Math.min(MAX_DISTANCE, q - r);
+                page[i] = (short) (inside[i] ? -d : d);
+                last[side][i] = q;
+            });
+            data[p] = ShortBuffer.wrap(page);
+        }
+
+        // backward sweep, which takes the voxel side from the sign.
+        Arrays.fill(last[0], -1);
+        Arrays.fill(last[1], -1);
+        for (int p = np - 1; p >= 0; p--) {
+            var page = data[p].array();
+            var q = p;
+            IntStream.range(0, size).parallel().forEach(i -> {
+                var v = page[i];
+                var side = v < 0 ? 1 : 0;
+                var r = last[1 - side][i];
+                if (r >= 0 && r - q < Math.abs(v)) {
+                    page[i] = (short) (v < 0 ? q - r : r - q);
+                }
+                last[side][i] = q;
+            });
+        }
+
+        // ml and dv lines, page by page.
+        var scratch = ThreadLocal.withInitial(() -> new Scratch(Math.max(nh, nw), size));
+        IntStream.range(0, np).parallel().forEach(p -> {
+            var page = data[p].array();
+            var s = scratch.get();
+
+            // outside voxels: distance to the nearest inside voxel
+            transform(s, page, true, nh, nw, resolution);
+            store(s.buffer, page, true);
+
+            // inside voxels: distance to the nearest outside voxel
+            transform(s, page, false, nh, nw, resolution);
+            store(s.buffer, page, false);
+        });
+
+        return new DistanceVolume(id, np, nh, nw, resolution.clone(), data);
+    }
+
+    /**
+     * Store the distances of voxels on one side. Voxels on the other side are kept, so their signs
+     * still tell their sides.
+     *
+     * @param buffer  squared distance in um^2.
+     * @param page    page data.
+     * @param outside {@code true} for outside voxels, otherwise inside voxels.
+     */
+    private static void store(float[] buffer, short[] page, boolean outside) {
+        for (int i = 0, size = page.length; i < size; i++) {
+            if ((page[i] < 0) == outside) continue;
+            var d = buffer[i];
+            var v = d == Float.POSITIVE_INFINITY ? MAX_DISTANCE : (int) Math.min(MAX_DISTANCE, Math.round(Math.sqrt(d)));
+            page[i] = (short) (outside ? v : -v);
+        }
+    }
+
+    /**
+     * Squared distance transform of a page, after the ap pass.
+     *
+     * @param s          scratch, whose {@link Scratch#buffer} is the output squared distance in um^2.
+     * @param page       signed ap distance in voxels of the page.
+     * @param outside    {@code true} compute distance of outside voxels, otherwise inside voxels.
+     * @param nh         volume height
+     * @param nw         volume width
+     * @param resolution voxel resolution (ap, dv, ml) in um.
+     */
+    private static void transform(Scratch s, short[] page, boolean outside, int nh, int nw, double[] resolution) {
+        var buffer = s.buffer;
+
+        // ml lines, which also initialize the buffer.
+        for (int y = 0; y < nh; y++) {
+            var offset = y * nw;
+            for (int x = 0; x < nw; x++) {
+                var v = page[offset + x];
+                if ((v < 0) == outside) {
+                    s.f[x] = 0;
+                } else {
+                    var d = Math.abs(v) * resolution[0];
+                    s.f[x] = Math.abs(v) == MAX_DISTANCE ? Double.POSITIVE_INFINITY : d * d;
+                }
+            }
+            s.transform(nw, resolution[2]);
+            for (int x = 0; x < nw; x++) {
+                buffer[offset + x] = (float) s.d[x];
+            }
+        }
+
+        // dv lines
+        for (int x = 0; x < nw; x++) {
+            for (int y = 0; y < nh; y++) {
+                s.f[y] = buffer[y * nw + x];
+            }
+            s.transform(nh, resolution[1]);
+            for (int y = 0; y < nh; y++) {
+                buffer[y * nw + x] = (float) s.d[y];
+            }
+        }
+    }
+
+    /**
+     * Per-thread working arrays for the 1D lower-envelope transform, and a page buffer.
+     */
+    private static final class Scratch {
+        final double[] f;
+        final double[] d;
+        final int[] v;
+        final double[] z;
+        final float[] buffer;
+
+        Scratch(int n, int size) {
+            f = new double[n];
+            d = new double[n];
+            v = new int[n];
+            z = new double[n + 1];
+            buffer = new float[size];
+        }
+
+        /**
+         * 1D squared distance transform {@code d(q) = min_r (f(r) + (w * (q - r))^2)}.
+         * Infinite samples do not contribute parabolas.
+         *
+         * @param n line length
+         * @param w sample spacing in um.
+         */
+        void transform(int n, double w) {
+            var k = -1;
+            for (int q = 0; q < n; q++) {
+                var fq = f[q];
+                if (fq == Double.POSITIVE_INFINITY) continue;
+
+                var pq = q * w;
+                var s = Double.NEGATIVE_INFINITY;
+                while (k >= 0) {
+                    var r = v[k];
+                    var pr = r * w;
+                    s = ((fq + pq * pq) - (f[r] + pr * pr)) / (2 * (pq - pr));
+                    if (s <= z[k]) {
+                        k--;
+                        s = Double.NEGATIVE_INFINITY;
+                    } else {
+                        break;
+                    }
+                }
+                k++;
+                v[k] = q;
+                z[k] = s;
+                z[k + 1] = Double.POSITIVE_INFINITY;
+            }
+
+            if (k < 0) {
+                for (int q = 0; q < n; q++) d[q] = Double.POSITIVE_INFINITY;
+                return;
+            }
+
+            var j = 0;
+            for (int q = 0; q < n; q++) {
+                var pq = q * w;
+                while (z[j + 1] < pq) j++;
+                var dr = pq - v[j] * w;
+                d[q] = dr * dr + f[v[j]];
+            }
+        }
+    }
+
+    /*=======*
+     * cache *
+     *=======*/
+
+    /**
+     * {@return cache file name of a structure}
+     */
+    public static String filename(int id) {
+        return id + ".bin";
+    }
+
+    /**
+     * Load and memory-map a distance volume.
+     *
+     * @param file   distance volume file.
+     * @param source the annotation file, which is used to check whether {@code file} is out-of-date.
+     * @return distance volume. {@code null} if {@code file} does not exist or is out-of-date.
+     * @throws IOException
+     */
+    public static @Nullable DistanceVolume load(Path file, Path source) throws IOException {
+        if (!Files.exists(file)) return null;
+
+        var size = Files.size(source);
+        var modified = Files.getLastModifiedTime(source).toMillis();
+
+        try (var channel = FileChannel.open(file, READ)) {
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) throw new EOFException();
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) return null;
+            if (header.getInt() != VERSION) return null;
+            if (header.getLong() != size) return null;
+            if (header.getLong() != modified) return null;
+            var id = header.getInt();
+            var page = header.getInt();
+            var height = header.getInt();
+            var width = header.getInt();
+            var resolution = new double[]{header.getDouble(), header.getDouble(), header.getDouble()};
+
+            var length = 2L * page * height * width;
+            if (channel.size() != HEADER_SIZE + length) return null;
+
+            // map whole pages in chunks, each under the 2 GB limit of a mapping.
+            // the mappings stay valid after the channel is closed.
+            var pageSize = height * width;
+            var pageBytes = 2L * pageSize;
+            var chunk = Math.clamp(MAP_CHUNK_SIZE / pageBytes, 1, Math.max(1, page));
+            var data = new ShortBuffer[page];
+            for (int p = 0; p < page; p += chunk) {
+                var n = Math.min(chunk, page - p);
+                var mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + p * pageBytes, n * pageBytes).asShortBuffer();
+                for (int i = 0; i < n; i++) {
+                    data[p + i] = mapped.slice(i * pageSize, pageSize);
+                }
+            }
+            return new DistanceVolume(id, page, height, width, resolution, data);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Save the distance volume. It is written into a temporary file first, then moved onto {@code file},
+     * so a reader never sees a partial file.
+     *
+     * @param file   distance volume file.
+     * @param source the annotation file.
+     * @throws IOException
+     */
+    public void save(Path file, Path source) throws IOException {
+        var size = Files.size(source);
+        var modified = Files.getLastModifiedTime(source).toMillis();
+
+        var dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+
+        var tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            write(tmp, size, modified);
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void write(Path file, long size, long modified) throws IOException {
+        try (var channel = FileChannel.open(file, TRUNCATE_EXISTING, WRITE)) {
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(size);
+            header.putLong(modified);
+            header.putInt(id);
+            header.putInt(page);
+            header.putInt(height);
+            header.putInt(width);
+            for (var r : resolution) header.putDouble(r);
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+
+            var buffer = ByteBuffer.allocateDirect(2 * height * width);
+            var view = buffer.asShortBuffer();
+            var length = height * width;
+            for (int p = 0; p < page; p++) {
+                view.clear();
+                view.put(data[p].slice(0, length));
+                buffer.clear();
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+        }
+    }
+}
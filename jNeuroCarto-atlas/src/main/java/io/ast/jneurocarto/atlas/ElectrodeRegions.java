@@ -0,0 +1,181 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import io.ast.jneurocarto.core.Coordinate;
+import io.ast.jneurocarto.core.ProbeCoordinate;
+import io.ast.jneurocarto.core.ProbeTransform;
+
+/**
+ * Batched lookup of the annotation (structure id) under each electrode of an implanted probe.
+ * <p>
+ * All electrodes are transformed with the composed transform matrix in a single pass, then the
+ * annotation volume is sampled directly. Results are cached per (probe code, implant placement),
+ * where the placement is the composed transform matrix, so repeated region queries and labels
+ * on the same implant become a table lookup.
+ *
+ * @see BrainAtlas#electrodeRegions()
+ */
+@NullMarked
+public final class ElectrodeRegions {
+
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final BrainAtlas brain;
+    private final int capacity;
+    private final Map<Key, int[]> cache;
+
+    /**
+     * @param code   probe code
+     * @param matrix 3x4 transform matrix in row-major.
+     */
+    private record Key(String code, double[] matrix) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key(var c, var m) && code.equals(c) && Arrays.equals(matrix, m);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * code.hashCode() + Arrays.hashCode(matrix);
+        }
+    }
+
+    ElectrodeRegions(BrainAtlas brain) {
+        this(brain, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param brain    brain atlas
+     * @param capacity maximal number of cached implants.
+     */
+    public ElectrodeRegions(BrainAtlas brain, int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("non-positive capacity : " + capacity);
+        this.brain = brain;
+        this.capacity = capacity;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                return size() > ElectrodeRegions.this.capacity;
+            }
+        };
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Get the annotation ids under electrodes. The result is cached.
+     *
+     * @param code      probe code, which identifies the electrode geometry {@code x} and {@code y}.
+     * @param transform transform from probe to the global anatomical space.
+     * @param x         electrode x positions in um.
+     * @param y         electrode y positions in um.
+     * @return annotation id array. {@code 0} for electrodes outside the volume.
+     * Do not modify the content of the array.
+     * @throws UncheckedIOException fail to load annotation volume.
+     */
+    public int[] annotationAt(String code, ProbeTransform<ProbeCoordinate, Coordinate> transform, int[] x, int[] y) {
+        var matrix = transform.getAffine3D().toArray();
+        var key = new Key(code, matrix);
+
+        synchronized (this) {
+            var ret = cache.get(key);
+            if (ret != null && ret.length == x.length) return ret;
+        }
+
+        var ret = annotationAt(matrix, x, y);
+
+        synchronized (this) {
+            cache.put(key, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Get the annotation ids under electrodes without caching.
+     *
+     * @param transform transform from probe to the global anatomical space.
+     * @param x         electrode x positions in um.
+     * @param y         electrode y positions in um.
+     * @return annotation id array. {@code 0} for electrodes outside the volume.
+     * @throws UncheckedIOException fail to load annotation volume.
+     */
+    public int[] annotationAt(ProbeTransform<ProbeCoordinate, Coordinate> transform, int[] x, int[] y) {
+        return annotationAt(transform.getAffine3D().toArray(), x, y);
+    }
+
+    /**
+     * Get the structures under electrodes.
+     *
+     * @param ids annotation id array.
+     * @return structure array. {@code null} for electrodes outside the volume or unknown ids.
+     */
+    public @Nullable Structure[] structureAt(int[] ids) {
+        var structures = brain.structures();
+        var ret = new Structure[ids.length];
+        for (int i = 0, length = ids.length; i < length; i++) {
+            var j = structures.indexOf(ids[i]);
+            ret[i] = j < 0 ? null : structures.structureOf(j);
+        }
+        return ret;
+    }
+
+    private int[] annotationAt(double[] m, int[] x, int[] y) {
+        var length = x.length;
+        if (y.length != length) throw new IllegalArgumentException("length mismatch");
+
+        ImageVolume volume;
+        try {
+            volume = brain.annotation();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var shape = volume.shape();
+        var np = shape[0];
+        var nh = shape[1];
+        var nw = shape[2];
+
+        var resolution = brain.resolution();
+        var rap = resolution[0];
+        var rdv = resolution[1];
+        var rml = resolution[2];
+
+        var ret = new int[length];
+        var data = new int[0];
+        var dataPage = -1;
+
+        for (int i = 0; i < length; i++) {
+            double px = x[i];
+            double py = y[i];
+
+            // probe coordinate (x, y, 0) -> (ap, dv, ml)
+            var ap = (int) ((m[0] * px + m[1] * py + m[3]) / rap);
+            var dv = (int) ((m[4] * px + m[5] * py + m[7]) / rdv);
+            var ml = (int) ((m[8] * px + m[9] * py + m[11]) / rml);
+
+            if (ap < 0 || ap >= np || dv < 0 || dv >= nh || ml < 0 || ml >= nw) continue;
+
+            if (ap != dataPage) {
+                data = volume.pageData(ap);
+                dataPage = ap;
+            }
+            ret[i] = data[dv * nw + ml];
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,71 @@
+package io.ast.jneurocarto.atlas;
+
+import org.jspecify.annotations.NullMarked;
+
+import io.ast.jneurocarto.core.Affine3D;
+import io.ast.jneurocarto.core.Coordinate;
+import io.ast.jneurocarto.core.ImplantCoordinate;
+import io.ast.jneurocarto.core.ProbeCoordinate;
+import io.ast.jneurocarto.core.ProbeTransform;
+
+/**
+ * Electrode placement on a probe in the global anatomical space.
+ * <p>
+ * Electrode positions {@code (x, y)} are in um, where {@code y} is measured from the probe tip upward.
+ * With the transform from {@link ProbeTransform#create(ImplantCoordinate)}, the probe point {@code (0, 0, 0)}
+ * is the tip ({@link ImplantCoordinate#tipCoordinate()}), and the probe {@code y} axis points downward along
+ * the shank. Therefore, an electrode {@code (x, y)} is the probe point {@code (x, -y, 0)}, which is located
+ * {@code depth - y} below the insertion point before rotations.
+ *
+ * @see ImplantSearch
+ * @see DistanceVolume#distanceMm(ProbeTransform, int[], int[])
+ */
+@NullMarked
+public final class Electrodes {
+
+    /**
+     * The transform from electrode {@code (x, y)} to the probe point {@code (x, -y, 0)}.
+     */
+    public static final Affine3D PLACEMENT = new Affine3D(
+        1, 0, 0, 0,
+        0, -1, 0, 0,
+        0, 0, 1, 0
+    );
+
+    private Electrodes() {
+        throw new RuntimeException();
+    }
+
+    /**
+     * {@return the transform from electrode {@code (x, y)} to the global anatomical space}
+     *
+     * @param transform transform from probe to the global anatomical space.
+     */
+    public static Affine3D transform(ProbeTransform<ProbeCoordinate, Coordinate> transform) {
+        return transform.getAffine3D().append(PLACEMENT);
+    }
+
+    /**
+     * Place electrodes in the global anatomical space.
+     *
+     * @param transform transform from probe to the global anatomical space.
+     * @param x         electrode x positions in um.
+     * @param y         electrode y positions in um, measured from the probe tip.
+     * @return {ap, dv, ml} positions in um.
+     */
+    public static double[][] place(ProbeTransform<ProbeCoordinate, Coordinate> transform, int[] x, int[] y) {
+        var length = x.length;
+        if (y.length != length) throw new IllegalArgumentException("length mismatch");
+
+        // probe points, which become (ap, dv, ml) after the transform.
+        var px = new double[length];
+        var py = new double[length];
+        var pz = new double[length];
+        for (int i = 0; i < length; i++) {
+            px[i] = x[i];
+            py[i] = -y[i];
+        }
+        transform.transform(px, py, pz);
+        return new double[][]{px, py, pz};
+    }
+}
@@ -1,16 +1,18 @@
 package io.ast.jneurocarto.atlas;
 
 import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
 
 import javafx.geometry.Point2D;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.PixelWriter;
 import javafx.scene.image.WritableImage;
-import javafx.scene.transform.Affine;
 
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import io.ast.jneurocarto.core.Affine3D;
 import io.ast.jneurocarto.core.Coordinate;
 import io.ast.jneurocarto.core.CoordinateIndex;
 import io.ast.jneurocarto.core.ProbeTransform;
@@ -117,14 +119,14 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
         return new SliceCoordinate(p, coor);
     }
 
-    public Affine planeAtTransform() {
+    public Affine3D planeAtTransform() {
         var p = plane * resolution()[0];
         var cx = width() / 2;
         var cy = height() / 2;
         var dw = this.dw * resolution()[1] / cx;
         var dh = this.dh * resolution()[2] / cy;
 
-        return new Affine(
+        return new Affine3D(
             /*x*/ 1, 0, 0, 0,
             /*y*/ 0, 1, 0, 0,
             /*p*/ dw, dh, 0, p - dw * cx - dh * cy
@@ -267,6 +269,25 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
         return withOffset(offset.x(), offset.y());
     }
 
+    /**
+     * Map this slice onto another {@code stack} with the same projection but different resolution,
+     * likes a downsampled stack from {@link ImageSliceStack#downsample(ImageVolume, int)}.
+     *
+     * @param stack target stack
+     * @return slice on {@code stack} covering the same plane.
+     */
+    public ImageSlice resample(ImageSliceStack stack) {
+        if (stack.projection() != projection()) throw new IllegalArgumentException("different projection");
+        var src = resolution();
+        var dst = stack.resolution();
+        var plane = (int) (this.plane * src[0] / dst[0]);
+        var ax = (int) (this.ax * src[1] / dst[1]);
+        var ay = (int) (this.ay * src[2] / dst[2]);
+        var dw = (int) (this.dw * src[0] / dst[0]);
+        var dh = (int) (this.dh * src[0] / dst[0]);
+        return new ImageSlice(plane, ax, ay, dw, dh, stack);
+    }
+
     public ImageSlice withRotate(int rx, int ry) {
         var dw = -width() * Math.tan(ry) / 2;
         var dh = height() * Math.tan(rx) / 2;
@@ -282,11 +303,44 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
     public static final ImageWriter<BufferedImage> AWT_IMAGE = new BufferedImageWriter();
     public static final ImageWriter<Image> JFX_IMAGE = new JavaFxImageWriter();
 
+    /*
+     * Writers keep the rendering image as state, so the shared writers above should not be used
+     * by concurrent threads. Following factories create unshared writers.
+     */
+
+    public static ImageWriter<FlatIntArray> newIntImageWriter() {
+        return new ArrayImageWriter();
+    }
+
+    public static ImageWriter<BufferedImage> newAwtImageWriter() {
+        return new BufferedImageWriter();
+    }
+
+    public static ImageWriter<Image> newJfxImageWriter() {
+        return new JavaFxImageWriter();
+    }
+
     public interface ImageWriter<T> {
         void create(int w, int h, @Nullable T init);
 
         void set(int x, int y, int v);
 
+        /**
+         * Write a row of pixels, starting from column 0.
+         * <p>
+         * Default implementation calls {@link #set(int, int, int)} on each pixel.
+         *
+         * @param y      row index
+         * @param argb   pixel values
+         * @param offset start offset of {@code argb}
+         * @param length number of pixels
+         */
+        default void setRow(int y, int[] argb, int offset, int length) {
+            for (int x = 0; x < length; x++) {
+                set(x, y, argb[offset + x]);
+            }
+        }
+
         T get();
     }
 
@@ -299,7 +353,7 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
         public void create(int w, int h, @Nullable FlatIntArray init) {
             this.w = w;
             this.h = h;
-            if (init != null && !checkShape(init.shape())) {
+            if (init != null && checkShape(init.shape())) {
                 image = init;
             } else {
                 image = new FlatIntArray(new int[]{h, w}, new int[w * h]);
@@ -315,6 +369,11 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
             image.array()[y * w + x] = v;
         }
 
+        @Override
+        public void setRow(int y, int[] argb, int offset, int length) {
+            System.arraycopy(argb, offset, image.array(), y * w, length);
+        }
+
         @Override
         public FlatIntArray get() {
             return image;
@@ -334,6 +393,11 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
             image.setRGB(x, y, v);
         }
 
+        @Override
+        public void setRow(int y, int[] argb, int offset, int length) {
+            image.setRGB(0, y, length, 1, argb, offset, length);
+        }
+
         @Override
         public BufferedImage get() {
             return image;
@@ -355,6 +419,11 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
             writer.setArgb(x, y, v);
         }
 
+        @Override
+        public void setRow(int y, int[] argb, int offset, int length) {
+            writer.setPixels(0, y, length, 1, PixelFormat.getIntArgbInstance(), argb, offset, length);
+        }
+
         @Override
         public Image get() {
             return image;
@@ -371,7 +440,44 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
         return image(writer, 0, 0, w, h, init);
     }
 
+    /**
+     * Render the slice region into the {@code writer}.
+     * <p>
+     * Rows are sampled from the volume in parallel into a scanline buffer,
+     * then committed into the {@code writer} row by row with {@link ImageWriter#setRow(int, int[], int, int)}
+     * on the caller thread.
+     *
+     * @param writer image writer
+     * @param x      region x (px)
+     * @param y      region y (px)
+     * @param w      region width (px)
+     * @param h      region height (px)
+     * @param init   reused image. It may be ignored by the {@code writer}.
+     * @param <T>    image type
+     * @return image
+     */
     public <T> T image(ImageWriter<T> writer, int x, int y, int w, int h, @Nullable T init) {
+        var width = stack.width();
+        var height = stack.height();
+        if (x < 0 || y < 0 || w > width || h > height || x + w > width || y + h > height) {
+            throw new IllegalArgumentException();
+        }
+
+        var buffer = sample(x, y, w, h);
+
+        writer.create(w, h, init);
+        for (int y0 = 0; y0 < h; y0++) {
+            writer.setRow(y0, buffer, y0 * w, w);
+        }
+        return writer.get();
+    }
+
+    /**
+     * Sample the volume values of the slice region.
+     *
+     * @return row-major int array in shape {@code (h, w)}.
+     */
+    private int[] sample(int x, int y, int w, int h) {
         var resolution = resolution();
         var rp = resolution[0];
         var rx = resolution[1];
@@ -380,15 +486,11 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
         var plane = this.plane;
         var width = stack.width();
         var height = stack.height();
-        if (x < 0 || y < 0 || w > width || h > height || x + w > width || y + h > height) {
-            throw new IllegalArgumentException();
-        }
 
         var cx = width * rx / 2;
         var cy = height * ry / 2;
 
         var volume = stack.getVolume();
-        writer.create(w, h, init);
 
         var dw = new int[width];
         var dh = new int[height];
@@ -403,53 +505,51 @@ public record ImageSlice(int plane, int ax, int ay, int dw, int dh, ImageSliceSt
         }
         var dp = dw[ax] + dh[ay];
 
-        var px = stack.plane();
-
+        var pm = stack.plane() - 1;
         var project = projection();
-        var q = new int[3];
-
-        q[project.p] = 0;
-        q[project.x] = 1;
-        q[project.y] = 0;
+        var vw = volume.width;
 
-        var dx = volume.index(q[0], q[2], q[1]);
+        var ret = new int[w * h];
+        if (project.x == 0) {
+            // page-axis along image x-axis (sagittal), so each column reads one page.
+            IntStream.range(0, w).parallel().forEach(x0 -> {
+                var q = new int[3];
+                var x1 = x0 + x;
+                q[project.x] = x1;
+                var data = volume.pageData(x1);
 
-        q[project.p] = 0;
-        q[project.x] = 0;
-        q[project.y] = 1;
-
-        var dy = volume.index(q[0], q[2], q[1]);
-
-        /*
-        coronal     dx = 456,   dy = 1
-        transverse  dx = 456,   dy = 145920
-        sagittal    dx = 145920, dy = 1
-         */
-
-        if (dx < dy) { // transverse
-            for (int y0 = 0; y0 < h; y0++) {
-                for (int x0 = 0; x0 < w; x0++) {
-                    var x1 = x0 + x;
-                    var y1 = y0 + y;
-                    q[project.p] = Math.clamp(plane + dw[x1] + dh[y1] - dp, 0, px);
-                    q[project.x] = x1;
-                    q[project.y] = y1;
-                    writer.set(x0, y0, volume.get(q[0], q[2], q[1]));
-                }
-            }
-        } else { // coronal, sagittal
-            for (int x0 = 0; x0 < w; x0++) {
                 for (int y0 = 0; y0 < h; y0++) {
-                    var x1 = x0 + x;
                     var y1 = y0 + y;
-                    q[project.p] = Math.clamp(plane + dw[x1] + dh[y1] - dp, 0, px);
-                    q[project.x] = x1;
+                    q[project.p] = Math.clamp(plane + dw[x1] + dh[y1] - dp, 0, pm);
                     q[project.y] = y1;
-                    writer.set(x0, y0, volume.get(q[0], q[2], q[1]));
+                    ret[y0 * w + x0] = data[q[1] * vw + q[2]];
                 }
-            }
+            });
+            return ret;
         }
 
-        return writer.get();
+        IntStream.range(0, h).parallel().forEach(y0 -> {
+            var q = new int[3];
+            var y1 = y0 + y;
+            var offset = y0 * w;
+
+            var cachePage = -1;
+            int[] cacheData = null;
+
+            q[project.y] = y1;
+            for (int x0 = 0; x0 < w; x0++) {
+                var x1 = x0 + x;
+                q[project.p] = Math.clamp(plane + dw[x1] + dh[y1] - dp, 0, pm);
+                q[project.x] = x1;
+
+                // q = (AP, DV, ML) = (page, y, x)
+                // page is fixed per row (transverse), or changes slowly along x (coronal, tilted plane)
+                if (q[0] != cachePage) {
+                    cacheData = volume.pageData(cachePage = q[0]);
+                }
+                ret[offset + x0] = cacheData[q[1] * vw + q[2]];
+            }
+        });
+        return ret;
     }
 }
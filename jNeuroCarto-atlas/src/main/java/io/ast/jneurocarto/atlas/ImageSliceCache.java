@@ -0,0 +1,199 @@
+package io.ast.jneurocarto.atlas;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A bounded, memory-budgeted LRU cache of rendered slice images.
+ * <p>
+ * Images are keyed by (volume, projection, plane, dw, dh, ax, ay, writer type), so flipping between
+ * a few planes or projections does not re-sample the volume. Cached images are held through
+ * {@link SoftReference}, so they could also be dropped under memory pressure.
+ * <p>
+ * The cache does not keep volumes alive. Keys refer to a volume through an identity token, which is
+ * weakly mapped from the volume, so the cached images of a collected volume become unreachable and are evicted.
+ * <p>
+ * Returned images are shared between callers, and should be treated as read-only.
+ */
+@NullMarked
+public final class ImageSliceCache {
+
+    /**
+     * default memory budget in bytes.
+     */
+    public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    private record Key(Object volume, ImageSliceStack.Projection projection,
+                       int plane, int dw, int dh, int ax, int ay,
+                       int x, int y, int w, int h,
+                       Class<?> writer) {
+    }
+
+    private static final class Entry extends SoftReference<Object> {
+        final Key key;
+        final long size;
+
+        Entry(Key key, Object image, long size, ReferenceQueue<Object> queue) {
+            super(image, queue);
+            this.key = key;
+            this.size = size;
+        }
+    }
+
+    private final long budget;
+    private long used;
+    private final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<Object> cleared = new ReferenceQueue<>();
+    private final WeakHashMap<ImageVolume, Object> tokens = new WeakHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ImageSliceCache() {
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * @param budget memory budget in bytes. Each image is estimated as 4 bytes per pixel.
+     */
+    public ImageSliceCache(long budget) {
+        if (budget <= 0) throw new IllegalArgumentException("non-positive budget : " + budget);
+        this.budget = budget;
+    }
+
+    public long budget() {
+        return budget;
+    }
+
+    /**
+     * {@return estimated memory used by cached images in bytes}
+     */
+    public synchronized long used() {
+        purge();
+        return used;
+    }
+
+    public synchronized int size() {
+        purge();
+        return cache.size();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        used = 0;
+        while (cleared.poll() != null) ;
+    }
+
+    /**
+     * Get the rendered image of whole {@code slice}.
+     *
+     * @param slice  image slice
+     * @param writer image writer factory. A new writer is created for each rendering, so callers are not
+     *               serialized on a shared writer.
+     * @param <T>    image type
+     * @return cached image, or a newly rendered image.
+     * @see ImageSlice#image(ImageSlice.ImageWriter)
+     */
+    public <T> T image(ImageSlice slice, Supplier<? extends ImageSlice.ImageWriter<T>> writer) {
+        return image(slice, writer, 0, 0, slice.widthPx(), slice.heightPx());
+    }
+
+    /**
+     * Get the rendered image of the region of {@code slice}.
+     *
+     * @param slice  image slice
+     * @param writer image writer factory. A new writer is created for each rendering, so callers are not
+     *               serialized on a shared writer.
+     * @param x      region x (px)
+     * @param y      region y (px)
+     * @param w      region width (px)
+     * @param h      region height (px)
+     * @param <T>    image type
+     * @return cached image, or a newly rendered image.
+     * @see ImageSlice#image(ImageSlice.ImageWriter, int, int, int, int, Object)
+     */
+    public <T> T image(ImageSlice slice, Supplier<? extends ImageSlice.ImageWriter<T>> writer, int x, int y, int w, int h) {
+        var imageWriter = writer.get();
+        var key = new Key(token(slice.stack().getVolume()), slice.projection(),
+            slice.plane(), slice.dw(), slice.dh(), slice.ax(), slice.ay(),
+            x, y, w, h, imageWriter.getClass());
+
+        var cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            @SuppressWarnings("unchecked")
+            var ret = (T) cached;
+            return ret;
+        }
+
+        misses.incrementAndGet();
+        var ret = slice.image(imageWriter, x, y, w, h, null);
+        store(key, ret, 4L * w * h);
+        return ret;
+    }
+
+    private synchronized Object token(ImageVolume volume) {
+        return tokens.computeIfAbsent(volume, _ -> new Object());
+    }
+
+    /**
+     * drop entries which images were cleared by GC.
+     */
+    private void purge() {
+        Entry entry;
+        while ((entry = (Entry) cleared.poll()) != null) {
+            // the key may be mapped to a newer entry
+            if (cache.remove(entry.key, entry)) {
+                used -= entry.size;
+            }
+        }
+    }
+
+    private synchronized @Nullable Object lookup(Key key) {
+        purge();
+        var entry = cache.get(key);
+        if (entry == null) return null;
+
+        var image = entry.get();
+        if (image == null) { // cleared by GC, but not enqueued yet
+            cache.remove(key);
+            used -= entry.size;
+        }
+        return image;
+    }
+
+    private synchronized void store(Key key, Object image, long size) {
+        purge();
+        if (size > budget) return;
+
+        var old = cache.put(key, new Entry(key, image, size, cleared));
+        if (old != null) used -= old.size;
+        used += size;
+
+        var iter = cache.values().iterator();
+        while (used > budget && iter.hasNext()) {
+            var entry = iter.next();
+            iter.remove();
+            used -= entry.size;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ImageSliceCache[size=" + size() + ",used=" + used() + "/" + budget + ",hits=" + hits() + ",misses=" + misses() + "]";
+    }
+}
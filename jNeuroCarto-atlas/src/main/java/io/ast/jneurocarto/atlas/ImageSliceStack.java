@@ -2,11 +2,10 @@ package io.ast.jneurocarto.atlas;
 
 import java.util.Objects;
 
-import javafx.scene.transform.Affine;
-
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import io.ast.jneurocarto.core.Affine3D;
 import io.ast.jneurocarto.core.Coordinate;
 import io.ast.jneurocarto.core.CoordinateIndex;
 import io.ast.jneurocarto.core.ProbeTransform;
@@ -62,7 +61,16 @@ public final class ImageSliceStack {
     private final double[] resolution; // {p, x, y}
 
     public ImageSliceStack(BrainAtlas brain, ImageVolume volume, Projection project) {
-        brainResolution = brain.resolution();
+        this(brain.resolution(), volume, project);
+    }
+
+    /**
+     * @param brainResolution voxel resolution of {@code volume} on (ap, dv, ml) in um.
+     * @param volume          volume
+     * @param project         projection
+     */
+    public ImageSliceStack(double[] brainResolution, ImageVolume volume, Projection project) {
+        this.brainResolution = brainResolution;
         this.volume = volume;
         volumeShape = volume.shape();
         this.project = project;
@@ -74,6 +82,21 @@ public final class ImageSliceStack {
         this.resolution[2] = brainResolution[project.y];
     }
 
+    /**
+     * Create a stack on a downsampled volume of this stack's volume, with the same projection.
+     *
+     * @param volume downsampled volume, likes a level of {@link VolumePyramid}.
+     * @param factor downsampling factor
+     * @return a stack
+     */
+    public ImageSliceStack downsample(ImageVolume volume, int factor) {
+        var resolution = new double[3];
+        for (int i = 0; i < 3; i++) {
+            resolution[i] = brainResolution[i] * factor;
+        }
+        return new ImageSliceStack(resolution, volume, project);
+    }
+
     /**
      * Test-purpose constructor.
      *
@@ -327,12 +350,18 @@ public final class ImageSliceStack {
     }
 
     /**
+     * For a lazy volume, pages of neighbouring planes are prefetched in background in the coronal projection.
+     * Sagittal and transverse slices cross every page of the volume, so neighbouring planes need the same pages
+     * and nothing is prefetched. Their cost is bound by the page cache size instead
+     * (see {@link BrainAtlas#setAnnotationCacheSize(int)}).
+     *
      * @param plane index
      * @return
      */
     public ImageSlice sliceAtPlane(int plane) {
         int ax = width() / 2;
         int ay = height() / 2;
+        prefetch(plane, 0, 0);
         return new ImageSlice(plane, ax, ay, 0, 0, this);
     }
 
@@ -346,6 +375,7 @@ public final class ImageSliceStack {
     }
 
     public ImageSlice sliceAtPlane(SliceCoordinateIndex coor) {
+        prefetch(coor.p(), 0, 0);
         return new ImageSlice(coor.p(), coor.x(), coor.y(), 0, 0, this);
     }
 
@@ -363,9 +393,33 @@ public final class ImageSliceStack {
 
     public ImageSlice sliceAtPlane(ImageSlice slice) {
         if (slice.projection() != project) throw new IllegalArgumentException("different projection");
+        prefetch(slice.plane(), slice.dw(), slice.dh());
         return new ImageSlice(slice.plane(), slice.ax(), slice.ay(), slice.dw(), slice.dh(), this);
     }
 
+    /**
+     * number of neighbouring planes prefetched around the requested plane.
+     */
+    private static final int PREFETCH_PLANES = 2;
+
+    /**
+     * Prefetch pages of a lazy volume which are used by the slice at {@code plane}.
+     * <p>
+     * Only works on the projection which plane-axis is the page-axis of the volume (coronal).
+     * Slices of other projections touch all pages, so there are no neighbouring pages to prefetch.
+     *
+     * @param plane plane index
+     * @param dw    offset at width-edge
+     * @param dh    offset at height-edge
+     */
+    private void prefetch(int plane, int dw, int dh) {
+        var volume = this.volume;
+        if (volume == null || !volume.isLazy() || project.p != 0) return;
+
+        var range = Math.abs(dw) + Math.abs(dh) + PREFETCH_PLANES;
+        volume.prefetch(plane - range, plane + range + 1);
+    }
+
     /**
      * {@return a transformation from global anatomical space to slice space}
      */
@@ -377,7 +431,7 @@ public final class ImageSliceStack {
         t[0 + project.x] = 1;
         t[3 + project.y] = 1;
         t[6 + project.p] = 1;
-        var a = new Affine(t[0], t[1], t[2], 0, t[3], t[4], t[5], 0, t[6], t[7], t[8], 0);
+        var a = new Affine3D(t[0], t[1], t[2], 0, t[3], t[4], t[5], 0, t[6], t[7], t[8], 0);
         return ProbeTransform.create(ProbeTransform.ANATOMICAL, SliceDomain.INSTANCE, a);
     }
 
@@ -392,7 +446,7 @@ public final class ImageSliceStack {
         t[3 * project.x + 0] = 1;
         t[3 * project.y + 1] = 1;
         t[3 * project.p + 2] = 1;
-        var a = new Affine(t[0], t[1], t[2], 0, t[3], t[4], t[5], 0, t[6], t[7], t[8], 0);
+        var a = new Affine3D(t[0], t[1], t[2], 0, t[3], t[4], t[5], 0, t[6], t[7], t[8], 0);
         return ProbeTransform.create(SliceDomain.INSTANCE, ProbeTransform.ANATOMICAL, a);
     }
 
@@ -2,9 +2,26 @@ package io.ast.jneurocarto.atlas;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.jspecify.annotations.Nullable;
 
 import io.ast.jneurocarto.core.CoordinateIndex;
 
@@ -18,7 +35,16 @@ public class ImageVolume {
      */
     public final boolean colored;
 
-    private final int[] data;
+    /**
+     * page-major storage. Each page is a {@code height * width} row-major array.
+     * It is {@code null} for a lazy volume.
+     */
+    private final int @Nullable [][] data;
+
+    /**
+     * page storage for a lazy volume.
+     */
+    private final @Nullable PageCache cache;
 
     public ImageVolume(int page, int height, int width, boolean colored) {
         if (page < 0) throw new IllegalArgumentException("negative page : " + page);
@@ -28,65 +54,497 @@ public class ImageVolume {
         this.height = height;
         this.width = width;
         this.colored = colored;
-        this.data = new int[page * height * width];
+        this.data = new int[page][height * width];
+        this.cache = null;
     }
 
+    /**
+     * Copy a volume. A lazy volume is fully loaded, and the return volume is always not lazy.
+     *
+     * @param image source volume
+     */
     public ImageVolume(ImageVolume image) {
         this.page = image.page;
         this.height = image.height;
         this.width = image.width;
         this.colored = image.colored;
-        this.data = image.data.clone();
+        this.data = new int[page][];
+        this.cache = null;
+        for (int p = 0; p < page; p++) {
+            data[p] = image.pageData(p).clone();
+        }
+    }
+
+    private ImageVolume(int page, int height, int width, boolean colored, PageLoader loader, int capacity,
+                        @Nullable ProgressListener progress) {
+        if (capacity <= 0) throw new IllegalArgumentException("non-positive cache capacity : " + capacity);
+        this.page = page;
+        this.height = height;
+        this.width = width;
+        this.colored = colored;
+        this.data = null;
+        this.cache = new PageCache(loader, capacity, progress);
+    }
+
+    /**
+     * Loading progress listener of {@link #readTiff(Path, ProgressListener)} and
+     * {@link #openTiff(Path, int, ProgressListener)}. For a lazy volume, {@code loaded} counts
+     * distinct pages decoded so far.
+     * <p>
+     * It may be invoked from worker threads, in any page order.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param loaded number of loaded pages.
+         * @param total  total number of pages.
+         */
+        void onProgress(int loaded, int total);
     }
 
     /// load tiff image.
     ///
     /// [reference](https://github.com/haraldk/TwelveMonkeys?tab=readme-ov-file#advanced-usage)
     public static ImageVolume readTiff(Path file) throws IOException {
-        try (var input = ImageIO.createImageInputStream(file.toFile())) {
-            var readers = ImageIO.getImageReaders(input);
+        return readTiff(file, null);
+    }
+
+    /**
+     * daemon workers for decoding tiff pages. Decoding blocks on file reading, so it does not
+     * run on the common fork-join pool, and idle workers are released after a while.
+     */
+    private static final ExecutorService DECODER = Executors.newCachedThreadPool(
+        Thread.ofPlatform().name("tiff-decoder-", 0).daemon().factory()
+    );
+
+    /// load tiff image with pages decoded in parallel on the dedicated decoder workers.
+    ///
+    /// @param file     tiff file
+    /// @param progress loading progress listener.
+    public static ImageVolume readTiff(Path file, @Nullable ProgressListener progress) throws IOException {
+        return readTiff(file, DECODER, Runtime.getRuntime().availableProcessors(), progress);
+    }
+
+    /// load tiff image with pages decoded in parallel.
+    ///
+    /// Pages are split into contiguous ranges, one range per worker. Each worker opens
+    /// its own [ImageReader] over the same file and writes decoded rows directly into
+    /// the backing array of the returned volume.
+    ///
+    /// Workers check for cancellation between pages. When the calling thread is interrupted,
+    /// or any worker fails, the rest workers stop at their next page.
+    ///
+    /// @param file     tiff file
+    /// @param pool     worker pool
+    /// @param workers  maximal number of workers
+    /// @param progress loading progress listener.
+    public static ImageVolume readTiff(Path file, ExecutorService pool, int workers, @Nullable ProgressListener progress) throws IOException {
+        var header = readTiffHeader(file);
+        var ret = new ImageVolume(header[0], header[1], header[2], header[3] != 0);
+
+        var page = ret.page;
+        if (page == 0) return ret;
+
+        var loaded = new AtomicInteger();
+        var cancelled = new AtomicBoolean();
+        workers = Math.max(1, Math.min(workers, page));
+        if (workers == 1) {
+            ret.readTiffPages(file, 0, page, loaded, cancelled, progress);
+            return ret;
+        }
 
-            if (!readers.hasNext()) {
-                throw new IllegalArgumentException("No reader for: " + file);
+        var tasks = new ArrayList<Future<?>>(workers);
+        for (int i = 0; i < workers; i++) {
+            var start = page * i / workers;
+            var end = page * (i + 1) / workers;
+            tasks.add(pool.submit(() -> {
+                ret.readTiffPages(file, start, end, loaded, cancelled, progress);
+                return null;
+            }));
+        }
+
+        try {
+            for (var task : tasks) {
+                task.get();
             }
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            tasks.forEach(it -> it.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted during reading " + file);
+        } catch (ExecutionException e) {
+            cancelled.set(true);
+            tasks.forEach(it -> it.cancel(true));
+            if (e.getCause() instanceof IOException ex) throw ex;
+            throw new IOException("fail reading " + file, e.getCause());
+        }
 
-            var reader = readers.next();
-            try {
-                reader.setInput(input);
+        return ret;
+    }
 
+    /// open tiff image lazily.
+    ///
+    /// Only the tiff header is read. Pages are decoded on demand when they are accessed,
+    /// and kept in a bounded page cache. Once the cache is full, a page not used recently
+    /// is dropped and decoded again on next access.
+    ///
+    /// A lazy volume is read-only.
+    ///
+    /// @param file     tiff file
+    /// @param capacity maximal number of decoded pages kept in memory.
+    ///                 Use [Integer#MAX_VALUE] to keep all decoded pages.
+    public static ImageVolume openTiff(Path file, int capacity) throws IOException {
+        return openTiff(file, capacity, null);
+    }
+
+    /// open tiff image lazily.
+    ///
+    /// @param file     tiff file
+    /// @param capacity maximal number of decoded pages kept in memory.
+    /// @param progress page decoding listener.
+    /// @see #openTiff(Path, int)
+    public static ImageVolume openTiff(Path file, int capacity, @Nullable ProgressListener progress) throws IOException {
+        var header = readTiffHeader(file);
+        var colored = header[3] != 0;
+        var width = header[2];
+        var height = header[1];
+        var loader = new TiffPageLoader(file, colored, width, height);
+        return new ImageVolume(header[0], height, width, colored, loader, capacity, progress);
+    }
+
+    /**
+     * {@return int array of {page, height, width, colored}}
+     */
+    private static int[] readTiffHeader(Path file) throws IOException {
+        try (var input = ImageIO.createImageInputStream(file.toFile())) {
+            var reader = openTiffReader(file, input);
+            try {
                 int page = reader.getNumImages(true);
                 int width = reader.getWidth(0);
                 int height = reader.getHeight(0);
                 int type = reader.getRawImageType(0).getBufferedImageType();
-                var ret = new ImageVolume(page, height, width, type != BufferedImage.TYPE_CUSTOM);
-
-                if (!ret.colored) {
-                    var buffer = new int[width];
-                    for (int p = 0; p < page; p++) {
-                        var raster = reader.read(p).getRaster();
-                        for (int y = 0; y < height; y++) {
-                            raster.getPixels(0, y, width, 1, buffer);
-                            ret.set(p, 0, y, width, 1, buffer);
-                        }
-                    }
-                } else {
-                    for (int p = 0; p < page; p++) {
-                        var image = reader.read(p);
-                        for (int y = 0; y < height; y++) {
-                            for (int x = 0; x < width; x++) {
-                                ret.set(p, x, y, image.getRGB(x, y));
-                            }
-                        }
+                return new int[]{page, height, width, type != BufferedImage.TYPE_CUSTOM ? 1 : 0};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader openTiffReader(Path file, @Nullable ImageInputStream input) {
+        if (input == null) {
+            throw new IllegalArgumentException("unable to open: " + file);
+        }
+
+        var readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IllegalArgumentException("No reader for: " + file);
+        }
+
+        var reader = readers.next();
+        reader.setInput(input);
+        return reader;
+    }
+
+    /**
+     * Read pages in range [{@code start}, {@code end}) with a dedicated reader.
+     */
+    private void readTiffPages(Path file, int start, int end,
+                               AtomicInteger loaded,
+                               AtomicBoolean cancelled,
+                               @Nullable ProgressListener progress) throws IOException {
+        var data = Objects.requireNonNull(this.data);
+        try (var input = ImageIO.createImageInputStream(file.toFile())) {
+            var reader = openTiffReader(file, input);
+            try {
+                var buffer = colored ? null : new int[width];
+                for (int p = start; p < end; p++) {
+                    if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("cancelled reading " + file);
                     }
-                }
+                    readTiffPage(reader.read(p), colored, width, height, data[p], buffer);
 
-                return ret;
+                    var count = loaded.incrementAndGet();
+                    if (progress != null) progress.onProgress(count, page);
+                }
             } finally {
                 reader.dispose();
             }
         }
     }
 
+    private static void readTiffPage(BufferedImage image, boolean colored, int width, int height, int[] output, int @Nullable [] buffer) {
+        if (colored) {
+            image.getRGB(0, 0, width, height, output, 0, width);
+        } else {
+            assert buffer != null;
+            var raster = image.getRaster();
+            for (int y = 0; y < height; y++) {
+                raster.getPixels(0, y, width, 1, buffer);
+                System.arraycopy(buffer, 0, output, y * width, width);
+            }
+        }
+    }
+
+    /*=============*
+     * lazy volume *
+     *=============*/
+
+    private interface PageLoader {
+        void load(int page, int[] output) throws IOException;
+    }
+
+    /**
+     * Page loader keeping open tiff readers over the file.
+     * <p>
+     * A reader indexes the IFD offsets of all pages once when it is opened, so following reads
+     * seek to the page directly instead of walking the IFD chain from the first page. An
+     * {@link ImageReader} is not thread-safe, so each load borrows an idle reader, or opens a new one
+     * when all are in use. At most {@link #MAX_IDLE} readers are kept open.
+     */
+    private static final class TiffPageLoader implements PageLoader {
+        private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+        private final Path file;
+        private final boolean colored;
+        private final int width;
+        private final int height;
+        private final ConcurrentLinkedDeque<ImageReader> idle = new ConcurrentLinkedDeque<>();
+
+        TiffPageLoader(Path file, boolean colored, int width, int height) {
+            this.file = file;
+            this.colored = colored;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void load(int page, int[] output) throws IOException {
+            var reader = idle.pollFirst();
+            if (reader == null) reader = open();
+
+            try {
+                readTiffPage(reader.read(page), colored, width, height, output, colored ? null : new int[width]);
+            } catch (IOException | RuntimeException e) {
+                close(reader);
+                throw e;
+            }
+
+            if (idle.size() < MAX_IDLE) {
+                idle.offerFirst(reader);
+            } else {
+                close(reader);
+            }
+        }
+
+        private ImageReader open() throws IOException {
+            var input = ImageIO.createImageInputStream(file.toFile());
+            var reader = openTiffReader(file, input);
+            try {
+                reader.getNumImages(true); // index all IFDs
+            } catch (IOException | RuntimeException e) {
+                close(reader);
+                throw e;
+            }
+            return reader;
+        }
+
+        private static void close(ImageReader reader) {
+            var input = reader.getInput();
+            reader.dispose();
+            if (input instanceof ImageInputStream stream) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // ignored
+                }
+            }
+        }
+    }
+
+    /**
+     * Bounded page cache of a lazy volume.
+     * <p>
+     * Cached pages are kept in an array indexed by page, so reading a cached page is a volatile read
+     * without locking. Eviction follows the CLOCK policy: an access only sets the reference flag of the page,
+     * and the clock hand, moved under the lock when a new page is inserted, clears the flag of referenced pages
+     * and drops the first page which was not referenced since the last round. Concurrent requests of the same
+     * missing page share one decode.
+     */
+    private final class PageCache {
+        private final PageLoader loader;
+        private final int capacity;
+        private final @Nullable ProgressListener progress;
+        private final AtomicReferenceArray<int[]> pages;
+
+        /**
+         * reference flags of the CLOCK policy. Racy writes are fine, as it is only a hint for eviction.
+         */
+        private final byte[] referenced;
+
+        // guarded by this
+        private final Map<Integer, CompletableFuture<int[]>> loading = new HashMap<>();
+        private final BitSet decoded = new BitSet();
+        private int size;
+        private int hand;
+
+        PageCache(PageLoader loader, int capacity, @Nullable ProgressListener progress) {
+            this.loader = loader;
+            this.capacity = capacity;
+            this.progress = progress;
+            pages = new AtomicReferenceArray<>(page);
+            referenced = new byte[page];
+        }
+
+        boolean isLoaded(int p) {
+            return pages.get(p) != null;
+        }
+
+        int[] get(int p) {
+            var data = pages.get(p);
+            if (data != null) {
+                if (referenced[p] == 0) referenced[p] = 1;
+                return data;
+            }
+            return load(p);
+        }
+
+        private int[] load(int p) {
+            CompletableFuture<int[]> future;
+            boolean owner = false;
+            synchronized (this) {
+                var data = pages.get(p);
+                if (data != null) return data;
+
+                future = loading.get(p);
+                if (future == null) {
+                    loading.put(p, future = new CompletableFuture<>());
+                    owner = true;
+                }
+            }
+
+            if (owner) {
+                var data = new int[height * width];
+                try {
+                    loader.load(p, data);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (this) {
+                        loading.remove(p);
+                    }
+                    future.completeExceptionally(e);
+                    if (e instanceof IOException ex) throw new UncheckedIOException(ex);
+                    throw (RuntimeException) e;
+                }
+
+                int count;
+                synchronized (this) {
+                    loading.remove(p);
+                    insert(p, data);
+                    decoded.set(p);
+                    count = decoded.cardinality();
+                }
+                future.complete(data);
+
+                var progress = this.progress;
+                if (progress != null) progress.onProgress(count, page);
+                return data;
+            }
+
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException ex) throw new UncheckedIOException(ex);
+                if (e.getCause() instanceof RuntimeException ex) throw ex;
+                throw e;
+            }
+        }
+
+        /**
+         * insert a page and evict pages over capacity. Called with the lock held.
+         */
+        private void insert(int p, int[] data) {
+            pages.set(p, data);
+            referenced[p] = 1;
+            size++;
+
+            while (size > capacity) {
+                var q = hand;
+                hand = (hand + 1) % page;
+                if (q == p || pages.get(q) == null) continue;
+                if (referenced[q] != 0) {
+                    referenced[q] = 0;
+                } else {
+                    pages.set(q, null);
+                    size--;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@return Is this volume loaded lazily?}
+     */
+    public boolean isLazy() {
+        return cache != null;
+    }
+
+    /**
+     * Is the page decoded and kept in memory?
+     *
+     * @param page page index
+     * @return {@code true} for a not lazy volume.
+     */
+    public boolean isPageLoaded(int page) {
+        var cache = this.cache;
+        return cache == null || cache.isLoaded(page);
+    }
+
+    /**
+     * Decode pages in range [{@code start}, {@code end}) in background, if they are not loaded yet.
+     * Page index out of boundary is ignored. It does nothing for a not lazy volume.
+     *
+     * @param start start page index (inclusive)
+     * @param end   end page index (exclusive)
+     */
+    public void prefetch(int start, int end) {
+        var cache = this.cache;
+        if (cache == null) return;
+
+        var s = Math.max(0, start);
+        var e = Math.min(page, end);
+        if (s >= e) return;
+
+        Thread.ofVirtual().name("prefetch pages").start(() -> {
+            for (int p = s; p < e; p++) {
+                if (!cache.isLoaded(p)) {
+                    try {
+                        cache.get(p);
+                    } catch (RuntimeException ex) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the backing array of the page.
+     *
+     * @param page page index, not checked.
+     * @return row-major array in shape {@code (height, width)}.
+     * @throws UncheckedIOException when lazy loading fail.
+     */
+    int[] pageData(int page) {
+        var data = this.data;
+        if (data != null) return data[page];
+        return Objects.requireNonNull(cache).get(page);
+    }
+
+    private int[] writablePageData(int page) {
+        var data = this.data;
+        if (data == null) throw new UnsupportedOperationException("lazy volume is read-only");
+        return data[page];
+    }
+
     /**
      * {@return int array of {page, height, width}}
      */
@@ -101,12 +559,9 @@ public class ImageVolume {
         return page * (height * width) + y * width + x;
     }
 
-    private int indexFast(int page, int y, int x) {
-        return page * (height * width) + y * width + x;
-    }
-
     public int get(int page, int x, int y) {
-        return data[index(page, y, x)];
+        index(page, y, x); // check and throw
+        return pageData(page)[y * width + x];
     }
 
     public int[] get(int page, int x, int y, int w, int h, int[] buffer) {
@@ -120,8 +575,10 @@ public class ImageVolume {
             throw new IndexOutOfBoundsException("buffer too small");
         }
 
-        var origin = index(page, y, x); // check and throw
+        index(page, y, x); // check and throw
         index(page, y + h - 1, x + w - 1); // check and throw
+        var data = pageData(page);
+        var origin = y * width + x;
         for (int j = 0; j < h; j++) {
             System.arraycopy(data, origin + j * width, buffer, offset + j * w, w);
         }
@@ -129,11 +586,12 @@ public class ImageVolume {
     }
 
     public int get(CoordinateIndex coor) {
-        return data[index(coor.ap(), coor.dv(), coor.ml())];
+        return get(coor.ap(), coor.ml(), coor.dv());
     }
 
     public void set(int page, int x, int y, int value) {
-        data[index(page, y, x)] = value;
+        index(page, y, x); // check and throw
+        writablePageData(page)[y * width + x] = value;
     }
 
     public void set(int page, int x, int y, int w, int h, int[] buffer) {
@@ -147,16 +605,18 @@ public class ImageVolume {
             throw new IndexOutOfBoundsException("buffer too small");
         }
 
-        var origin = index(page, y, x); // check and throw
+        index(page, y, x); // check and throw
         index(page, y + h - 1, x + w - 1); // check and throw
 
+        var data = writablePageData(page);
+        var origin = y * width + x;
         for (int j = 0; j < h; j++) {
             System.arraycopy(buffer, offset + j * w, data, origin + j * width, w);
         }
     }
 
     public void set(CoordinateIndex coor, int value) {
-        data[index(coor.ap(), coor.dv(), coor.ml())] = value;
+        set(coor.ap(), coor.ml(), coor.dv(), value);
     }
 
     public void normalizeGrayLevel() {
@@ -164,30 +624,167 @@ public class ImageVolume {
     }
 
     public void normalizeGrayLevel(float factor) {
+        if (!colored) throw new IllegalArgumentException("not a colored value.");
+        normalizeGrayLevel(maxGrayLevel(), factor);
+    }
+
+    /**
+     * {@return maximal gray level (the lowest byte) over the volume}
+     */
+    public int maxGrayLevel() {
+        var ret = 0;
+        for (int p = 0; p < page; p++) {
+            for (var value : pageData(p)) {
+                ret = Math.max(ret, value & 0xFF);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Normalize gray level with given maximal level {@code m}, so volumes in different
+     * downsampling levels of the same source could share the same gray scale.
+     *
+     * @param m      maximal gray level, maps to {@code 0xFF / factor}.
+     * @param factor scaling factor
+     */
+    public void normalizeGrayLevel(int m, float factor) {
         if (!colored) throw new IllegalArgumentException("not a colored value.");
         if (factor <= 0) throw new IllegalArgumentException("factor = " + factor);
 
-        var m = Arrays.stream(data).map(it -> it & 0xFF).max().orElse(0);
+        var data = this.data;
+        if (data == null) throw new UnsupportedOperationException("lazy volume is read-only");
+
         if (m == 0) return;
 
-        var total = page * width * height;
-        for (int i = 0; i < total; i++) {
-            var value = data[i] & 0xFF;
-            value = Math.min((int) ((float) value / m / factor * 0xFF), 0xFF);
-            data[i] = 0xFF000000 | (value << 16) | (value << 8) | (value);
+        for (var array : data) {
+            for (int i = 0, total = array.length; i < total; i++) {
+                var value = array[i] & 0xFF;
+                value = Math.min((int) ((float) value / m / factor * 0xFF), 0xFF);
+                array[i] = 0xFF000000 | (value << 16) | (value << 8) | (value);
+            }
         }
     }
 
 
+    /*==============*
+     * downsampling *
+     *==============*/
+
+    /**
+     * How a block of voxels is pooled into a downsampled voxel.
+     */
+    public enum Pooling {
+        /**
+         * average value. For a colored volume, each channel is averaged separately.
+         * It is used on intensity volumes, like the reference.
+         */
+        average,
+        /**
+         * most frequent value. It is used on label volumes, like the annotation.
+         */
+        mode
+    }
+
+    /**
+     * Downsample the volume by {@code factor} on each axis. Partial blocks on the far edges are pooled
+     * with available voxels, so the shape of the return volume is {@code ceil(shape / factor)}.
+     * Pages are processed in parallel.
+     *
+     * @param factor  downsampling factor
+     * @param pooling pooling method
+     * @return a new, non-lazy volume.
+     */
+    public ImageVolume downsample(int factor, Pooling pooling) {
+        if (factor <= 0) throw new IllegalArgumentException("non-positive factor : " + factor);
+        if (factor == 1) return new ImageVolume(this);
+
+        var np = (page + factor - 1) / factor;
+        var nh = (height + factor - 1) / factor;
+        var nw = (width + factor - 1) / factor;
+        var ret = new ImageVolume(np, nh, nw, colored);
+        var out = Objects.requireNonNull(ret.data);
+
+        IntStream.range(0, np).parallel().forEach(p -> {
+            var block = new int[factor * factor * factor];
+            var p0 = p * factor;
+            var p1 = Math.min(p0 + factor, page);
+
+            var pages = new int[p1 - p0][];
+            for (int i = 0; i < pages.length; i++) {
+                pages[i] = pageData(p0 + i);
+            }
+
+            var dst = out[p];
+            for (int y = 0; y < nh; y++) {
+                var y0 = y * factor;
+                var y1 = Math.min(y0 + factor, height);
+                for (int x = 0; x < nw; x++) {
+                    var x0 = x * factor;
+                    var x1 = Math.min(x0 + factor, width);
+
+                    var n = 0;
+                    for (var src : pages) {
+                        for (int yy = y0; yy < y1; yy++) {
+                            var offset = yy * width;
+                            for (int xx = x0; xx < x1; xx++) {
+                                block[n++] = src[offset + xx];
+                            }
+                        }
+                    }
+
+                    dst[y * nw + x] = switch (pooling) {
+                        case average -> colored ? averageArgb(block, n) : average(block, n);
+                        case mode -> mode(block, n);
+                    };
+                }
+            }
+        });
+
+        return ret;
+    }
+
+    private static int average(int[] block, int n) {
+        var sum = 0L;
+        for (int i = 0; i < n; i++) {
+            sum += block[i];
+        }
+        return (int) (sum / n);
+    }
+
+    private static int averageArgb(int[] block, int n) {
+        long a = 0, r = 0, g = 0, b = 0;
+        for (int i = 0; i < n; i++) {
+            var v = block[i];
+            a += (v >>> 24) & 0xFF;
+            r += (v >> 16) & 0xFF;
+            g += (v >> 8) & 0xFF;
+            b += v & 0xFF;
+        }
+        return (int) ((a / n) << 24 | (r / n) << 16 | (g / n) << 8 | (b / n));
+    }
+
+    private static int mode(int[] block, int n) {
+        Arrays.sort(block, 0, n);
+        var ret = block[0];
+        var best = 0;
+        for (int i = 0; i < n; ) {
+            var j = i + 1;
+            while (j < n && block[j] == block[i]) j++;
+            if (j - i > best) {
+                best = j - i;
+                ret = block[i];
+            }
+            i = j;
+        }
+        return ret;
+    }
+
     public BufferedImage image(int page) {
         if (!colored) throw new IllegalArgumentException("not a colored image.");
         if (page < 0 || page >= this.page) throw new IndexOutOfBoundsException("page (%d) over boundary (%d).".formatted(page, this.page));
         var ret = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                ret.setRGB(x, y, data[indexFast(page, y, x)]);
-            }
-        }
+        ret.setRGB(0, 0, width, height, pageData(page), 0, width);
         return ret;
     }
 
@@ -0,0 +1,437 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import org.jspecify.annotations.NullMarked;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.ast.jneurocarto.core.ElectrodeDescription;
+import io.ast.jneurocarto.core.ImplantCoordinate;
+import io.ast.jneurocarto.core.ProbeTransform;
+
+/**
+ * Search implant coordinates which maximize the number of electrodes inside a target structure (and its sub-structures).
+ * <p>
+ * Candidates are taken from a grid over the ranges of ap, ml, depth and rotations. The grid is searched
+ * coarse-to-fine: a coarse grid is evaluated first, then only the neighborhoods of the best candidates are
+ * refined, halving the grid step on each round until the given step. Candidates in each round are evaluated
+ * in parallel.
+ * <p>
+ * Electrodes are placed along the probe by {@link ProbeTransform#create(ImplantCoordinate)}, the same transform
+ * used by {@link ImplantCoordinate#tipCoordinate()}, as described in {@link Electrodes}.
+ */
+@NullMarked
+public final class ImplantSearch {
+
+    /**
+     * searching axes.
+     */
+    public enum Axis {
+        ap, ml, depth, rap, rdv, rml
+    }
+
+    /**
+     * A searching range.
+     *
+     * @param start start value, inclusive.
+     * @param stop  stop value, inclusive.
+     * @param step  step value. It is ignored when {@code start == stop}.
+     */
+    public record Range(double start, double stop, double step) {
+        public Range {
+            if (stop < start) throw new IllegalArgumentException("stop < start");
+            if (stop > start && !(step > 0)) throw new IllegalArgumentException("non-positive step : " + step);
+        }
+
+        /**
+         * {@return a range contains a single {@code value}}
+         */
+        public static Range of(double value) {
+            return new Range(value, value, 1);
+        }
+
+        /**
+         * Parse a range in form {@code START:STOP:STEP} or {@code VALUE}.
+         *
+         * @param text range text
+         * @return range
+         * @throws IllegalArgumentException wrong format
+         */
+        public static Range parse(String text) {
+            var part = text.split(":");
+            return switch (part.length) {
+                case 1 -> of(Double.parseDouble(part[0]));
+                case 3 -> new Range(Double.parseDouble(part[0]), Double.parseDouble(part[1]), Double.parseDouble(part[2]));
+                default -> throw new IllegalArgumentException("not a range : " + text);
+            };
+        }
+
+        /**
+         * {@return number of grid values}
+         */
+        public int size() {
+            return start == stop ? 1 : (int) Math.floor((stop - start) / step + 1e-9) + 1;
+        }
+
+        public double value(int i) {
+            return start + i * step;
+        }
+
+        public Range offset(double offset) {
+            return new Range(start + offset, stop + offset, step);
+        }
+    }
+
+    /**
+     * A search result.
+     *
+     * @param implant implant coordinate in global anatomical space.
+     * @param count   number of electrodes inside the target.
+     */
+    public record Candidate(ImplantCoordinate implant, int count) {
+    }
+
+    public static final int DEFAULT_COARSE_FACTOR = 8;
+    public static final int DEFAULT_SEEDS = 16;
+
+
+    private static final Logger log = LoggerFactory.getLogger(ImplantSearch.class);
+
+    private final ImageVolume annotation;
+    private final double[] resolution;
+    private final StructureMask target;
+
+    private ImplantCoordinate base = new ImplantCoordinate(0, 0);
+    private final Range[] ranges = new Range[Axis.values().length];
+    private int coarseFactor = DEFAULT_COARSE_FACTOR;
+    private int seeds = DEFAULT_SEEDS;
+    private long evaluated;
+
+    /**
+     * @param brain  brain atlas
+     * @param target target structure. Its sub-structures are included.
+     * @throws IOException fail to load annotation volume.
+     */
+    public ImplantSearch(BrainAtlas brain, Structure target) throws IOException {
+        this(brain.annotation(), brain.resolution(), StructureMask.compile(brain.structures(), target));
+    }
+
+    ImplantSearch(ImageVolume annotation, double[] resolution, StructureMask target) {
+        this.annotation = annotation;
+        this.resolution = resolution;
+        this.target = target;
+        setBase(base);
+    }
+
+    /**
+     * Set the base implant coordinate, which provides the insertion dv and the shank,
+     * as well as the values of axes without a given range.
+     *
+     * @param base implant coordinate in global anatomical space.
+     * @return this
+     * @throws IllegalArgumentException {@code base} is a referenced coordinate.
+     */
+    public ImplantSearch setBase(ImplantCoordinate base) {
+        if (base.reference() != null) throw new IllegalArgumentException("not a global anatomical coordinate");
+        this.base = base;
+        ranges[Axis.ap.ordinal()] = Range.of(base.ap());
+        ranges[Axis.ml.ordinal()] = Range.of(base.ml());
+        ranges[Axis.depth.ordinal()] = Range.of(base.depth());
+        ranges[Axis.rap.ordinal()] = Range.of(base.rap());
+        ranges[Axis.rdv.ordinal()] = Range.of(base.rdv());
+        ranges[Axis.rml.ordinal()] = Range.of(base.rml());
+        return this;
+    }
+
+    public ImplantCoordinate getBase() {
+        return base;
+    }
+
+    /**
+     * Set the searching range on {@code axis}. Position and depth are in um, and rotations are in degree.
+     *
+     * @param axis  axis
+     * @param range range
+     * @return this
+     */
+    public ImplantSearch setRange(Axis axis, Range range) {
+        ranges[axis.ordinal()] = range;
+        return this;
+    }
+
+    public Range getRange(Axis axis) {
+        return ranges[axis.ordinal()];
+    }
+
+    /**
+     * Set the grid step of the first round, in unit of the range steps.
+     *
+     * @param factor a power of 2. {@code 1} for an exhaustive search.
+     * @return this
+     */
+    public ImplantSearch setCoarseFactor(int factor) {
+        if (factor <= 0 || Integer.bitCount(factor) != 1) {
+            throw new IllegalArgumentException("not a power of 2 : " + factor);
+        }
+        coarseFactor = factor;
+        return this;
+    }
+
+    /**
+     * Set number of best candidates which neighborhoods are refined in each round.
+     *
+     * @param seeds number of seeds.
+     * @return this
+     */
+    public ImplantSearch setSeeds(int seeds) {
+        if (seeds <= 0) throw new IllegalArgumentException("non-positive seeds : " + seeds);
+        this.seeds = seeds;
+        return this;
+    }
+
+    /**
+     * {@return number of evaluated candidates in the last search}
+     */
+    public long evaluated() {
+        return evaluated;
+    }
+
+    /*========*
+     * search *
+     *========*/
+
+    /**
+     * Search the best {@code k} implant coordinates.
+     *
+     * @param electrodes electrodes of the probe.
+     * @param k          number of returned candidates.
+     * @return candidates, sorted by the electrode count in descending order.
+     */
+    public List<Candidate> search(List<ElectrodeDescription> electrodes, int k) {
+        var size = electrodes.size();
+        var x = new int[size];
+        var y = new int[size];
+        for (int i = 0; i < size; i++) {
+            var e = electrodes.get(i);
+            x[i] = e.x();
+            y[i] = e.y();
+        }
+        return search(x, y, k);
+    }
+
+    /**
+     * Search the best {@code k} implant coordinates.
+     *
+     * @param x electrode x positions in um.
+     * @param y electrode y positions in um, measured from the probe tip.
+     * @param k number of returned candidates.
+     * @return candidates, sorted by the electrode count in descending order.
+     */
+    public List<Candidate> search(int[] x, int[] y, int k) {
+        if (x.length != y.length) throw new IllegalArgumentException("length mismatch");
+        if (k <= 0) throw new IllegalArgumentException("non-positive k : " + k);
+
+        var dims = Arrays.stream(ranges).mapToInt(Range::size).toArray();
+        var evaluated = new HashMap<Long, Integer>();
+
+        var step = coarseFactor;
+        var batch = coarseGrid(dims, step);
+        evaluate(dims, batch, x, y, evaluated);
+        var best = top(evaluated, Math.max(k, seeds));
+
+        while (step > 1) {
+            step /= 2;
+            batch = neighbors(dims, best, step, evaluated.keySet());
+            evaluate(dims, batch, x, y, evaluated);
+            best = top(evaluated, Math.max(k, seeds));
+            log.debug("refine step={}, candidates={}, best={}", step, batch.length, evaluated.get(best[0]));
+        }
+
+        this.evaluated = evaluated.size();
+        log.debug("evaluated {} candidates", this.evaluated);
+
+        var ret = new ArrayList<Candidate>(k);
+        for (int i = 0, n = Math.min(k, best.length); i < n; i++) {
+            ret.add(new Candidate(implant(decode(dims, best[i])), evaluated.get(best[i])));
+        }
+        return ret;
+    }
+
+    /**
+     * Count electrodes inside the target for a given implant.
+     *
+     * @param implant implant coordinate in global anatomical space.
+     * @param x       electrode x positions in um.
+     * @param y       electrode y positions in um, measured from the probe tip.
+     * @return number of electrodes.
+     */
+    public int count(ImplantCoordinate implant, int[] x, int[] y) {
+        return count(matrix(implant), x, y);
+    }
+
+    private static long[] coarseGrid(int[] dims, int step) {
+        var axes = new int[dims.length][];
+        for (int i = 0; i < dims.length; i++) {
+            var n = dims[i];
+            var values = IntStream.iterate(0, v -> v < n, v -> v + step).toArray();
+            if (values[values.length - 1] != n - 1) { // always include the stop value
+                values = Arrays.copyOf(values, values.length + 1);
+                values[values.length - 1] = n - 1;
+            }
+            axes[i] = values;
+        }
+
+        var total = 1;
+        for (var values : axes) total *= values.length;
+
+        var ret = new long[total];
+        var index = new int[dims.length];
+        for (int j = 0; j < total; j++) {
+            var r = j;
+            for (int i = dims.length - 1; i >= 0; i--) {
+                var values = axes[i];
+                index[i] = values[r % values.length];
+                r /= values.length;
+            }
+            ret[j] = encode(dims, index);
+        }
+        return ret;
+    }
+
+    private static long[] neighbors(int[] dims, long[] seeds, int step, Set<Long> evaluated) {
+        var ret = new LinkedHashSet<Long>();
+        var index = new int[dims.length];
+        var offset = new int[dims.length];
+
+        for (var seed : seeds) {
+            var center = decode(dims, seed);
+            Arrays.fill(offset, -1);
+            offset[dims.length - 1] = -2;
+
+            // enumerate offset in {-1, 0, 1}^d
+            while (next(offset)) {
+                var inside = true;
+                for (int i = 0; i < dims.length && inside; i++) {
+                    var v = center[i] + offset[i] * step;
+                    if (v < 0 || v >= dims[i]) inside = false;
+                    index[i] = v;
+                }
+                if (inside) {
+                    var code = encode(dims, index);
+                    if (!evaluated.contains(code)) ret.add(code);
+                }
+            }
+        }
+        return ret.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static boolean next(int[] offset) {
+        for (int i = offset.length - 1; i >= 0; i--) {
+            if (offset[i] < 1) {
+                offset[i]++;
+                return true;
+            }
+            offset[i] = -1;
+        }
+        return false;
+    }
+
+    private void evaluate(int[] dims, long[] batch, int[] x, int[] y, Map<Long, Integer> evaluated) {
+        var count = new int[batch.length];
+        IntStream.range(0, batch.length).parallel().forEach(i -> {
+            count[i] = count(matrix(implant(decode(dims, batch[i]))), x, y);
+        });
+        for (int i = 0; i < batch.length; i++) {
+            evaluated.put(batch[i], count[i]);
+        }
+    }
+
+    private static long[] top(Map<Long, Integer> evaluated, int k) {
+        return evaluated.entrySet().stream()
+            .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .limit(k)
+            .mapToLong(Map.Entry::getKey)
+            .toArray();
+    }
+
+    private static long encode(int[] dims, int[] index) {
+        long ret = 0;
+        for (int i = 0; i < dims.length; i++) {
+            ret = ret * dims[i] + index[i];
+        }
+        return ret;
+    }
+
+    private static int[] decode(int[] dims, long code) {
+        var ret = new int[dims.length];
+        for (int i = dims.length - 1; i >= 0; i--) {
+            ret[i] = (int) (code % dims[i]);
+            code /= dims[i];
+        }
+        return ret;
+    }
+
+    private ImplantCoordinate implant(int[] index) {
+        return new ImplantCoordinate(
+            ranges[Axis.ap.ordinal()].value(index[Axis.ap.ordinal()]),
+            base.dv(),
+            ranges[Axis.ml.ordinal()].value(index[Axis.ml.ordinal()]),
+            base.s(),
+            ranges[Axis.rap.ordinal()].value(index[Axis.rap.ordinal()]),
+            ranges[Axis.rdv.ordinal()].value(index[Axis.rdv.ordinal()]),
+            ranges[Axis.rml.ordinal()].value(index[Axis.rml.ordinal()]),
+            ranges[Axis.depth.ordinal()].value(index[Axis.depth.ordinal()]),
+            null
+        );
+    }
+
+    /*==========*
+     * counting *
+     *==========*/
+
+    /**
+     * The transform matrix from the probe (x, y) to the global anatomical space.
+     *
+     * @param implant implant coordinate
+     * @return 3x4 matrix in row-major.
+     */
+    private static double[] matrix(ImplantCoordinate implant) {
+        return Electrodes.transform(ProbeTransform.create(implant)).toArray();
+    }
+
+    private int count(double[] m, int[] x, int[] y) {
+        var shape = annotation.shape();
+        var np = shape[0];
+        var nh = shape[1];
+        var nw = shape[2];
+
+        var rap = resolution[0];
+        var rdv = resolution[1];
+        var rml = resolution[2];
+
+        var ret = 0;
+        var data = new int[0];
+        var dataPage = -1;
+
+        for (int i = 0, length = x.length; i < length; i++) {
+            double px = x[i];
+            double py = y[i];
+
+            var ap = (int) ((m[0] * px + m[1] * py + m[3]) / rap);
+            var dv = (int) ((m[4] * px + m[5] * py + m[7]) / rdv);
+            var ml = (int) ((m[8] * px + m[9] * py + m[11]) / rml);
+
+            if (ap < 0 || ap >= np || dv < 0 || dv >= nh || ml < 0 || ml >= nw) continue;
+
+            if (ap != dataPage) {
+                data = annotation.pageData(ap);
+                dataPage = ap;
+            }
+            if (target.test(data[dv * nw + ml])) ret++;
+        }
+        return ret;
+    }
+}
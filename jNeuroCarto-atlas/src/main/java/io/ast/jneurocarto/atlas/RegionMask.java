@@ -0,0 +1,22 @@
+package io.ast.jneurocarto.atlas;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * A structure masking rule.
+ *
+ * @param structure       structure
+ * @param exclude         exclude the structure from the mask, otherwise include.
+ * @param includeChildren also apply on all descendants of the {@code structure}.
+ * @see StructureMask
+ */
+@NullMarked
+public record RegionMask(Structure structure, boolean exclude, boolean includeChildren) {
+    public int id() {
+        return structure.id();
+    }
+
+    public String name() {
+        return structure.name();
+    }
+}
@@ -1,7 +1,5 @@
 package io.ast.jneurocarto.atlas;
 
-import javafx.geometry.Point3D;
-
 import org.jspecify.annotations.NullMarked;
 
 import io.ast.jneurocarto.core.ProbeTransform;
@@ -15,12 +13,14 @@ public class SliceDomain implements ProbeTransform.Domain<SliceCoordinate> {
     }
 
     @Override
-    public Point3D toPoint(SliceCoordinate coordinate) {
-        return new Point3D(coordinate.x(), coordinate.y(), coordinate.p());
+    public SliceCoordinate fromValues(double x, double y, double z) {
+        return new SliceCoordinate(z, x, y);
     }
 
     @Override
-    public SliceCoordinate fromPoint(Point3D p) {
-        return new SliceCoordinate(p.getZ(), p.getX(), p.getY());
+    public void toValues(SliceCoordinate coordinate, double[] xyz) {
+        xyz[0] = coordinate.x();
+        xyz[1] = coordinate.y();
+        xyz[2] = coordinate.p();
     }
 }
@@ -0,0 +1,418 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import io.ast.jneurocarto.core.Coordinate;
+import io.ast.jneurocarto.core.CoordinateIndex;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+
+/**
+ * Per-structure spatial index over the annotation volume.
+ * <p>
+ * For each structure, it keeps the voxel count, the bounding box, the centroid and the occupied plane
+ * ranges along each volume axis. All values are rolled up through the hierarchy, that is, a structure
+ * covers the voxels of itself and all its descendants.
+ *
+ * @see BrainAtlas#structureIndex()
+ */
+@NullMarked
+public final class StructureIndex {
+
+    public static final String FILENAME = "structure_index.bin";
+
+    private static final int MAGIC = 0x53494458; // SIDX
+    private static final int VERSION = 1;
+
+    /**
+     * Spatial information of a structure.
+     *
+     * @param id         structure id
+     * @param voxels     number of voxels, include descendants.
+     * @param selfVoxels number of voxels annotated with {@code id} exactly.
+     * @param min        minimal voxel index of the bounding box (inclusive)
+     * @param max        maximal voxel index of the bounding box (inclusive)
+     * @param centroid   centroid in um.
+     * @param ap         occupied plane ranges along AP axis, in pairs of (start, end) inclusive.
+     * @param dv         occupied plane ranges along DV axis, in pairs of (start, end) inclusive.
+     * @param ml         occupied plane ranges along ML axis, in pairs of (start, end) inclusive.
+     */
+    public record Entry(int id, long voxels, long selfVoxels,
+                        CoordinateIndex min, CoordinateIndex max, Coordinate centroid,
+                        int[] ap, int[] dv, int[] ml) {
+
+        /**
+         * {@return occupied plane ranges under {@code projection}, in pairs of (start, end) inclusive.}
+         */
+        public int[] planes(ImageSliceStack.Projection projection) {
+            return switch (projection.p) {
+                case 0 -> ap;
+                case 1 -> dv;
+                case 2 -> ml;
+                default -> throw new IllegalArgumentException();
+            };
+        }
+
+        /**
+         * @param projection projection
+         * @param plane      plane index
+         * @return Does the structure occupy the {@code plane}?
+         */
+        public boolean occupies(ImageSliceStack.Projection projection, int plane) {
+            var ranges = planes(projection);
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] <= plane && plane <= ranges[i + 1]) return true;
+            }
+            return false;
+        }
+    }
+
+    private final Structures structures;
+    private final @Nullable Entry[] entries;
+
+    private StructureIndex(Structures structures, @Nullable Entry[] entries) {
+        this.structures = structures;
+        this.entries = entries;
+    }
+
+    /**
+     * {@return spatial information of structure {@code id}. {@code null} if it does not occupy any voxel.}
+     */
+    public @Nullable Entry get(int id) {
+        var i = structures.indexOf(id);
+        return i < 0 ? null : entries[i];
+    }
+
+    public @Nullable Entry get(Structure structure) {
+        return get(structure.id());
+    }
+
+    /*=======*
+     * build *
+     *=======*/
+
+    /**
+     * Build the index by scanning the whole annotation volume, in parallel over pages.
+     *
+     * @param structures structure tree
+     * @param annotation annotation volume
+     * @param resolution voxel resolution in um, in (ap, dv, ml).
+     * @return index
+     * @throws IOException
+     */
+    public static StructureIndex build(Structures structures, ImageVolume annotation, double[] resolution) throws IOException {
+        var shape = annotation.shape();
+        var page = shape[0];
+
+        var pool = ForkJoinPool.commonPool();
+        var workers = Math.max(1, Math.min(pool.getParallelism(), page));
+
+        var futures = new ArrayList<Future<Accumulator>>(workers);
+        for (int w = 0; w < workers; w++) {
+            var start = page * w / workers;
+            var end = page * (w + 1) / workers;
+            futures.add(pool.submit(() -> {
+                var acc = new Accumulator(structures, shape);
+                for (int p = start; p < end; p++) {
+                    acc.scan(p, annotation.pageData(p));
+                }
+                return acc;
+            }));
+        }
+
+        @Nullable Accumulator ret = null;
+        for (var future : futures) {
+            Accumulator acc;
+            try {
+                acc = future.get();
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException u) throw u.getCause();
+                throw new IOException(e.getCause());
+            }
+            if (ret == null) {
+                ret = acc;
+            } else {
+                ret.merge(acc);
+            }
+        }
+
+        return new StructureIndex(structures, rollup(structures, Objects.requireNonNull(ret), resolution));
+    }
+
+    private static final class Accumulator {
+        final Structures structures;
+        final int height;
+        final int width;
+        final long[] count;
+        final long[][] sum; // [axis][structure]
+        final int[][] min;
+        final int[][] max;
+        final @Nullable BitSet[][] occupied; // [axis][structure]
+
+        Accumulator(Structures structures, int[] shape) {
+            this.structures = structures;
+            height = shape[1];
+            width = shape[2];
+
+            var n = structures.size();
+            count = new long[n];
+            sum = new long[3][n];
+            min = new int[3][n];
+            max = new int[3][n];
+            occupied = new BitSet[3][n];
+            for (int a = 0; a < 3; a++) {
+                Arrays.fill(min[a], Integer.MAX_VALUE);
+                Arrays.fill(max[a], -1);
+            }
+        }
+
+        void scan(int p, int[] data) {
+            var last = 0;
+            var index = -1;
+            for (int y = 0; y < height; y++) {
+                var offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    var v = data[offset + x];
+                    if (v == 0) continue;
+                    if (v != last) {
+                        last = v;
+                        index = structures.indexOf(v);
+                    }
+                    if (index < 0) continue;
+                    add(index, p, y, x);
+                }
+            }
+        }
+
+        private void add(int i, int ap, int dv, int ml) {
+            count[i]++;
+            update(0, i, ap);
+            update(1, i, dv);
+            update(2, i, ml);
+        }
+
+        private void update(int a, int i, int v) {
+            sum[a][i] += v;
+            if (v < min[a][i]) min[a][i] = v;
+            if (v > max[a][i]) max[a][i] = v;
+            var bits = occupied[a][i];
+            if (bits == null) occupied[a][i] = bits = new BitSet();
+            bits.set(v);
+        }
+
+        void merge(Accumulator other) {
+            for (int i = 0, n = count.length; i < n; i++) {
+                if (other.count[i] == 0) continue;
+                count[i] += other.count[i];
+                for (int a = 0; a < 3; a++) {
+                    sum[a][i] += other.sum[a][i];
+                    min[a][i] = Math.min(min[a][i], other.min[a][i]);
+                    max[a][i] = Math.max(max[a][i], other.max[a][i]);
+                    or(a, i, other.occupied[a][i]);
+                }
+            }
+        }
+
+        private void or(int a, int i, @Nullable BitSet bits) {
+            if (bits == null) return;
+            var self = occupied[a][i];
+            if (self == null) {
+                occupied[a][i] = (BitSet) bits.clone();
+            } else {
+                self.or(bits);
+            }
+        }
+    }
+
+    private static @Nullable Entry[] rollup(Structures structures, Accumulator acc, double[] resolution) {
+        var n = structures.size();
+        var ret = new Entry[n];
+
+        for (int i = 0; i < n; i++) {
+            var structure = structures.structureOf(i);
+
+            var count = 0L;
+            var sum = new long[3];
+            var min = new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+            var max = new int[]{-1, -1, -1};
+            var occupied = new BitSet[]{new BitSet(), new BitSet(), new BitSet()};
+
+            for (var id : structures.subtreeIds(structure)) {
+                var j = structures.indexOf(id);
+                if (j < 0 || acc.count[j] == 0) continue;
+                count += acc.count[j];
+                for (int a = 0; a < 3; a++) {
+                    sum[a] += acc.sum[a][j];
+                    min[a] = Math.min(min[a], acc.min[a][j]);
+                    max[a] = Math.max(max[a], acc.max[a][j]);
+                    var bits = acc.occupied[a][j];
+                    if (bits != null) occupied[a].or(bits);
+                }
+            }
+
+            if (count == 0) continue;
+
+            var centroid = new Coordinate(
+                (sum[0] / (double) count + 0.5) * resolution[0],
+                (sum[1] / (double) count + 0.5) * resolution[1],
+                (sum[2] / (double) count + 0.5) * resolution[2]
+            );
+
+            ret[i] = new Entry(structure.id(), count, acc.count[i],
+                new CoordinateIndex(min[0], min[1], min[2]),
+                new CoordinateIndex(max[0], max[1], max[2]),
+                centroid,
+                ranges(occupied[0]), ranges(occupied[1]), ranges(occupied[2]));
+        }
+
+        return ret;
+    }
+
+    private static int[] ranges(BitSet bits) {
+        var ret = IntStream.builder();
+        for (int i = bits.nextSetBit(0); i >= 0; ) {
+            var j = bits.nextClearBit(i);
+            ret.add(i);
+            ret.add(j - 1);
+            i = bits.nextSetBit(j);
+        }
+        return ret.build().toArray();
+    }
+
+    /*==============*
+     * disk caching *
+     *==============*/
+
+    /**
+     * Load the index from {@code file}.
+     *
+     * @param file       index file
+     * @param structures structure tree
+     * @param source     annotation file, which is used to check whether the index is out-of-date.
+     * @return index. {@code null} if the file does not exist, it is out-of-date, or it is corrupted.
+     * @throws IOException
+     */
+    public static @Nullable StructureIndex load(Path file, Structures structures, Path source) throws IOException {
+        if (!Files.exists(file)) return null;
+        if (Files.size(file) > Integer.MAX_VALUE) return null;
+
+        // read it at once, so the stored array lengths are checked against the remaining bytes.
+        var in = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (in.getInt() != MAGIC) return null;
+            if (in.getInt() != VERSION) return null;
+            if (in.getLong() != Files.size(source)) return null;
+            if (in.getLong() != Files.getLastModifiedTime(source).toMillis()) return null;
+
+            var n = in.getInt();
+            if (n != structures.size()) return null;
+
+            var entries = new Entry[n];
+            for (int i = 0; i < n; i++) {
+                if (in.get() == 0) continue;
+                var id = in.getInt();
+                if (structures.indexOf(id) != i) return null;
+                var voxels = in.getLong();
+                var self = in.getLong();
+                var min = new CoordinateIndex(in.getInt(), in.getInt(), in.getInt());
+                var max = new CoordinateIndex(in.getInt(), in.getInt(), in.getInt());
+                var centroid = new Coordinate(in.getDouble(), in.getDouble(), in.getDouble());
+                var ap = readInts(in);
+                var dv = readInts(in);
+                var ml = readInts(in);
+                if (ap == null || dv == null || ml == null) return null;
+                entries[i] = new Entry(id, voxels, self, min, max, centroid, ap, dv, ml);
+            }
+            return new StructureIndex(structures, entries);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Save the index into {@code file}. The content is written into a temporary file in the same directory first,
+     * then moved onto {@code file}, so a concurrent or interrupted saving never leaves a truncated index.
+     *
+     * @param file   index file
+     * @param source annotation file, which is used to check whether the index is out-of-date when loading.
+     * @throws IOException
+     */
+    public void save(Path file, Path source) throws IOException {
+        var tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            write(tmp, source);
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void write(Path file, Path source) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, TRUNCATE_EXISTING)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(source));
+            out.writeLong(Files.getLastModifiedTime(source).toMillis());
+            out.writeInt(entries.length);
+            for (var entry : entries) {
+                out.writeBoolean(entry != null);
+                if (entry == null) continue;
+                out.writeInt(entry.id);
+                out.writeLong(entry.voxels);
+                out.writeLong(entry.selfVoxels);
+                out.writeInt(entry.min.ap());
+                out.writeInt(entry.min.dv());
+                out.writeInt(entry.min.ml());
+                out.writeInt(entry.max.ap());
+                out.writeInt(entry.max.dv());
+                out.writeInt(entry.max.ml());
+                out.writeDouble(entry.centroid.ap());
+                out.writeDouble(entry.centroid.dv());
+                out.writeDouble(entry.centroid.ml());
+                writeInts(out, entry.ap);
+                writeInts(out, entry.dv);
+                writeInts(out, entry.ml);
+            }
+        }
+    }
+
+    /**
+     * {@return int array. {@code null} if the stored length is negative or exceeds the remaining bytes.}
+     */
+    private static int @Nullable [] readInts(ByteBuffer in) {
+        var length = in.getInt();
+        if (length < 0 || length > in.remaining() / 4) return null;
+        var ret = new int[length];
+        in.asIntBuffer().get(ret);
+        in.position(in.position() + 4 * length);
+        return ret;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (var value : values) {
+            out.writeInt(value);
+        }
+    }
+}
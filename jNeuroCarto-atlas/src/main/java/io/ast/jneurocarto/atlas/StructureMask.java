@@ -0,0 +1,202 @@
+package io.ast.jneurocarto.atlas;
+
+import java.util.List;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import io.ast.jneurocarto.core.numpy.FlatIntArray;
+
+/**
+ * A compiled set of {@link RegionMask}, which tests annotation ids with a primitive lookup table.
+ * <p>
+ * When annotation ids are small enough, the table is a dense bitset indexed by the id directly.
+ * Otherwise, ids are remapped into dense positions via {@link Structures#indexOf(int)}.
+ */
+@NullMarked
+public final class StructureMask {
+
+    /**
+     * maximal annotation id that use a dense bitset indexed by id.
+     */
+    private static final int DENSE_ID_LIMIT = 1 << 22;
+
+    private final Structures structures;
+
+    /**
+     * bitset indexed by annotation id. {@code null} when ids are too large.
+     */
+    private final long @Nullable [] idTable;
+
+    /**
+     * table indexed by structure position.
+     */
+    private final boolean[] indexTable;
+
+    private final int count;
+
+    private StructureMask(Structures structures, boolean[] indexTable) {
+        this.structures = structures;
+        this.indexTable = indexTable;
+
+        var count = 0;
+        var maxId = -1;
+        for (int i = 0, size = indexTable.length; i < size; i++) {
+            if (indexTable[i]) {
+                count++;
+                maxId = Math.max(maxId, structures.structureOf(i).id());
+            }
+        }
+        this.count = count;
+
+        var minId = 0;
+        for (var structure : structures) {
+            minId = Math.min(minId, structure.id());
+        }
+
+        if (minId >= 0 && maxId < DENSE_ID_LIMIT) {
+            var table = new long[(maxId >> 6) + 1];
+            for (int i = 0, size = indexTable.length; i < size; i++) {
+                if (indexTable[i]) {
+                    var id = structures.structureOf(i).id();
+                    table[id >> 6] |= 1L << id;
+                }
+            }
+            idTable = table;
+        } else {
+            idTable = null;
+        }
+    }
+
+    /**
+     * Compile masking rules. Rules are applied in order, so latter rules override former rules.
+     *
+     * @param structures structure tree
+     * @param masks      masking rules
+     * @return compiled mask
+     */
+    public static StructureMask compile(Structures structures, List<RegionMask> masks) {
+        var table = new boolean[structures.size()];
+        for (var mask : masks) {
+            var value = !mask.exclude();
+            if (mask.includeChildren()) {
+                structures.forAllSubtreeIds(mask.structure(), id -> {
+                    var i = structures.indexOf(id);
+                    if (i >= 0) table[i] = value;
+                });
+            } else {
+                var i = structures.indexOf(mask.id());
+                if (i >= 0) table[i] = value;
+            }
+        }
+        return new StructureMask(structures, table);
+    }
+
+    /**
+     * Compile a mask contains the {@code structure} and all its descendants.
+     *
+     * @param structures structure tree
+     * @param structure  structure
+     * @return compiled mask
+     */
+    public static StructureMask compile(Structures structures, Structure structure) {
+        return compile(structures, List.of(new RegionMask(structure, false, true)));
+    }
+
+    /**
+     * {@return number of structures included}
+     */
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param id annotation id
+     * @return Is {@code id} included in the mask?
+     */
+    public boolean test(int id) {
+        var table = idTable;
+        if (table != null) {
+            var w = id >> 6;
+            return id >= 0 && w < table.length && (table[w] & (1L << id)) != 0;
+        }
+
+        var i = structures.indexOf(id);
+        return i >= 0 && indexTable[i];
+    }
+
+    /**
+     * Test the annotation ids in bulk.
+     *
+     * @param ids    annotation ids
+     * @param output test results. It could be the same length as {@code ids}.
+     * @return {@code output}
+     */
+    public boolean[] test(int[] ids, boolean[] output) {
+        if (output.length < ids.length) throw new IllegalArgumentException("output too small");
+        for (int i = 0, length = ids.length; i < length; i++) {
+            output[i] = test(ids[i]);
+        }
+        return output;
+    }
+
+    /**
+     * Map annotation ids into ARGB colors.
+     *
+     * @param ids     annotation ids
+     * @param offset  start offset of {@code ids}
+     * @param length  number of ids
+     * @param inside  ARGB color for included ids
+     * @param outside ARGB color for not included ids
+     * @param output  ARGB output buffer
+     * @param start   start offset of {@code output}
+     */
+    public void apply(int[] ids, int offset, int length, int inside, int outside, int[] output, int start) {
+        var table = idTable;
+        if (table != null) {
+            var size = table.length;
+            for (int i = 0; i < length; i++) {
+                var id = ids[offset + i];
+                var w = id >> 6;
+                var t = id >= 0 && w < size && (table[w] & (1L << id)) != 0;
+                output[start + i] = t ? inside : outside;
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                var j = structures.indexOf(ids[offset + i]);
+                output[start + i] = j >= 0 && indexTable[j] ? inside : outside;
+            }
+        }
+    }
+
+    /**
+     * Create a mask image over an annotation slice image.
+     *
+     * @param annotation annotation slice image in shape {@code (h, w)}.
+     * @param writer     image writer
+     * @param inside     ARGB color for included region
+     * @param outside    ARGB color for not included region
+     * @param <T>        image type
+     * @return mask image
+     */
+    public <T> T image(FlatIntArray annotation, ImageSlice.ImageWriter<T> writer, int inside, int outside) {
+        var shape = annotation.shape();
+        if (shape.length != 2) throw new IllegalArgumentException("not a 2d image");
+
+        var h = shape[0];
+        var w = shape[1];
+        var ids = annotation.array();
+        var row = new int[w];
+
+        writer.create(w, h, null);
+        for (int y = 0; y < h; y++) {
+            apply(ids, y * w, w, inside, outside, row, 0);
+            writer.setRow(y, row, 0, w);
+        }
+        return writer.get();
+    }
+}
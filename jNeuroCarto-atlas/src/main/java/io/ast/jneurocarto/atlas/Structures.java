@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Stream;
 
 import org.jspecify.annotations.NullMarked;
@@ -17,8 +18,113 @@ public class Structures implements Iterable<Structure> {
 
     private final Structure[] structures;
 
+    /**
+     * id to position in {@link #structures}.
+     */
+    private final IntIndexMap idIndex;
+
+    /**
+     * case-folded acronym to position in {@link #structures}.
+     */
+    private final Map<String, Integer> acronymIndex;
+
+    /**
+     * children positions for each position.
+     */
+    private final int[][] children;
+
+    /**
+     * pre-order (DFS) visiting sequence of positions.
+     */
+    private final int[] order;
+
+    /**
+     * Euler-tour entering time, which is the index of the position in {@link #order}.
+     */
+    private final int[] enter;
+
+    /**
+     * Euler-tour exiting time. Descendants of position {@code i} are
+     * {@code order[enter[i] + 1 ..< exit[i]]}.
+     */
+    private final int[] exit;
+
     public Structures(Structure[] structures) {
         this.structures = structures;
+
+        var size = structures.length;
+        idIndex = new IntIndexMap(size);
+        acronymIndex = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            var structure = structures[i];
+            idIndex.putIfAbsent(structure.id(), i);
+            acronymIndex.putIfAbsent(foldAcronym(structure.acronym()), i);
+        }
+
+        // children adjacency
+        var parents = new int[size];
+        var count = new int[size];
+        for (int i = 0; i < size; i++) {
+            var structure = structures[i];
+            var p = structure.isRoot() ? -1 : idIndex.get(structure.parent());
+            parents[i] = p;
+            if (p >= 0) count[p]++;
+        }
+
+        children = new int[size][];
+        for (int i = 0; i < size; i++) {
+            children[i] = new int[count[i]];
+            count[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            var p = parents[i];
+            if (p >= 0) children[p][count[p]++] = i;
+        }
+
+        // Euler tour, start from all roots (structures without parent)
+        order = new int[size];
+        enter = new int[size];
+        exit = new int[size];
+        Arrays.fill(enter, -1);
+
+        var time = 0;
+        var stack = new int[size + 1];
+        var child = new int[size + 1];
+        for (int r = 0; r < size; r++) {
+            if (parents[r] >= 0) continue;
+
+            var top = 0;
+            stack[0] = r;
+            child[0] = 0;
+            enter[r] = time;
+            order[time++] = r;
+
+            while (top >= 0) {
+                var i = stack[top];
+                var c = child[top];
+                if (c < children[i].length) {
+                    child[top]++;
+                    var j = children[i][c];
+                    if (enter[j] >= 0) continue; // cycle guard
+                    enter[j] = time;
+                    order[time++] = j;
+                    stack[++top] = j;
+                    child[top] = 0;
+                } else {
+                    exit[i] = time;
+                    top--;
+                }
+            }
+        }
+
+        // structures in a parent cycle, which are not reachable from any root.
+        for (int i = 0; i < size; i++) {
+            if (enter[i] < 0) {
+                enter[i] = time;
+                order[time++] = i;
+                exit[i] = time;
+            }
+        }
     }
 
     public static Structures load(Path file) throws IOException {
@@ -27,6 +133,10 @@ public class Structures implements Iterable<Structure> {
         return new Structures(data);
     }
 
+    private static String foldAcronym(String acronym) {
+        return acronym.toLowerCase(Locale.ROOT);
+    }
+
     private @Nullable Structure root;
 
     public Structure root() {
@@ -42,20 +152,67 @@ public class Structures implements Iterable<Structure> {
         return root;
     }
 
+    public int size() {
+        return structures.length;
+    }
+
+    /**
+     * {@return position of the structure {@code id}, or -1 if not found.}
+     * The position is a dense index in range [0, {@link #size()}).
+     */
+    public int indexOf(int id) {
+        return idIndex.get(id);
+    }
+
+    /**
+     * @param index position in range [0, {@link #size()})
+     * @return structure
+     */
+    public Structure structureOf(int index) {
+        return structures[index];
+    }
+
     public Optional<Structure> get(int id) {
-        for (var structure : structures) {
-            if (structure.id() == id) return Optional.of(structure);
-        }
-        return Optional.empty();
+        var i = idIndex.get(id);
+        return i < 0 ? Optional.empty() : Optional.of(structures[i]);
     }
 
     public Optional<Structure> get(String acronym) {
+        var i = acronymIndex.get(foldAcronym(acronym));
+        if (i != null) return Optional.of(structures[i]);
+
+        // fallback for case-folding which does not agree with equalsIgnoreCase.
         for (var structure : structures) {
             if (structure.acronym().equalsIgnoreCase(acronym)) return Optional.of(structure);
         }
         return Optional.empty();
     }
 
+    /**
+     * Does {@code child} belong to the subtree of {@code parent}? A structure is considered as its own parent,
+     * as same as {@link Structure#hasParent(int)}.
+     *
+     * @param child  child structure id
+     * @param parent parent structure id
+     * @return {@code false} if any id is not found.
+     */
+    public boolean hasParent(int child, int parent) {
+        var c = idIndex.get(child);
+        var p = idIndex.get(parent);
+        if (c < 0 || p < 0) return false;
+        return enter[p] <= enter[c] && enter[c] < exit[p];
+    }
+
+    /**
+     * @param child  child structure
+     * @param parent parent structure
+     * @return {@code true} if {@code child} belongs to the subtree of {@code parent}.
+     * @see #hasParent(int, int)
+     */
+    public boolean hasParent(Structure child, Structure parent) {
+        return hasParent(child.id(), parent.id());
+    }
+
     public Optional<Structure> parent(int id) {
         return get(id).map(this::parent);
     }
@@ -69,7 +226,7 @@ public class Structures implements Iterable<Structure> {
     }
 
     public Optional<Structure> asParent(Structure child, Structure parent) {
-        return child.hasParent(parent.id()) ? Optional.of(parent) : Optional.empty();
+        return hasParent(child, parent) ? Optional.of(parent) : Optional.empty();
     }
 
     public Optional<List<Structure>> parents(int id) {
@@ -98,9 +255,13 @@ public class Structures implements Iterable<Structure> {
     }
 
     public List<Structure> children(Structure parent) {
-        var ret = new ArrayList<Structure>();
-        for (var s : structures) {
-            if (s.parent() == parent.id()) ret.add(s);
+        var i = idIndex.get(parent.id());
+        if (i < 0) return new ArrayList<>();
+
+        var index = children[i];
+        var ret = new ArrayList<Structure>(index.length);
+        for (var j : index) {
+            ret.add(structures[j]);
         }
         return ret;
     }
@@ -113,12 +274,95 @@ public class Structures implements Iterable<Structure> {
         get(acronym).ifPresent(it -> forAllChildren(it, consumer));
     }
 
+    /**
+     * Visit all descendants of {@code parent} (not included) in pre-order.
+     *
+     * @param parent   parent structure
+     * @param consumer visitor
+     */
     public void forAllChildren(Structure parent, Consumer<Structure> consumer) {
-        for (var s : structures) {
-            if (s.parent() == parent.id()) {
-                consumer.accept(s);
-                forAllChildren(s, consumer);
+        var i = idIndex.get(parent.id());
+        if (i < 0) return;
+
+        for (int t = enter[i] + 1, end = exit[i]; t < end; t++) {
+            consumer.accept(structures[order[t]]);
+        }
+    }
+
+    /**
+     * Visit ids of {@code parent} (included) and all its descendants in pre-order.
+     *
+     * @param parent   parent structure
+     * @param consumer visitor
+     */
+    public void forAllSubtreeIds(Structure parent, IntConsumer consumer) {
+        var i = idIndex.get(parent.id());
+        if (i < 0) return;
+
+        for (int t = enter[i], end = exit[i]; t < end; t++) {
+            consumer.accept(structures[order[t]].id());
+        }
+    }
+
+    /**
+     * {@return ids of {@code parent} (included) and all its descendants in pre-order}
+     *
+     * @param parent parent structure
+     */
+    public int[] subtreeIds(Structure parent) {
+        var i = idIndex.get(parent.id());
+        if (i < 0) return new int[0];
+
+        var start = enter[i];
+        var ret = new int[exit[i] - start];
+        for (int t = 0; t < ret.length; t++) {
+            ret[t] = structures[order[start + t]].id();
+        }
+        return ret;
+    }
+
+    /**
+     * A primitive int to int open-addressing hash map. Values are non-negative.
+     */
+    private static final class IntIndexMap {
+        private final int[] keys;
+        private final int[] values;
+        private final int mask;
+
+        IntIndexMap(int expected) {
+            var capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(values, -1);
+        }
+
+        private static int hash(int key) {
+            var h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        void putIfAbsent(int key, int value) {
+            var i = hash(key) & mask;
+            while (values[i] >= 0) {
+                if (keys[i] == key) return;
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        /**
+         * {@return value of the key, or -1 if not found}
+         */
+        int get(int key) {
+            var i = hash(key) & mask;
+            int v;
+            while ((v = values[i]) >= 0) {
+                if (keys[i] == key) return v;
+                i = (i + 1) & mask;
             }
+            return -1;
         }
     }
 
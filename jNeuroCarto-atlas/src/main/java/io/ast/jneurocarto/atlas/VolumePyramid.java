@@ -0,0 +1,254 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A multi-resolution (mip-mapped) pyramid of an {@link ImageVolume}.
+ * <p>
+ * Level {@code i} is downsampled by {@code 2^i} on each axis, where level 0 is the source volume.
+ * Downsampled levels are built once and cached on disk, so zoomed-out rendering samples far fewer voxels.
+ * <p>
+ * Levels are loaded (or built) on first access by {@link #level(int)}, so creating a pyramid does not touch
+ * the source volume, which could be a lazy volume from {@link ImageVolume#openTiff(Path, int)}.
+ * Loaded levels are read without locking, and each level is built under its own lock, so
+ * {@link #levelIfLoaded(int)} does not wait for a level being built.
+ *
+ * @see BrainAtlas#referencePyramid()
+ * @see BrainAtlas#annotationPyramid()
+ */
+@NullMarked
+public final class VolumePyramid {
+
+    /**
+     * downsampling factors of each level.
+     */
+    public static final int[] FACTORS = {1, 2, 4, 8};
+
+    public static final String DIRNAME = "pyramid";
+
+    private static final int MAGIC = 0x4D495056; // MIPV
+    private static final int VERSION = 1;
+
+    /**
+     * magic, version, source size, source modified time, page, height, width, colored.
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 4 + 1;
+
+    private static final Logger log = LoggerFactory.getLogger(VolumePyramid.class);
+
+    private final AtomicReferenceArray<@Nullable ImageVolume> levels;
+    private final Object[] locks;
+    private final ImageVolume.Pooling pooling;
+    private final Path cacheDir;
+    private final String name;
+    private final long sourceSize;
+    private final long sourceModified;
+
+    private VolumePyramid(ImageVolume source, ImageVolume.Pooling pooling, Path cacheDir, String name,
+                          long sourceSize, long sourceModified) {
+        levels = new AtomicReferenceArray<>(FACTORS.length);
+        levels.set(0, source);
+        locks = new Object[FACTORS.length];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.pooling = pooling;
+        this.cacheDir = cacheDir;
+        this.name = name;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+    }
+
+    /**
+     * {@return number of levels}
+     */
+    public int levels() {
+        return levels.length();
+    }
+
+    /**
+     * Get the volume of {@code level}. It is loaded from the cache directory when it is up-to-date, otherwise
+     * it is built from the previous level and saved there. It could take a while for the first access.
+     *
+     * @param level level index
+     * @return volume
+     * @throws IOException
+     */
+    public ImageVolume level(int level) throws IOException {
+        var ret = levels.get(level);
+        if (ret != null) return ret;
+
+        synchronized (locks[level]) {
+            ret = levels.get(level);
+            if (ret != null) return ret;
+
+            ret = build(level);
+            levels.set(level, ret);
+            return ret;
+        }
+    }
+
+    private ImageVolume build(int level) throws IOException {
+        var file = cacheDir.resolve(name + "_" + FACTORS[level] + "x.bin");
+        var ret = read(file, sourceSize, sourceModified);
+        if (ret != null) {
+            log.debug("loaded {}", file);
+        } else {
+            // each level is downsampled from the previous one. Locks are always taken from upper to lower levels.
+            var previous = level(level - 1);
+            log.debug("build {} level {}x", name, FACTORS[level]);
+            ret = previous.downsample(FACTORS[level] / FACTORS[level - 1], pooling);
+            try {
+                save(file, ret, sourceSize, sourceModified);
+                log.debug("saved {}", file);
+            } catch (IOException e) {
+                log.warn("fail to save {}", file, e);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * {@return the volume of {@code level} if it has been loaded. Otherwise {@code null}.}
+     *
+     * @param level level index
+     */
+    public @Nullable ImageVolume levelIfLoaded(int level) {
+        return levels.get(level);
+    }
+
+    public static int factor(int level) {
+        return FACTORS[level];
+    }
+
+    /**
+     * Pick the coarsest level which voxels are still not smaller than a screen pixel.
+     *
+     * @param pixelPerVoxel screen pixels per voxel of level 0.
+     * @return level index
+     */
+    public static int pickLevel(double pixelPerVoxel) {
+        var ret = 0;
+        for (int i = 1; i < FACTORS.length; i++) {
+            if (FACTORS[i] * pixelPerVoxel <= 1) ret = i;
+        }
+        return ret;
+    }
+
+    /**
+     * Create the pyramid of {@code source}. Downsampled levels are loaded from the {@code cacheDir} when
+     * they are up-to-date with the {@code sourceFile}, otherwise they are built and saved there, on first access.
+     *
+     * @param source     level 0 volume.
+     * @param pooling    pooling method
+     * @param cacheDir   cache directory
+     * @param name       cache file name prefix.
+     * @param sourceFile the file of {@code source}, which is used to check whether cache files are out-of-date.
+     * @return pyramid
+     * @throws IOException
+     * @see #level(int)
+     */
+    public static VolumePyramid load(ImageVolume source, ImageVolume.Pooling pooling,
+                                     Path cacheDir, String name, Path sourceFile) throws IOException {
+        var size = Files.size(sourceFile);
+        var modified = Files.getLastModifiedTime(sourceFile).toMillis();
+        return new VolumePyramid(source, pooling, cacheDir, name, size, modified);
+    }
+
+    private static @Nullable ImageVolume read(Path file, long size, long modified) throws IOException {
+        if (!Files.exists(file)) return null;
+
+        try (var channel = FileChannel.open(file, READ)) {
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC) return null;
+            if (header.getInt() != VERSION) return null;
+            if (header.getLong() != size) return null;
+            if (header.getLong() != modified) return null;
+            var page = header.getInt();
+            var height = header.getInt();
+            var width = header.getInt();
+            var colored = header.get() != 0;
+
+            var ret = new ImageVolume(page, height, width, colored);
+            var buffer = ByteBuffer.allocateDirect(4 * height * width);
+            for (int p = 0; p < page; p++) {
+                buffer.clear();
+                readFully(channel, buffer);
+                buffer.flip();
+                buffer.asIntBuffer().get(ret.pageData(p));
+            }
+            return ret;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write into a temporary file then move it to {@code file}, so a crash or a concurrent process
+     * does not leave a truncated level file.
+     */
+    private static void save(Path file, ImageVolume volume, long size, long modified) throws IOException {
+        var dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+
+        var tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            write(tmp, volume, size, modified);
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void write(Path file, ImageVolume volume, long size, long modified) throws IOException {
+        try (var channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(size);
+            header.putLong(modified);
+            header.putInt(volume.page);
+            header.putInt(volume.height);
+            header.putInt(volume.width);
+            header.put((byte) (volume.colored ? 1 : 0));
+            header.flip();
+            writeFully(channel, header);
+
+            var buffer = ByteBuffer.allocateDirect(4 * volume.height * volume.width);
+            for (int p = 0; p < volume.page; p++) {
+                buffer.clear();
+                buffer.asIntBuffer().put(volume.pageData(p));
+                writeFully(channel, buffer);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
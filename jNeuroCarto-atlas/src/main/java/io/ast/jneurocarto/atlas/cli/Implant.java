@@ -0,0 +1,144 @@
+package io.ast.jneurocarto.atlas.cli;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.ast.jneurocarto.atlas.ImplantSearch;
+import io.ast.jneurocarto.atlas.Structure;
+import io.ast.jneurocarto.core.ImplantCoordinate;
+import io.ast.jneurocarto.core.ProbeProviders;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+    name = "implant",
+    sortOptions = false,
+    usageHelpAutoWidth = true,
+    mixinStandardHelpOptions = true,
+    description = "search implant coordinates which maximize electrodes inside a structure"
+)
+public class Implant implements Runnable {
+
+    @CommandLine.Mixin
+    public Main.ConfigOptions config;
+
+    @CommandLine.Mixin
+    public Main.UseAtlas useAtlas;
+
+    @CommandLine.Option(names = "--probe", paramLabel = "FAMILY", defaultValue = "npx",
+        description = "probe family. default: ${DEFAULT-VALUE}")
+    String family;
+
+    @CommandLine.Option(names = "--code", paramLabel = "CODE", required = true,
+        description = "probe code")
+    String code;
+
+    @CommandLine.Option(names = "--ap", paramLabel = "START:STOP:STEP", required = true,
+        converter = RangeConverter.class,
+        description = "ap range in um.")
+    ImplantSearch.Range ap;
+
+    @CommandLine.Option(names = "--ml", paramLabel = "START:STOP:STEP", required = true,
+        converter = RangeConverter.class,
+        description = "ml range in um.")
+    ImplantSearch.Range ml;
+
+    @CommandLine.Option(names = "--depth", paramLabel = "START:STOP:STEP", required = true,
+        converter = RangeConverter.class,
+        description = "insert depth range in um.")
+    ImplantSearch.Range depth;
+
+    @CommandLine.Option(names = "--rap", paramLabel = "START:STOP:STEP", defaultValue = "0",
+        converter = RangeConverter.class,
+        description = "rotation range along ap-axis in degree. default: ${DEFAULT-VALUE}")
+    ImplantSearch.Range rap;
+
+    @CommandLine.Option(names = "--rdv", paramLabel = "START:STOP:STEP", defaultValue = "0",
+        converter = RangeConverter.class,
+        description = "rotation range along dv-axis in degree. default: ${DEFAULT-VALUE}")
+    ImplantSearch.Range rdv;
+
+    @CommandLine.Option(names = "--rml", paramLabel = "START:STOP:STEP", defaultValue = "0",
+        converter = RangeConverter.class,
+        description = "rotation range along ml-axis in degree. default: ${DEFAULT-VALUE}")
+    ImplantSearch.Range rml;
+
+    @CommandLine.Option(names = "--dv", paramLabel = "UM", defaultValue = "0",
+        description = "insertion dv position in um. default: ${DEFAULT-VALUE}")
+    double dv;
+
+    @CommandLine.Option(names = {"-k", "--top"}, paramLabel = "K", defaultValue = "5",
+        description = "number of printed candidates. default: ${DEFAULT-VALUE}")
+    int top;
+
+    @CommandLine.Option(names = "--coarse", paramLabel = "FACTOR", defaultValue = "" + ImplantSearch.DEFAULT_COARSE_FACTOR,
+        description = "grid step of the first round, a power of 2. 1 for an exhaustive search. default: ${DEFAULT-VALUE}")
+    int coarse;
+
+    @CommandLine.Option(names = "--id", description = "take ACRONYM as id")
+    boolean asid;
+
+    @CommandLine.Parameters(index = "0", paramLabel = "ACRONYM", description = "target structure acronym")
+    String acronym;
+
+    public static class RangeConverter implements CommandLine.ITypeConverter<ImplantSearch.Range> {
+        @Override
+        public ImplantSearch.Range convert(String value) {
+            return ImplantSearch.Range.parse(value);
+        }
+    }
+
+    private Logger log;
+
+    @Override
+    public void run() {
+        log = LoggerFactory.getLogger(getClass());
+        log.debug("run(structure={}, code={})", acronym, code);
+
+        var probe = ProbeProviders.getProbeDescription(family);
+        if (probe == null) throw new RuntimeException("probe family not found : " + family);
+        var electrodes = probe.allElectrodes(code);
+
+        try {
+            var atlas = useAtlas.download(useAtlas.newDownloader(config));
+            var structures = atlas.structures();
+
+            Optional<Structure> structure;
+            if (asid) {
+                structure = structures.get(Integer.parseInt(acronym));
+            } else {
+                structure = structures.get(acronym);
+            }
+            if (structure.isEmpty()) {
+                System.out.println("no such structure");
+                return;
+            }
+
+            var search = new ImplantSearch(atlas, structure.get())
+                .setBase(new ImplantCoordinate(0, dv, 0, 0, 0, 0, 0, 0, null))
+                .setRange(ImplantSearch.Axis.ap, ap)
+                .setRange(ImplantSearch.Axis.ml, ml)
+                .setRange(ImplantSearch.Axis.depth, depth)
+                .setRange(ImplantSearch.Axis.rap, rap)
+                .setRange(ImplantSearch.Axis.rdv, rdv)
+                .setRange(ImplantSearch.Axis.rml, rml)
+                .setCoarseFactor(coarse);
+
+            var start = System.currentTimeMillis();
+            var result = search.search(electrodes, top);
+            var pass = System.currentTimeMillis() - start;
+            log.debug("search {} candidates in {} ms", search.evaluated(), pass);
+
+            System.out.printf("%-8s %-8s %-8s %-8s %-8s %-8s %-8s\n", "count", "ap", "ml", "depth", "rap", "rdv", "rml");
+            for (var candidate : result) {
+                var implant = candidate.implant();
+                System.out.printf("%-8d %-8.0f %-8.0f %-8.0f %-8.1f %-8.1f %-8.1f\n", candidate.count(),
+                    implant.ap(), implant.ml(), implant.depth(), implant.rap(), implant.rdv(), implant.rml());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
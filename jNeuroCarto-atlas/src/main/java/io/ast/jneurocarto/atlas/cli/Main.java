@@ -27,6 +27,7 @@ import picocli.CommandLine;
         ListLocal.class,
         Download.class,
         Use.class,
+        Implant.class,
     }
 )
 public final class Main implements Runnable {
@@ -0,0 +1,244 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBrainGlobeDownloader {
+
+    private static final String ATLAS = "test_atlas";
+    private static final String VERSION = "1.0";
+    private static final String CONTENT = "{\"name\": \"test_atlas\"}".repeat(1000);
+
+    private static byte[] archive() throws IOException {
+        return archive(CONTENT);
+    }
+
+    private static byte[] archive(String content) throws IOException {
+        var buffer = new ByteArrayOutputStream();
+        try (var tar = new TarArchiveOutputStream(new GZIPOutputStream(buffer))) {
+            var dir = new TarArchiveEntry(ATLAS + "_v" + VERSION + "/");
+            tar.putArchiveEntry(dir);
+            tar.closeArchiveEntry();
+
+            var data = content.getBytes(StandardCharsets.UTF_8);
+            var file = new TarArchiveEntry(ATLAS + "_v" + VERSION + "/metadata.json");
+            file.setSize(data.length);
+            tar.putArchiveEntry(file);
+            tar.write(data);
+            tar.closeArchiveEntry();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * A minimal HTTP/1.1 stand-in server. The first archive request is broken in the middle of the body,
+     * unless {@link #broken} is set in advance. When {@link #etag} is set, it is sent, and a Range request
+     * with a different If-Range is answered with the whole content.
+     */
+    private static final class StandInServer implements AutoCloseable {
+        final ServerSocket server;
+        final Map<String, byte[]> files;
+        final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean broken = false;
+        volatile @Nullable String etag = null;
+
+        StandInServer(Map<String, byte[]> files) throws IOException {
+            this.files = files;
+            server = new ServerSocket(0);
+            Thread.ofVirtual().start(this::serve);
+        }
+
+        String root() {
+            return "http://127.0.0.1:" + server.getLocalPort() + "/";
+        }
+
+        private void serve() {
+            while (!server.isClosed()) {
+                try (var socket = server.accept()) {
+                    handle(socket);
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        }
+
+        private void handle(Socket socket) throws IOException {
+            var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            var request = in.readLine();
+            if (request == null) return;
+            var path = request.split(" ")[1].substring(1);
+
+            long start = 0;
+            String ifRange = null;
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("range:")) {
+                    ranges.add(line);
+                    start = Long.parseLong(line.replaceFirst("(?i)range:\\s*bytes=", "").replace("-", "").trim());
+                } else if (line.toLowerCase().startsWith("if-range:")) {
+                    ifRange = line.substring(9).trim();
+                }
+            }
+
+            var etag = this.etag;
+            if (ifRange != null && !ifRange.equals(etag)) start = 0;
+
+            var out = socket.getOutputStream();
+            var data = files.get(path);
+            if (data == null) {
+                out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                return;
+            }
+
+            String header;
+            if (start > 0) {
+                header = "HTTP/1.1 206 Partial Content\r\nContent-Range: bytes %d-%d/%d\r\nContent-Length: %d\r\n"
+                    .formatted(start, data.length - 1, data.length, data.length - start);
+            } else {
+                header = "HTTP/1.1 200 OK\r\nContent-Length: %d\r\n".formatted(data.length);
+            }
+            if (etag != null) header += "ETag: " + etag + "\r\n";
+            out.write((header + "Connection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+
+            var length = data.length - (int) start;
+            if (path.endsWith(".tar.gz") && !broken) {
+                broken = true;
+                length /= 2;
+            }
+            out.write(data, (int) start, length);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+
+    @Test
+    public void streamingResume(@TempDir Path dir) throws Exception {
+        var archive = archive();
+        var files = Map.of(
+            BrainGlobeDownloader.LAST_VERSION_FILENAME, ("[atlases]\n" + ATLAS + "=" + VERSION + "\n").getBytes(StandardCharsets.UTF_8),
+            ATLAS + "_v" + VERSION + ".tar.gz", archive
+        );
+
+        try (var server = new StandInServer(files)) {
+            var received = new long[]{0, 0};
+            var result = BrainGlobeDownloader.builder()
+                .setDownloadDir(dir)
+                .setRemoteRoot(server.root())
+                .setProgressListener((r, t) -> {
+                    received[0] = r;
+                    received[1] = t;
+                })
+                .atlasName(ATLAS)
+                .download();
+
+            assertFalse(result.hasError(), () -> String.valueOf(result.error()));
+            assertEquals(CONTENT, Files.readString(result.root().resolve("metadata.json")));
+            assertEquals(1, server.ranges.size());
+            assertEquals(archive.length, received[0]);
+            assertEquals(archive.length, received[1]);
+            assertNull(result.progress());
+
+            try (var list = Files.list(dir)) {
+                assertTrue(list.noneMatch(p -> p.getFileName().toString().endsWith(".partial")));
+            }
+        }
+    }
+
+    private static Map<String, byte[]> files(byte[] archive) {
+        return Map.of(
+            BrainGlobeDownloader.LAST_VERSION_FILENAME, ("[atlases]\n" + ATLAS + "=" + VERSION + "\n").getBytes(StandardCharsets.UTF_8),
+            ATLAS + "_v" + VERSION + ".tar.gz", archive
+        );
+    }
+
+    @Test
+    public void forceDownloadReplaceExisting(@TempDir Path dir) throws Exception {
+        try (var server = new StandInServer(files(archive()))) {
+            var builder = BrainGlobeDownloader.builder()
+                .setDownloadDir(dir)
+                .setRemoteRoot(server.root())
+                .atlasName(ATLAS);
+
+            var first = builder.download();
+            assertFalse(first.hasError(), () -> String.valueOf(first.error()));
+
+            var second = builder.download(true);
+            assertFalse(second.hasError(), () -> String.valueOf(second.error()));
+            assertEquals(CONTENT, Files.readString(second.root().resolve("metadata.json")));
+
+            try (var list = Files.list(dir)) {
+                assertTrue(list.noneMatch(p -> p.getFileName().toString().startsWith(".")));
+            }
+        }
+    }
+
+    @Test
+    public void resumeFromPartFile(@TempDir Path dir) throws Exception {
+        var archive = archive();
+        var part = BrainGlobeDownloader.partFile(dir, ATLAS + "_v" + VERSION);
+        Files.write(part, Arrays.copyOf(archive, archive.length / 2));
+        Files.writeString(BrainGlobeDownloader.validatorFile(part), "\"v1\"");
+
+        try (var server = new StandInServer(files(archive))) {
+            server.broken = true;
+            server.etag = "\"v1\"";
+
+            var result = BrainGlobeDownloader.builder()
+                .setDownloadDir(dir)
+                .setRemoteRoot(server.root())
+                .atlasName(ATLAS)
+                .download();
+
+            assertFalse(result.hasError(), () -> String.valueOf(result.error()));
+            assertEquals(CONTENT, Files.readString(result.root().resolve("metadata.json")));
+            assertEquals(List.of("Range: bytes=" + archive.length / 2 + "-"), server.ranges);
+            assertFalse(Files.exists(part));
+            assertFalse(Files.exists(BrainGlobeDownloader.validatorFile(part)));
+        }
+    }
+
+    @Test
+    public void restartOnChangedRemote(@TempDir Path dir) throws Exception {
+        var older = archive("{\"name\": \"older\"}".repeat(1000));
+        var part = BrainGlobeDownloader.partFile(dir, ATLAS + "_v" + VERSION);
+        Files.write(part, Arrays.copyOf(older, older.length / 2));
+        Files.writeString(BrainGlobeDownloader.validatorFile(part), "\"v0\"");
+
+        try (var server = new StandInServer(files(archive()))) {
+            server.broken = true;
+            server.etag = "\"v1\"";
+
+            var result = BrainGlobeDownloader.builder()
+                .setDownloadDir(dir)
+                .setRemoteRoot(server.root())
+                .atlasName(ATLAS)
+                .download();
+
+            assertFalse(result.hasError(), () -> String.valueOf(result.error()));
+            assertEquals(CONTENT, Files.readString(result.root().resolve("metadata.json")));
+            assertFalse(Files.exists(part));
+        }
+    }
+}
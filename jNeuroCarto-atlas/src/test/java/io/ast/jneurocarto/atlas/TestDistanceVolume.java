@@ -0,0 +1,141 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.ast.jneurocarto.core.Coordinate;
+import io.ast.jneurocarto.core.ImplantCoordinate;
+import io.ast.jneurocarto.core.ProbeCoordinate;
+import io.ast.jneurocarto.core.ProbeTransform;
+
+import static io.ast.jneurocarto.atlas.TestStructures.STRUCTURES;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDistanceVolume {
+
+    private static final double[] RESOLUTION = {20, 10, 5};
+
+    private static ImageVolume annotation() {
+        var random = new Random(42);
+        var ret = new ImageVolume(9, 11, 13, false);
+        for (int i = 0; i < 12; i++) {
+            ret.set(random.nextInt(9), random.nextInt(13), random.nextInt(11), i % 2 == 0 ? 500 : 343);
+        }
+        return ret;
+    }
+
+    private static StructureMask mask() {
+        return StructureMask.compile(STRUCTURES, STRUCTURES.get("grey").orElseThrow());
+    }
+
+    /**
+     * brute-force signed distance.
+     */
+    private static int distance(ImageVolume volume, StructureMask mask, int p, int x, int y) {
+        var inside = mask.test(volume.get(p, x, y));
+        var best = Double.POSITIVE_INFINITY;
+        for (int q = 0; q < volume.page; q++) {
+            for (int v = 0; v < volume.height; v++) {
+                for (int u = 0; u < volume.width; u++) {
+                    if (mask.test(volume.get(q, u, v)) == inside) continue;
+                    var dp = (p - q) * RESOLUTION[0];
+                    var dy = (y - v) * RESOLUTION[1];
+                    var dx = (x - u) * RESOLUTION[2];
+                    best = Math.min(best, dp * dp + dy * dy + dx * dx);
+                }
+            }
+        }
+        var d = (int) Math.round(Math.sqrt(best));
+        return inside ? -d : d;
+    }
+
+    @Test
+    public void exact() {
+        var volume = annotation();
+        var mask = mask();
+        var distance = DistanceVolume.compute(500, volume, mask, RESOLUTION);
+        for (int p = 0; p < volume.page; p++) {
+            for (int y = 0; y < volume.height; y++) {
+                for (int x = 0; x < volume.width; x++) {
+                    assertEquals(distance(volume, mask, p, x, y), distance.get(p, x, y), "at " + p + "," + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void empty() {
+        var volume = new ImageVolume(2, 2, 2, false);
+        var distance = DistanceVolume.compute(500, volume, mask(), RESOLUTION);
+        assertEquals(DistanceVolume.MAX_DISTANCE, distance.get(1, 1, 1));
+    }
+
+    @Test
+    public void distanceMm() {
+        var volume = new ImageVolume(1, 1, 10, false);
+        volume.set(0, 0, 0, 500);
+        var distance = DistanceVolume.compute(500, volume, mask(), RESOLUTION);
+        assertEquals(0.015, distance.distanceAt(new Coordinate(0, 0, 15)) / 1000, 1e-9);
+
+        var ret = distance.distanceMm(new double[]{0, 0, 0}, new double[]{0, 0, 0}, new double[]{0, 45, 100}, null);
+        assertEquals(-0.005, ret[0], 1e-9);
+        assertEquals(0.045, ret[1], 1e-9);
+        assertTrue(Double.isNaN(ret[2]));
+    }
+
+    @Test
+    public void distanceMmElectrodes() {
+        var volume = annotation();
+        var distance = DistanceVolume.compute(500, volume, mask(), RESOLUTION);
+
+        var x = new int[]{0, 0, 0, 5, 10, 10};
+        var y = new int[]{0, 20, 40, 40, 60, 80};
+
+        // electrodes above the tip, up to the insertion point.
+        var straight = ProbeTransform.create(new ImplantCoordinate(80, 0, 30, 0, 0, 0, 0, 80, null));
+        var p = Electrodes.place(straight, new int[]{0}, new int[]{80});
+        assertArrayEquals(new double[]{80, 0, 30}, new double[]{p[0][0], p[1][0], p[2][0]}, 1e-9);
+
+        var implant = new ImplantCoordinate(80, 10, 30, 0, 10, 5, -15, 90, null);
+        var transform = ProbeTransform.create(implant);
+        var ret = distance.distanceMm(transform, x, y);
+        for (int i = 0; i < x.length; i++) {
+            var coor = transform.transform(new ProbeCoordinate(0, x[i], -y[i], 0));
+            assertEquals(distance.distanceAt(coor) / 1000, ret[i], 1e-9, "electrode " + i);
+        }
+        assertEquals(distance.distanceAt(implant.tipCoordinate()) / 1000, ret[0], 1e-9);
+        assertFalse(Double.isNaN(ret[ret.length - 1]));
+    }
+
+    @Test
+    public void cache(@TempDir Path dir) throws IOException {
+        var source = dir.resolve(BrainAtlas.ANNOTATION_FILENAME);
+        Files.writeString(source, "fake");
+        var file = dir.resolve(DistanceVolume.DIRNAME).resolve(DistanceVolume.filename(500));
+
+        var volume = annotation();
+        var distance = DistanceVolume.compute(500, volume, mask(), RESOLUTION);
+        distance.save(file, source);
+
+        var loaded = DistanceVolume.load(file, source);
+        assertNotNull(loaded);
+        assertEquals(500, loaded.id());
+        assertArrayEquals(distance.shape(), loaded.shape());
+        assertArrayEquals(RESOLUTION, loaded.resolution());
+        for (int p = 0; p < volume.page; p++) {
+            for (int y = 0; y < volume.height; y++) {
+                for (int x = 0; x < volume.width; x++) {
+                    assertEquals(distance.get(p, x, y), loaded.get(p, x, y));
+                }
+            }
+        }
+
+        Files.writeString(source, "changed");
+        assertNull(DistanceVolume.load(file, source));
+    }
+}
@@ -0,0 +1,106 @@
+package io.ast.jneurocarto.atlas;
+
+import org.junit.jupiter.api.Test;
+
+import io.ast.jneurocarto.core.ImplantCoordinate;
+import io.ast.jneurocarto.core.ProbeCoordinate;
+import io.ast.jneurocarto.core.ProbeTransform;
+
+import static io.ast.jneurocarto.atlas.TestStructures.STRUCTURES;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestImplantSearch {
+
+    private static final double[] RESOLUTION = {10, 10, 10};
+
+    /**
+     * A 40x40x40 volume with a CTX box at ap 200..249, dv 100..299 and ml 300..339 (um).
+     */
+    private static ImageVolume annotation() {
+        var ret = new ImageVolume(40, 40, 40, false);
+        for (int p = 20; p < 25; p++) {
+            for (int y = 10; y < 30; y++) {
+                for (int x = 30; x < 34; x++) {
+                    ret.set(p, x, y, 688);
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static ImplantSearch newSearch() {
+        var target = StructureMask.compile(STRUCTURES, STRUCTURES.get("grey").orElseThrow());
+        return new ImplantSearch(annotation(), RESOLUTION, target)
+            .setBase(new ImplantCoordinate(0, 0))
+            .setRange(ImplantSearch.Axis.ap, new ImplantSearch.Range(0, 390, 10))
+            .setRange(ImplantSearch.Axis.ml, new ImplantSearch.Range(0, 390, 10))
+            .setRange(ImplantSearch.Axis.depth, new ImplantSearch.Range(0, 400, 10));
+    }
+
+    // a single column of 20 electrodes over 190 um.
+    private static final int[] X = new int[20];
+    private static final int[] Y = new int[20];
+
+    static {
+        for (int i = 0; i < 20; i++) Y[i] = i * 10;
+    }
+
+    @Test
+    public void count() {
+        var search = newSearch();
+        assertEquals(20, search.count(new ImplantCoordinate(220, 310, 290), X, Y));
+        assertEquals(10, search.count(new ImplantCoordinate(220, 310, 390), X, Y));
+        assertEquals(0, search.count(new ImplantCoordinate(0, 0, 290), X, Y));
+    }
+
+    @Test
+    public void countFollowsProbeTransform() {
+        var search = newSearch();
+        var implant = new ImplantCoordinate(220, 0, 310, 0, 1, 2, -1, 290, null);
+        var transform = ProbeTransform.create(implant);
+
+        var expected = 0;
+        for (int i = 0; i < X.length; i++) {
+            var c = transform.transform(new ProbeCoordinate(0, X[i], -Y[i], 0));
+            var ap = (int) (c.ap() / RESOLUTION[0]);
+            var dv = (int) (c.dv() / RESOLUTION[1]);
+            var ml = (int) (c.ml() / RESOLUTION[2]);
+            if (20 <= ap && ap < 25 && 10 <= dv && dv < 30 && 30 <= ml && ml < 34) expected++;
+        }
+
+        assertTrue(expected > 0);
+        assertEquals(expected, search.count(implant, X, Y));
+    }
+
+    @Test
+    public void rangeSize() {
+        assertEquals(40, new ImplantSearch.Range(0, 390, 10).size());
+        assertEquals(1, ImplantSearch.Range.of(5).size());
+        assertEquals(new ImplantSearch.Range(-1, 1, 0.5), ImplantSearch.Range.parse("-1:1:0.5"));
+        assertThrows(IllegalArgumentException.class, () -> ImplantSearch.Range.parse("1:2"));
+    }
+
+    @Test
+    public void coarseToFine() {
+        var search = newSearch();
+        var result = search.search(X, Y, 3);
+        assertEquals(3, result.size());
+
+        var best = result.get(0);
+        assertEquals(20, best.count());
+        assertEquals(290, best.implant().depth());
+        assertTrue(best.implant().ap() >= 200 && best.implant().ap() < 250);
+        assertTrue(best.implant().ml() >= 300 && best.implant().ml() < 340);
+        assertTrue(result.get(1).count() <= best.count());
+
+        assertTrue(search.evaluated() < 40 * 40 * 41);
+    }
+
+    @Test
+    public void exhaustive() {
+        var search = newSearch().setCoarseFactor(1);
+        var result = search.search(X, Y, 1);
+        assertEquals(20, result.get(0).count());
+        assertEquals(40 * 40 * 41, search.evaluated());
+    }
+}
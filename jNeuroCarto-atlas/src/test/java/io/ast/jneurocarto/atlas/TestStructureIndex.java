@@ -0,0 +1,117 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.ast.jneurocarto.core.CoordinateIndex;
+
+import static io.ast.jneurocarto.atlas.ImageSliceStack.Projection.*;
+import static io.ast.jneurocarto.atlas.TestStructures.STRUCTURES;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStructureIndex {
+
+    /**
+     * 4 pages (AP) x 2 rows (DV) x 4 columns (ML). MO at page 0 and 3, BS at page 1.
+     */
+    private static ImageVolume volume() {
+        var volume = new ImageVolume(4, 2, 4, false);
+        volume.set(0, 0, 0, 500);
+        volume.set(0, 1, 0, 500);
+        volume.set(3, 1, 1, 500);
+        volume.set(1, 3, 1, 343);
+        volume.set(2, 2, 0, 1);  // unknown id
+        return volume;
+    }
+
+    private static StructureIndex build() throws IOException {
+        return StructureIndex.build(STRUCTURES, volume(), new double[]{10, 10, 10});
+    }
+
+    @Test
+    public void leaf() throws IOException {
+        var index = build();
+        var mo = index.get(500);
+        assertNotNull(mo);
+        assertEquals(3, mo.voxels());
+        assertEquals(3, mo.selfVoxels());
+        assertEquals(new CoordinateIndex(0, 0, 0), mo.min());
+        assertEquals(new CoordinateIndex(3, 1, 1), mo.max());
+        assertArrayEquals(new int[]{0, 0, 3, 3}, mo.planes(coronal));
+        assertArrayEquals(new int[]{0, 1}, mo.planes(sagittal));
+        assertTrue(mo.occupies(coronal, 3));
+        assertFalse(mo.occupies(coronal, 1));
+        assertEquals(15, mo.centroid().ap(), 1e-9);
+    }
+
+    @Test
+    public void rollup() throws IOException {
+        var index = build();
+        var grey = index.get(8);
+        assertNotNull(grey);
+        assertEquals(4, grey.voxels());
+        assertEquals(0, grey.selfVoxels());
+        assertArrayEquals(new int[]{0, 1, 3, 3}, grey.planes(coronal));
+        assertEquals(4, index.get(997).voxels());
+        assertNull(index.get(1009));
+    }
+
+    @Test
+    public void saveAndLoad(@TempDir Path dir) throws IOException {
+        var source = dir.resolve("annotation.tiff");
+        Files.writeString(source, "fake");
+        var file = dir.resolve(StructureIndex.FILENAME);
+
+        build().save(file, source);
+        var index = StructureIndex.load(file, STRUCTURES, source);
+        assertNotNull(index);
+
+        var expect = build().get(8);
+        var grey = index.get(8);
+        assertNotNull(expect);
+        assertNotNull(grey);
+        assertEquals(expect.voxels(), grey.voxels());
+        assertEquals(expect.min(), grey.min());
+        assertEquals(expect.max(), grey.max());
+        assertEquals(expect.centroid(), grey.centroid());
+        assertArrayEquals(expect.ap(), grey.ap());
+        assertNull(index.get(1009));
+
+        Files.writeString(source, "changed");
+        assertNull(StructureIndex.load(file, STRUCTURES, source));
+    }
+
+    @Test
+    public void loadCorrupted(@TempDir Path dir) throws IOException {
+        var source = dir.resolve("annotation.tiff");
+        Files.writeString(source, "fake");
+        var file = dir.resolve(StructureIndex.FILENAME);
+        build().save(file, source);
+        var content = Files.readAllBytes(file);
+
+        // truncated
+        Files.write(file, Arrays.copyOf(content, content.length / 2));
+        assertNull(StructureIndex.load(file, STRUCTURES, source));
+
+        // header (28 bytes), the first entry flag (1 byte) and its fixed fields (68 bytes), then the AP range length.
+        assertEquals(1, content[28]);
+        var buffer = ByteBuffer.wrap(content.clone());
+        buffer.putInt(28 + 1 + 68, Integer.MAX_VALUE);
+        Files.write(file, buffer.array());
+        assertNull(StructureIndex.load(file, STRUCTURES, source));
+
+        buffer.putInt(28 + 1 + 68, -1);
+        Files.write(file, buffer.array());
+        assertNull(StructureIndex.load(file, STRUCTURES, source));
+
+        // intact
+        Files.write(file, content);
+        assertNotNull(StructureIndex.load(file, STRUCTURES, source));
+    }
+}
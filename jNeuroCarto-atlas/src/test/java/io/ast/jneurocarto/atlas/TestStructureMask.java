@@ -0,0 +1,61 @@
+package io.ast.jneurocarto.atlas;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.ast.jneurocarto.core.numpy.FlatIntArray;
+
+import static io.ast.jneurocarto.atlas.TestStructures.STRUCTURES;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStructureMask {
+
+    private static Structure get(String acronym) {
+        return STRUCTURES.get(acronym).orElseThrow();
+    }
+
+    @Test
+    public void includeChildren() {
+        var mask = StructureMask.compile(STRUCTURES, get("grey"));
+        assertEquals(4, mask.count());
+        assertTrue(mask.test(8));
+        assertTrue(mask.test(688));
+        assertTrue(mask.test(500));
+        assertTrue(mask.test(343));
+        assertFalse(mask.test(997));
+        assertFalse(mask.test(1009));
+        assertFalse(mask.test(0));
+        assertFalse(mask.test(-1));
+    }
+
+    @Test
+    public void excludeInOrder() {
+        var mask = StructureMask.compile(STRUCTURES, List.of(
+            new RegionMask(get("grey"), false, true),
+            new RegionMask(get("CTX"), true, false)
+        ));
+        assertTrue(mask.test(500));
+        assertFalse(mask.test(688));
+
+        mask = StructureMask.compile(STRUCTURES, List.of(
+            new RegionMask(get("CTX"), true, true),
+            new RegionMask(get("grey"), false, true)
+        ));
+        assertTrue(mask.test(688));
+    }
+
+    @Test
+    public void empty() {
+        assertTrue(StructureMask.compile(STRUCTURES, List.of()).isEmpty());
+    }
+
+    @Test
+    public void image() {
+        var mask = StructureMask.compile(STRUCTURES, get("CTX"));
+        var ann = new FlatIntArray(new int[]{2, 3}, new int[]{0, 688, 500, 343, 997, 688});
+        var ret = mask.image(ann, ImageSlice.INT_IMAGE, 1, 2);
+        assertArrayEquals(new int[]{2, 3}, ret.shape());
+        assertArrayEquals(new int[]{2, 1, 1, 2, 2, 1}, ret.array());
+    }
+}
@@ -0,0 +1,73 @@
+package io.ast.jneurocarto.atlas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStructures {
+
+    /*
+    root(997)
+    ├── grey(8)
+    │   ├── CTX(688)
+    │   │   └── MO(500)
+    │   └── BS(343)
+    └── fiber(1009)
+     */
+    public static final Structures STRUCTURES = new Structures(new Structure[]{
+        structure("MO", 500, 997, 8, 688, 500),
+        structure("root", 997, 997),
+        structure("grey", 8, 997, 8),
+        structure("fiber", 1009, 997, 1009),
+        structure("CTX", 688, 997, 8, 688),
+        structure("BS", 343, 997, 8, 343),
+    });
+
+    private static Structure structure(String acronym, int id, int... path) {
+        return new Structure(acronym, id, acronym, path, new int[]{0, 0, 0});
+    }
+
+    @Test
+    public void getById() {
+        assertEquals("CTX", STRUCTURES.get(688).orElseThrow().acronym());
+        assertTrue(STRUCTURES.get(1).isEmpty());
+    }
+
+    @Test
+    public void getByAcronym() {
+        assertEquals(688, STRUCTURES.get("ctx").orElseThrow().id());
+        assertEquals(688, STRUCTURES.get("CTX").orElseThrow().id());
+        assertTrue(STRUCTURES.get("unknown").isEmpty());
+    }
+
+    @Test
+    public void children() {
+        var grey = STRUCTURES.get(8).orElseThrow();
+        assertEquals(List.of("CTX", "BS"), STRUCTURES.children(grey).stream().map(Structure::acronym).toList());
+    }
+
+    @Test
+    public void forAllChildren() {
+        var ret = new ArrayList<String>();
+        STRUCTURES.forAllChildren(8, s -> ret.add(s.acronym()));
+        assertEquals(List.of("CTX", "MO", "BS"), ret);
+    }
+
+    @Test
+    public void hasParent() {
+        for (var child : STRUCTURES) {
+            for (var parent : STRUCTURES) {
+                assertEquals(child.hasParent(parent), STRUCTURES.hasParent(child, parent), child.acronym() + " in " + parent.acronym());
+            }
+        }
+    }
+
+    @Test
+    public void parents() {
+        var mo = STRUCTURES.get(500).orElseThrow();
+        assertEquals(List.of("CTX", "grey", "root"), STRUCTURES.parents(mo).stream().map(Structure::acronym).toList());
+    }
+}
@@ -0,0 +1,104 @@
+package io.ast.jneurocarto.atlas;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestVolumePyramid {
+
+    private static ImageVolume volume(boolean colored) {
+        var ret = new ImageVolume(3, 3, 3, colored);
+        for (int p = 0; p < 3; p++) {
+            for (int y = 0; y < 3; y++) {
+                for (int x = 0; x < 3; x++) {
+                    ret.set(p, x, y, x < 2 && y < 2 && p < 2 ? (x + y == 0 ? 7 : 5) : 9);
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Test
+    public void downsampleMode() {
+        var ret = volume(false).downsample(2, ImageVolume.Pooling.mode);
+        assertArrayEquals(new int[]{2, 2, 2}, ret.shape());
+        assertEquals(5, ret.get(0, 0, 0));
+        assertEquals(9, ret.get(1, 1, 1));
+    }
+
+    @Test
+    public void downsampleAverage() {
+        var ret = volume(false).downsample(2, ImageVolume.Pooling.average);
+        assertEquals((7 * 2 + 5 * 6) / 8, ret.get(0, 0, 0));
+
+        var colored = new ImageVolume(2, 2, 2, true);
+        colored.set(0, 0, 0, 0xFF000010);
+        colored.set(1, 1, 1, 0xFF000030);
+        ret = colored.downsample(2, ImageVolume.Pooling.average);
+        assertEquals(0x3F000008, ret.get(0, 0, 0)); // (0xFF * 2) / 8, (0x10 + 0x30) / 8
+    }
+
+    @Test
+    public void pickLevel() {
+        assertEquals(0, VolumePyramid.pickLevel(2));
+        assertEquals(0, VolumePyramid.pickLevel(0.6));
+        assertEquals(1, VolumePyramid.pickLevel(0.5));
+        assertEquals(3, VolumePyramid.pickLevel(0.01));
+    }
+
+    @Test
+    public void cache(@TempDir Path dir) throws IOException {
+        var source = dir.resolve("annotation.tiff");
+        Files.writeString(source, "fake");
+        var cache = dir.resolve(VolumePyramid.DIRNAME);
+
+        var pyramid = VolumePyramid.load(volume(false), ImageVolume.Pooling.mode, cache, "annotation", source);
+        assertEquals(4, pyramid.levels());
+        // levels are built on demand
+        assertNull(pyramid.levelIfLoaded(1));
+        assertFalse(Files.exists(cache.resolve("annotation_2x.bin")));
+
+        // the coarsest level builds all levels in between.
+        pyramid.level(3);
+        assertNotNull(pyramid.levelIfLoaded(1));
+        assertTrue(Files.exists(cache.resolve("annotation_2x.bin")));
+        // written through temporary files.
+        try (var files = Files.list(cache)) {
+            assertTrue(files.noneMatch(it -> it.getFileName().toString().endsWith(".tmp")));
+        }
+
+        var loaded = VolumePyramid.load(volume(false), ImageVolume.Pooling.mode, cache, "annotation", source);
+        for (int i = 1; i < pyramid.levels(); i++) {
+            assertArrayEquals(pyramid.level(i).shape(), loaded.level(i).shape());
+            assertEquals(pyramid.level(i).get(0, 0, 0), loaded.level(i).get(0, 0, 0));
+        }
+    }
+
+    @Test
+    public void concurrentLevel(@TempDir Path dir) throws Exception {
+        var source = dir.resolve("annotation.tiff");
+        Files.writeString(source, "fake");
+        var pyramid = VolumePyramid.load(volume(false), ImageVolume.Pooling.mode, dir, "annotation", source);
+
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            var futures = new ArrayList<Future<ImageVolume>>();
+            for (int i = 0; i < 8; i++) {
+                var level = 3 - (i % 3);
+                futures.add(executor.submit(() -> pyramid.level(level)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                var volume = futures.get(i).get();
+                // each level is built once.
+                assertSame(pyramid.levelIfLoaded(3 - (i % 3)), volume);
+            }
+        }
+    }
+}
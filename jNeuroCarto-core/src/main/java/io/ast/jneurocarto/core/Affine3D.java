@@ -0,0 +1,265 @@
+package io.ast.jneurocarto.core;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable 3D affine transformation, represented by a 3x4 matrix
+ * {@snippet lang = "TEXT":
+ * [ mxx mxy mxz tx ]
+ * [ myx myy myz ty ]
+ * [ mzx mzy mzz tz ]
+ *}
+ * <p>
+ * It is the headless counterpart of JavaFX {@code Affine}, which has the same composition semantics
+ * ({@link #append(Affine3D)} applies the given transform first, {@link #prepend(Affine3D)} applies it last),
+ * but it does not require the JavaFX runtime. The conversions are provided on the JavaFX side.
+ */
+@NullMarked
+public final class Affine3D {
+
+    public static final Affine3D IDENTITY = new Affine3D(
+        1, 0, 0, 0,
+        0, 1, 0, 0,
+        0, 0, 1, 0
+    );
+
+    public final double mxx, mxy, mxz, tx;
+    public final double myx, myy, myz, ty;
+    public final double mzx, mzy, mzz, tz;
+
+    public Affine3D(double mxx, double mxy, double mxz, double tx,
+                    double myx, double myy, double myz, double ty,
+                    double mzx, double mzy, double mzz, double tz) {
+        this.mxx = mxx;
+        this.mxy = mxy;
+        this.mxz = mxz;
+        this.tx = tx;
+        this.myx = myx;
+        this.myy = myy;
+        this.myz = myz;
+        this.ty = ty;
+        this.mzx = mzx;
+        this.mzy = mzy;
+        this.mzz = mzz;
+        this.tz = tz;
+    }
+
+    /*===========*
+     * factories *
+     *===========*/
+
+    public static Affine3D translate(double tx, double ty, double tz) {
+        return new Affine3D(
+            1, 0, 0, tx,
+            0, 1, 0, ty,
+            0, 0, 1, tz
+        );
+    }
+
+    public static Affine3D scale(double sx, double sy, double sz) {
+        return new Affine3D(
+            sx, 0, 0, 0,
+            0, sy, 0, 0,
+            0, 0, sz, 0
+        );
+    }
+
+    /**
+     * Create a rotation, which has the same meaning of JavaFX {@code Rotate}.
+     *
+     * @param angle  rotation angle in degree.
+     * @param pivotX pivot x
+     * @param pivotY pivot y
+     * @param pivotZ pivot z
+     * @param axisX  rotation axis x
+     * @param axisY  rotation axis y
+     * @param axisZ  rotation axis z
+     * @return a rotation transform
+     */
+    public static Affine3D rotate(double angle,
+                                  double pivotX, double pivotY, double pivotZ,
+                                  double axisX, double axisY, double axisZ) {
+        var length = Math.sqrt(axisX * axisX + axisY * axisY + axisZ * axisZ);
+        if (length == 0) return IDENTITY;
+        var x = axisX / length;
+        var y = axisY / length;
+        var z = axisZ / length;
+
+        var rad = Math.toRadians(angle);
+        var s = Math.sin(rad);
+        var c = Math.cos(rad);
+        var t = 1 - c;
+
+        var mxx = c + x * x * t;
+        var mxy = x * y * t - z * s;
+        var mxz = x * z * t + y * s;
+        var myx = y * x * t + z * s;
+        var myy = c + y * y * t;
+        var myz = y * z * t - x * s;
+        var mzx = z * x * t - y * s;
+        var mzy = z * y * t + x * s;
+        var mzz = c + z * z * t;
+
+        // T(pivot) R T(-pivot)
+        return new Affine3D(
+            mxx, mxy, mxz, pivotX - mxx * pivotX - mxy * pivotY - mxz * pivotZ,
+            myx, myy, myz, pivotY - myx * pivotX - myy * pivotY - myz * pivotZ,
+            mzx, mzy, mzz, pivotZ - mzx * pivotX - mzy * pivotY - mzz * pivotZ
+        );
+    }
+
+    /*=============*
+     * composition *
+     *=============*/
+
+    /**
+     * {@return {@code this * t}, which applies {@code t} first, then this}
+     */
+    public Affine3D append(Affine3D t) {
+        return multiply(this, t);
+    }
+
+    /**
+     * {@return {@code t * this}, which applies this first, then {@code t}}
+     */
+    public Affine3D prepend(Affine3D t) {
+        return multiply(t, this);
+    }
+
+    private static Affine3D multiply(Affine3D a, Affine3D b) {
+        return new Affine3D(
+            a.mxx * b.mxx + a.mxy * b.myx + a.mxz * b.mzx,
+            a.mxx * b.mxy + a.mxy * b.myy + a.mxz * b.mzy,
+            a.mxx * b.mxz + a.mxy * b.myz + a.mxz * b.mzz,
+            a.mxx * b.tx + a.mxy * b.ty + a.mxz * b.tz + a.tx,
+
+            a.myx * b.mxx + a.myy * b.myx + a.myz * b.mzx,
+            a.myx * b.mxy + a.myy * b.myy + a.myz * b.mzy,
+            a.myx * b.mxz + a.myy * b.myz + a.myz * b.mzz,
+            a.myx * b.tx + a.myy * b.ty + a.myz * b.tz + a.ty,
+
+            a.mzx * b.mxx + a.mzy * b.myx + a.mzz * b.mzx,
+            a.mzx * b.mxy + a.mzy * b.myy + a.mzz * b.mzy,
+            a.mzx * b.mxz + a.mzy * b.myz + a.mzz * b.mzz,
+            a.mzx * b.tx + a.mzy * b.ty + a.mzz * b.tz + a.tz
+        );
+    }
+
+    public double determinant() {
+        return mxx * (myy * mzz - mzy * myz)
+               - mxy * (myx * mzz - mzx * myz)
+               + mxz * (myx * mzy - mzx * myy);
+    }
+
+    /**
+     * {@return inverse transform. {@code null} if this is not invertible}
+     */
+    public @Nullable Affine3D inverse() {
+        var det = determinant();
+        if (det == 0 || !Double.isFinite(det)) return null;
+
+        var ixx = (myy * mzz - myz * mzy) / det;
+        var ixy = (mxz * mzy - mxy * mzz) / det;
+        var ixz = (mxy * myz - mxz * myy) / det;
+        var iyx = (myz * mzx - myx * mzz) / det;
+        var iyy = (mxx * mzz - mxz * mzx) / det;
+        var iyz = (mxz * myx - mxx * myz) / det;
+        var izx = (myx * mzy - myy * mzx) / det;
+        var izy = (mxy * mzx - mxx * mzy) / det;
+        var izz = (mxx * myy - mxy * myx) / det;
+
+        return new Affine3D(
+            ixx, ixy, ixz, -(ixx * tx + ixy * ty + ixz * tz),
+            iyx, iyy, iyz, -(iyx * tx + iyy * ty + iyz * tz),
+            izx, izy, izz, -(izx * tx + izy * ty + izz * tz)
+        );
+    }
+
+    /*================*
+     * transformation *
+     *================*/
+
+    public double transformX(double x, double y, double z) {
+        return mxx * x + mxy * y + mxz * z + tx;
+    }
+
+    public double transformY(double x, double y, double z) {
+        return myx * x + myy * y + myz * z + ty;
+    }
+
+    public double transformZ(double x, double y, double z) {
+        return mzx * x + mzy * y + mzz * z + tz;
+    }
+
+    public double deltaTransformX(double x, double y, double z) {
+        return mxx * x + mxy * y + mxz * z;
+    }
+
+    public double deltaTransformY(double x, double y, double z) {
+        return myx * x + myy * y + myz * z;
+    }
+
+    public double deltaTransformZ(double x, double y, double z) {
+        return mzx * x + mzy * y + mzz * z;
+    }
+
+    /**
+     * transform points. Output arrays could be the same as input arrays.
+     *
+     * @param x  x positions
+     * @param y  y positions
+     * @param z  z positions
+     * @param ox output x positions
+     * @param oy output y positions
+     * @param oz output z positions
+     * @throws IllegalArgumentException arrays' length mismatch.
+     */
+    public void transform(double[] x, double[] y, double[] z, double[] ox, double[] oy, double[] oz) {
+        var length = x.length;
+        if (y.length != length || z.length != length || ox.length < length || oy.length < length || oz.length < length) {
+            throw new IllegalArgumentException("length mismatch");
+        }
+
+        for (int i = 0; i < length; i++) {
+            var px = x[i];
+            var py = y[i];
+            var pz = z[i];
+            ox[i] = mxx * px + mxy * py + mxz * pz + tx;
+            oy[i] = myx * px + myy * py + myz * pz + ty;
+            oz[i] = mzx * px + mzy * py + mzz * pz + tz;
+        }
+    }
+
+    /**
+     * {@return 3x4 matrix in row-major}
+     */
+    public double[] toArray() {
+        return new double[]{
+            mxx, mxy, mxz, tx,
+            myx, myy, myz, ty,
+            mzx, mzy, mzz, tz,
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Affine3D a
+               && mxx == a.mxx && mxy == a.mxy && mxz == a.mxz && tx == a.tx
+               && myx == a.myx && myy == a.myy && myz == a.myz && ty == a.ty
+               && mzx == a.mzx && mzy == a.mzy && mzz == a.mzz && tz == a.tz;
+    }
+
+    @Override
+    public int hashCode() {
+        return java.util.Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "Affine3D[" +
+               mxx + ", " + mxy + ", " + mxz + ", " + tx + ", " +
+               myx + ", " + myy + ", " + myz + ", " + ty + ", " +
+               mzx + ", " + mzy + ", " + mzz + ", " + tz + "]";
+    }
+}
@@ -141,10 +141,10 @@ public record ImplantCoordinate(
         default -> throw new IllegalArgumentException("unknown target domain");
         }
 
-        var p = transform.transform(ap, dv, ml);
+        var p = transform.transform(insertCoordinate());
         var rap = this.rap * (tfap ^ sfap ? -1 : 1);
         var rml = this.rml * (tfap ^ sfap ? -1 : 1);
-        return new ImplantCoordinate(p.getX(), p.getY(), p.getZ(), s, rap, rdv, rml, depth, target);
+        return new ImplantCoordinate(p.ap(), p.dv(), p.ml(), s, rap, rdv, rml, depth, target);
     }
 
     /**
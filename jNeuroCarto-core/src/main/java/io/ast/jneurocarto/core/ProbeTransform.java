@@ -3,16 +3,18 @@ package io.ast.jneurocarto.core;
 import java.util.Objects;
 import java.util.function.Supplier;
 
-import javafx.geometry.Point2D;
 import javafx.geometry.Point3D;
-import javafx.scene.transform.Affine;
-import javafx.scene.transform.NonInvertibleTransformException;
 
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 /**
  * Transform between different 3D coordinate system.
+ * <p>
+ * The transform matrix is kept as {@link Affine3D}, and domains convert coordinates from/to raw values,
+ * so the coordinate and batch transformations do not require the JavaFX runtime. The {@link Point3D}
+ * overloads are conveniences for JavaFX callers, and the conversions from/to JavaFX {@code Affine}
+ * are provided on the JavaFX side.
  *
  * @param <C1> coordinate type from source domain
  * @param <C2> coordinate type from target domain.
@@ -30,20 +32,44 @@ public sealed abstract class ProbeTransform<C1, C2> {
     public interface Domain<C> {
 
         /**
-         * cast {@link Point3D} into coordinate.
+         * cast values into coordinate.
+         *
+         * @param x x value
+         * @param y y value
+         * @param z z value
+         * @return coordinate instance
+         */
+        C fromValues(double x, double y, double z);
+
+        /**
+         * cast coordinate into values.
+         *
+         * @param coordinate coordinate instance
+         * @param xyz        output array with length at least 3.
+         */
+        void toValues(C coordinate, double[] xyz);
+
+        /**
+         * cast {@link Point3D} into coordinate. Default delegate to {@link #fromValues(double, double, double)}.
          *
          * @param p point
          * @return coordinate instance
          */
-        C fromPoint(Point3D p);
+        default C fromPoint(Point3D p) {
+            return fromValues(p.getX(), p.getY(), p.getZ());
+        }
 
         /**
-         * cast coordinate into {@link Point3D}.
+         * cast coordinate into {@link Point3D}. Default delegate to {@link #toValues(Object, double[])}.
          *
          * @param coordinate coordinate instance
          * @return point
          */
-        Point3D toPoint(C coordinate);
+        default Point3D toPoint(C coordinate) {
+            var p = new double[3];
+            toValues(coordinate, p);
+            return new Point3D(p[0], p[1], p[2]);
+        }
     }
 
     /**
@@ -56,23 +82,6 @@ public sealed abstract class ProbeTransform<C1, C2> {
      */
     public static final Domain<Coordinate> ANATOMICAL = new Anatomical();
 
-    /**
-     * A 2D projection domain. Just drop {@link Point3D#z}.
-     *
-     * @param name domain name.
-     */
-    public record Project2D(String name) implements Domain<Point2D> {
-        @Override
-        public Point2D fromPoint(Point3D p) {
-            return new Point2D(p.getX(), p.getY());
-        }
-
-        @Override
-        public Point3D toPoint(Point2D coordinate) {
-            return new Point3D(coordinate.getX(), coordinate.getY(), 0);
-        }
-    }
-
     /**
      * A chart/probe space, used by {@link ProbeCoordinate}.
      */
@@ -81,13 +90,15 @@ public sealed abstract class ProbeTransform<C1, C2> {
         }
 
         @Override
-        public ProbeCoordinate fromPoint(Point3D p) {
-            return new ProbeCoordinate(0, p.getX(), p.getY(), p.getZ());
+        public ProbeCoordinate fromValues(double x, double y, double z) {
+            return new ProbeCoordinate(0, x, y, z);
         }
 
         @Override
-        public Point3D toPoint(ProbeCoordinate coordinate) {
-            return new Point3D(coordinate.x(), coordinate.y(), coordinate.z());
+        public void toValues(ProbeCoordinate coordinate, double[] xyz) {
+            xyz[0] = coordinate.x();
+            xyz[1] = coordinate.y();
+            xyz[2] = coordinate.z();
         }
     }
 
@@ -99,13 +110,15 @@ public sealed abstract class ProbeTransform<C1, C2> {
         }
 
         @Override
-        public Coordinate fromPoint(Point3D p) {
-            return new Coordinate(p.getX(), p.getY(), p.getZ());
+        public Coordinate fromValues(double x, double y, double z) {
+            return new Coordinate(x, y, z);
         }
 
         @Override
-        public Point3D toPoint(Coordinate coordinate) {
-            return new Point3D(coordinate.ap(), coordinate.dv(), coordinate.ml());
+        public void toValues(Coordinate coordinate, double[] xyz) {
+            xyz[0] = coordinate.ap();
+            xyz[1] = coordinate.dv();
+            xyz[2] = coordinate.ml();
         }
     }
 
@@ -120,21 +133,18 @@ public sealed abstract class ProbeTransform<C1, C2> {
     public record ReferencedAnatomical(String reference, Coordinate origin, boolean flipAP) implements Domain<Coordinate> {
 
         @Override
-        public Coordinate fromPoint(Point3D p) {
-            return new Coordinate(p.getX(), p.getY(), p.getZ());
+        public Coordinate fromValues(double x, double y, double z) {
+            return new Coordinate(x, y, z);
         }
 
         @Override
-        public Point3D toPoint(Coordinate coordinate) {
-            return new Point3D(coordinate.ap(), coordinate.dv(), coordinate.ml());
+        public void toValues(Coordinate coordinate, double[] xyz) {
+            xyz[0] = coordinate.ap();
+            xyz[1] = coordinate.dv();
+            xyz[2] = coordinate.ml();
         }
     }
 
-
-    private static final Point3D AXIS_AP = new Point3D(1, 0, 0);
-    private static final Point3D AXIS_DV = new Point3D(0, 1, 0);
-    private static final Point3D AXIS_ML = new Point3D(0, 0, 1);
-
     /**
      * source domain
      */
@@ -160,14 +170,14 @@ public sealed abstract class ProbeTransform<C1, C2> {
     /**
      * The transformation from source domain to target domain.
      */
-    abstract Affine transform();
+    abstract Affine3D transform();
 
     /**
      * The transformation from target domain to source domain.
      *
      * @throws RuntimeException when inverse transformation is not existed, because {@code det(transform())} is {@code 0}.
      */
-    abstract Affine inverse();
+    abstract Affine3D inverse();
 
     /**
      * invert this transformation's domain.
@@ -192,10 +202,10 @@ public sealed abstract class ProbeTransform<C1, C2> {
     }
 
     /**
-     * {@return a copied transform}
+     * {@return transform matrix}
      */
-    public Affine getTransform() {
-        return new Affine(transform());
+    public Affine3D getAffine3D() {
+        return transform();
     }
 
     /**
@@ -207,7 +217,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return a transformation from {@code Domain<C1>} to {@code Domain <C3>}
      * @see #then(ProbeTransform)
      */
-    public abstract <C3> ProbeTransform<C1, C3> then(Domain<C3> domain, Affine transform);
+    public abstract <C3> ProbeTransform<C1, C3> then(Domain<C3> domain, Affine3D transform);
 
     /**
      * compose {@code transform}. It returns a transformation {@code transform(this(.))} ({@code transform ∘ this}).
@@ -215,7 +225,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @param transform Composed transformation
      * @param <C3>      coordinate from target domain.
      * @return a transformation from {@code Domain<C1>} to {@code Domain <C3>}
-     * @see #then(Domain, Affine)
+     * @see #then(Domain, Affine3D)
      */
     public abstract <C3> ProbeTransform<C1, C3> then(ProbeTransform<C2, C3> transform);
 
@@ -243,7 +253,8 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return point in target domain.
      */
     public Point3D transform(double x, double y, double z) {
-        return transform().transform(x, y, z);
+        var t = transform();
+        return new Point3D(t.transformX(x, y, z), t.transformY(x, y, z), t.transformZ(x, y, z));
     }
 
     /**
@@ -253,7 +264,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return point in target domain.
      */
     public Point3D transform(Point3D p) {
-        return transform().transform(p);
+        return transform(p.getX(), p.getY(), p.getZ());
     }
 
     /**
@@ -263,7 +274,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return coordinate in target domain.
      */
     public C2 transform(C1 coordinate) {
-        return target.fromPoint(transform().transform(source.toPoint(coordinate)));
+        return transform(transform(), source, target, coordinate);
     }
 
     /**
@@ -275,7 +286,8 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return point in source domain.
      */
     public Point3D inverseTransform(double x, double y, double z) {
-        return inverse().transform(x, y, z);
+        var t = inverse();
+        return new Point3D(t.transformX(x, y, z), t.transformY(x, y, z), t.transformZ(x, y, z));
     }
 
     /**
@@ -285,7 +297,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return point in source domain.
      */
     public Point3D inverseTransform(Point3D p) {
-        return inverse().transform(p);
+        return inverseTransform(p.getX(), p.getY(), p.getZ());
     }
 
     /**
@@ -295,7 +307,16 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return coordinate in source domain.
      */
     public C1 inverseTransform(C2 coordinate) {
-        return source.fromPoint(inverse().transform(target.toPoint(coordinate)));
+        return transform(inverse(), target, source, coordinate);
+    }
+
+    private static <S, T> T transform(Affine3D t, Domain<S> source, Domain<T> target, S coordinate) {
+        var p = new double[3];
+        source.toValues(coordinate, p);
+        var x = p[0];
+        var y = p[1];
+        var z = p[2];
+        return target.fromValues(t.transformX(x, y, z), t.transformY(x, y, z), t.transformZ(x, y, z));
     }
 
 
@@ -308,7 +329,8 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return delta in target domain.
      */
     public Point3D deltaTransform(double x, double y, double z) {
-        return transform().deltaTransform(x, y, z);
+        var t = transform();
+        return new Point3D(t.deltaTransformX(x, y, z), t.deltaTransformY(x, y, z), t.deltaTransformZ(x, y, z));
     }
 
     /**
@@ -318,7 +340,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return delta in target domain.
      */
     public Point3D deltaTransform(Point3D p) {
-        return transform().deltaTransform(p);
+        return deltaTransform(p.getX(), p.getY(), p.getZ());
     }
 
     /**
@@ -330,7 +352,8 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return delta in source domain.
      */
     public Point3D inverseDeltaTransform(double x, double y, double z) {
-        return inverse().deltaTransform(x, y, z);
+        var t = inverse();
+        return new Point3D(t.deltaTransformX(x, y, z), t.deltaTransformY(x, y, z), t.deltaTransformZ(x, y, z));
     }
 
     /**
@@ -340,7 +363,67 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return delta in source domain.
      */
     public Point3D inverseDeltaTransform(Point3D p) {
-        return inverse().deltaTransform(p);
+        return inverseDeltaTransform(p.getX(), p.getY(), p.getZ());
+    }
+
+    /*======================*
+     * batch transformation *
+     *======================*/
+
+    /**
+     * transform points from source domain in place.
+     *
+     * @param x x positions in source domain, replaced by x positions in target domain.
+     * @param y y positions in source domain, replaced by y positions in target domain.
+     * @param z z positions in source domain, replaced by z positions in target domain.
+     * @throws IllegalArgumentException arrays' length mismatch.
+     */
+    public void transform(double[] x, double[] y, double[] z) {
+        transform().transform(x, y, z, x, y, z);
+    }
+
+    /**
+     * transform points from source domain.
+     * Output arrays could be the same as input arrays.
+     *
+     * @param x  x positions in source domain.
+     * @param y  y positions in source domain.
+     * @param z  z positions in source domain.
+     * @param tx output x positions in target domain.
+     * @param ty output y positions in target domain.
+     * @param tz output z positions in target domain.
+     * @throws IllegalArgumentException arrays' length mismatch.
+     */
+    public void transform(double[] x, double[] y, double[] z, double[] tx, double[] ty, double[] tz) {
+        transform().transform(x, y, z, tx, ty, tz);
+    }
+
+    /**
+     * transform points from target domain in place.
+     *
+     * @param x x positions in target domain, replaced by x positions in source domain.
+     * @param y y positions in target domain, replaced by y positions in source domain.
+     * @param z z positions in target domain, replaced by z positions in source domain.
+     * @throws IllegalArgumentException arrays' length mismatch.
+     */
+    public void inverseTransform(double[] x, double[] y, double[] z) {
+        inverse().transform(x, y, z, x, y, z);
+    }
+
+    /**
+     * transform points from target domain.
+     * Output arrays could be the same as input arrays.
+     *
+     * @param x  x positions in target domain.
+     * @param y  y positions in target domain.
+     * @param z  z positions in target domain.
+     * @param sx output x positions in source domain.
+     * @param sy output y positions in source domain.
+     * @param sz output z positions in source domain.
+     * @throws IllegalArgumentException arrays' length mismatch.
+     */
+    public void inverseTransform(double[] x, double[] y, double[] z, double[] sx, double[] sy, double[] sz) {
+        inverse().transform(x, y, z, sx, sy, sz);
     }
 
     /*===========*
@@ -355,7 +438,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return a transformation
      */
     public static <C> ProbeTransform<C, C> identify(Domain<C> domain) {
-        return new FixedTransform<>(domain, domain, new Affine());
+        return new FixedTransform<>(domain, domain, Affine3D.IDENTITY);
     }
 
     /**
@@ -372,7 +455,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @param transform transformation from {@link ProbeCoordinate} to {@link Coordinate}
      * @return a transformation
      */
-    public static ProbeTransform<ProbeCoordinate, Coordinate> create(Affine transform) {
+    public static ProbeTransform<ProbeCoordinate, Coordinate> create(Affine3D transform) {
         return new FixedTransform<>(PROBE, ANATOMICAL, transform);
     }
 
@@ -396,15 +479,15 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @return a transformation
      */
     public static ProbeTransform<Coordinate, Coordinate> create(String reference, Coordinate origin, boolean flipAP) {
-        var t = new Affine();
+        Affine3D t;
         if (flipAP) {
-            t.append(new Affine(
+            t = new Affine3D(
                 -1, 0, 0, origin.ap(), //
                 0, 1, 0, -origin.dv(), //
                 0, 0, -1, origin.ml() //
-            ));
+            );
         } else {
-            t.appendTranslation(-origin.ap(), -origin.dv(), -origin.ml());
+            t = Affine3D.translate(-origin.ap(), -origin.dv(), -origin.ml());
         }
         return new FixedTransform<>(ANATOMICAL, new ReferencedAnatomical(reference, origin, flipAP), t);
     }
@@ -417,12 +500,13 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @throws IllegalArgumentException {@code implant} does not reference to global anatomical space.
      */
     public static ProbeTransform<ProbeCoordinate, Coordinate> create(ImplantCoordinate implant) {
-        var a = new Point3D(implant.ap(), implant.dv(), implant.ml());
-        var t = new Affine();
-        t.appendTranslation(implant.ap(), implant.dv() + implant.depth(), implant.ml());
-        t.appendRotation(implant.rap(), a, AXIS_AP);
-        t.appendRotation(implant.rdv(), a, AXIS_DV);
-        t.appendRotation(implant.rml(), a, AXIS_ML);
+        var ap = implant.ap();
+        var dv = implant.dv();
+        var ml = implant.ml();
+        var t = Affine3D.translate(ap, dv + implant.depth(), ml)
+            .append(Affine3D.rotate(implant.rap(), ap, dv, ml, 1, 0, 0))
+            .append(Affine3D.rotate(implant.rdv(), ap, dv, ml, 0, 1, 0))
+            .append(Affine3D.rotate(implant.rml(), ap, dv, ml, 0, 0, 1));
         return create(t);
     }
 
@@ -436,7 +520,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @param <C2>      coordinate in target domain
      * @return a transformation
      */
-    public static <C1, C2> ProbeTransform<C1, C2> create(Domain<C1> source, Domain<C2> target, Affine transform) {
+    public static <C1, C2> ProbeTransform<C1, C2> create(Domain<C1> source, Domain<C2> target, Affine3D transform) {
         return new FixedTransform<>(source, target, transform);
     }
 
@@ -450,7 +534,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
      * @param <C2>      coordinate in target domain
      * @return a transformation
      */
-    public static <C1, C2> ProbeTransform<C1, C2> create(Domain<C1> source, Domain<C2> target, Supplier<Affine> transform) {
+    public static <C1, C2> ProbeTransform<C1, C2> create(Domain<C1> source, Domain<C2> target, Supplier<Affine3D> transform) {
         return new DynamicTransform<>(source, target, transform, false);
     }
 
@@ -459,35 +543,28 @@ public sealed abstract class ProbeTransform<C1, C2> {
      *===========*/
 
     private static final class FixedTransform<C1, C2> extends ProbeTransform<C1, C2> {
-        private final Affine transform;
-        private final @Nullable Affine inverse;
+        private final Affine3D transform;
+        private final @Nullable Affine3D inverse;
 
-        FixedTransform(Domain<C1> d1, Domain<C2> d2, Affine transform) {
+        FixedTransform(Domain<C1> d1, Domain<C2> d2, Affine3D transform) {
             super(d1, d2);
-            this.transform = new Affine(transform);
-
-            Affine inverse;
-            try {
-                inverse = transform.createInverse();
-            } catch (NonInvertibleTransformException e) {
-                inverse = null;
-            }
-            this.inverse = inverse;
+            this.transform = transform;
+            this.inverse = transform.inverse();
         }
 
-        private FixedTransform(Domain<C1> d1, Domain<C2> d2, Affine transform, Affine inverse) {
+        private FixedTransform(Domain<C1> d1, Domain<C2> d2, Affine3D transform, Affine3D inverse) {
             super(d1, d2);
             this.transform = transform;
             this.inverse = inverse;
         }
 
         @Override
-        protected Affine transform() {
+        protected Affine3D transform() {
             return transform;
         }
 
         @Override
-        protected Affine inverse() {
+        protected Affine3D inverse() {
             return Objects.requireNonNull(inverse, "inverse is not existed");
         }
 
@@ -495,18 +572,15 @@ public sealed abstract class ProbeTransform<C1, C2> {
             return new FixedTransform<>(target, source, inverse(), transform);
         }
 
-        public <C3> ProbeTransform<C1, C3> then(Domain<C3> domain, Affine transform) {
-            var t = new Affine(transform);
-            t.prepend(transform);
-            return new FixedTransform<>(this.source, domain, t);
+        @Override
+        public <C3> ProbeTransform<C1, C3> then(Domain<C3> domain, Affine3D transform) {
+            return new FixedTransform<>(this.source, domain, this.transform.prepend(transform));
         }
 
         public <C3> ProbeTransform<C1, C3> then(ProbeTransform<C2, C3> transform) {
             checkComposeDomain(transform);
             if (transform instanceof ProbeTransform.FixedTransform<C2, C3> f) {
-                var t = new Affine(this.transform);
-                t.prepend(f.transform());
-                return new FixedTransform<>(this.source, transform.target, t);
+                return new FixedTransform<>(this.source, transform.target, this.transform.prepend(f.transform()));
             } else if (transform instanceof ProbeTransform.ComposedTransform<C2, ?, C3> f) {
                 return then(f);
             } else {
@@ -524,33 +598,31 @@ public sealed abstract class ProbeTransform<C1, C2> {
     }
 
     private static final class DynamicTransform<C1, C2> extends ProbeTransform<C1, C2> {
-        private final Supplier<Affine> transform;
+        private final Supplier<Affine3D> transform;
         private final boolean inverted;
 
-        DynamicTransform(Domain<C1> d1, Domain<C2> d2, Supplier<Affine> transform, boolean inverted) {
+        DynamicTransform(Domain<C1> d1, Domain<C2> d2, Supplier<Affine3D> transform, boolean inverted) {
             super(d1, d2);
             this.transform = transform;
             this.inverted = inverted;
         }
 
         @Override
-        protected Affine transform() {
+        protected Affine3D transform() {
             var t = transform.get();
-            try {
-                return inverted ? t.createInverse() : t;
-            } catch (NonInvertibleTransformException e) {
-                throw new RuntimeException(e);
-            }
+            return inverted ? invert(t) : t;
         }
 
         @Override
-        protected Affine inverse() {
+        protected Affine3D inverse() {
             var t = transform.get();
-            try {
-                return inverted ? t : t.createInverse();
-            } catch (NonInvertibleTransformException e) {
-                throw new RuntimeException(e);
-            }
+            return inverted ? t : invert(t);
+        }
+
+        private static Affine3D invert(Affine3D t) {
+            var i = t.inverse();
+            if (i == null) throw new RuntimeException("transform is not invertible : " + t);
+            return i;
         }
 
         public ProbeTransform<C2, C1> inverted() {
@@ -558,7 +630,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
         }
 
         @Override
-        public <C3> ProbeTransform<C1, C3> then(Domain<C3> domain, Affine transform) {
+        public <C3> ProbeTransform<C1, C3> then(Domain<C3> domain, Affine3D transform) {
             return new ComposedTransform<>(this, new FixedTransform<>(targetDomain(), domain, transform));
         }
 
@@ -573,6 +645,12 @@ public sealed abstract class ProbeTransform<C1, C2> {
         private final ProbeTransform<C1, C2> f;
         private final ProbeTransform<C2, C3> g;
 
+        /**
+         * collapsed transform when the whole chain is fixed.
+         */
+        private final @Nullable Affine3D fixed;
+        private final @Nullable Affine3D fixedInverse;
+
         ComposedTransform(ProbeTransform<C1, C2> f, ProbeTransform<C2, C3> g) {
             super(f.sourceDomain(), g.targetDomain());
 
@@ -583,24 +661,42 @@ public sealed abstract class ProbeTransform<C1, C2> {
 
             this.f = f;
             this.g = g;
+
+            if (isFixed(f) && isFixed(g)) {
+                var t = compose();
+                fixed = t;
+                fixedInverse = t.inverse();
+            } else {
+                fixed = null;
+                fixedInverse = null;
+            }
         }
 
-        @Override
-        protected Affine transform() {
+        private static boolean isFixed(ProbeTransform<?, ?> t) {
+            return t instanceof ProbeTransform.FixedTransform<?, ?>
+                   || t instanceof ProbeTransform.ComposedTransform<?, ?, ?> c && c.fixed != null;
+        }
+
+        private Affine3D compose() {
             // (T1, (T2 ...(Tn)))
             // [Tn]...[T2][T1]
-            var t = new Affine(f.transform());
-            t.prepend(g.transform());
-            return t;
+            return f.transform().prepend(g.transform());
         }
 
         @Override
-        protected Affine inverse() {
+        protected Affine3D transform() {
+            var t = fixed;
+            return t != null ? t : compose();
+        }
+
+        @Override
+        protected Affine3D inverse() {
+            var i = fixedInverse;
+            if (i != null) return i;
+
             // (T1, (T2 ...(Tn)))
             // [T1'][T2']...[Tn']
-            var t = new Affine(g.inverse());
-            t.prepend(f.inverse());
-            return t;
+            return g.inverse().prepend(f.inverse());
         }
 
         /*
@@ -650,7 +746,7 @@ public sealed abstract class ProbeTransform<C1, C2> {
         }
 
         @Override
-        public <C4> ProbeTransform<C1, C4> then(Domain<C4> domain, Affine transform) {
+        public <C4> ProbeTransform<C1, C4> then(Domain<C4> domain, Affine3D transform) {
             return then(new FixedTransform<>(targetDomain(), domain, transform));
         }
 
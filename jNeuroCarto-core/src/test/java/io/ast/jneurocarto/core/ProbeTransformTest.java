@@ -0,0 +1,97 @@
+package io.ast.jneurocarto.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProbeTransformTest {
+
+    private static final ProbeTransform.Domain<Coordinate> REF = new ProbeTransform.ReferencedAnatomical("test", new Coordinate(100, 0, 200), true);
+
+    private static ProbeTransform<ProbeCoordinate, Coordinate> composed() {
+        var implant = ProbeTransform.create(new ImplantCoordinate(1000, 50, 2000, 0, 10, 5, -15, 3000, null));
+        var dynamic = ProbeTransform.create(ProbeTransform.ANATOMICAL, REF, () -> Affine3D.translate(-100, 0, -200));
+        return implant.then(dynamic).then(ProbeTransform.create(REF, ProbeTransform.ANATOMICAL, new Affine3D(2, 0, 0, 1, 0, 2, 0, 2, 0, 0, 2, 3)));
+    }
+
+    @Test
+    public void batchTransform() {
+        var transform = composed();
+        double[] x = {0, 10, -20, 35};
+        double[] y = {0, 100, 2000, -5};
+        double[] z = {0, 0, 1, 2};
+
+        var tx = new double[4];
+        var ty = new double[4];
+        var tz = new double[4];
+        transform.transform(x, y, z, tx, ty, tz);
+
+        for (int i = 0; i < 4; i++) {
+            var p = transform.transform(x[i], y[i], z[i]);
+            assertEquals(p.getX(), tx[i], 1e-9);
+            assertEquals(p.getY(), ty[i], 1e-9);
+            assertEquals(p.getZ(), tz[i], 1e-9);
+        }
+
+        transform.inverseTransform(tx, ty, tz);
+        assertArrayEquals(x, tx, 1e-9);
+        assertArrayEquals(y, ty, 1e-9);
+        assertArrayEquals(z, tz, 1e-9);
+    }
+
+    @Test
+    public void batchTransformInPlace() {
+        var transform = ProbeTransform.create(new ImplantCoordinate(1000, 2000, 3000));
+        double[] x = {0, 10};
+        double[] y = {0, 100};
+        double[] z = {0, 0};
+        transform.transform(x, y, z);
+        var p = transform.transform(10, 100, 0);
+        assertEquals(p.getX(), x[1], 1e-9);
+        assertEquals(p.getY(), y[1], 1e-9);
+        assertEquals(p.getZ(), z[1], 1e-9);
+
+        assertThrows(IllegalArgumentException.class, () -> transform.transform(x, y, new double[1]));
+    }
+
+    @Test
+    public void batchTransformDynamic() {
+        var offset = new double[]{0};
+        var dynamic = ProbeTransform.create(ProbeTransform.ANATOMICAL, REF, () -> Affine3D.translate(offset[0], 0, 0));
+        var transform = ProbeTransform.create(new ImplantCoordinate(1000, 2000, 3000)).then(dynamic);
+
+        double[] x = {0};
+        double[] y = {0};
+        double[] z = {0};
+        transform.transform(x, y, z);
+        var before = x[0];
+
+        offset[0] = 50;
+        x[0] = 0;
+        transform.transform(x, y, z);
+        assertEquals(before + 50, x[0], 1e-9);
+    }
+
+    @Test
+    public void affineInverse() {
+        var a = new Affine3D(2, 0, 1, 1, 0, 3, 0, 2, 1, 0, 2, 3);
+        var inverse = a.inverse();
+        assertNotNull(inverse);
+        assertArrayEquals(Affine3D.IDENTITY.toArray(), a.append(inverse).toArray(), 1e-9);
+        assertArrayEquals(Affine3D.IDENTITY.toArray(), a.prepend(inverse).toArray(), 1e-9);
+        assertNull(Affine3D.scale(1, 0, 1).inverse());
+    }
+
+    @Test
+    public void thenAffine() {
+        var implant = ProbeTransform.create(new ImplantCoordinate(1000, 2000, 3000));
+        var t = new Affine3D(2, 0, 0, 1, 0, 2, 0, 2, 0, 0, 2, 3);
+        var transform = implant.then(REF, t);
+
+        var p = implant.transform(10, 100, 0);
+        var actual = transform.transform(10, 100, 0);
+        assertEquals(t.transformX(p.getX(), p.getY(), p.getZ()), actual.getX(), 1e-9);
+        assertEquals(t.transformY(p.getX(), p.getY(), p.getZ()), actual.getY(), 1e-9);
+        assertEquals(t.transformZ(p.getX(), p.getY(), p.getZ()), actual.getZ(), 1e-9);
+    }
+}
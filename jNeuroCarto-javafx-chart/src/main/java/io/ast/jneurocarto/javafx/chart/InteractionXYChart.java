@@ -8,6 +8,8 @@ import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.event.EventType;
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
@@ -367,6 +369,8 @@ public class InteractionXYChart extends StackPane {
 
     private void onMouseReleased(MouseEvent e) {
         var start = mousePress;
+        var dragging = isDragging();
+        selecting = null;
         var moving = mouseMoving;
         isMouseMoved = start != null && (Math.abs(e.getX() - start.getX()) >= 5 || Math.abs(e.getY() - start.getY()) >= 5);
 
@@ -385,14 +389,24 @@ public class InteractionXYChart extends StackPane {
             }
         }
 
-        var gc = top.getGraphicsContext2D();
-        var w = top.getWidth();
-        var h = top.getHeight();
-        gc.clearRect(0, 0, w, h);
+        requestRepaint(TOP);
+        if (dragging) {
+            // full redraw for cached layers, which are translated during dragging.
+            repaint();
+        }
 
         fireChartMouseEvent(ChartMouseEvent.CHART_MOUSE_RELEASED, e);
     }
 
+    /**
+     * {@return whether the user is dragging (moving) the chart}
+     */
+    boolean isDragging() {
+        var start = mousePress;
+        return start != null && mouseMoving != null
+               && start.getButton() == MouseButton.SECONDARY && !start.isControlDown();
+    }
+
     private void onMouseClicked(MouseEvent e) {
         if (!isMouseMoved) {
             fireChartMouseEvent(ChartMouseEvent.CHART_MOUSE_CLICKED, e);
@@ -441,12 +455,22 @@ public class InteractionXYChart extends StackPane {
         e.consume();
     }
 
+    /**
+     * selecting rectangle in top coordinate system, painted on top layer.
+     */
+    private @Nullable Bounds selecting;
+
     private void onMouseSelecting(MouseEvent start, MouseEvent current) {
+        selecting = getMouseSelectBound(start, current);
+        requestRepaint(TOP);
+    }
+
+    private void paintTop() {
         var gc = top.getGraphicsContext2D();
-        var area = getPlottingAreaFromTop();
-        gc.clearRect(area.getMinX(), area.getMinY(), area.getWidth(), area.getHeight());
+        gc.clearRect(0, 0, top.getWidth(), top.getHeight());
 
-        var rect = getMouseSelectBound(start, current);
+        var rect = selecting;
+        if (rect == null) return;
 
         gc.setStroke(Color.BLUE);
         gc.setGlobalAlpha(0.3);
@@ -704,7 +728,7 @@ public class InteractionXYChart extends StackPane {
         }
         if (!old) {
             log.trace("block {} background repaint", blockBackgroundCounter);
-            blockForegroundCounter = 0;
+            blockBackgroundCounter = 0;
             repaintBackground();
         }
     }
@@ -727,52 +751,137 @@ public class InteractionXYChart extends StackPane {
             log.trace("block {} foreground repaint", blockForegroundCounter);
             log.trace("block {} background repaint", blockBackgroundCounter);
             blockForegroundCounter = 0;
-            blockForegroundCounter = 0;
+            blockBackgroundCounter = 0;
             repaint();
         }
     }
 
-    //    private int repaintForegroundCounter;
-//    private int repaintBackgroundCounter;
     private int blockForegroundCounter;
     private int blockBackgroundCounter;
 
+    /**
+     * Request repainting the foreground layer on the next pulse.
+     */
     public void repaintForeground() {
         if (repaintBlocker || repaintForegroundBlocker) {
             blockForegroundCounter++;
             return;
         }
-//        System.out.println("repaint foreground " + (repaintForegroundCounter++));
-//        StackWalker.getInstance().walk(s -> {
-//            s.takeWhile(f -> f.getClassName().startsWith("io.ast.jneurocarto")).forEach(System.out::println);
-//            return null;
-//        });
-
-        var gc = getForegroundChartGraphicsContext(true);
-        var iter = foregroundJobs.iterator();
-        while (iter.hasNext()) {
-            var job = iter.next();
-            if (job instanceof WeakRefPlottingJob w && w.isInvalid()) {
-                iter.remove();
-            } else {
-                job.draw(gc);
-            }
-        }
+        requestRepaint(FOREGROUND);
     }
 
+    /**
+     * Request repainting the background layer on the next pulse.
+     */
     public void repaintBackground() {
         if (repaintBlocker || repaintBackgroundBlocker) {
             blockBackgroundCounter++;
             return;
         }
-//        System.out.println("repaint background " + (repaintBackgroundCounter++));
-//        StackWalker.getInstance().walk(s -> {
-//            s.takeWhile(f -> f.getClassName().startsWith("io.ast.jneurocarto")).forEach(System.out::println);
-//            return null;
-//        });
+        requestRepaint(BACKGROUND);
+    }
+
+    /**
+     * Request repainting the plotting layer ({@link #getPlotting()}) on the next pulse.
+     */
+    void repaintPlotting() {
+        if (repaintBlocker) return;
+        requestRepaint(PLOTTING);
+    }
+
+    /**
+     * Request repainting background, plotting and foreground layers on the next pulse.
+     */
+    public void repaint() {
+        if (repaintBlocker) return;
+        requestRepaint(BACKGROUND | PLOTTING | FOREGROUND);
+    }
+
+    /*==================*
+     * repaint schedule *
+     *==================*/
+
+    private static final int BACKGROUND = 1;
+    private static final int PLOTTING = 1 << 1;
+    private static final int FOREGROUND = 1 << 2;
+    private static final int TOP = 1 << 3;
+
+    /**
+     * dirty layers, which are repainted on the next pulse. It and {@link #scheduled} are
+     * only touched on the FX application thread, see {@link #requestRepaint(int)}.
+     */
+    private int dirty;
+    private boolean scheduled;
+
+    private long repaintRequests;
+    private long repaintCoalesced;
+    private long redraws;
+    private long redrawWindowStart;
+    private long redrawWindowCount;
+    private double redrawsPerSecond;
+
+    private final AnimationTimer repaintTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            scheduled = false;
+            stop();
+            flushRepaint(now);
+        }
+    };
+
+    /**
+     * Mark layers dirty. Requests within one pulse are coalesced into one redraw per layer.
+     * Requests from other threads are passed to the FX application thread first.
+     *
+     * @param layers layer flags
+     */
+    private void requestRepaint(int layers) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> requestRepaint(layers));
+            return;
+        }
+
+        repaintRequests++;
+        if ((dirty & layers) == layers) {
+            repaintCoalesced++;
+        }
+        dirty |= layers;
+        if (!scheduled) {
+            scheduled = true;
+            repaintTimer.start();
+        }
+    }
 
-        var gc = getBackgroundChartGraphicsContext(true);
-        var iter = backgroundJobs.iterator();
+    /**
+     * Repaint dirty layers immediately, instead of waiting for the next pulse.
+     */
+    public void repaintNow() {
+        flushRepaint(System.nanoTime());
+    }
+
+    private void flushRepaint(long now) {
+        var layers = dirty;
+        dirty = 0;
+        if (layers == 0) return;
+
+        if ((layers & BACKGROUND) != 0) paintLayer(getBackgroundChartGraphicsContext(true), backgroundJobs);
+        if ((layers & PLOTTING) != 0 && painter != null) painter.paint();
+        if ((layers & FOREGROUND) != 0) paintLayer(getForegroundChartGraphicsContext(true), foregroundJobs);
+        if ((layers & TOP) != 0) paintTop();
+
+        redraws += Integer.bitCount(layers);
+        redrawWindowCount += Integer.bitCount(layers);
+        if (redrawWindowStart == 0) redrawWindowStart = now;
+        var duration = now - redrawWindowStart;
+        if (duration >= 1_000_000_000L) {
+            redrawsPerSecond = redrawWindowCount * 1e9 / duration;
+            redrawWindowStart = now;
+            redrawWindowCount = 0;
+        }
+    }
+
+    private static void paintLayer(GraphicsContext gc, List<PlottingJob> jobs) {
+        var iter = jobs.iterator();
         while (iter.hasNext()) {
             var job = iter.next();
             if (job instanceof WeakRefPlottingJob w && w.isInvalid()) {
@@ -783,12 +892,40 @@ public class InteractionXYChart extends StackPane {
         }
     }
 
-    public void repaint() {
-        if (repaintBlocker) return;
-        repaintBackground();
-        var data = painter;
-        if (data != null) data.repaint();
-        repaintForeground();
+    /**
+     * {@return number of repaint requests}
+     */
+    public long repaintRequests() {
+        return repaintRequests;
+    }
+
+    /**
+     * {@return number of repaint requests which were coalesced into a pending redraw}
+     */
+    public long repaintCoalesced() {
+        return repaintCoalesced;
+    }
+
+    /**
+     * {@return number of layer redraws}
+     */
+    public long redraws() {
+        return redraws;
+    }
+
+    /**
+     * {@return layer redraws per second, measured over the last one-second window}
+     * When there is no redraw for over one second, it is measured over the current window instead,
+     * so it decays to {@code 0} when idle.
+     */
+    public double redrawsPerSecond() {
+        var start = redrawWindowStart;
+        if (start == 0) return 0;
+        var duration = System.nanoTime() - start;
+        if (duration >= 1_000_000_000L) {
+            return redrawWindowCount * 1e9 / duration;
+        }
+        return redrawsPerSecond;
     }
 
     /*==============================*
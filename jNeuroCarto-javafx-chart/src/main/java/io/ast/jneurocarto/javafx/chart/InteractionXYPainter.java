@@ -1,6 +1,5 @@
 package io.ast.jneurocarto.javafx.chart;
 
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
@@ -8,9 +7,13 @@ import java.util.List;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
 import javafx.scene.transform.Affine;
+import javafx.scene.transform.Transform;
 
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
@@ -68,26 +71,31 @@ public class InteractionXYPainter implements InteractionXYChart.PlottingJob {
     }
 
     public void addGraphics(XYGraphics graphic) {
+        invalidate();
         graphics.add(graphic);
         graphics.sort(Comparator.comparingDouble(XYGraphics::z));
         chart.reorderPainter();
     }
 
     public void addGraphics(Collection<XYGraphics> graphic) {
+        invalidate();
         this.graphics.addAll(graphic);
         graphics.sort(Comparator.comparingDouble(XYGraphics::z));
         chart.reorderPainter();
     }
 
     public boolean removeGraphics(XYGraphics graphic) {
+        invalidate();
         return graphics.remove(graphic);
     }
 
     public void removeGraphics(Collection<? extends XYGraphics> graphics) {
+        invalidate();
         this.graphics.removeAll(graphics);
     }
 
     public void clearGraphics() {
+        invalidate();
         graphics.clear();
     }
 
@@ -101,14 +109,19 @@ public class InteractionXYPainter implements InteractionXYChart.PlottingJob {
         return gc;
     }
 
-    private @Nullable SoftReference<double[][]> transformedCache;
+    /**
+     * scratch buffer of transformed points, shared by all graphics of this painter. It only grows.
+     */
+    private double[][] transformedCache = XYGraphics.createTransformedArray(0);
 
+    /**
+     * Request repainting. The actual painting is deferred to the next pulse, and coalesced with
+     * other requests of the same layer.
+     */
     public void repaint() {
+        invalidate();
         if (layer == 0) {
-            clear();
-            if (graphics.isEmpty() || !isVisible()) return;
-            gc.setTransform(chart.getCanvasTransform());
-            draw(gc);
+            chart.repaintPlotting();
         } else if (layer > 0) {
             chart.repaintForeground();
         } else {
@@ -116,6 +129,20 @@ public class InteractionXYPainter implements InteractionXYChart.PlottingJob {
         }
     }
 
+    /**
+     * paint the plotting layer. Called by {@link InteractionXYChart} on pulse.
+     */
+    void paint() {
+        clear();
+        if (graphics.isEmpty() || !isVisible()) return;
+        gc.setTransform(chart.getCanvasTransform());
+        if (cached) {
+            drawCached(gc);
+        } else {
+            draw(gc);
+        }
+    }
+
     public void clear() {
         if (layer == 0) {
             gc.setTransform(IDENTIFY);
@@ -125,6 +152,14 @@ public class InteractionXYPainter implements InteractionXYChart.PlottingJob {
 
     @Override
     public void draw(GraphicsContext gc) {
+        if (cached && layer != 0) {
+            drawCached(gc);
+        } else {
+            drawGraphics(gc);
+        }
+    }
+
+    private void drawGraphics(GraphicsContext gc) {
         if (graphics.isEmpty() || !isVisible()) return;
 
         var length = graphics.stream().mapToInt(XYGraphics::points).max().orElse(0);
@@ -140,14 +175,153 @@ public class InteractionXYPainter implements InteractionXYChart.PlottingJob {
     }
 
     private double[][] getTransformedCache(int length) {
-        double[][] ret;
-        if (transformedCache == null || (ret = transformedCache.get()) == null || ret[0].length < length) {
-            ret = XYGraphics.createTransformedArray(length);
-            transformedCache = new SoftReference<>(ret);
+        var ret = transformedCache;
+        var capacity = ret[0].length;
+        if (capacity < length) {
+            transformedCache = ret = XYGraphics.createTransformedArray(Math.max(length, capacity + (capacity >> 1)));
         }
         return ret;
     }
 
+    /*==============*
+     * cached layer *
+     *==============*/
+
+    private boolean cached;
+    private boolean invalidated = true;
+    private @Nullable Canvas cacheCanvas;
+    private @Nullable WritableImage cacheImage;
+    private @Nullable Affine cacheTransform;
+    private long cacheVersion;
+    private double cacheScale;
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Keep painted graphics as an offscreen image, which is reused when neither the graphics
+     * nor the canvas transform changed. During dragging, the image is translated instead of redrawn.
+     * <p>
+     * The image is invalidated by {@link #repaint()}, adding or removing graphics, and modification of
+     * {@link XYSeries} data. Other changes on graphics properties should be followed by {@link #repaint()}.
+     *
+     * @param cached use cached layer
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+        if (!cached) {
+            cacheCanvas = null;
+            cacheImage = null;
+            cacheTransform = null;
+        }
+        invalidate();
+    }
+
+    /**
+     * invalidate the cached layer.
+     */
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    private long version() {
+        long ret = graphics.size();
+        for (var series : graphics) {
+            ret = ret * 31 + (series.isVisible() ? 1 : 0);
+            if (series instanceof XYSeries s) {
+                ret = ret * 31 + s.columns().modCount();
+            }
+        }
+        return ret;
+    }
+
+    private void drawCached(GraphicsContext gc) {
+        if (graphics.isEmpty() || !isVisible()) return;
+
+        var aff = gc.getTransform();
+        var w = canvas.getWidth();
+        var h = canvas.getHeight();
+        var scale = outputScale();
+        var version = version();
+
+        var image = cacheImage;
+        var transform = cacheTransform;
+        var valid = !invalidated && image != null && transform != null
+                    && cacheVersion == version && cacheScale == scale
+                    && image.getWidth() == Math.ceil(w * scale) && image.getHeight() == Math.ceil(h * scale);
+
+        if (valid && !sameTransform(aff, transform)) {
+            if (chart.isDragging() && sameScale(aff, transform)) {
+                // preview with translated image, and redraw when dragging is completed.
+                blit(gc, image, aff.getTx() - transform.getTx(), aff.getTy() - transform.getTy(), w, h, aff);
+                return;
+            }
+            valid = false;
+        }
+
+        if (!valid) {
+            image = renderCache(aff, w, h, scale);
+            cacheTransform = aff;
+            cacheVersion = version;
+            cacheScale = scale;
+            invalidated = false;
+        }
+
+        blit(gc, image, 0, 0, w, h, aff);
+    }
+
+    private WritableImage renderCache(Affine aff, double w, double h, double scale) {
+        var offscreen = cacheCanvas;
+        if (offscreen == null) {
+            cacheCanvas = offscreen = new Canvas();
+        }
+        offscreen.setWidth(w);
+        offscreen.setHeight(h);
+
+        var gc = offscreen.getGraphicsContext2D();
+        gc.setTransform(IDENTIFY);
+        gc.clearRect(0, 0, w, h);
+        gc.setTransform(aff);
+        drawGraphics(gc);
+
+        var params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        if (scale != 1) params.setTransform(Transform.scale(scale, scale));
+
+        var image = cacheImage;
+        var iw = (int) Math.ceil(w * scale);
+        var ih = (int) Math.ceil(h * scale);
+        if (image == null || image.getWidth() != iw || image.getHeight() != ih) {
+            image = new WritableImage(Math.max(1, iw), Math.max(1, ih));
+        }
+        cacheImage = image = offscreen.snapshot(params, image);
+        return image;
+    }
+
+    private static void blit(GraphicsContext gc, WritableImage image, double dx, double dy, double w, double h, Affine aff) {
+        gc.setTransform(IDENTIFY);
+        gc.drawImage(image, dx, dy, w, h);
+        gc.setTransform(aff);
+    }
+
+    private double outputScale() {
+        var scene = canvas.getScene();
+        if (scene == null) return 1;
+        var window = scene.getWindow();
+        if (window == null) return 1;
+        return Math.max(window.getOutputScaleX(), window.getOutputScaleY());
+    }
+
+    private static boolean sameScale(Affine a, Affine b) {
+        return a.getMxx() == b.getMxx() && a.getMxy() == b.getMxy()
+               && a.getMyx() == b.getMyx() && a.getMyy() == b.getMyy();
+    }
+
+    private static boolean sameTransform(Affine a, Affine b) {
+        return sameScale(a, b) && a.getTx() == b.getTx() && a.getTy() == b.getTy();
+    }
+
     /*===============*
      * data plotting *
      *===============*/
@@ -0,0 +1,207 @@
+package io.ast.jneurocarto.javafx.chart;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Affine;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import io.ast.jneurocarto.javafx.chart.data.XYGraphics;
+import io.ast.jneurocarto.javafx.chart.utils.AwtUtils;
+
+/**
+ * A headless renderer, which paints {@link XYGraphics} into an AWT {@link BufferedImage}
+ * without a JavaFX stage, via {@link XYGraphics#paint(Graphics2D, double[][], int, int)}.
+ * <p>
+ * The whole image is the plotting area, so the axes boundaries are mapped onto the image bounds
+ * in the same way as {@link InteractionXYChart#getCanvasTransform()}. Axes, ticks and labels are not drawn.
+ * <p>
+ * It is not thread-safe, as well as the added graphics, which keep internal buffers.
+ * For rendering in parallel, each thread should use its own renderer and graphics.
+ */
+@NullMarked
+public class XYChartRenderer {
+
+    private final int width;
+    private final int height;
+    private double x1 = 0;
+    private double x2 = 1;
+    private double y1 = 0;
+    private double y2 = 1;
+    private @Nullable Color background = Color.WHITE;
+    private final List<XYGraphics> graphics = new ArrayList<>();
+
+    /**
+     * scratch buffer of transformed points, shared by all graphics. It only grows.
+     */
+    private double[][] transformedCache = XYGraphics.createTransformedArray(0);
+
+    public XYChartRenderer(int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("non-positive image size : " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setAxesBoundaries(double x1, double x2, double y1, double y2) {
+        if (x1 == x2 || y1 == y2) throw new IllegalArgumentException("empty axes boundaries");
+        this.x1 = x1;
+        this.x2 = x2;
+        this.y1 = y1;
+        this.y2 = y2;
+    }
+
+    public @Nullable Color getBackground() {
+        return background;
+    }
+
+    /**
+     * @param background background color. {@code null} for transparent.
+     */
+    public void setBackground(@Nullable Color background) {
+        this.background = background;
+    }
+
+    /*==========*
+     * graphics *
+     *==========*/
+
+    public List<XYGraphics> graphics() {
+        return graphics;
+    }
+
+    public void addGraphics(XYGraphics graphics) {
+        this.graphics.add(graphics);
+        this.graphics.sort(Comparator.comparingDouble(XYGraphics::z));
+    }
+
+    public void addGraphics(Collection<? extends XYGraphics> graphics) {
+        this.graphics.addAll(graphics);
+        this.graphics.sort(Comparator.comparingDouble(XYGraphics::z));
+    }
+
+    public boolean removeGraphics(XYGraphics graphics) {
+        return this.graphics.remove(graphics);
+    }
+
+    public void clearGraphics() {
+        graphics.clear();
+    }
+
+    /*===========*
+     * rendering *
+     *===========*/
+
+    /**
+     * {@return an affine transform from chart to image coordinate system.}
+     */
+    public Affine getCanvasTransform() {
+        var w = x2 - x1;
+        var h = y2 - y1;
+
+        var mxx = width / w;
+        var mxy = 0;
+        var mxt = -x1 * width / w;
+        var myx = 0;
+        var myy = -height / h;
+        var myt = height + y1 * height / h;
+        return new Affine(mxx, mxy, mxt, myx, myy, myt);
+    }
+
+    /**
+     * {@return a new image with all visible graphics painted}
+     */
+    public BufferedImage render() {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        render(image);
+        return image;
+    }
+
+    /**
+     * paint all visible graphics onto {@code image}.
+     *
+     * @param image an image with size at least {@link #getWidth()}&times;{@link #getHeight()}.
+     */
+    public void render(BufferedImage image) {
+        var g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+            g.setClip(0, 0, width, height);
+
+            var background = this.background;
+            if (background != null) {
+                g.setColor(AwtUtils.color(background));
+                g.fillRect(0, 0, width, height);
+            }
+
+            var aff = getCanvasTransform();
+            g.setTransform(AwtUtils.transform(aff));
+
+            for (var graphics : this.graphics) {
+                if (!graphics.isVisible()) continue;
+
+                var p = transformedCache;
+                var points = graphics.points();
+                if (p[0].length < points) {
+                    transformedCache = p = XYGraphics.createTransformedArray(Math.max(points, p[0].length + (p[0].length >> 1)));
+                }
+
+                var length = graphics.transform(aff, p);
+                graphics.paint(g, p, 0, length);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * {@return all visible graphics painted in an ARGB {@code int[width*height]} raster, row-major}
+     */
+    public int[] renderArgb() {
+        var image = render();
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * render and write into a PNG file.
+     *
+     * @param file output file
+     * @throws IOException
+     */
+    public void write(Path file) throws IOException {
+        write(render(), file);
+    }
+
+    /**
+     * write {@code image} into a PNG file.
+     *
+     * @param image image
+     * @param file  output file
+     * @throws IOException
+     */
+    public static void write(BufferedImage image, Path file) throws IOException {
+        if (!ImageIO.write(image, "png", file.toFile())) {
+            throw new IOException("no PNG writer available");
+        }
+    }
+}
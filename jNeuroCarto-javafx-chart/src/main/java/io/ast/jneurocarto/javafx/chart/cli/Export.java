@@ -0,0 +1,175 @@
+package io.ast.jneurocarto.javafx.chart.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.ast.jneurocarto.core.numpy.FlatDoubleArray;
+import io.ast.jneurocarto.core.numpy.Numpy;
+import io.ast.jneurocarto.javafx.chart.XYChartRenderer;
+import io.ast.jneurocarto.javafx.chart.colormap.Colormap;
+import io.ast.jneurocarto.javafx.chart.colormap.Normalize;
+import io.ast.jneurocarto.javafx.chart.data.XYMatrix;
+import io.ast.jneurocarto.javafx.chart.data.XYPath;
+import io.ast.jneurocarto.javafx.chart.data.XYSeries;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+    name = "export",
+    sortOptions = false,
+    usageHelpAutoWidth = true,
+    mixinStandardHelpOptions = true,
+    description = "render npy data files into png images without a window."
+)
+public class Export implements Runnable {
+
+    @CommandLine.Option(names = "--cmap", paramLabel = "CMAP", defaultValue = "jet",
+        description = "colormap. default: ${DEFAULT-VALUE}")
+    String colormap;
+
+    @CommandLine.Option(names = {"-n", "--norm", "--normalize"}, arity = "1", paramLabel = "V,V",
+        converter = Matrix.NormalizeConverter.class,
+        description = "data normalize. default: data range per file.")
+    Normalize normalize;
+
+    @CommandLine.Option(names = "--size", paramLabel = "W,H", defaultValue = "800,800", split = ",",
+        description = "image size. default: ${DEFAULT-VALUE}")
+    int[] size;
+
+    @CommandLine.Option(names = {"-o", "--output"}, paramLabel = "DIR",
+        description = "output directory. default: the directory of each file.")
+    Path output;
+
+    @CommandLine.Option(names = {"-j", "--threads"}, paramLabel = "N",
+        description = "number of worker threads. default: number of processors.")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Parameters(index = "0..*", arity = "1..*", paramLabel = "FILE",
+        description = "npy data files. 2-d data is rendered as a heatmap, and 1-d data as a line.")
+    List<Path> dataFiles;
+
+    private Logger log;
+
+    @Override
+    public void run() {
+        log = LoggerFactory.getLogger(Export.class);
+        System.setProperty("java.awt.headless", "true");
+
+        if (size.length != 2 || size[0] <= 0 || size[1] <= 0) {
+            throw new RuntimeException("wrong size : " + Arrays.toString(size));
+        }
+
+        if (output != null) {
+            try {
+                Files.createDirectories(output);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // fail fast on an unknown colormap name.
+        Colormap.of(colormap);
+
+        var failed = 0;
+        try (var executor = Executors.newFixedThreadPool(Math.max(1, threads))) {
+            var futures = new ArrayList<Future<Path>>(dataFiles.size());
+            for (var file : dataFiles) {
+                futures.add(executor.submit(() -> export(file)));
+            }
+
+            for (int i = 0, length = futures.size(); i < length; i++) {
+                try {
+                    log.debug("write {}", futures.get(i).get());
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.warn("fail to export {}", dataFiles.get(i), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        log.info("exported {} of {} files", dataFiles.size() - failed, dataFiles.size());
+    }
+
+    /**
+     * render one file. Each call uses its own renderer and graphics, so it could run on any worker thread.
+     *
+     * @param file npy data file
+     * @return output file
+     */
+    private Path export(Path file) throws IOException {
+        var data = (FlatDoubleArray) Numpy.read(file, _ -> Numpy.ofFlatDouble()).data();
+
+        var renderer = new XYChartRenderer(size[0], size[1]);
+        var graphics = switch (data.ndim()) {
+            case 1 -> line(renderer, data.array());
+            case 2 -> heatmap(renderer, data);
+            default -> throw new RuntimeException("not a 1-d or 2-d data : " + Arrays.toString(data.shape()));
+        };
+
+        graphics.normalize(normalize != null ? normalize : graphics.renormalize());
+        renderer.addGraphics(graphics);
+
+        var name = file.getFileName().toString();
+        if (name.endsWith(".npy")) name = name.substring(0, name.length() - 4);
+        var dir = output != null ? output : file.toAbsolutePath().getParent();
+        var ret = dir.resolve(name + ".png");
+
+        renderer.write(ret);
+        return ret;
+    }
+
+    private XYSeries heatmap(XYChartRenderer renderer, FlatDoubleArray data) {
+        var row = data.shape()[0];
+        var col = data.shape()[1];
+
+        var matrix = new XYMatrix();
+        matrix.builder()
+            .colormap(colormap)
+            .extent(0, 0, col, row)
+            .graphics()
+            .addData(data);
+
+        renderer.setAxesBoundaries(0, col, 0, row);
+        return matrix;
+    }
+
+    private XYSeries line(XYChartRenderer renderer, double[] data) {
+        var path = new XYPath();
+        var ymin = Double.POSITIVE_INFINITY;
+        var ymax = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < data.length; i++) {
+            var v = data[i];
+            if (Double.isNaN(v)) {
+                path.addGap();
+            } else {
+                path.addData(i, v, v);
+                ymin = Math.min(ymin, v);
+                ymax = Math.max(ymax, v);
+            }
+        }
+
+        path.builder()
+            .colormap(colormap)
+            .linewidth(2);
+
+        if (!(ymin < ymax)) {
+            ymin = Double.isFinite(ymin) ? ymin - 1 : 0;
+            ymax = ymin + 2;
+        }
+        var pad = (ymax - ymin) * 0.05;
+        renderer.setAxesBoundaries(0, Math.max(1, data.length - 1), ymin - pad, ymax + pad);
+        return path;
+    }
+}
@@ -27,7 +27,8 @@ import picocli.CommandLine;
         ShowNpyImage.class,
         ShowImage.class,
         DragDrop.class,
-        Hover.class
+        Hover.class,
+        Export.class
     }
 )
 public class Main implements Runnable {
@@ -3,6 +3,7 @@ package io.ast.jneurocarto.javafx.chart.colormap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.DoubleFunction;
 
 import javafx.scene.paint.Color;
@@ -53,6 +54,65 @@ public sealed abstract class Colormap implements DoubleFunction<Color>
         return name;
     }
 
+    /*======*
+     * ARGB *
+     *======*/
+
+    /**
+     * Map value into a packed ARGB color, without creating a {@link Color}.
+     *
+     * @param t value
+     * @return ARGB color
+     */
+    public int applyArgb(double t) {
+        return argb(apply(t));
+    }
+
+    /**
+     * Map values into packed ARGB colors.
+     *
+     * @param t   values
+     * @param out output ARGB colors, which has at least the same length of {@code t}.
+     */
+    public void applyArgb(double[] t, int[] out) {
+        applyArgb(t, 0, out, 0, t.length);
+    }
+
+    /**
+     * Map values into packed ARGB colors.
+     *
+     * @param t         values
+     * @param offset    the beginning index of {@code t}
+     * @param out       output ARGB colors
+     * @param outOffset the beginning index of {@code out}
+     * @param length    number of values
+     */
+    public void applyArgb(double[] t, int offset, int[] out, int outOffset, int length) {
+        Objects.checkFromIndexSize(offset, length, t.length);
+        Objects.checkFromIndexSize(outOffset, length, out.length);
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = applyArgb(t[offset + i]);
+        }
+    }
+
+    /**
+     * {@return packed ARGB color of {@code color}}
+     */
+    public static int argb(Color color) {
+        var a = (int) Math.round(color.getOpacity() * 255);
+        var r = (int) Math.round(color.getRed() * 255);
+        var g = (int) Math.round(color.getGreen() * 255);
+        var b = (int) Math.round(color.getBlue() * 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * {@return color of packed ARGB color}
+     */
+    public static Color color(int argb) {
+        return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255.0);
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + (name == null ? "[?]" : "[" + name + "]");
@@ -3,6 +3,7 @@ package io.ast.jneurocarto.javafx.chart.colormap;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Stop;
@@ -13,6 +14,12 @@ public final class DiscreteColormap extends Colormap {
 
     private final List<Stop> stops;
 
+    /**
+     * stop offsets and ARGB colors, built lazily and cleared when stops are changed.
+     */
+    private double @Nullable [] offsets;
+    private int @Nullable [] argb;
+
     public DiscreteColormap() {
         this(null, List.of());
     }
@@ -34,6 +41,7 @@ public final class DiscreteColormap extends Colormap {
             offset = (int) last.getOffset() + 1;
         }
         stops.add(new Stop(offset, color));
+        offsets = null;
         return offset;
     }
 
@@ -47,6 +55,7 @@ public final class DiscreteColormap extends Colormap {
             }
         }
         stops.add(stop);
+        offsets = null;
     }
 
     @Override
@@ -61,4 +70,38 @@ public final class DiscreteColormap extends Colormap {
         }
         return stops.getLast().getColor();
     }
+
+    @Override
+    public int applyArgb(double t) {
+        var offsets = this.offsets;
+        var argb = this.argb;
+        if (offsets == null || argb == null) {
+            var size = stops.size();
+            if (size == 0) throw new NoSuchElementException();
+            offsets = new double[size];
+            argb = new int[size];
+            for (int i = 0; i < size; i++) {
+                var stop = stops.get(i);
+                offsets[i] = stop.getOffset();
+                argb[i] = argb(stop.getColor());
+            }
+            this.offsets = offsets;
+            this.argb = argb;
+        }
+
+        // same as apply(double): the last stop whose following stop's offset is greater than t.
+        var size = offsets.length;
+        if (Double.isNaN(t)) return argb[size - 1];
+        int lo = 1;
+        int hi = size;
+        while (lo < hi) {
+            var mid = (lo + hi) >>> 1;
+            if (t < offsets[mid]) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return argb[lo - 1];
+    }
 }
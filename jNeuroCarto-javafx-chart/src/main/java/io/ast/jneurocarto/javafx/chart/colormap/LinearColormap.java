@@ -2,6 +2,7 @@ package io.ast.jneurocarto.javafx.chart.colormap;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 import javafx.scene.paint.Color;
 import javafx.scene.paint.CycleMethod;
@@ -14,9 +15,20 @@ import org.jspecify.annotations.Nullable;
 @NullMarked
 public final class LinearColormap extends Colormap {
 
+    /**
+     * size of the ARGB lookup table.
+     */
+    static final int LUT_SIZE = 1024;
+
     final Stop[] stops;
     final Normalize normalize;
 
+    /**
+     * ARGB lookup table over the normalized value [0, 1]. It is built lazily, and shared with the
+     * colormaps derived by {@link #withNormalize(Normalize)}, because it only depends on {@link #stops}.
+     */
+    private volatile int @Nullable [] lut;
+
     public LinearColormap(List<Stop> stops) {
         this(null, stops);
     }
@@ -46,7 +58,9 @@ public final class LinearColormap extends Colormap {
     }
 
     public LinearColormap withNormalize(Normalize normalize) {
-        return new LinearColormap(name(), stops, normalize);
+        var ret = new LinearColormap(name(), stops, normalize);
+        ret.lut = lut;
+        return ret;
     }
 
     @Override
@@ -64,6 +78,40 @@ public final class LinearColormap extends Colormap {
         return stops[size - 1].getColor();
     }
 
+    private int[] lut() {
+        var lut = this.lut;
+        if (lut == null) {
+            lut = new int[LUT_SIZE];
+            var n01 = new LinearColormap(name(), stops, Normalize.N01);
+            for (int i = 0; i < LUT_SIZE; i++) {
+                lut[i] = argb(n01.apply((double) i / (LUT_SIZE - 1)));
+            }
+            this.lut = lut;
+        }
+        return lut;
+    }
+
+    private static int lutIndex(double t1) {
+        // NaN maps to the last stop, same as apply(double)
+        return Double.isNaN(t1) ? LUT_SIZE - 1 : (int) (t1 * (LUT_SIZE - 1) + 0.5);
+    }
+
+    @Override
+    public int applyArgb(double t) {
+        return lut()[lutIndex(normalize.applyAsDouble(t))];
+    }
+
+    @Override
+    public void applyArgb(double[] t, int offset, int[] out, int outOffset, int length) {
+        Objects.checkFromIndexSize(offset, length, t.length);
+        Objects.checkFromIndexSize(outOffset, length, out.length);
+        var lut = lut();
+        var normalize = this.normalize;
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = lut[lutIndex(normalize.applyAsDouble(t[offset + i]))];
+        }
+    }
+
     public LinearGradient gradient(double x1, double y1, double x2, double y2) {
         return new LinearGradient(x1, y1, x2, y2, false, CycleMethod.NO_CYCLE, Arrays.asList(stops));
     }
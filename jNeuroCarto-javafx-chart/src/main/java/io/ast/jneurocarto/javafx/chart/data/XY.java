@@ -5,6 +5,10 @@ import javafx.geometry.Point2D;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+/**
+ * A data point. It is either a detached point which keeps its values, or a view of a row in {@link XYColumns},
+ * which reads and writes through to the columns.
+ */
 @NullMarked
 public final class XY {
     static final XY GAP = new XY(Double.NaN, Double.NaN, 0.0, null);
@@ -15,6 +19,17 @@ public final class XY {
     @Nullable
     Object external;
 
+    /**
+     * the columns this is viewing. {@code null} if detached.
+     */
+    @Nullable
+    XYColumns owner;
+
+    /**
+     * row index in {@link #owner}.
+     */
+    int index = -1;
+
     public XY(Point2D p) {
         this(p.getX(), p.getY(), 0, null);
     }
@@ -50,44 +65,77 @@ public final class XY {
         this.external = external;
     }
 
+    XY(XYColumns owner, int index) {
+        this.owner = owner;
+        this.index = index;
+    }
+
     public double x() {
-        return x;
+        var owner = this.owner;
+        return owner == null ? x : owner.x[index];
     }
 
     public void x(double x) {
-        this.x = x;
+        var owner = this.owner;
+        if (owner == null) {
+            this.x = x;
+        } else {
+            owner.x[index] = x;
+            owner.modCount++;
+        }
     }
 
     public double y() {
-        return y;
+        var owner = this.owner;
+        return owner == null ? y : owner.y[index];
     }
 
     public void y(double y) {
-        this.y = y;
+        var owner = this.owner;
+        if (owner == null) {
+            this.y = y;
+        } else {
+            owner.y[index] = y;
+            owner.modCount++;
+        }
     }
 
     public double v() {
-        return v;
+        var owner = this.owner;
+        return owner == null ? v : owner.v[index];
     }
 
     public void v(double v) {
-        this.v = v;
+        var owner = this.owner;
+        if (owner == null) {
+            this.v = v;
+        } else {
+            owner.v[index] = v;
+            owner.modCount++;
+        }
     }
 
     public boolean isGap() {
-        return Double.isNaN(x) || Double.isNaN(y);
+        return Double.isNaN(x()) || Double.isNaN(y());
     }
 
     public @Nullable Object external() {
-        return external;
+        var owner = this.owner;
+        return owner == null ? external : owner.external[index];
     }
 
     public void external(Object external) {
-        this.external = external;
+        var owner = this.owner;
+        if (owner == null) {
+            this.external = external;
+        } else {
+            owner.external[index] = external;
+            owner.modCount++;
+        }
     }
 
     @Override
     public String toString() {
-        return "XY{" + x + "," + y + '}';
+        return "XY{" + x() + "," + y() + '}';
     }
 }
@@ -1,10 +1,12 @@
 package io.ast.jneurocarto.javafx.chart.data;
 
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
 
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
@@ -16,6 +18,8 @@ import javafx.scene.transform.Affine;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import io.ast.jneurocarto.javafx.chart.utils.AwtUtils;
+
 @NullMarked
 public class XYBar extends XYSeries {
 
@@ -58,9 +62,10 @@ public class XYBar extends XYSeries {
      * selecting *
      *===========*/
 
-    private @Nullable BoundingBox boundOf(XY xy) {
-        double x = xy.x;
-        double y = xy.y;
+    private @Nullable BoundingBox boundOf(int i) {
+        double x = data.x[i];
+        double y = data.y[i];
+        double v = data.v[i];
 
         if (Double.isNaN(x) || Double.isNaN(y)) {
             return null;
@@ -72,14 +77,14 @@ public class XYBar extends XYSeries {
         if (orientation == Orientation.vertical) {
             x -= width / 2;
             w = width;
-            h = xy.v;
+            h = v;
             if (h < 0) {
                 y += h;
                 h = -h;
             }
         } else {
             y -= width / 2;
-            w = xy.v;
+            w = v;
             h = width;
             if (w < 0) {
                 x += w;
@@ -92,11 +97,11 @@ public class XYBar extends XYSeries {
 
     @Override
     public @Nullable XY touch(Point2D p) {
-        return data.stream()
-          .filter(xy -> {
-              var b = boundOf(xy);
-              return b != null && b.contains(p);
-          }).findFirst().orElse(null);
+        for (int i = 0, size = data.size; i < size; i++) {
+            var b = boundOf(i);
+            if (b != null && b.contains(p)) return data.view(i);
+        }
+        return null;
     }
 
     @Override
@@ -106,10 +111,12 @@ public class XYBar extends XYSeries {
 
     @Override
     public List<XY> touch(Bounds bounds) {
-        return data.stream().filter(xy -> {
-            var b = boundOf(xy);
-            return b != null && bounds.contains(b);
-        }).toList();
+        var ret = new ArrayList<XY>();
+        for (int i = 0, size = data.size; i < size; i++) {
+            var b = boundOf(i);
+            if (b != null && bounds.contains(b)) ret.add(data.view(i));
+        }
+        return ret;
     }
 
     /*================*
@@ -147,8 +154,8 @@ public class XYBar extends XYSeries {
             gc.setEffect(effect);
             gc.setFill(fill);
 
-            for (var xy : data) {
-                if ((b = boundOf(xy)) != null) {
+            for (int i = 0, size = data.size; i < size; i++) {
+                if ((b = boundOf(i)) != null) {
                     gc.fillRect(b.getMinX(), b.getMinY(), b.getWidth(), b.getHeight());
                 }
             }
@@ -158,6 +165,28 @@ public class XYBar extends XYSeries {
         }
     }
 
+    @Override
+    public void paint(Graphics2D g, double[][] p, int offset, int length) {
+        if (fill == null) return;
+
+        var saved = g.create();
+        try {
+            var g2 = (Graphics2D) saved;
+            AwtUtils.setAlpha(g2, alpha);
+            g2.setColor(AwtUtils.color(fill));
+
+            var rect = new Rectangle2D.Double();
+            BoundingBox b;
+            for (int i = 0, size = data.size; i < size; i++) {
+                if ((b = boundOf(i)) != null) {
+                    rect.setRect(b.getMinX(), b.getMinY(), b.getWidth(), b.getHeight());
+                    g2.fill(rect);
+                }
+            }
+        } finally {
+            saved.dispose();
+        }
+    }
 
     /*=========*
      * builder *
@@ -204,7 +233,7 @@ public class XYBar extends XYSeries {
         public Builder fitInRange(double lower, double upper) {
             checkNotFrozon();
             if (!(lower < upper)) throw new IllegalArgumentException();
-            var n = graphics.data.size();
+            var n = graphics.data.size;
             step = (upper - lower) / n;
             if (!Double.isNaN(ratio)) {
                 graphics.width(step * ratio);
@@ -222,16 +251,22 @@ public class XYBar extends XYSeries {
             return this;
         }
 
+        /**
+         * {@return position column, which is x for vertical bars and y for horizontal bars}
+         */
+        private double[] position() {
+            var data = graphics.data;
+            return graphics.orientation == Orientation.vertical ? data.x : data.y;
+        }
+
         private double p0() {
-            ToDoubleFunction<XY> mapper = graphics.orientation == Orientation.vertical ? XY::x : XY::y;
-            var stream = graphics.data().mapToDouble(mapper);
+            var stream = Arrays.stream(position(), 0, graphics.data.size);
             var ret = step > 0 ? stream.min() : stream.max();
             return ret.orElse(0);
         }
 
         private double p1() {
-            ToDoubleFunction<XY> mapper = graphics.orientation == Orientation.vertical ? XY::x : XY::y;
-            var stream = graphics.data().mapToDouble(mapper);
+            var stream = Arrays.stream(position(), 0, graphics.data.size);
             var ret = step > 0 ? stream.max() : stream.min();
             return ret.orElse(0);
         }
@@ -241,15 +276,10 @@ public class XYBar extends XYSeries {
 
             baseline = b;
 
-            if (graphics.orientation == Orientation.vertical) {
-                for (var xy : graphics.data) {
-                    xy.y(b);
-                }
-            } else {
-                for (var xy : graphics.data) {
-                    xy.x(b);
-                }
-            }
+            var data = graphics.data;
+            var column = graphics.orientation == Orientation.vertical ? data.y : data.x;
+            Arrays.fill(column, 0, data.size, b);
+            data.modified();
 
             return this;
         }
@@ -259,9 +289,7 @@ public class XYBar extends XYSeries {
             if (step == 0) throw new IllegalArgumentException();
             this.step = step;
 
-            var vertical = graphics.orientation == Orientation.vertical;
-            ToDoubleFunction<XY> mapper = vertical ? XY::x : XY::y;
-            var s0 = graphics.data().mapToDouble(mapper).min().orElse(0);
+            var s0 = Arrays.stream(position(), 0, graphics.data.size).min().orElse(0);
 
             restep(s0, step);
 
@@ -271,17 +299,16 @@ public class XYBar extends XYSeries {
         private void restep(double zero, double step) {
             checkNotFrozon();
 
-            var vertical = graphics.orientation == Orientation.vertical;
-            ToDoubleFunction<XY> mapper = vertical ? XY::x : XY::y;
+            var position = position();
+            var order = IntStream.range(0, graphics.data.size).boxed()
+              .sorted(Comparator.comparingDouble(i -> position[i]))
+              .mapToInt(Integer::intValue)
+              .toArray();
 
-            var i = new AtomicInteger(0);
-            graphics.data().sorted(Comparator.comparingDouble(mapper)).forEach(d -> {
-                if (vertical) {
-                    d.x(zero + step * i.getAndIncrement());
-                } else {
-                    d.y(zero + step * i.getAndIncrement());
-                }
-            });
+            for (int i = 0; i < order.length; i++) {
+                position[order[i]] = zero + step * i;
+            }
+            graphics.data.modified();
         }
 
         public Builder addData(double v) {
@@ -350,26 +377,25 @@ public class XYBar extends XYSeries {
                 throw new RuntimeException("orientation mis-match");
             }
 
+            var b = stack.graphics.data;
+            var t = graphics.data;
             for (int i = 0; i < size; i++) {
-                var b = stack.graphics.data.get(i);
-                var t = graphics.data.get(i);
-                if (Math.signum(b.v) != Math.signum(t.v)) {
+                if (Math.signum(b.v[i]) != Math.signum(t.v[i])) {
                     throw new RuntimeException("bar direction mis-match");
                 }
             }
 
             graphics.width(stack.graphics.width());
             for (int i = 0; i < size; i++) {
-                var b = stack.graphics.data.get(i);
-                var t = graphics.data.get(i);
                 if (vertical) {
-                    t.x = b.x;
-                    t.y = b.y + b.v;
+                    t.x[i] = b.x[i];
+                    t.y[i] = b.y[i] + b.v[i];
                 } else {
-                    t.x = b.x + b.v;
-                    t.y = b.y;
+                    t.x[i] = b.x[i] + b.v[i];
+                    t.y[i] = b.y[i];
                 }
             }
+            t.modified();
 
             return frozon();
         }
@@ -390,41 +416,45 @@ public class XYBar extends XYSeries {
 
             var vertical = graphics.orientation == Orientation.vertical;
 
-            var size = graphics.data.size();
+            var size = graphics.data.size;
             for (int i = 0; i < size; i++) {
                 var sum = 0.0;
                 for (var s : stacks) {
-                    sum += s.graphics.data.get(i).v;
+                    sum += s.graphics.data.v[i];
                 }
                 sum /= (upper - lower);
 
                 if (sum == 0.0) {
                     for (var s : stacks) {
-                        s.graphics.data.get(i).v = 0;
+                        s.graphics.data.v[i] = 0;
                     }
                 } else {
                     if (vertical) {
                         var base = sum > 0 ? lower : upper;
                         sum = Math.abs(sum);
                         for (var s : stacks) {
-                            var xy = s.graphics.data.get(i);
-                            xy.y = base;
-                            xy.v /= sum;
-                            base += xy.v;
+                            var xy = s.graphics.data;
+                            xy.y[i] = base;
+                            xy.v[i] /= sum;
+                            base += xy.v[i];
                         }
                     } else {
                         var base = sum > 0 ? lower : upper;
                         sum = Math.abs(sum);
                         for (var s : stacks) {
-                            var xy = s.graphics.data.get(i);
-                            xy.x = base;
-                            xy.v /= sum;
-                            base += xy.x;
+                            var xy = s.graphics.data;
+                            xy.x[i] = base;
+                            xy.v[i] /= sum;
+                            base += xy.x[i];
                         }
                     }
                 }
             }
 
+            for (var s : stacks) {
+                s.graphics.data.modified();
+            }
+
             return this;
         }
     }
@@ -0,0 +1,439 @@
+package io.ast.jneurocarto.javafx.chart.data;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Columnar storage of data points for {@link XYSeries}.
+ * <p>
+ * Data points are kept in primitive columns {@code x}, {@code y}, {@code v} and an {@code external} column,
+ * which grow by 1.5 times when full. A {@link XY} is only a view of a row, created on demand and kept per row,
+ * so it follows the row when other rows are removed, and writes through to the columns. When its row
+ * is removed, the view is detached and keeps the last values.
+ * <p>
+ * Every modification increases {@link #modCount}, which invalidates the hit-test {@link XYGridIndex}.
+ * Code writing the column arrays directly should call {@link #modified()}.
+ */
+@NullMarked
+public final class XYColumns {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double[] EMPTY = new double[0];
+    private static final Object[] EMPTY_OBJECTS = new Object[0];
+
+    double[] x = EMPTY;
+    double[] y = EMPTY;
+    double[] v = EMPTY;
+    @Nullable Object[] external = EMPTY_OBJECTS;
+
+    /**
+     * created views. {@code null} if none of views were created.
+     */
+    @Nullable XY @Nullable [] views;
+
+    int size;
+
+    /**
+     * modification counter.
+     */
+    int modCount;
+
+    private @Nullable XYGridIndex index;
+
+    /**
+     * {@return number of rows}
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Ensure the capacity for at least {@code capacity} rows.
+     *
+     * @param capacity minimal capacity
+     */
+    public void ensureCapacity(int capacity) {
+        var length = x.length;
+        if (capacity <= length) return;
+
+        var n = Math.max(capacity, Math.max(DEFAULT_CAPACITY, length + (length >> 1)));
+        x = Arrays.copyOf(x, n);
+        y = Arrays.copyOf(y, n);
+        v = Arrays.copyOf(v, n);
+        external = Arrays.copyOf(external, n);
+        if (views != null) views = Arrays.copyOf(views, n);
+    }
+
+    /*========*
+     * access *
+     *========*/
+
+    public double x(int i) {
+        return x[Objects.checkIndex(i, size)];
+    }
+
+    public double y(int i) {
+        return y[Objects.checkIndex(i, size)];
+    }
+
+    public double v(int i) {
+        return v[Objects.checkIndex(i, size)];
+    }
+
+    public @Nullable Object external(int i) {
+        return external[Objects.checkIndex(i, size)];
+    }
+
+    public void x(int i, double value) {
+        x[Objects.checkIndex(i, size)] = value;
+        modCount++;
+    }
+
+    public void y(int i, double value) {
+        y[Objects.checkIndex(i, size)] = value;
+        modCount++;
+    }
+
+    public void v(int i, double value) {
+        v[Objects.checkIndex(i, size)] = value;
+        modCount++;
+    }
+
+    public void external(int i, @Nullable Object value) {
+        external[Objects.checkIndex(i, size)] = value;
+        modCount++;
+    }
+
+    public boolean isGap(int i) {
+        Objects.checkIndex(i, size);
+        return Double.isNaN(x[i]) || Double.isNaN(y[i]);
+    }
+
+    /**
+     * {@return modification counter}
+     */
+    public int modCount() {
+        return modCount;
+    }
+
+    /**
+     * mark the columns modified, after writing column arrays directly.
+     */
+    public void modified() {
+        modCount++;
+    }
+
+    /**
+     * {@return the hit-test index, which is rebuilt if the columns were modified}
+     */
+    XYGridIndex index() {
+        var index = this.index;
+        if (index == null) this.index = index = new XYGridIndex();
+        index.update(this);
+        return index;
+    }
+
+    /**
+     * {@return number of rebuilds of the hit-test index}
+     */
+    public int indexRebuilds() {
+        var index = this.index;
+        return index == null ? 0 : index.rebuilds();
+    }
+
+    /**
+     * {@return the view of the {@code i}-th row}
+     *
+     * @param i row index
+     */
+    public XY view(int i) {
+        Objects.checkIndex(i, size);
+        var views = this.views;
+        if (views == null) {
+            this.views = views = new XY[x.length];
+        }
+        var ret = views[i];
+        if (ret == null) {
+            views[i] = ret = new XY(this, i);
+        }
+        return ret;
+    }
+
+    /**
+     * {@return the row index of {@code xy} in this. {@code -1} if it is not a view of this}
+     *
+     * @param xy a view
+     */
+    public int indexOf(XY xy) {
+        return xy.owner == this ? xy.index : -1;
+    }
+
+    /*========*
+     * append *
+     *========*/
+
+    /**
+     * append a row.
+     *
+     * @return row index
+     */
+    public int add(double x, double y, double v, @Nullable Object external) {
+        var i = size;
+        ensureCapacity(i + 1);
+        this.x[i] = x;
+        this.y[i] = y;
+        this.v[i] = v;
+        this.external[i] = external;
+        size = i + 1;
+        modCount++;
+        return i;
+    }
+
+    /**
+     * append a row from {@code xy}. If {@code xy} is a detached view, it becomes the view of the new row.
+     * Otherwise, its values are copied.
+     *
+     * @param xy data point
+     * @return row index
+     */
+    public int add(XY xy) {
+        var i = add(xy.x(), xy.y(), xy.v(), xy.external());
+        if (xy.owner == null && xy != XY.GAP) {
+            attach(xy, i);
+        }
+        return i;
+    }
+
+    /**
+     * append rows.
+     *
+     * @param x        x values
+     * @param y        y values
+     * @param v        v values. Use {@code 0} if {@code null}.
+     * @param external external values. Use {@code null} if {@code null}.
+     * @param offset   the beginning index of arrays
+     * @param length   number of rows
+     */
+    public void addAll(double[] x, double[] y, double @Nullable [] v, @Nullable Object @Nullable [] external, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, x.length);
+        Objects.checkFromIndexSize(offset, length, y.length);
+        if (v != null) Objects.checkFromIndexSize(offset, length, v.length);
+        if (external != null) Objects.checkFromIndexSize(offset, length, external.length);
+
+        var i = size;
+        ensureCapacity(i + length);
+        System.arraycopy(x, offset, this.x, i, length);
+        System.arraycopy(y, offset, this.y, i, length);
+        if (v != null) {
+            System.arraycopy(v, offset, this.v, i, length);
+        } else {
+            Arrays.fill(this.v, i, i + length, 0);
+        }
+        if (external != null) {
+            System.arraycopy(external, offset, this.external, i, length);
+        } else {
+            Arrays.fill(this.external, i, i + length, null);
+        }
+        size = i + length;
+        modCount++;
+    }
+
+    /**
+     * copy the {@code i}-th row from {@code other} into this.
+     *
+     * @return row index
+     */
+    int copyRow(XYColumns other, int i) {
+        return add(other.x[i], other.y[i], other.v[i], other.external[i]);
+    }
+
+    /**
+     * move the {@code i}-th row from {@code other} into this, including its view. The row in {@code other}
+     * becomes a hole, which is expected to be removed by the caller.
+     *
+     * @return row index
+     */
+    int moveRow(XYColumns other, int i) {
+        var j = copyRow(other, i);
+        var views = other.views;
+        if (views != null) {
+            var xy = views[i];
+            if (xy != null) {
+                views[i] = null;
+                attach(xy, j);
+            }
+        }
+        return j;
+    }
+
+    private void attach(XY xy, int i) {
+        var views = this.views;
+        if (views == null) {
+            this.views = views = new XY[x.length];
+        }
+        views[i] = xy;
+        xy.owner = this;
+        xy.index = i;
+    }
+
+    /*========*
+     * remove *
+     *========*/
+
+    /**
+     * remove all rows. Created views are detached.
+     */
+    public void clear() {
+        detach(0, size);
+        Arrays.fill(external, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * remove the {@code i}-th row and keep the order of rest rows.
+     *
+     * @param i row index
+     * @return the detached view of the removed row.
+     */
+    public XY remove(int i) {
+        var ret = view(i);
+        remove(i, 1);
+        return ret;
+    }
+
+    /**
+     * remove rows and keep the order of rest rows.
+     *
+     * @param offset the first row index
+     * @param length number of rows
+     */
+    public void remove(int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, size);
+        if (length == 0) return;
+
+        detach(offset, offset + length);
+
+        var tail = size - offset - length;
+        System.arraycopy(x, offset + length, x, offset, tail);
+        System.arraycopy(y, offset + length, y, offset, tail);
+        System.arraycopy(v, offset + length, v, offset, tail);
+        System.arraycopy(external, offset + length, external, offset, tail);
+
+        var views = this.views;
+        if (views != null) {
+            System.arraycopy(views, offset + length, views, offset, tail);
+            for (int i = offset; i < offset + tail; i++) {
+                var xy = views[i];
+                if (xy != null) xy.index = i;
+            }
+            Arrays.fill(views, size - length, size, null);
+        }
+
+        Arrays.fill(external, size - length, size, null);
+        size -= length;
+        modCount++;
+    }
+
+    /**
+     * remove the {@code i}-th row by moving the last row into its place. It does not keep the order of rows.
+     *
+     * @param i row index
+     */
+    public void swapRemove(int i) {
+        Objects.checkIndex(i, size);
+        detach(i, i + 1);
+
+        var last = size - 1;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            v[i] = v[last];
+            external[i] = external[last];
+
+            var views = this.views;
+            if (views != null) {
+                var xy = views[last];
+                views[i] = xy;
+                views[last] = null;
+                if (xy != null) xy.index = i;
+            }
+        }
+
+        external[last] = null;
+        size = last;
+        modCount++;
+    }
+
+    /**
+     * remove rows which are marked in {@code removed} and keep the order of rest rows.
+     *
+     * @param removed row mark
+     * @return number of removed rows.
+     */
+    int compact(boolean[] removed) {
+        var views = this.views;
+        var j = 0;
+        for (int i = 0; i < size; i++) {
+            if (removed[i]) {
+                if (views != null) {
+                    var xy = views[i];
+                    views[i] = null;
+                    if (xy != null) detach(xy, i);
+                }
+            } else {
+                if (i != j) {
+                    x[j] = x[i];
+                    y[j] = y[i];
+                    v[j] = v[i];
+                    external[j] = external[i];
+                    if (views != null) {
+                        var xy = views[i];
+                        views[j] = xy;
+                        views[i] = null;
+                        if (xy != null) xy.index = j;
+                    }
+                }
+                j++;
+            }
+        }
+
+        var ret = size - j;
+        Arrays.fill(external, j, size, null);
+        size = j;
+        modCount++;
+        return ret;
+    }
+
+    private void detach(int from, int to) {
+        var views = this.views;
+        if (views == null) return;
+        for (int i = from; i < to; i++) {
+            var xy = views[i];
+            if (xy != null) {
+                views[i] = null;
+                detach(xy, i);
+            }
+        }
+    }
+
+    private void detach(XY xy, int i) {
+        xy.x = x[i];
+        xy.y = y[i];
+        xy.v = v[i];
+        xy.external = external[i];
+        xy.owner = null;
+        xy.index = -1;
+    }
+}
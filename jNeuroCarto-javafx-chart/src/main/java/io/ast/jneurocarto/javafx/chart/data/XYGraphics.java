@@ -1,5 +1,7 @@
 package io.ast.jneurocarto.javafx.chart.data;
 
+import java.awt.Graphics2D;
+
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.transform.Affine;
 
@@ -60,6 +62,50 @@ public interface XYGraphics {
      */
     void paint(GraphicsContext gc, double[][] p, int offset, int length);
 
+    /**
+     * Headless painting, which draws into an AWT {@link Graphics2D} without a JavaFX stage.
+     * The transformation of {@code g} is the same affine transformation used in
+     * {@link #transform(Affine, double[][])}, like {@link GraphicsContext} in
+     * {@link #paint(GraphicsContext, double[][], int, int)}.
+     * <p>
+     * The default implementation does nothing, so graphics without headless support are skipped.
+     *
+     * @param g      graphics
+     * @param p      {@code double[4][row]} array that store the transformed data.
+     * @param offset the beginning row of the data.
+     * @param length number of data.
+     * @see io.ast.jneurocarto.javafx.chart.XYChartRenderer
+     */
+    default void paint(Graphics2D g, double[][] p, int offset, int length) {
+    }
+
+    /**
+     * Transform points by the 2D part of {@code aff}. The six coefficients are read once, and
+     * the loop over primitive arrays does not allocate. Output arrays could be the same as input arrays.
+     *
+     * @param aff    affine transformation.
+     * @param x      x positions
+     * @param y      y positions
+     * @param ox     output x positions
+     * @param oy     output y positions
+     * @param length number of points
+     */
+    static void transform(Affine aff, double[] x, double[] y, double[] ox, double[] oy, int length) {
+        var mxx = aff.getMxx();
+        var mxy = aff.getMxy();
+        var tx = aff.getTx();
+        var myx = aff.getMyx();
+        var myy = aff.getMyy();
+        var ty = aff.getTy();
+
+        for (int i = 0; i < length; i++) {
+            var px = x[i];
+            var py = y[i];
+            ox[i] = mxx * px + mxy * py + tx;
+            oy[i] = myx * px + myy * py + ty;
+        }
+    }
+
     /**
      * @param length
      * @return {@code double[4][length]} array
@@ -0,0 +1,221 @@
+package io.ast.jneurocarto.javafx.chart.data;
+
+import java.util.Arrays;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * A uniform grid index over the points of {@link XYColumns}, used for hit-testing.
+ * <p>
+ * Points are bucketed into about {@code size / 4} cells over their bounding box, and stored in the
+ * compressed form ({@code start} offsets and {@code items} row indexes). Points with {@code NaN} position
+ * are not indexed. It is rebuilt lazily when the columns were modified after the last build.
+ */
+@NullMarked
+final class XYGridIndex {
+
+    /**
+     * Expected number of points per cell.
+     */
+    private static final int POINTS_PER_CELL = 4;
+
+    /**
+     * Maximal number of cells along one axis.
+     */
+    private static final int MAX_CELLS = 1024;
+
+    private int builtModCount = -1;
+    private int rebuilds;
+
+    private double x0;
+    private double y0;
+    private double cw = 1;
+    private double ch = 1;
+    private int nx;
+    private int ny;
+
+    /**
+     * cell offsets into {@link #items}, with length {@code nx * ny + 1}.
+     */
+    private int[] start = new int[1];
+
+    /**
+     * row indexes, sorted by cell then by row.
+     */
+    private int[] items = new int[0];
+
+    /**
+     * {@return number of rebuilds}
+     */
+    int rebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * rebuild the index if {@code data} was modified after the last build.
+     *
+     * @param data columns
+     */
+    void update(XYColumns data) {
+        if (builtModCount != data.modCount) {
+            rebuild(data);
+        }
+    }
+
+    private void rebuild(XYColumns data) {
+        rebuilds++;
+        builtModCount = data.modCount;
+
+        var size = data.size;
+        var x = data.x;
+        var y = data.y;
+
+        var minX = Double.POSITIVE_INFINITY;
+        var maxX = Double.NEGATIVE_INFINITY;
+        var minY = Double.POSITIVE_INFINITY;
+        var maxY = Double.NEGATIVE_INFINITY;
+        var count = 0;
+        for (int i = 0; i < size; i++) {
+            var px = x[i];
+            var py = y[i];
+            if (Double.isNaN(px) || Double.isNaN(py)) continue;
+            minX = Math.min(minX, px);
+            maxX = Math.max(maxX, px);
+            minY = Math.min(minY, py);
+            maxY = Math.max(maxY, py);
+            count++;
+        }
+
+        if (count == 0) {
+            nx = ny = 0;
+            start = new int[1];
+            return;
+        }
+
+        var w = maxX - minX;
+        var h = maxY - minY;
+        var cells = Math.max(1, count / POINTS_PER_CELL);
+        if (w > 0 && h > 0) {
+            nx = (int) Math.ceil(Math.sqrt(cells * w / h));
+        } else {
+            nx = w > 0 ? cells : 1;
+        }
+        nx = Math.clamp(nx, 1, MAX_CELLS);
+        ny = Math.clamp(h > 0 ? cells / nx : 1, 1, MAX_CELLS);
+
+        x0 = minX;
+        y0 = minY;
+        cw = w > 0 ? w / nx : 1;
+        ch = h > 0 ? h / ny : 1;
+
+        // counting sort
+        var n = nx * ny;
+        if (start.length < n + 1) start = new int[n + 1];
+        Arrays.fill(start, 0, n + 1, 0);
+        if (items.length < count) items = new int[count];
+
+        var cell = new int[size];
+        for (int i = 0; i < size; i++) {
+            var px = x[i];
+            var py = y[i];
+            if (Double.isNaN(px) || Double.isNaN(py)) {
+                cell[i] = -1;
+            } else {
+                var c = cellY(py) * nx + cellX(px);
+                cell[i] = c;
+                start[c + 1]++;
+            }
+        }
+        for (int c = 0; c < n; c++) {
+            start[c + 1] += start[c];
+        }
+        var offset = Arrays.copyOf(start, n);
+        for (int i = 0; i < size; i++) {
+            var c = cell[i];
+            if (c >= 0) items[offset[c]++] = i;
+        }
+    }
+
+    private int cellX(double x) {
+        return Math.clamp((long) Math.floor((x - x0) / cw), 0, nx - 1);
+    }
+
+    private int cellY(double y) {
+        return Math.clamp((long) Math.floor((y - y0) / ch), 0, ny - 1);
+    }
+
+    /**
+     * Find the nearest point.
+     *
+     * @param data   columns, which this index is up-to-date with.
+     * @param px     x position
+     * @param py     y position
+     * @param radius search radius. Points at distance {@code radius} are excluded.
+     * @return row index of the nearest point, the smaller row index on tie. {@code -1} if not found.
+     */
+    int nearest(XYColumns data, double px, double py, double radius) {
+        if (nx == 0 || !(radius > 0)) return -1;
+
+        var x = data.x;
+        var y = data.y;
+        var r2 = radius * radius;
+
+        var cx0 = cellX(px - radius);
+        var cx1 = cellX(px + radius);
+        var cy0 = cellY(py - radius);
+        var cy1 = cellY(py + radius);
+
+        var found = -1;
+        var dist = Double.POSITIVE_INFINITY;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                var c = cy * nx + cx;
+                for (int k = start[c], end = start[c + 1]; k < end; k++) {
+                    var i = items[k];
+                    var dx = x[i] - px;
+                    var dy = y[i] - py;
+                    var d = dx * dx + dy * dy;
+                    if (d < r2 && (d < dist || (d == dist && i < found))) {
+                        found = i;
+                        dist = d;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the candidate points inside a rectangle. The caller should test the exact containment.
+     *
+     * @param minX min x position
+     * @param minY min y position
+     * @param maxX max x position
+     * @param maxY max y position
+     * @return sorted row indexes.
+     */
+    int[] within(double minX, double minY, double maxX, double maxY) {
+        if (nx == 0 || !(minX <= maxX) || !(minY <= maxY)) return new int[0];
+
+        var cx0 = cellX(minX);
+        var cx1 = cellX(maxX);
+        var cy0 = cellY(minY);
+        var cy1 = cellY(maxY);
+
+        var count = 0;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            count += start[cy * nx + cx1 + 1] - start[cy * nx + cx0];
+        }
+
+        var ret = new int[count];
+        var j = 0;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            var from = start[cy * nx + cx0];
+            var to = start[cy * nx + cx1 + 1];
+            System.arraycopy(items, from, ret, j, to - from);
+            j += to - from;
+        }
+        Arrays.sort(ret);
+        return ret;
+    }
+}
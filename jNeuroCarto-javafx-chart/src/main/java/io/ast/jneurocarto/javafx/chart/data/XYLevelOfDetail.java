@@ -0,0 +1,184 @@
+package io.ast.jneurocarto.javafx.chart.data;
+
+import java.util.Arrays;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Level-of-detail reduction of transformed points, which works on the {@code double[4][row]} array
+ * produced by {@link XYGraphics#transform(javafx.scene.transform.Affine, double[][])} in place.
+ * <p>
+ * Both reductions are skipped for series with fewer than {@link #MIN_POINTS} points.
+ * It keeps scratch buffers, so an instance is owned by one {@link XYSeries}.
+ */
+@NullMarked
+final class XYLevelOfDetail {
+
+    /**
+     * Minimal number of points to consider reduction.
+     */
+    static final int MIN_POINTS = 1024;
+
+    /**
+     * Minimal average number of points per occupied pixel to apply {@link #aggregate(double[][], int, XYSeries.Aggregate)}.
+     */
+    static final double DENSITY = 2;
+
+    private long[] keys = new long[0];
+    private int[] reps = new int[0];
+    private int[] slots = new int[0];
+
+    /**
+     * Bin points into screen-pixel cells, and keep one representative point per cell.
+     * Kept points remain in their original order. Points with {@code NaN} position are dropped
+     * once the reduction applies.
+     *
+     * @param p         transformed points
+     * @param length    number of points
+     * @param aggregate how to choose the representative
+     * @return number of kept points. {@code length} if the reduction was skipped.
+     */
+    int aggregate(double[][] p, int length, XYSeries.Aggregate aggregate) {
+        if (length < MIN_POINTS) return length;
+
+        var px = p[0];
+        var py = p[1];
+        var pv = p[2];
+
+        var capacity = Integer.highestOneBit(Math.max(length, 8) * 2 - 1) << 1;
+        if (keys.length < capacity) {
+            keys = new long[capacity];
+            reps = new int[capacity];
+        }
+        if (slots.length < length) {
+            slots = new int[length];
+        }
+        var keys = this.keys;
+        var reps = this.reps;
+        var slots = this.slots;
+        var mask = capacity - 1;
+        Arrays.fill(reps, 0, capacity, -1);
+
+        var points = 0;
+        var cells = 0;
+        for (int i = 0; i < length; i++) {
+            var x = px[i];
+            var y = py[i];
+            if (Double.isNaN(x + y)) {
+                slots[i] = -1;
+                continue;
+            }
+            points++;
+
+            var key = ((long) Math.floor(x) << 32) | ((long) Math.floor(y) & 0xFFFFFFFFL);
+            var slot = (int) mix(key) & mask;
+            while (reps[slot] >= 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            slots[i] = slot;
+
+            var rep = reps[slot];
+            if (rep < 0) {
+                keys[slot] = key;
+                reps[slot] = i;
+                cells++;
+            } else {
+                switch (aggregate) {
+                case LAST -> reps[slot] = i;
+                case MIN -> {
+                    if (pv[i] < pv[rep]) reps[slot] = i;
+                }
+                case MAX -> {
+                    if (pv[i] > pv[rep]) reps[slot] = i;
+                }
+                }
+            }
+        }
+
+        if (points < DENSITY * cells) return length;
+
+        var j = 0;
+        for (int i = 0; i < length; i++) {
+            var slot = slots[i];
+            if (slot >= 0 && reps[slot] == i) {
+                px[j] = px[i];
+                py[j] = py[i];
+                pv[j] = pv[i];
+                p[3][j] = p[3][i];
+                j++;
+            }
+        }
+        return j;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Decimate a path by screen-pixel columns. For each run of consecutive points in the same
+     * pixel column, it keeps the first, the last, and the points with minimal and maximal y,
+     * so the rasterized path keeps its visual extrema. Gaps ({@code NaN} points) are kept.
+     *
+     * @param p      transformed points
+     * @param length number of points
+     * @return number of kept points.
+     */
+    static int decimate(double[][] p, int length) {
+        if (length < MIN_POINTS) return length;
+
+        var px = p[0];
+        var py = p[1];
+
+        var j = 0;
+        var i = 0;
+        while (i < length) {
+            var x = px[i];
+            var y = py[i];
+            if (Double.isNaN(x + y)) {
+                copy(p, i++, j++);
+                continue;
+            }
+
+            // run [i, e) in the same pixel column
+            var column = Math.floor(x);
+            var min = i;
+            var max = i;
+            var e = i + 1;
+            for (; e < length; e++) {
+                var ex = px[e];
+                var ey = py[e];
+                if (Double.isNaN(ex + ey) || Math.floor(ex) != column) break;
+                if (ey < py[min]) min = e;
+                if (ey > py[max]) max = e;
+            }
+
+            var last = e - 1;
+            if (e - i <= 4) {
+                for (int k = i; k < e; k++) {
+                    copy(p, k, j++);
+                }
+            } else {
+                var a = Math.min(min, max);
+                var b = Math.max(min, max);
+                copy(p, i, j++);
+                if (a != i && a != last) copy(p, a, j++);
+                if (b != a && b != i && b != last) copy(p, b, j++);
+                copy(p, last, j++);
+            }
+            i = e;
+        }
+        return j;
+    }
+
+    private static void copy(double[][] p, int from, int to) {
+        if (from == to) return;
+        p[0][to] = p[0][from];
+        p[1][to] = p[1][from];
+        p[2][to] = p[2][from];
+        p[3][to] = p[3][from];
+    }
+}
@@ -1,22 +1,62 @@
 package io.ast.jneurocarto.javafx.chart.data;
 
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javafx.geometry.Point2D;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
 
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import io.ast.jneurocarto.javafx.chart.colormap.Colormap;
+import io.ast.jneurocarto.javafx.chart.utils.AwtUtils;
 
 @NullMarked
 public class XYMarker extends XYSeries {
 
+    /**
+     * How markers are rendered.
+     */
+    public enum Mode {
+        /**
+         * draw each marker with {@link GraphicsContext#fillRect(double, double, double, double)}
+         * and {@link GraphicsContext#strokeRect(double, double, double, double)}.
+         */
+        SHAPE,
+        /**
+         * pre-render the marker, edge included, into a small image per fill color, and draw each marker with
+         * one {@link GraphicsContext#drawImage(Image, double, double, double, double)}.
+         * <p>
+         * Unlike {@link #SHAPE}, which strokes all edges after all fills, each marker is drawn with its edge
+         * in turn, so overlapping markers cover the edges of markers drawn before them.
+         */
+        SPRITE,
+        /**
+         * write marker pixels into an ARGB buffer of the canvas size, and draw it as a single image.
+         * Markers are snapped to pixels and are not anti-aliased. It is suitable for very dense series.
+         */
+        RASTER
+    }
+
     protected double w = 1;
     protected double h = 1;
     protected double ew = 1;
     protected @Nullable Color edge = null;
     protected @Nullable Color fill = null;
+    protected Mode mode = Mode.SHAPE;
 
     public double w() {
         return w;
@@ -64,6 +104,14 @@ public class XYMarker extends XYSeries {
         this.fill = fill;
     }
 
+    public Mode mode() {
+        return mode;
+    }
+
+    public void mode(Mode mode) {
+        this.mode = mode;
+    }
+
     @Override
     public void paint(GraphicsContext gc, double[][] p, int offset, int length) {
         if (fill == null && edge == null) return;
@@ -75,14 +123,20 @@ public class XYMarker extends XYSeries {
             gc.setEffect(effect);
             gc.setLineWidth(ew);
 
-            if (colormap != null) {
-                paintMarkers(gc, p, offset, length, colormap);
-            } else if (fill != null) {
-                paintMarkers(gc, p, offset, length);
+            switch (mode) {
+            case SPRITE -> paintSprites(gc, p, offset, length);
+            case RASTER -> paintRaster(gc, p, offset, length);
+            case SHAPE -> {
+                if (colormap != null) {
+                    paintMarkers(gc, p, offset, length, colormap);
+                } else if (fill != null) {
+                    paintMarkers(gc, p, offset, length);
+                }
+
+                if (edge != null) {
+                    paintMarkersEdge(gc, p, offset, length);
+                }
             }
-
-            if (edge != null) {
-                paintMarkersEdge(gc, p, offset, length);
             }
         } finally {
             gc.restore();
@@ -105,18 +159,37 @@ public class XYMarker extends XYSeries {
         }
     }
 
+    /**
+     * ARGB colors buffer for colormap.
+     */
+    private int @Nullable [] colors;
+
     private void paintMarkers(GraphicsContext gc, double[][] p, int offset, int length, Colormap cmap) {
         assert fill != null;
 
         var dx = w / 2;
         var dy = h / 2;
 
+        var colors = this.colors;
+        if (colors == null || colors.length < length) {
+            this.colors = colors = new int[length];
+        }
+        cmap.applyArgb(p[2], offset, colors, 0, length);
+
+        // only change fill when the color changed.
+        var current = 0;
+        var filled = false;
         for (int i = 0; i < length; i++) {
             var x = p[0][i + offset];
             var y = p[1][i + offset];
             var v = p[2][i + offset];
             if (!Double.isNaN(x + y + v)) {
-                gc.setFill(cmap.apply(v));
+                var argb = colors[i];
+                if (!filled || argb != current) {
+                    gc.setFill(Colormap.color(argb));
+                    current = argb;
+                    filled = true;
+                }
                 gc.fillRect(x - dx, y - dy, w, h);
             }
         }
@@ -137,6 +210,315 @@ public class XYMarker extends XYSeries {
         }
     }
 
+    /*=============*
+     * sprite mode *
+     *=============*/
+
+    /**
+     * maximal number of cached sprites, which is only reached by a colormap with many distinct colors.
+     */
+    private static final int MAX_SPRITES = 256;
+
+    /**
+     * sprites keyed by fill ARGB color. {@code 0} is used for no fill.
+     */
+    private final Map<Integer, Image> sprites = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+            return size() > MAX_SPRITES;
+        }
+    };
+
+    /**
+     * marker style of the cached sprites.
+     */
+    private @Nullable SpriteStyle spriteStyle;
+    private @Nullable Canvas spriteCanvas;
+
+    private record SpriteStyle(double w, double h, double ew, @Nullable Color edge, double scale) {
+    }
+
+    private void paintSprites(GraphicsContext gc, double[][] p, int offset, int length) {
+        var style = new SpriteStyle(w, h, ew, edge, outputScale(gc));
+        if (!style.equals(spriteStyle)) {
+            sprites.clear();
+            spriteStyle = style;
+        }
+
+        // stroke is centered on the marker boundary.
+        var pad = edge == null ? 1 : ew / 2 + 1;
+        var dx = w / 2 + pad;
+        var dy = h / 2 + pad;
+        var sw = w + 2 * pad;
+        var sh = h + 2 * pad;
+
+        var cmap = colormap;
+        int[] colors = null;
+        if (cmap != null) {
+            colors = this.colors;
+            if (colors == null || colors.length < length) {
+                this.colors = colors = new int[length];
+            }
+            cmap.applyArgb(p[2], offset, colors, 0, length);
+        }
+
+        var fill = this.fill;
+        var fillArgb = fill == null ? 0 : Colormap.argb(fill);
+
+        Image sprite = null;
+        var current = 0;
+        for (int i = 0; i < length; i++) {
+            var x = p[0][i + offset];
+            var y = p[1][i + offset];
+            if (Double.isNaN(x + y)) continue;
+
+            int argb;
+            if (colors != null) {
+                if (Double.isNaN(p[2][i + offset])) {
+                    // edge only, as SHAPE mode.
+                    if (edge == null) continue;
+                    argb = 0;
+                } else {
+                    argb = colors[i];
+                }
+            } else {
+                argb = fillArgb;
+            }
+
+            if (sprite == null || argb != current) {
+                sprite = sprite(argb, style, pad, sw, sh);
+                current = argb;
+            }
+            gc.drawImage(sprite, x - dx, y - dy, sw, sh);
+        }
+    }
+
+    private Image sprite(int argb, SpriteStyle style, double pad, double sw, double sh) {
+        var ret = sprites.get(argb);
+        if (ret != null) return ret;
+
+        var canvas = spriteCanvas;
+        if (canvas == null) spriteCanvas = canvas = new Canvas();
+        canvas.setWidth(sw);
+        canvas.setHeight(sh);
+
+        var gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, sw, sh);
+        if (fill != null || colormap != null) {
+            gc.setFill(Colormap.color(argb));
+            gc.fillRect(pad, pad, style.w, style.h);
+        }
+        var edge = style.edge;
+        if (edge != null) {
+            gc.setStroke(edge);
+            gc.setLineWidth(style.ew);
+            gc.strokeRect(pad, pad, style.w, style.h);
+        }
+
+        var params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        var scale = style.scale;
+        if (scale != 1) params.setTransform(Transform.scale(scale, scale));
+        ret = canvas.snapshot(params, null);
+
+        sprites.put(argb, ret);
+        return ret;
+    }
+
+    private static double outputScale(GraphicsContext gc) {
+        var scene = gc.getCanvas().getScene();
+        if (scene == null) return 1;
+        var window = scene.getWindow();
+        if (window == null) return 1;
+        return Math.max(window.getOutputScaleX(), window.getOutputScaleY());
+    }
+
+    /*=============*
+     * raster mode *
+     *=============*/
+
+    private int @Nullable [] raster;
+    private @Nullable WritableImage rasterImage;
+    private int rasterWidth;
+
+    /**
+     * dirty region of {@link #raster} from the last painting, in {@code {x0, y0, x1, y1}} (exclusive).
+     */
+    private final int[] rasterDirty = new int[4];
+
+    private void paintRaster(GraphicsContext gc, double[][] p, int offset, int length) {
+        var canvas = gc.getCanvas();
+        var cw = (int) Math.ceil(canvas.getWidth());
+        var ch = (int) Math.ceil(canvas.getHeight());
+        if (cw <= 0 || ch <= 0) return;
+
+        var raster = this.raster;
+        var image = rasterImage;
+        var dirty = rasterDirty;
+        if (raster == null || image == null || rasterWidth != cw || (int) image.getHeight() != ch) {
+            this.raster = raster = new int[cw * ch];
+            rasterImage = image = new WritableImage(cw, ch);
+            rasterWidth = cw;
+            Arrays.fill(dirty, 0);
+        } else {
+            // clear pixels from the last painting
+            for (int y = dirty[1]; y < dirty[3]; y++) {
+                Arrays.fill(raster, y * cw + dirty[0], y * cw + dirty[2], 0);
+            }
+        }
+
+        var cmap = colormap;
+        int[] colors = null;
+        if (cmap != null) {
+            colors = this.colors;
+            if (colors == null || colors.length < length) {
+                this.colors = colors = new int[length];
+            }
+            cmap.applyArgb(p[2], offset, colors, 0, length);
+        }
+
+        var fill = this.fill;
+        var fillArgb = fill == null ? 0 : Colormap.argb(fill);
+        var hasFill = fill != null || cmap != null;
+        var edge = this.edge;
+        var edgeArgb = edge == null ? 0 : Colormap.argb(edge);
+        var ew = edge == null ? 0 : Math.max(1, (int) Math.round(this.ew));
+
+        // marker rectangle, edge included, relative to its center.
+        var ox = (int) Math.round(w / 2 + (edge == null ? 0 : this.ew / 2));
+        var oy = (int) Math.round(h / 2 + (edge == null ? 0 : this.ew / 2));
+        var mw = Math.max(1, 2 * ox);
+        var mh = Math.max(1, 2 * oy);
+
+        int bx0 = cw, by0 = ch, bx1 = 0, by1 = 0;
+        for (int i = 0; i < length; i++) {
+            var x = p[0][i + offset];
+            var y = p[1][i + offset];
+            if (Double.isNaN(x + y)) continue;
+
+            var argb = fillArgb;
+            if (colors != null) {
+                if (Double.isNaN(p[2][i + offset])) continue;
+                argb = colors[i];
+            }
+
+            var x0 = (int) Math.round(x) - ox;
+            var y0 = (int) Math.round(y) - oy;
+            var x1 = Math.min(x0 + mw, cw);
+            var y1 = Math.min(y0 + mh, ch);
+            var cx0 = Math.max(x0, 0);
+            var cy0 = Math.max(y0, 0);
+            if (cx0 >= x1 || cy0 >= y1) continue;
+
+            for (int py = cy0; py < y1; py++) {
+                var row = py * cw;
+                var ey = py < y0 + ew || py >= y0 + mh - ew;
+                for (int px = cx0; px < x1; px++) {
+                    if (ew > 0 && (ey || px < x0 + ew || px >= x0 + mw - ew)) {
+                        raster[row + px] = edgeArgb;
+                    } else if (hasFill) {
+                        raster[row + px] = argb;
+                    }
+                }
+            }
+
+            bx0 = Math.min(bx0, cx0);
+            by0 = Math.min(by0, cy0);
+            bx1 = Math.max(bx1, x1);
+            by1 = Math.max(by1, y1);
+        }
+
+        // upload the union of the last and the current dirty regions.
+        var ux0 = Math.min(bx0, dirty[0] < dirty[2] ? dirty[0] : cw);
+        var uy0 = Math.min(by0, dirty[1] < dirty[3] ? dirty[1] : ch);
+        var ux1 = Math.max(bx1, dirty[2]);
+        var uy1 = Math.max(by1, dirty[3]);
+        if (ux0 < ux1 && uy0 < uy1) {
+            image.getPixelWriter().setPixels(ux0, uy0, ux1 - ux0, uy1 - uy0,
+              PixelFormat.getIntArgbInstance(), raster, uy0 * cw + ux0, cw);
+        }
+
+        dirty[0] = bx0;
+        dirty[1] = by0;
+        dirty[2] = bx1;
+        dirty[3] = by1;
+
+        if (bx0 < bx1 && by0 < by1) {
+            gc.setImageSmoothing(false);
+            var bw = bx1 - bx0;
+            var bh = by1 - by0;
+            gc.drawImage(image, bx0, by0, bw, bh, bx0, by0, bw, bh);
+        }
+    }
+
+    /*==========*
+     * headless *
+     *==========*/
+
+    @Override
+    public void paint(Graphics2D g, double[][] p, int offset, int length) {
+        if (fill == null && edge == null) return;
+
+        var saved = g.create();
+        try {
+            var g2 = (Graphics2D) saved;
+            g2.setTransform(new AffineTransform());
+            AwtUtils.setAlpha(g2, alpha);
+
+            var dx = w / 2;
+            var dy = h / 2;
+            var rect = new Rectangle2D.Double(0, 0, w, h);
+
+            var cmap = colormap;
+            if (cmap != null || fill != null) {
+                int[] colors = null;
+                if (cmap != null) {
+                    colors = this.colors;
+                    if (colors == null || colors.length < length) {
+                        this.colors = colors = new int[length];
+                    }
+                    cmap.applyArgb(p[2], offset, colors, 0, length);
+                } else {
+                    g2.setColor(AwtUtils.color(fill));
+                }
+
+                var current = 0;
+                var filled = false;
+                for (int i = 0; i < length; i++) {
+                    var x = p[0][i + offset];
+                    var y = p[1][i + offset];
+                    if (Double.isNaN(x + y)) continue;
+                    if (colors != null) {
+                        if (Double.isNaN(p[2][i + offset])) continue;
+                        var argb = colors[i];
+                        if (!filled || argb != current) {
+                            g2.setColor(AwtUtils.color(argb));
+                            current = argb;
+                            filled = true;
+                        }
+                    }
+                    rect.setRect(x - dx, y - dy, w, h);
+                    g2.fill(rect);
+                }
+            }
+
+            if (edge != null) {
+                g2.setColor(AwtUtils.color(edge));
+                g2.setStroke(new BasicStroke((float) ew));
+                for (int i = 0; i < length; i++) {
+                    var x = p[0][i + offset];
+                    var y = p[1][i + offset];
+                    if (!Double.isNaN(x + y)) {
+                        rect.setRect(x - dx, y - dy, w, h);
+                        g2.draw(rect);
+                    }
+                }
+            }
+        } finally {
+            saved.dispose();
+        }
+    }
+
     /*=========*
      * builder *
      *=========*/
@@ -189,6 +571,11 @@ public class XYMarker extends XYSeries {
             return this;
         }
 
+        public Builder mode(Mode mode) {
+            graphics.mode(mode);
+            return this;
+        }
+
         public Builder addMarker(double x, double y) {
             graphics.addData(x, y);
             return this;
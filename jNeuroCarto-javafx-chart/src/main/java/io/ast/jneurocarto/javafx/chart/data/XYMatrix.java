@@ -1,9 +1,15 @@
 package io.ast.jneurocarto.javafx.chart.data;
 
-import java.util.function.ToDoubleFunction;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 import javafx.geometry.Point2D;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.transform.Affine;
 import javafx.scene.transform.NonInvertibleTransformException;
 
@@ -13,7 +19,15 @@ import org.jspecify.annotations.Nullable;
 import io.ast.jneurocarto.core.blueprint.MinMax;
 import io.ast.jneurocarto.core.numpy.FlatDoubleArray;
 import io.ast.jneurocarto.core.numpy.FlatIntArray;
-
+import io.ast.jneurocarto.javafx.chart.colormap.Colormap;
+import io.ast.jneurocarto.javafx.chart.utils.AwtUtils;
+
+/**
+ * A matrix graphics, which paints each data point as a cell in a {@code nx}&times;{@code ny} grid.
+ * <p>
+ * In raster mode, cells are mapped into an ARGB {@code int[nx*ny]} and drawn as a single image
+ * under the current transform. The image is cached until data, colormap or grid shape change.
+ */
 @NullMarked
 public class XYMatrix extends XYSeries {
 
@@ -21,8 +35,9 @@ public class XYMatrix extends XYSeries {
     protected double y = 0;
     protected double w = 1;
     protected double h = 1;
+    protected boolean raster = false;
 
-    private int numberOfData;
+    private int numberOfData = -1;
     private MinMax.@Nullable OfInt xr;
     private MinMax.@Nullable OfInt yr;
     private int nx = -1;
@@ -62,6 +77,19 @@ public class XYMatrix extends XYSeries {
         this.h = Math.abs(h);
     }
 
+    public boolean raster() {
+        return raster;
+    }
+
+    /**
+     * Use raster mode, which draws cells as a single image.
+     *
+     * @param raster raster mode
+     */
+    public void raster(boolean raster) {
+        this.raster = raster;
+    }
+
     public void extent(double x, double y, double w, double h) {
         this.x = w < 0 ? x + w : x;
         this.y = h < 0 ? y + h : y;
@@ -199,26 +227,29 @@ public class XYMatrix extends XYSeries {
     @Override
     public int transform(Affine aff, double[][] p) {
         var data = this.data;
-        var length = data.size();
+        var length = data.size;
 
-        if (length > 0 && length != numberOfData) {
-            numberOfData = length;
-            xr = minmax(XY::x);
+        if (length > 0 && data.modCount != numberOfData) {
+            numberOfData = data.modCount;
+            xr = minmax(data.x, length);
             if (xr == null) return 0;
 
-            yr = minmax(XY::y);
+            yr = minmax(data.y, length);
             assert yr != null;
         }
 
         return 0;
     }
 
-    private MinMax.@Nullable OfInt minmax(ToDoubleFunction<XY> f) {
-        return data.stream().mapToDouble(f)
-          .mapToInt(x -> (int) x)
-          .boxed()
-          .gather(MinMax.intMinmax())
-          .findFirst().orElse(null);
+    private static MinMax.@Nullable OfInt minmax(double[] column, int length) {
+        var min = Integer.MAX_VALUE;
+        var max = Integer.MIN_VALUE;
+        for (int i = 0; i < length; i++) {
+            var x = (int) column[i];
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+        }
+        return length == 0 ? null : new MinMax.OfInt(min, max);
     }
 
     @Override
@@ -227,14 +258,20 @@ public class XYMatrix extends XYSeries {
 
         var cmap = colormap;
 
-        assert xr != null;
-        assert yr != null;
+        var xr = this.xr;
+        var yr = this.yr;
+        if (xr == null || yr == null) return;
 
         var x0 = xr.min();
         var y0 = yr.min();
         int nx = this.nx > 0 ? this.nx : (int) xr.range() + 1;
         int ny = this.ny > 0 ? this.ny : (int) yr.range() + 1;
 
+        if (raster) {
+            paintRaster(gc, cmap, x0, y0, nx, ny);
+            return;
+        }
+
         var dw = w / nx;
         var dh = h / ny;
 
@@ -258,15 +295,20 @@ public class XYMatrix extends XYSeries {
             gc.setGlobalAlpha(alpha);
             gc.setEffect(effect);
 
-            for (var xy : data) {
-                if (Double.isNaN(xy.x + xy.y + xy.v)) {
+            var data = this.data;
+            var dx = data.x;
+            var dy = data.y;
+            var dv = data.v;
+            for (int i = 0, size = data.size; i < size; i++) {
+                var v = dv[i];
+                if (Double.isNaN(dx[i] + dy[i] + v)) {
                     continue;
                 }
 
-                var px = x + w * ((int) xy.x - x0) / nx;
-                var py = y + h * ((int) xy.y - y0) / ny;
+                var px = x + w * ((int) dx[i] - x0) / nx;
+                var py = y + h * ((int) dy[i] - y0) / ny;
 
-                gc.setFill(cmap.apply(xy.v));
+                gc.setFill(cmap.apply(v));
                 gc.fillRect(px, py, dw, dh);
             }
 
@@ -275,6 +317,126 @@ public class XYMatrix extends XYSeries {
         }
     }
 
+    /*========*
+     * raster *
+     *========*/
+
+    private @Nullable WritableImage rasterImage;
+    private int @Nullable [] rasterData;
+    private int @Nullable [] rasterColors;
+    private int rasterModCount = -1;
+    private @Nullable Colormap rasterColormap;
+    private int rasterX0;
+    private int rasterY0;
+
+    private void paintRaster(GraphicsContext gc, Colormap cmap, int x0, int y0, int nx, int ny) {
+        var image = updateRaster(cmap, x0, y0, nx, ny);
+
+        gc.save();
+        try {
+            gc.setGlobalAlpha(alpha);
+            gc.setEffect(effect);
+            gc.setImageSmoothing(false);
+            gc.drawImage(image, x, y, w, h);
+        } finally {
+            gc.restore();
+        }
+    }
+
+    private WritableImage updateRaster(Colormap cmap, int x0, int y0, int nx, int ny) {
+        var image = rasterImage;
+        if (image != null && (int) image.getWidth() == nx && (int) image.getHeight() == ny
+            && rasterModCount == data.modCount && rasterColormap == cmap && rasterX0 == x0 && rasterY0 == y0) {
+            return image;
+        }
+
+        var raster = fillRaster(cmap, x0, y0, nx, ny);
+
+        if (image == null || (int) image.getWidth() != nx || (int) image.getHeight() != ny) {
+            rasterImage = image = new WritableImage(nx, ny);
+        }
+        image.getPixelWriter().setPixels(0, 0, nx, ny, PixelFormat.getIntArgbInstance(), raster, 0, nx);
+
+        rasterModCount = data.modCount;
+        rasterColormap = cmap;
+        rasterX0 = x0;
+        rasterY0 = y0;
+        return image;
+    }
+
+    /**
+     * map cells into the ARGB {@link #rasterData}.
+     *
+     * @return {@code int[nx*ny]} ARGB raster, row {@code r} for cells with y {@code y0 + r}.
+     */
+    private int[] fillRaster(Colormap cmap, int x0, int y0, int nx, int ny) {
+        var size = nx * ny;
+        var raster = rasterData;
+        if (raster == null || raster.length != size) {
+            rasterData = raster = new int[size];
+        } else {
+            Arrays.fill(raster, 0);
+        }
+
+        var data = this.data;
+        var dx = data.x;
+        var dy = data.y;
+        var dv = data.v;
+        var length = data.size;
+
+        var colors = rasterColors;
+        if (colors == null || colors.length < length) {
+            rasterColors = colors = new int[data.capacity()];
+        }
+        cmap.applyArgb(dv, 0, colors, 0, length);
+
+        for (int i = 0; i < length; i++) {
+            if (Double.isNaN(dx[i] + dy[i] + dv[i])) continue;
+            var c = (int) dx[i] - x0;
+            var r = (int) dy[i] - y0;
+            if (c < 0 || c >= nx || r < 0 || r >= ny) continue;
+            raster[r * nx + c] = colors[i];
+        }
+        return raster;
+    }
+
+    /*==========*
+     * headless *
+     *==========*/
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * Cells are always drawn as a single image, like the raster mode.
+     */
+    @Override
+    public void paint(Graphics2D g, double[][] p, int offset, int length) {
+        var cmap = colormap;
+        var xr = this.xr;
+        var yr = this.yr;
+        if (cmap == null || xr == null || yr == null) return;
+
+        var x0 = xr.min();
+        var y0 = yr.min();
+        int nx = this.nx > 0 ? this.nx : (int) xr.range() + 1;
+        int ny = this.ny > 0 ? this.ny : (int) yr.range() + 1;
+
+        var image = new BufferedImage(nx, ny, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, nx, ny, fillRaster(cmap, x0, y0, nx, ny), 0, nx);
+
+        var saved = g.create();
+        try {
+            var g2 = (Graphics2D) saved;
+            AwtUtils.setAlpha(g2, alpha);
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            var at = AffineTransform.getTranslateInstance(x, y);
+            at.scale(w / nx, h / ny);
+            g2.drawImage(image, at, null);
+        } finally {
+            saved.dispose();
+        }
+    }
+
     /*=========*
      * builder *
      *=========*/
@@ -318,6 +480,11 @@ public class XYMatrix extends XYSeries {
             return this;
         }
 
+        public Builder raster(boolean raster) {
+            graphics.raster(raster);
+            return this;
+        }
+
         public Builder nx(int nx) {
             graphics.nx(nx);
             return this;
@@ -1,5 +1,12 @@
 package io.ast.jneurocarto.javafx.chart.data;
 
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+
 import javafx.geometry.Point2D;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
@@ -9,6 +16,7 @@ import org.jspecify.annotations.Nullable;
 
 import io.ast.jneurocarto.javafx.chart.colormap.Colormap;
 import io.ast.jneurocarto.javafx.chart.colormap.LinearColormap;
+import io.ast.jneurocarto.javafx.chart.utils.AwtUtils;
 
 @NullMarked
 public class XYPath extends XYSeries {
@@ -17,6 +25,11 @@ public class XYPath extends XYSeries {
     protected @Nullable Color line = null;
     protected @Nullable Color fill = null;
 
+    public XYPath() {
+        // the decimation keeps the rasterized path, so it is enabled by default.
+        lod = true;
+    }
+
     public double linewidth() {
         return lw;
     }
@@ -47,6 +60,17 @@ public class XYPath extends XYSeries {
         this.line = line;
     }
 
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * A path is decimated by screen-pixel columns, which keeps the first, the last, and the extrema of y
+     * of each column run.
+     */
+    @Override
+    protected int levelOfDetail(double[][] p, int length) {
+        return XYLevelOfDetail.decimate(p, length);
+    }
+
     @Override
     public void paint(GraphicsContext gc, double[][] p, int offset, int length) {
         if (fill == null && line == null && length == 0) return;
@@ -170,6 +194,80 @@ public class XYPath extends XYSeries {
         }
     }
 
+    /*==========*
+     * headless *
+     *==========*/
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * A colormapped line is stroked with the color of the starting point of each segment,
+     * instead of a gradient.
+     */
+    @Override
+    public void paint(Graphics2D g, double[][] p, int offset, int length) {
+        if (fill == null && line == null && colormap == null || length == 0) return;
+
+        var saved = g.create();
+        try {
+            var g2 = (Graphics2D) saved;
+            g2.setTransform(new AffineTransform());
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setStroke(new BasicStroke((float) lw));
+            AwtUtils.setAlpha(g2, alpha);
+
+            if (fill != null) {
+                g2.setColor(AwtUtils.color(fill));
+                g2.fill(path(p, offset, length, true));
+            }
+
+            var cmap = colormap;
+            if (cmap != null) {
+                var segment = new Line2D.Double();
+                var x1 = p[0][offset];
+                var y1 = p[1][offset];
+                var v1 = p[2][offset];
+                for (int i = 1; i < length; i++) {
+                    var x2 = p[0][i + offset];
+                    var y2 = p[1][i + offset];
+                    var v2 = p[2][i + offset];
+                    if (!Double.isNaN(x1 + y1 + x2 + y2 + v1 + v2)) {
+                        g2.setColor(AwtUtils.color(cmap.applyArgb(v1)));
+                        segment.setLine(x1, y1, x2, y2);
+                        g2.draw(segment);
+                    }
+                    x1 = x2;
+                    y1 = y2;
+                    v1 = v2;
+                }
+            } else if (line != null) {
+                g2.setColor(AwtUtils.color(line));
+                g2.draw(path(p, offset, length, false));
+            }
+        } finally {
+            saved.dispose();
+        }
+    }
+
+    private static Path2D path(double[][] p, int offset, int length, boolean close) {
+        var ret = new Path2D.Double(Path2D.WIND_NON_ZERO, length);
+        var counter = 0;
+        for (int i = 0; i < length; i++) {
+            var x = p[0][i + offset];
+            var y = p[1][i + offset];
+            if (Double.isNaN(x + y)) {
+                if (close && counter > 0) ret.closePath();
+                counter = 0;
+            } else if (counter++ == 0) {
+                ret.moveTo(x, y);
+            } else {
+                ret.lineTo(x, y);
+            }
+        }
+        if (close && counter > 0) ret.closePath();
+        return ret;
+    }
+
     /*=========*
      * builder *
      *=========*/
@@ -2,6 +2,7 @@ package io.ast.jneurocarto.javafx.chart.data;
 
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import javafx.geometry.Bounds;
@@ -20,6 +21,8 @@ import io.ast.jneurocarto.javafx.chart.colormap.Normalize;
 
 /**
  * a {@link XYGraphics} that take {@link XY} as its internal data points.
+ * <p>
+ * Data points are stored in {@link XYColumns}, and {@link XY} are views of its rows.
  */
 @NullMarked
 public abstract class XYSeries implements XYGraphics {
@@ -31,12 +34,54 @@ public abstract class XYSeries implements XYGraphics {
     protected @Nullable Colormap colormap = null;
     protected @Nullable Effect effect = null;
     protected boolean visible = true;
+    protected boolean lod = false;
+    protected Aggregate aggregate = Aggregate.LAST;
 
-    protected List<XY> data = new ArrayList<>();
+    /**
+     * How to choose the representative point among points falling into the same screen pixel,
+     * when the level-of-detail reduction applies.
+     */
+    public enum Aggregate {
+        /**
+         * the last point, which is the one on the top.
+         */
+        LAST,
+        /**
+         * the point with minimal value.
+         */
+        MIN,
+        /**
+         * the point with maximal value.
+         */
+        MAX
+    }
+
+    /**
+     * Minimal number of data points to use the grid index in {@link #touch(Point2D, double)} and
+     * {@link #touch(Bounds)}. Smaller series are scanned linearly.
+     */
+    static final int INDEX_THRESHOLD = 64;
+
+    protected final XYColumns data = new XYColumns();
+
+    /**
+     * A predicate on a data point, which does not require a {@link XY} view.
+     */
+    @FunctionalInterface
+    public interface PointPredicate {
+        boolean test(double x, double y, double v, @Nullable Object external);
+    }
 
     @Override
     public int size() {
-        return data.size();
+        return data.size;
+    }
+
+    /**
+     * {@return the columnar storage of data points}
+     */
+    public XYColumns columns() {
+        return data;
     }
 
     @Override
@@ -64,6 +109,31 @@ public abstract class XYSeries implements XYGraphics {
         this.effect = effect;
     }
 
+    public boolean lod() {
+        return lod;
+    }
+
+    /**
+     * Enable level-of-detail reduction in {@link #transform(Affine, double[][])}, which drops points
+     * covered by others in the same screen pixel. It only applies to dense series.
+     * <p>
+     * It is disabled by default. Points are binned by screen pixel regardless of the marker size,
+     * so dropped markers larger than a pixel could be partially visible in the full drawing.
+     *
+     * @param lod enable reduction
+     */
+    public void lod(boolean lod) {
+        this.lod = lod;
+    }
+
+    public Aggregate aggregate() {
+        return aggregate;
+    }
+
+    public void aggregate(Aggregate aggregate) {
+        this.aggregate = aggregate;
+    }
+
     public @Nullable Colormap colormap() {
         return colormap;
     }
@@ -92,11 +162,10 @@ public abstract class XYSeries implements XYGraphics {
     }
 
     public Normalize renormalize() {
-        if (data.size() < 2) {
+        if (data.size < 2) {
             return Normalize.N01;
         } else {
-            var result = data.stream()
-                .mapToDouble(XY::v)
+            var result = Arrays.stream(data.v, 0, data.size)
                 .boxed()
                 .gather(MinMax.doubleMinmax())
                 .findFirst()
@@ -152,7 +221,7 @@ public abstract class XYSeries implements XYGraphics {
      *===============*/
 
     public Stream<XY> data() {
-        return data.stream();
+        return IntStream.range(0, data.size).mapToObj(data::view);
     }
 
     public void clearData() {
@@ -160,7 +229,7 @@ public abstract class XYSeries implements XYGraphics {
     }
 
     public void addGap() {
-        data.add(XY.GAP);
+        data.add(Double.NaN, Double.NaN, 0.0, null);
     }
 
     public XY addData(double x, double y) {
@@ -168,9 +237,7 @@ public abstract class XYSeries implements XYGraphics {
     }
 
     public XY addData(double x, double y, double v) {
-        var ret = new XY(x, y, v);
-        data.add(ret);
-        return ret;
+        return data.view(data.add(x, y, v, null));
     }
 
     public XY addData(Point2D p) {
@@ -178,49 +245,103 @@ public abstract class XYSeries implements XYGraphics {
     }
 
     public XY addData(Point2D p, double v) {
-        var ret = new XY(p, v);
-        data.add(ret);
-        return ret;
+        return addData(p.getX(), p.getY(), v);
     }
 
+    /**
+     * Add a data point. If {@code data} is not a view of any series, it becomes the view of the new data point.
+     * Otherwise, its values are copied.
+     *
+     * @param data data point
+     */
     public void addData(XY data) {
         this.data.add(data);
     }
 
     public void addData(List<XY> data) {
-        this.data.addAll(data);
+        this.data.ensureCapacity(this.data.size + data.size());
+        for (var xy : data) {
+            this.data.add(xy);
+        }
     }
 
     public void addData(Stream<XY> data) {
         data.forEach(this.data::add);
     }
 
+    /**
+     * Add data points from arrays, without creating {@link XY} views.
+     *
+     * @param x        x positions
+     * @param y        y positions
+     * @param v        values. Use {@code 0} if {@code null}.
+     * @param external external objects. Use {@code null} if {@code null}.
+     */
+    public void addData(double[] x, double[] y, double @Nullable [] v, @Nullable Object @Nullable [] external) {
+        data.addAll(x, y, v, external, 0, x.length);
+    }
+
     public void copyData(XYSeries other) {
-        other.data.addAll(data);
+        var data = this.data;
+        var length = data.size;
+        other.data.ensureCapacity(other.data.size + length);
+        for (int i = 0; i < length; i++) {
+            other.data.copyRow(data, i);
+        }
     }
 
     public void copyData(XYSeries other, Predicate<XY> tester) {
-        for (XY xy : data) {
-            if (tester.test(xy)) {
-                other.addData(xy);
+        var data = this.data;
+        for (int i = 0; i < data.size; i++) {
+            if (tester.test(data.view(i))) {
+                other.data.copyRow(data, i);
+            }
+        }
+    }
+
+    public void copyData(XYSeries other, PointPredicate tester) {
+        var data = this.data;
+        for (int i = 0; i < data.size; i++) {
+            if (tester.test(data.x[i], data.y[i], data.v[i], data.external[i])) {
+                other.data.copyRow(data, i);
             }
         }
     }
 
     public void transferData(XYSeries other) {
-        other.data.addAll(data);
+        var data = this.data;
+        var length = data.size;
+        other.data.ensureCapacity(other.data.size + length);
+        for (int i = 0; i < length; i++) {
+            other.data.moveRow(data, i);
+        }
         data.clear();
     }
 
     public void transferData(XYSeries other, Predicate<XY> tester) {
-        var iter = data.iterator();
-        while (iter.hasNext()) {
-            var xy = iter.next();
-            if (tester.test(xy)) {
-                other.addData(xy);
-                iter.remove();
+        var data = this.data;
+        var length = data.size;
+        var removed = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            if (tester.test(data.view(i))) {
+                other.data.moveRow(data, i);
+                removed[i] = true;
             }
         }
+        data.compact(removed);
+    }
+
+    public void transferData(XYSeries other, PointPredicate tester) {
+        var data = this.data;
+        var length = data.size;
+        var removed = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            if (tester.test(data.x[i], data.y[i], data.v[i], data.external[i])) {
+                other.data.moveRow(data, i);
+                removed[i] = true;
+            }
+        }
+        data.compact(removed);
     }
 
     public XY removeData(int index) {
@@ -228,28 +349,40 @@ public abstract class XYSeries implements XYGraphics {
     }
 
     public List<XY> removeData(int index, int length) {
+        Objects.checkFromIndexSize(index, length, data.size);
         var ret = new ArrayList<XY>(length);
-        var iter = data.listIterator(index);
         for (int i = 0; i < length; i++) {
-            ret.add(iter.next());
-            iter.remove();
+            ret.add(data.view(index + i));
         }
+        data.remove(index, length);
         return ret;
     }
 
     public List<XY> removeData(Predicate<XY> tester) {
-        var ret = new ArrayList<XY>(size());
-        var iter = data.iterator();
-        while (iter.hasNext()) {
-            var xy = iter.next();
+        var data = this.data;
+        var length = data.size;
+        var ret = new ArrayList<XY>();
+        var removed = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            var xy = data.view(i);
             if (tester.test(xy)) {
                 ret.add(xy);
-                iter.remove();
+                removed[i] = true;
             }
         }
+        data.compact(removed);
         return ret;
     }
 
+    /**
+     * Remove a data point by moving the last data point into its place. It does not keep the order of data.
+     *
+     * @param index data index
+     */
+    public void swapRemoveData(int index) {
+        data.swapRemove(index);
+    }
+
     /*======================*
      * data point selecting *
      *======================*/
@@ -259,18 +392,48 @@ public abstract class XYSeries implements XYGraphics {
     }
 
     public @Nullable XY touch(Point2D p, double radius) {
-        return (XY) data.stream()
-          .map(xy -> new XY(0, 0, p.distance(xy.x, xy.y), xy))
-          .filter(xy -> xy.v < radius)
-          .min(Comparator.comparingDouble(XY::v))
-          .map(XY::external)
-          .orElse(null);
+        var data = this.data;
+        var px = p.getX();
+        var py = p.getY();
+
+        int found;
+        if (data.size < INDEX_THRESHOLD) {
+            var r2 = radius * radius;
+            found = -1;
+            var dist = Double.POSITIVE_INFINITY;
+            for (int i = 0, length = data.size; i < length; i++) {
+                var dx = data.x[i] - px;
+                var dy = data.y[i] - py;
+                var d = dx * dx + dy * dy;
+                if (d < r2 && d < dist) {
+                    found = i;
+                    dist = d;
+                }
+            }
+        } else {
+            found = data.index().nearest(data, px, py, radius);
+        }
+        return found < 0 ? null : data.view(found);
     }
 
     public List<XY> touch(Bounds bounds) {
-        return data.stream()
-          .filter(xy -> bounds.contains(xy.x, xy.y))
-          .toList();
+        var data = this.data;
+        var ret = new ArrayList<XY>();
+        if (data.size < INDEX_THRESHOLD) {
+            for (int i = 0, length = data.size; i < length; i++) {
+                if (bounds.contains(data.x[i], data.y[i])) {
+                    ret.add(data.view(i));
+                }
+            }
+        } else {
+            var candidates = data.index().within(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+            for (var i : candidates) {
+                if (bounds.contains(data.x[i], data.y[i])) {
+                    ret.add(data.view(i));
+                }
+            }
+        }
+        return ret;
     }
 
     /*================*
@@ -290,17 +453,29 @@ public abstract class XYSeries implements XYGraphics {
     @Override
     public int transform(Affine aff, double[][] p) {
         var data = this.data;
-        var length = data.size();
+        var length = data.size;
 
-        for (int i = 0; i < length; i++) {
-            var xy = data.get(i);
-            var q = aff.transform(xy.x, xy.y);
-            p[0][i] = q.getX();
-            p[1][i] = q.getY();
-            p[2][i] = xy.v;
-        }
+        XYGraphics.transform(aff, data.x, data.y, p[0], p[1], length);
+        System.arraycopy(data.v, 0, p[2], 0, length);
+
+        return lod ? levelOfDetail(p, length) : length;
+    }
+
+    private @Nullable XYLevelOfDetail levelOfDetail;
 
-        return length;
+    /**
+     * Reduce transformed points in place. By default, points are binned into screen pixels, and
+     * one point per pixel is kept according to {@link #aggregate()}.
+     *
+     * @param p      transformed points
+     * @param length number of points
+     * @return number of kept points
+     */
+    protected int levelOfDetail(double[][] p, int length) {
+        if (length < XYLevelOfDetail.MIN_POINTS) return length;
+        var lod = levelOfDetail;
+        if (lod == null) levelOfDetail = lod = new XYLevelOfDetail();
+        return lod.aggregate(p, length, aggregate);
     }
 
     /*=========*
@@ -368,5 +543,15 @@ public abstract class XYSeries implements XYGraphics {
             graphics.setVisible(visible);
             return (B) this;
         }
+
+        public B lod(boolean lod) {
+            graphics.lod(lod);
+            return (B) this;
+        }
+
+        public B aggregate(Aggregate aggregate) {
+            graphics.aggregate(aggregate);
+            return (B) this;
+        }
     }
 }
@@ -1,7 +1,10 @@
 package io.ast.jneurocarto.javafx.chart.data;
 
-
-import java.util.IdentityHashMap;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
 import java.util.List;
 
 import javafx.geometry.BoundingBox;
@@ -12,7 +15,6 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.effect.Effect;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.transform.Affine;
 import javafx.scene.transform.NonInvertibleTransformException;
@@ -20,6 +22,8 @@ import javafx.scene.transform.NonInvertibleTransformException;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import io.ast.jneurocarto.javafx.chart.utils.AwtUtils;
+
 /// Text graphics.
 ///
 /// The [XY] carried by this should follow the rule of:
@@ -129,16 +133,18 @@ public class XYText extends XYSeries {
         }
         var finalAff = aff;
 
-        return data.stream().filter(xy -> {
-            var ext = xy.external;
-            if (finalAff != null && ext instanceof String text) {
-                return boundOfText(finalAff, text, xy.x, xy.y).contains(p);
-            } else if (ext instanceof XY p2) {
-                return touchLineSeg(xy, p2, p, 1);
-            } else {
-                return false;
-            }
-        }).findFirst().orElse(null);
+        var data = this.data;
+        for (int i = 0, size = data.size; i < size; i++) {
+            var x = data.x[i];
+            var y = data.y[i];
+            var touch = switch (data.external[i]) {
+                case String text when finalAff != null -> boundOfText(finalAff, text, x, y).contains(p);
+                case XY p2 -> touchLineSeg(x, y, p2.x(), p2.y(), p, 1);
+                case null, default -> false;
+            };
+            if (touch) return data.view(i);
+        }
+        return null;
     }
 
     @Override
@@ -156,29 +162,34 @@ public class XYText extends XYSeries {
             return List.of();
         }
 
-        return data.stream().filter(xy -> {
-            var b = boundOf(aff, xy);
-            return (b != null && bounds.contains(b)) || (bounds.contains(xy.x, xy.y));
-        }).toList();
+        var data = this.data;
+        var ret = new ArrayList<XY>();
+        for (int i = 0, size = data.size; i < size; i++) {
+            var b = boundOf(aff, i);
+            if ((b != null && bounds.contains(b)) || (bounds.contains(data.x[i], data.y[i]))) {
+                ret.add(data.view(i));
+            }
+        }
+        return ret;
     }
 
     /**
-     * Get boundary for {@code xy}.
+     * Get boundary for the {@code i}-th data.
      *
      * @param aff a transformation from canvas to chart.
-     * @param xy  a {@link XY} data.
+     * @param i   data index.
      * @return a boundary in chart coordinate.
      */
-    private @Nullable BoundingBox boundOf(Affine aff, XY xy) {
-        double x = xy.x;
-        double y = xy.y;
+    private @Nullable BoundingBox boundOf(Affine aff, int i) {
+        double x = data.x[i];
+        double y = data.y[i];
 
         if (Double.isNaN(x) || Double.isNaN(y)) {
             return null;
         }
-        return switch (xy.external) {
+        return switch (data.external[i]) {
             case String text -> boundOfText(aff, text, x, y);
-            case XY prev -> boundOfAnnotation(xy, prev);
+            case XY prev -> boundOfAnnotation(x, y, prev.x(), prev.y());
             case null, default -> null;
         };
     }
@@ -186,15 +197,17 @@ public class XYText extends XYSeries {
     /**
      * Get annotation boundary.
      *
-     * @param p1 start point in chart coordinate.
-     * @param p2 end point in chart coordinate.
+     * @param x1 start x position in chart coordinate.
+     * @param y1 start y position in chart coordinate.
+     * @param x2 end x position in chart coordinate.
+     * @param y2 end y position in chart coordinate.
      * @return a annotation boundary in chart coordinate.
      */
-    private BoundingBox boundOfAnnotation(XY p1, XY p2) {
-        var x = Math.min(p1.x, p2.x);
-        var y = Math.min(p1.y, p2.y);
-        var w = Math.abs(p1.x - p2.x);
-        var h = Math.abs(p1.y - p2.y);
+    private BoundingBox boundOfAnnotation(double x1, double y1, double x2, double y2) {
+        var x = Math.min(x1, x2);
+        var y = Math.min(y1, y2);
+        var w = Math.abs(x1 - x2);
+        var h = Math.abs(y1 - y2);
         return new BoundingBox(x, y, w, h);
     }
 
@@ -209,12 +222,9 @@ public class XYText extends XYSeries {
      * @return a text boundary in chart coordinate.
      */
     private BoundingBox boundOfText(@Nullable Affine aff, String text, double x, double y) {
-        var temp = new Text(text);
-        temp.setFont(font);
-
-        var bounds = temp.getLayoutBounds();
-        var width = bounds.getWidth();
-        var height = bounds.getHeight();
+        var metrics = XYTextMetrics.measure(text, font);
+        var width = metrics.width();
+        var height = metrics.height();
 
         if (aff != null) {
             var delta = aff.deltaTransform(width, height);
@@ -233,7 +243,7 @@ public class XYText extends XYSeries {
             case CENTER -> -height / 2;
             case BOTTOM -> -height;
             case BASELINE -> {
-                var baseline = temp.getBaselineOffset();
+                var baseline = metrics.baseline();
                 if (aff != null) {
                     var delta = aff.deltaTransform(0, baseline);
                     baseline = delta.getY();
@@ -255,14 +265,10 @@ public class XYText extends XYSeries {
         return new BoundingBox(x + dx, y + dy, width, height);
     }
 
-    private boolean touchLineSeg(XY p1, XY p2, Point2D p, double radius) {
+    private boolean touchLineSeg(double x1, double y1, double x2, double y2, Point2D p, double radius) {
         // modified based on GPT
         var x0 = p.getX();
         var y0 = p.getY();
-        var x1 = p1.x();
-        var y1 = p1.y();
-        var x2 = p2.x();
-        var y2 = p2.y();
 
         var dx = x2 - x1;
         var dy = y2 - y1;
@@ -296,7 +302,8 @@ public class XYText extends XYSeries {
     /**
      * {@inheritDoc}
      * <br/>
-     * The third columns is used as an index to make an annotation line point to the index-th {@link XY}.
+     * The third columns is used as an index to make an annotation line point to the index-th {@link XY},
+     * which should be a visible text placed before the annotation.
      *
      * @param aff {@link GraphicsContext}'s affine transformation.
      * @param p   {@code double[4][row]} array that store the transformed data.
@@ -307,32 +314,24 @@ public class XYText extends XYSeries {
         cachedAffine = aff;
         var data = this.data;
 
-        var length = data.size();
-        var index = new IdentityHashMap<XY, Integer>(length);
+        var length = data.size;
+        var x = data.x;
+        var v = data.v;
 
-        for (int i = 0; i < length; i++) {
-            var xy = data.get(i);
+        XYGraphics.transform(aff, x, data.y, p[0], p[1], length);
 
-            switch (xy.external) {
+        for (int i = 0; i < length; i++) {
+            switch (data.external[i]) {
             case String s -> {
-                if (!Double.isNaN(xy.x + xy.v)) {
-                    var q = aff.transform(xy.x, xy.y);
-
-                    p[0][i] = q.getX();
-                    p[1][i] = q.getY();
+                if (!Double.isNaN(x[i] + v[i])) {
                     p[2][i] = -1;
-                    index.put(xy, i);
                 } else {
                     p[0][i] = Double.NaN;
                 }
             }
             case XY prev -> {
-                var k = index.getOrDefault(prev, -1);
-                if (k >= 0) {
-                    var q = aff.transform(xy.x, xy.y);
-
-                    p[0][i] = q.getX();
-                    p[1][i] = q.getY();
+                var k = data.indexOf(prev);
+                if (k >= 0 && k < i && data.external[k] instanceof String && !Double.isNaN(p[0][k])) {
                     p[2][i] = k;
                 } else {
                     p[0][i] = Double.NaN;
@@ -356,11 +355,39 @@ public class XYText extends XYSeries {
      * plotting *
      *==========*/
 
+    /**
+     * margin around the canvas, in pixels, for a label to be considered visible.
+     * It covers the anchor point marks and small text effects.
+     */
+    private static final double CULL_MARGIN = 5;
+
+    private int culled;
+
+    /**
+     * {@return number of labels and annotations skipped in the last painting, as they were outside the canvas}
+     */
+    public int culled() {
+        return culled;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * Labels and annotations that fall entirely outside the canvas are skipped. Text bounds come
+     * from a shared measurement cache, so the cost scales with visible labels.
+     */
     @Override
     public void paint(GraphicsContext gc, double[][] p, int offset, int length) {
         if (color == null && colormap == null) return;
         var cmap = colormap;
 
+        var canvas = gc.getCanvas();
+        var x0 = -CULL_MARGIN;
+        var y0 = -CULL_MARGIN;
+        var x1 = canvas.getWidth() + CULL_MARGIN;
+        var y1 = canvas.getHeight() + CULL_MARGIN;
+        var culled = 0;
+
         gc.save();
         try {
             gc.setTransform(IDENTIFY);
@@ -378,11 +405,17 @@ public class XYText extends XYSeries {
                 if (!Double.isNaN(x + y)) {
                     var j = (int) p[2][i];
                     if (j < 0) {
-                        var xy = data.get(i);
-                        var o = xy.external;
+                        var o = data.external[i];
                         if (o instanceof String text) {
-                            if (cmap != null && !Double.isNaN(xy.v)) {
-                                gc.setFill(cmap.apply(xy.v));
+                            var b = boundOfText(null, text, x, y);
+                            if (b.getMaxX() < x0 || b.getMinX() > x1 || b.getMaxY() < y0 || b.getMinY() > y1) {
+                                culled++;
+                                continue;
+                            }
+
+                            var v = data.v[i];
+                            if (cmap != null && !Double.isNaN(v)) {
+                                gc.setFill(cmap.apply(v));
                             } else {
                                 gc.setFill(color);
                             }
@@ -395,20 +428,95 @@ public class XYText extends XYSeries {
                                 gc.strokeLine(x, y - 5, x, y + 5);
                             }
                             if (showTextBounds) {
-                                var b = boundOfText(null, text, x, y);
                                 gc.strokeRect(b.getMinX(), b.getMinY(), b.getWidth(), b.getHeight());
                             }
                         }
                     } else {
-                        var x1 = p[0][j];
-                        var y1 = p[1][j];
+                        var tx = p[0][j];
+                        var ty = p[1][j];
+                        if (Math.max(x, tx) < x0 || Math.min(x, tx) > x1 || Math.max(y, ty) < y0 || Math.min(y, ty) > y1) {
+                            culled++;
+                            continue;
+                        }
                         gc.setEffect(effect);
-                        gc.strokeLine(x, y, x1, y1);
+                        gc.strokeLine(x, y, tx, ty);
                     }
                 }
             }
         } finally {
             gc.restore();
+            this.culled = culled;
+        }
+    }
+
+    /*==========*
+     * headless *
+     *==========*/
+
+    /**
+     * {@inheritDoc}
+     * <br/>
+     * Text is drawn with an AWT font of the same family and size, so its metrics are close to,
+     * but not the same as, {@link #paint(GraphicsContext, double[][], int, int)}. Effects are ignored.
+     */
+    @Override
+    public void paint(Graphics2D g, double[][] p, int offset, int length) {
+        if (color == null && colormap == null) return;
+        var cmap = colormap;
+
+        var saved = g.create();
+        try {
+            var g2 = (Graphics2D) saved;
+            g2.setTransform(new AffineTransform());
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            AwtUtils.setAlpha(g2, alpha);
+
+            // Font.getDefault() needs the JavaFX toolkit, so keep the AWT default font if not set.
+            var font = this.font;
+            if (font != null) {
+                g2.setFont(new java.awt.Font(font.getFamily(), java.awt.Font.PLAIN, (int) Math.round(font.getSize())));
+            }
+            var metrics = g2.getFontMetrics();
+
+            var textColor = color == null ? null : AwtUtils.color(color);
+            var lineColor = line == null ? null : AwtUtils.color(line);
+            var segment = new Line2D.Double();
+
+            for (int i = 0; i < length; i++) {
+                var x = p[0][i];
+                var y = p[1][i];
+                if (Double.isNaN(x + y)) continue;
+
+                var j = (int) p[2][i];
+                if (j < 0) {
+                    if (data.external[i] instanceof String text) {
+                        var v = data.v[i];
+                        var c = cmap != null && !Double.isNaN(v) ? AwtUtils.color(cmap.applyArgb(v)) : textColor;
+                        if (c == null) continue;
+
+                        var dx = switch (align) {
+                            case CENTER -> metrics.stringWidth(text) / 2.0;
+                            case RIGHT -> metrics.stringWidth(text);
+                            case null, default -> 0;
+                        };
+                        var dy = switch (baseline) {
+                            case TOP -> metrics.getAscent();
+                            case CENTER -> (metrics.getAscent() - metrics.getDescent()) / 2.0;
+                            case BOTTOM -> -metrics.getDescent();
+                            case null, default -> 0;
+                        };
+
+                        g2.setColor(c);
+                        g2.drawString(text, (float) (x - dx), (float) (y + dy));
+                    }
+                } else if (lineColor != null) {
+                    g2.setColor(lineColor);
+                    segment.setLine(x, y, p[0][j], p[1][j]);
+                    g2.draw(segment);
+                }
+            }
+        } finally {
+            saved.dispose();
         }
     }
 
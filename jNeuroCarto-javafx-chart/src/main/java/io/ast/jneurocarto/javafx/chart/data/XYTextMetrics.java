@@ -0,0 +1,71 @@
+package io.ast.jneurocarto.javafx.chart.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A bounded cache of measured text layout, keyed by text content, font name and font size.
+ * <p>
+ * Measuring a text needs a {@link Text} node and a layout pass, which is costly when it is done
+ * for every label on each painting or hit-testing. The cache is shared by all {@link XYText},
+ * and evicts the least recently used entry once it holds {@link #MAX_ENTRIES} entries.
+ */
+@NullMarked
+final class XYTextMetrics {
+
+    /**
+     * Maximal number of cached entries.
+     */
+    static final int MAX_ENTRIES = 4096;
+
+    /**
+     * Measured layout of a text.
+     *
+     * @param width    layout width
+     * @param height   layout height
+     * @param baseline baseline offset from the top
+     */
+    record Metrics(double width, double height, double baseline) {
+    }
+
+    private record Key(String text, String font, double size) {
+    }
+
+    private static final Map<Key, Metrics> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Metrics> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private XYTextMetrics() {
+        throw new RuntimeException();
+    }
+
+    /**
+     * {@return measured layout of {@code text}}
+     *
+     * @param text text content
+     * @param font font. Use {@link Font#getDefault()} if {@code null}.
+     */
+    static synchronized Metrics measure(String text, @Nullable Font font) {
+        if (font == null) font = Font.getDefault();
+
+        var key = new Key(text, font.getName(), font.getSize());
+        var ret = CACHE.get(key);
+        if (ret != null) return ret;
+
+        var temp = new Text(text);
+        temp.setFont(font);
+        var bounds = temp.getLayoutBounds();
+        ret = new Metrics(bounds.getWidth(), bounds.getHeight(), temp.getBaselineOffset());
+        CACHE.put(key, ret);
+        return ret;
+    }
+}
@@ -0,0 +1,46 @@
+package io.ast.jneurocarto.javafx.chart.utils;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Affine;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Conversions between JavaFX and AWT, used by headless painting.
+ */
+@NullMarked
+public final class AwtUtils {
+
+    private AwtUtils() {
+        throw new RuntimeException();
+    }
+
+    public static java.awt.Color color(Color color) {
+        return new java.awt.Color((float) color.getRed(), (float) color.getGreen(), (float) color.getBlue(), (float) color.getOpacity());
+    }
+
+    public static java.awt.Color color(int argb) {
+        return new java.awt.Color(argb, true);
+    }
+
+    /**
+     * {@return the 2D part of {@code aff}}
+     */
+    public static AffineTransform transform(Affine aff) {
+        return new AffineTransform(aff.getMxx(), aff.getMyx(), aff.getMxy(), aff.getMyy(), aff.getTx(), aff.getTy());
+    }
+
+    /**
+     * Set global alpha, like {@link javafx.scene.canvas.GraphicsContext#setGlobalAlpha(double)}.
+     *
+     * @param g     graphics
+     * @param alpha global alpha
+     */
+    public static void setAlpha(Graphics2D g, double alpha) {
+        g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) Math.clamp(alpha, 0, 1)));
+    }
+}
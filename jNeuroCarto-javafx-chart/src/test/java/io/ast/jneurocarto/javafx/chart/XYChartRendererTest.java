@@ -0,0 +1,130 @@
+package io.ast.jneurocarto.javafx.chart;
+
+import java.util.List;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+import org.junit.jupiter.api.Test;
+
+import io.ast.jneurocarto.javafx.chart.colormap.LinearColormap;
+import io.ast.jneurocarto.javafx.chart.data.XYMarker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XYChartRendererTest {
+
+    private static final int WHITE = 0xFF_FF_FF_FF;
+    private static final int RED = 0xFF_FF_00_00;
+    private static final int BLUE = 0xFF_00_00_FF;
+
+    /**
+     * 100x100 pixels over the axes [0, 10]x[0, 10].
+     */
+    private static XYChartRenderer renderer() {
+        var renderer = new XYChartRenderer(100, 100);
+        renderer.setAxesBoundaries(0, 10, 0, 10);
+        return renderer;
+    }
+
+    private static int pixel(int[] argb, int x, int y) {
+        return argb[y * 100 + x];
+    }
+
+    @Test
+    public void canvasTransform() {
+        var aff = renderer().getCanvasTransform();
+        var p = aff.transform(2, 8);
+        assertEquals(20, p.getX(), 1e-9);
+        assertEquals(20, p.getY(), 1e-9);
+        p = aff.transform(0, 0);
+        assertEquals(0, p.getX(), 1e-9);
+        assertEquals(100, p.getY(), 1e-9);
+    }
+
+    @Test
+    public void renderBackground() {
+        var argb = renderer().renderArgb();
+        assertEquals(100 * 100, argb.length);
+        for (var c : argb) {
+            assertEquals(WHITE, c);
+        }
+
+        var renderer = renderer();
+        renderer.setBackground(null);
+        for (var c : renderer.renderArgb()) {
+            assertEquals(0, c);
+        }
+    }
+
+    @Test
+    public void renderMarker() {
+        var renderer = renderer();
+        var marker = new XYMarker();
+        marker.w(10);
+        marker.h(10);
+        marker.fill(Color.RED);
+        marker.addData(2, 8);
+        renderer.addGraphics(marker);
+
+        var argb = renderer.renderArgb();
+        // marker covers pixels [15, 25) around (20, 20).
+        assertEquals(RED, pixel(argb, 20, 20));
+        assertEquals(RED, pixel(argb, 16, 23));
+        assertEquals(WHITE, pixel(argb, 12, 20));
+        assertEquals(WHITE, pixel(argb, 20, 28));
+        assertEquals(WHITE, pixel(argb, 80, 80));
+
+        // invisible graphics are skipped.
+        marker.setVisible(false);
+        assertEquals(WHITE, pixel(renderer.renderArgb(), 20, 20));
+    }
+
+    @Test
+    public void renderColormap() {
+        var renderer = renderer();
+        var marker = new XYMarker();
+        marker.w(10);
+        marker.h(10);
+        // fill is overwritten by the colormap, but markers without fill and edge are not painted.
+        marker.fill(Color.BLACK);
+        marker.colormap(new LinearColormap(List.of(new Stop(0, Color.RED), new Stop(1, Color.BLUE))));
+        marker.addData(2, 8, 0);
+        marker.addData(8, 2, 1);
+        marker.addData(5, 5, Double.NaN);
+        renderer.addGraphics(marker);
+
+        var argb = renderer.renderArgb();
+        assertEquals(RED, pixel(argb, 20, 20));
+        assertEquals(BLUE, pixel(argb, 80, 80));
+        // NaN values are not filled.
+        assertEquals(WHITE, pixel(argb, 50, 50));
+    }
+
+    @Test
+    public void renderOrder() {
+        var renderer = renderer();
+
+        var top = new XYMarker();
+        top.z(1);
+        top.w(10);
+        top.h(10);
+        top.fill(Color.BLUE);
+        top.addData(5, 5);
+
+        var bottom = new XYMarker();
+        bottom.w(20);
+        bottom.h(20);
+        bottom.fill(Color.RED);
+        bottom.addData(5, 5);
+
+        // added in the reverse order, painted by z.
+        renderer.addGraphics(top);
+        renderer.addGraphics(bottom);
+
+        var argb = renderer.renderArgb();
+        assertEquals(BLUE, pixel(argb, 50, 50));
+        assertEquals(RED, pixel(argb, 42, 50));
+        assertEquals(WHITE, pixel(argb, 30, 50));
+    }
+}
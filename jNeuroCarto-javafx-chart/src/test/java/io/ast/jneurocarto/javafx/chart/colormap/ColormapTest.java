@@ -0,0 +1,99 @@
+package io.ast.jneurocarto.javafx.chart.colormap;
+
+import java.util.List;
+import java.util.Random;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColormapTest {
+
+    private static final LinearColormap RGB = new LinearColormap("rgb", List.of(
+        new Stop(0, Color.RED),
+        new Stop(0.5, Color.LIME),
+        new Stop(1, Color.BLUE)
+    ));
+
+    private static void assertArgbEquals(int expected, int actual, int tolerance) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            var e = (expected >>> shift) & 0xFF;
+            var a = (actual >>> shift) & 0xFF;
+            assertTrue(Math.abs(e - a) <= tolerance,
+                () -> String.format("expected %08X, but %08X", expected, actual));
+        }
+    }
+
+    @Test
+    public void argbRoundTrip() {
+        var color = Color.rgb(12, 34, 56, 0.4);
+        var argb = Colormap.argb(color);
+        assertEquals(0x66_0C_22_38, argb);
+        assertEquals(argb, Colormap.argb(Colormap.color(argb)));
+    }
+
+    @Test
+    public void linearLutGrid() {
+        var size = LinearColormap.LUT_SIZE;
+        for (int i = 0; i < size; i++) {
+            var t = (double) i / (size - 1);
+            assertEquals(Colormap.argb(RGB.apply(t)), RGB.applyArgb(t), "t=" + t);
+        }
+    }
+
+    @Test
+    public void linearLutLookup() {
+        var colormap = RGB.withNormalize(-5, 5);
+        var rand = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            var t = rand.nextDouble() * 14 - 7;
+            // nearest entry, at most a half step away.
+            assertArgbEquals(Colormap.argb(colormap.apply(t)), colormap.applyArgb(t), 1);
+        }
+
+        assertEquals(0xFF_FF_00_00, colormap.applyArgb(-10));
+        assertEquals(0xFF_00_00_FF, colormap.applyArgb(10));
+        assertEquals(0xFF_00_FF_00, colormap.applyArgb(0));
+        assertEquals(Colormap.argb(colormap.apply(Double.NaN)), colormap.applyArgb(Double.NaN));
+    }
+
+    @Test
+    public void linearLutBulk() {
+        var colormap = RGB.withNormalize(0, 100);
+        var t = new double[200];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = i - 50;
+        }
+        t[7] = Double.NaN;
+
+        var out = new int[t.length + 2];
+        colormap.applyArgb(t, 0, out, 2, t.length);
+        for (int i = 0; i < t.length; i++) {
+            assertEquals(colormap.applyArgb(t[i]), out[i + 2]);
+        }
+        assertEquals(0, out[0]);
+        assertEquals(0, out[1]);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> colormap.applyArgb(t, 0, new int[10], 0, t.length));
+    }
+
+    @Test
+    public void discreteLookup() {
+        var colormap = new DiscreteColormap("d", List.of(
+            new Stop(0, Color.RED),
+            new Stop(0.3, Color.LIME),
+            new Stop(0.6, Color.BLUE)
+        ));
+        for (var t : new double[]{-1, 0, 0.1, 0.3, 0.45, 0.6, 0.9, 2, Double.NaN}) {
+            assertEquals(Colormap.argb(colormap.apply(t)), colormap.applyArgb(t), "t=" + t);
+        }
+
+        // the table is rebuilt after a color is added.
+        colormap.addColor(0.9, Color.WHITE);
+        assertEquals(0xFF_FF_FF_FF, colormap.applyArgb(0.95));
+        assertEquals(Colormap.argb(colormap.apply(0.95)), colormap.applyArgb(0.95));
+    }
+}
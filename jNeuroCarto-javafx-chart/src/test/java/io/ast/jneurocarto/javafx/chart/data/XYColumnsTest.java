@@ -0,0 +1,124 @@
+package io.ast.jneurocarto.javafx.chart.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XYColumnsTest {
+
+    private static XYColumns columns(int n) {
+        var columns = new XYColumns();
+        for (int i = 0; i < n; i++) {
+            columns.add(i, 10 + i, 100 + i, "e" + i);
+        }
+        return columns;
+    }
+
+    @Test
+    public void addAndGrow() {
+        var columns = columns(100);
+        assertEquals(100, columns.size());
+        assertTrue(columns.capacity() >= 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, columns.x(i));
+            assertEquals(10 + i, columns.y(i));
+            assertEquals(100 + i, columns.v(i));
+            assertEquals("e" + i, columns.external(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> columns.x(100));
+    }
+
+    @Test
+    public void addAll() {
+        var columns = columns(1);
+        columns.addAll(new double[]{9, 1, 2, 9}, new double[]{9, 3, 4, 9}, null, null, 1, 2);
+        assertEquals(3, columns.size());
+        assertEquals(1, columns.x(1));
+        assertEquals(4, columns.y(2));
+        assertEquals(0, columns.v(2));
+        assertNull(columns.external(2));
+    }
+
+    @Test
+    public void viewWriteThrough() {
+        var columns = columns(4);
+        var xy = columns.view(2);
+        assertSame(xy, columns.view(2));
+        assertEquals(2, columns.indexOf(xy));
+
+        var mod = columns.modCount();
+        xy.x(-1);
+        xy.v(-2);
+        assertEquals(-1, columns.x(2));
+        assertEquals(-2, columns.v(2));
+        assertNotEquals(mod, columns.modCount());
+
+        columns.y(2, -3);
+        assertEquals(-3, xy.y());
+    }
+
+    @Test
+    public void viewFollowsRemove() {
+        var columns = columns(5);
+        var xy = columns.view(3);
+        columns.remove(0, 2);
+        assertEquals(3, columns.size());
+        assertEquals(1, columns.indexOf(xy));
+        assertEquals(3, xy.x());
+    }
+
+    @Test
+    public void viewFollowsSwapRemove() {
+        var columns = columns(5);
+        var last = columns.view(4);
+        columns.swapRemove(1);
+        assertEquals(4, columns.size());
+        assertEquals(1, columns.indexOf(last));
+        assertEquals(4, columns.x(1));
+    }
+
+    @Test
+    public void viewDetached() {
+        var columns = columns(3);
+        var xy = columns.remove(1);
+        assertEquals(-1, columns.indexOf(xy));
+        assertEquals(2, columns.size());
+        assertEquals(1, xy.x());
+        assertEquals(11, xy.y());
+        assertEquals(101, xy.v());
+        assertEquals("e1", xy.external());
+
+        // detached view does not write through.
+        xy.x(-1);
+        assertEquals(2, columns.x(1));
+
+        // it is attached again when added.
+        assertEquals(2, columns.add(xy));
+        assertEquals(2, columns.indexOf(xy));
+        assertEquals(-1, columns.x(2));
+    }
+
+    @Test
+    public void clearDetach() {
+        var columns = columns(3);
+        var xy = columns.view(0);
+        columns.clear();
+        assertTrue(columns.isEmpty());
+        assertEquals(-1, columns.indexOf(xy));
+        assertEquals(0, xy.x());
+    }
+
+    @Test
+    public void compact() {
+        var columns = columns(5);
+        var xy = columns.view(4);
+        var removed = columns.view(1);
+        assertEquals(2, columns.compact(new boolean[]{false, true, false, true, false}));
+        assertEquals(3, columns.size());
+        assertEquals(0, columns.x(0));
+        assertEquals(2, columns.x(1));
+        assertEquals(4, columns.x(2));
+        assertEquals(2, columns.indexOf(xy));
+        assertEquals(-1, columns.indexOf(removed));
+    }
+}
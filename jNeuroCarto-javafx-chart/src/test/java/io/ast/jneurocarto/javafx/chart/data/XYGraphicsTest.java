@@ -0,0 +1,88 @@
+package io.ast.jneurocarto.javafx.chart.data;
+
+import java.util.Random;
+
+import javafx.scene.transform.Affine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XYGraphicsTest {
+
+    private static Affine affine() {
+        var aff = new Affine(2, 0.5, 10, -0.25, -3, 20);
+        aff.appendRotation(30);
+        return aff;
+    }
+
+    @Test
+    public void transformKernel() {
+        var aff = affine();
+        var rand = new Random(1);
+        var n = 100;
+        var x = new double[n];
+        var y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = rand.nextDouble() * 200 - 100;
+            y[i] = rand.nextDouble() * 200 - 100;
+        }
+
+        var ox = new double[n];
+        var oy = new double[n];
+        XYGraphics.transform(aff, x, y, ox, oy, n - 1);
+
+        for (int i = 0; i < n - 1; i++) {
+            var expected = aff.transform(x[i], y[i]);
+            assertEquals(expected.getX(), ox[i], 1e-9);
+            assertEquals(expected.getY(), oy[i], 1e-9);
+        }
+
+        // rows after length are untouched.
+        assertEquals(0, ox[n - 1]);
+        assertEquals(0, oy[n - 1]);
+    }
+
+    @Test
+    public void transformKernelInPlace() {
+        var aff = affine();
+        var x = new double[]{1, 2, Double.NaN};
+        var y = new double[]{3, 4, 5};
+        var expected0 = aff.transform(1, 3);
+        var expected1 = aff.transform(2, 4);
+
+        XYGraphics.transform(aff, x, y, x, y, 3);
+        assertEquals(expected0.getX(), x[0], 1e-9);
+        assertEquals(expected0.getY(), y[0], 1e-9);
+        assertEquals(expected1.getX(), x[1], 1e-9);
+        assertEquals(expected1.getY(), y[1], 1e-9);
+
+        // gaps are kept.
+        assertTrue(Double.isNaN(x[2]));
+        assertTrue(Double.isNaN(y[2]));
+    }
+
+    @Test
+    public void transformSeries() {
+        var aff = affine();
+        var series = new XYMarker();
+        series.addData(1, 2, 3);
+        series.addGap();
+        series.addData(-4, 5, 6);
+
+        var p = XYGraphics.createTransformedArray(series.size());
+        assertEquals(3, series.transform(aff, p));
+
+        var expected = aff.transform(1, 2);
+        assertEquals(expected.getX(), p[0][0], 1e-9);
+        assertEquals(expected.getY(), p[1][0], 1e-9);
+        assertEquals(3, p[2][0]);
+
+        assertTrue(Double.isNaN(p[0][1]));
+
+        expected = aff.transform(-4, 5);
+        assertEquals(expected.getX(), p[0][2], 1e-9);
+        assertEquals(expected.getY(), p[1][2], 1e-9);
+        assertEquals(6, p[2][2]);
+    }
+}
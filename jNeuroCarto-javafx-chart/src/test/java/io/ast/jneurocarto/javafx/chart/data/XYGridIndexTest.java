@@ -0,0 +1,115 @@
+package io.ast.jneurocarto.javafx.chart.data;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Point2D;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XYGridIndexTest {
+
+    private static XYMarker random(int n, long seed) {
+        var rand = new Random(seed);
+        var series = new XYMarker();
+        for (int i = 0; i < n; i++) {
+            if (i % 50 == 7) {
+                series.addGap();
+            } else {
+                series.addData(rand.nextDouble() * 100, rand.nextDouble() * 50);
+            }
+        }
+        return series;
+    }
+
+    private static int nearest(XYColumns data, double px, double py, double radius) {
+        var r2 = radius * radius;
+        var found = -1;
+        var dist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < data.size(); i++) {
+            var dx = data.x(i) - px;
+            var dy = data.y(i) - py;
+            var d = dx * dx + dy * dy;
+            if (d < r2 && d < dist) {
+                found = i;
+                dist = d;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    public void touchPoint() {
+        var series = random(1000, 1);
+        var data = series.columns();
+        assertTrue(data.size() >= XYSeries.INDEX_THRESHOLD);
+
+        var rand = new Random(2);
+        for (int k = 0; k < 500; k++) {
+            var px = rand.nextDouble() * 120 - 10;
+            var py = rand.nextDouble() * 70 - 10;
+            var radius = rand.nextDouble() * 5;
+            var expected = nearest(data, px, py, radius);
+            var actual = series.touch(new Point2D(px, py), radius);
+            if (expected < 0) {
+                assertNull(actual);
+            } else {
+                assertNotNull(actual);
+                assertEquals(expected, data.indexOf(actual));
+            }
+        }
+        assertEquals(1, data.indexRebuilds());
+    }
+
+    @Test
+    public void touchPointTie() {
+        var series = new XYMarker();
+        for (int i = 0; i < 100; i++) {
+            series.addData(i % 10, 0);
+        }
+        var xy = series.touch(new Point2D(3, 0.5), 1);
+        assertNotNull(xy);
+        assertEquals(3, series.columns().indexOf(xy));
+    }
+
+    @Test
+    public void touchBounds() {
+        var series = random(1000, 3);
+        var data = series.columns();
+
+        var rand = new Random(4);
+        for (int k = 0; k < 100; k++) {
+            var bounds = new BoundingBox(rand.nextDouble() * 100, rand.nextDouble() * 50, rand.nextDouble() * 30, rand.nextDouble() * 30);
+            var expected = new ArrayList<Integer>();
+            for (int i = 0; i < data.size(); i++) {
+                if (bounds.contains(data.x(i), data.y(i))) expected.add(i);
+            }
+            var actual = series.touch(bounds).stream().map(data::indexOf).toList();
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void rebuildOnModified() {
+        var series = random(100, 5);
+        var data = series.columns();
+        var p = new Point2D(200, 200);
+
+        assertNull(series.touch(p, 1));
+        assertNull(series.touch(p, 1));
+        assertEquals(1, data.indexRebuilds());
+
+        var xy = data.view(10);
+        xy.x(200);
+        xy.y(200);
+        assertSame(xy, series.touch(p, 1));
+        assertEquals(2, data.indexRebuilds());
+
+        series.removeData(10);
+        assertNull(series.touch(p, 1));
+        assertEquals(3, data.indexRebuilds());
+    }
+}
@@ -0,0 +1,83 @@
+package io.ast.jneurocarto.javafx.chart.data;
+
+import javafx.scene.transform.Affine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XYSeriesTest {
+
+    /**
+     * 100 points in each of 10x10 pixels, with increasing values.
+     */
+    private static <S extends XYSeries> S dense(S series) {
+        var n = 10_000;
+        var x = new double[n];
+        var y = new double[n];
+        var v = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (i % 10) + 0.5;
+            y[i] = ((i / 10) % 10) + 0.5;
+            v[i] = i;
+        }
+        series.addData(x, y, v, null);
+        return series;
+    }
+
+    @Test
+    public void lodDefault() {
+        assertFalse(new XYMarker().lod());
+        assertTrue(new XYPath().lod());
+    }
+
+    @Test
+    public void lodDisabled() {
+        var series = dense(new XYMarker());
+        var p = XYGraphics.createTransformedArray(series.points());
+        assertEquals(10_000, series.transform(new Affine(), p));
+    }
+
+    @Test
+    public void lodMarker() {
+        var series = dense(new XYMarker());
+        series.lod(true);
+
+        var p = XYGraphics.createTransformedArray(series.points());
+        assertEquals(100, series.transform(new Affine(), p));
+
+        // LAST aggregate keeps the last point of each pixel, in the original order.
+        for (int i = 0; i < 100; i++) {
+            assertEquals(9_900 + i, p[2][i]);
+            assertEquals((i % 10) + 0.5, p[0][i]);
+            assertEquals((i / 10) + 0.5, p[1][i]);
+        }
+    }
+
+    @Test
+    public void lodAggregate() {
+        var series = dense(new XYMarker());
+        series.lod(true);
+        series.aggregate(XYSeries.Aggregate.MIN);
+
+        var p = XYGraphics.createTransformedArray(series.points());
+        assertEquals(100, series.transform(new Affine(), p));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, p[2][i]);
+        }
+    }
+
+    @Test
+    public void lodSparse() {
+        var series = new XYMarker();
+        series.lod(true);
+        var n = 2_000;
+        for (int i = 0; i < n; i++) {
+            series.addData(i, 0);
+        }
+
+        // one point per pixel is not dense enough.
+        var p = XYGraphics.createTransformedArray(series.points());
+        assertEquals(n, series.transform(new Affine(), p));
+    }
+}
@@ -19,6 +19,7 @@ import io.ast.jneurocarto.javafx.atlas.*;
 import io.ast.jneurocarto.javafx.chart.InteractionXYChart;
 import io.ast.jneurocarto.javafx.chart.event.DataSelectEvent;
 import io.ast.jneurocarto.javafx.script.ScriptPlugin;
+import io.ast.jneurocarto.javafx.utils.FxTransforms;
 import io.ast.jneurocarto.javafx.utils.OnceForget;
 import io.ast.jneurocarto.javafx.view.Plugin;
 
@@ -254,14 +255,18 @@ public class BlueprintAppToolkit<T> extends BlueprintToolkit<T> {
         var image = atlas.getImageSlice();
         if (brain == null || image == null) return null;
 
-        var tps = ProbeTransform.create(ProbeTransform.PROBE, SliceDomain.INSTANCE, atlas.painter().getImageTransform());
+        var tps = FxTransforms.create(ProbeTransform.PROBE, SliceDomain.INSTANCE, atlas.painter().getImageTransform());
         var tsc = image.getTransform();
         var transform = tps.then(tsc);
 
-        var mask = mask(e -> {
-            var s = brain.structureAt(transform.transform(new ProbeCoordinate(0, e.x(), e.y(), 0)));
-            return s != null && s.hasParent(structure);
-        });
+        var regions = brain.electrodeRegions();
+        var code = probe().channelmapCode(channelmap());
+        var ids = code == null
+            ? regions.annotationAt(transform, posx(), posy())
+            : regions.annotationAt(code, transform, posx(), posy());
+
+        var region = StructureMask.compile(brain.structures(), structure);
+        var mask = mask(e -> region.test(ids[e.i()]));
         setCaptureElectrodes(mask, mode);
         return mask;
     }
@@ -406,29 +411,29 @@ public class BlueprintAppToolkit<T> extends BlueprintToolkit<T> {
      * Atlas region masking *
      *======================*/
 
-    public AtlasPlugin.RegionMask atlasCreateMask(String name) throws PluginNotLoadException {
+    public RegionMask atlasCreateMask(String name) throws PluginNotLoadException {
         return atlasCreateMask(name, false, true);
     }
 
-    public AtlasPlugin.RegionMask atlasCreateMask(String name, boolean exclude) throws PluginNotLoadException {
+    public RegionMask atlasCreateMask(String name, boolean exclude) throws PluginNotLoadException {
         return atlasCreateMask(name, exclude, true);
     }
 
-    public AtlasPlugin.RegionMask atlasCreateMask(String name, boolean exclude, boolean includeChildren) throws PluginNotLoadException {
+    public RegionMask atlasCreateMask(String name, boolean exclude, boolean includeChildren) throws PluginNotLoadException {
         var structure = getPlugin(AtlasPlugin.class).getRegion(name);
         if (structure == null) throw new RuntimeException("region " + name + " not existed");
-        return new AtlasPlugin.RegionMask(structure, exclude, includeChildren);
+        return new RegionMask(structure, exclude, includeChildren);
     }
 
-    public List<AtlasPlugin.RegionMask> atlasGetMask() throws PluginNotLoadException {
+    public List<RegionMask> atlasGetMask() throws PluginNotLoadException {
         return getPlugin(AtlasPlugin.class).getMaskedRegions();
     }
 
-    public void atlasSetMask(List<AtlasPlugin.RegionMask> masks) throws PluginNotLoadException {
+    public void atlasSetMask(List<RegionMask> masks) throws PluginNotLoadException {
         getPlugin(AtlasPlugin.class).setMaskedRegions(masks);
     }
 
-    public void atlasAddMask(AtlasPlugin.RegionMask mask) throws PluginNotLoadException {
+    public void atlasAddMask(RegionMask mask) throws PluginNotLoadException {
         getPlugin(AtlasPlugin.class).addMaskedRegion(mask);
     }
 
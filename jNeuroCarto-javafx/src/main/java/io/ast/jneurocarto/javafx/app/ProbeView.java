@@ -22,7 +22,6 @@ import io.ast.jneurocarto.core.blueprint.Blueprint;
 import io.ast.jneurocarto.core.cli.CartoConfig;
 import io.ast.jneurocarto.javafx.chart.InteractionXYChart;
 import io.ast.jneurocarto.javafx.chart.InteractionXYPainter;
-import io.ast.jneurocarto.javafx.chart.data.XY;
 import io.ast.jneurocarto.javafx.chart.data.XYMarker;
 import io.ast.jneurocarto.javafx.chart.data.XYSeries;
 import io.ast.jneurocarto.javafx.chart.event.ChartMouseEvent;
@@ -40,7 +39,20 @@ public class ProbeView<T> extends InteractionXYChart {
 
     private final CartoConfig config;
     private final ProbeDescription<T> probe;
+    /**
+     * painter of electrodes, which is cached, because electrodes only change on channelmap updates.
+     */
     private final InteractionXYPainter interaction;
+
+    /**
+     * painter of captured electrodes, which are drawn above electrodes.
+     */
+    private final InteractionXYPainter capturing;
+
+    /**
+     * painter of highlighted electrodes, which are drawn beneath electrodes.
+     */
+    private final InteractionXYPainter highlighting;
     private final Map</*state*/String, XYMarker> electrodes = new HashMap<>();
     private final Map</*state*/String, XYMarker> captured = new HashMap<>();
     private XYMarker highlighted;
@@ -66,6 +78,9 @@ public class ProbeView<T> extends InteractionXYChart {
         this.config = config;
         this.probe = probe;
         interaction = getPlotting();
+        interaction.setCached(true);
+        capturing = getForegroundPainter();
+        highlighting = getBackgroundPainter();
 
         addEventHandler(ChartMouseEvent.CHART_MOUSE_CLICKED, this::onElectrodeTouch);
         addEventHandler(DataSelectEvent.DATA_SELECT, this::onElectrodeSelect);
@@ -73,19 +88,20 @@ public class ProbeView<T> extends InteractionXYChart {
 //        getStylesheets().add(getClass().getResource("/style-sheet/probe-view.css").toExternalForm());
 
         for (var name : probe.allStates().values()) {
-            newMarkerData(name, electrodes);
+            newMarkerData(name, interaction, electrodes);
         }
         for (var name : probe.allStates().values()) {
-            var m = newMarkerData(name, captured);
+            var m = newMarkerData(name, capturing, captured);
             m.edgewidth(2);
             m.edge(m.fill());
         }
 
-        highlighted = newMarkerData(STATE_HIGHLIGHTED, null);
+        highlighted = newMarkerData(STATE_HIGHLIGHTED, highlighting, null);
     }
 
-    private XYMarker newMarkerData(String name, @Nullable Map<String, XYMarker> collect) {
+    private XYMarker newMarkerData(String name, InteractionXYPainter painter, @Nullable Map<String, XYMarker> collect) {
         var ret = new XYMarker();
+        ret.mode(XYMarker.Mode.SPRITE);
 
         var code = probe.stateOf(name).orElse(-1);
         var color = switch (code) {
@@ -115,21 +131,39 @@ public class ProbeView<T> extends InteractionXYChart {
             ret.z(5);
         }
 
-        interaction.addGraphics(ret);
+        painter.addGraphics(ret);
         if (collect != null) collect.put(name, ret);
 
         return ret;
     }
 
     private void setSeries(XYSeries series, Stream<ElectrodeDescription> electrodes) {
+        var e = electrodes.toArray(ElectrodeDescription[]::new);
+        var length = e.length;
+        var x = new double[length];
+        var y = new double[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = e[i].x();
+            y[i] = e[i].y();
+        }
+
         series.clearData();
-        series.addData(electrodes.map(it -> new XY(it.x(), it.y(), it)));
+        series.addData(x, y, null, e);
     }
 
+    private static List<ElectrodeDescription> electrodesOf(XYSeries series) {
+        var data = series.columns();
+        var length = data.size();
+        var ret = new ArrayList<ElectrodeDescription>(length);
+        for (int i = 0; i < length; i++) {
+            ret.add((ElectrodeDescription) data.external(i));
+        }
+        return ret;
+    }
 
     private static List<ElectrodeDescription> transferData(XYSeries src,
                                                            @Nullable XYSeries dst) {
-        var ret = src.data().map(it -> (ElectrodeDescription) it.external()).toList();
+        var ret = electrodesOf(src);
         if (dst != null) {
             src.transferData(dst);
         }
@@ -140,8 +174,8 @@ public class ProbeView<T> extends InteractionXYChart {
                                                            XYSeries dst,
                                                            Predicate<ElectrodeDescription> tester) {
         var ret = new ArrayList<ElectrodeDescription>(src.size());
-        src.transferData(dst, it -> {
-            var e = (ElectrodeDescription) it.external();
+        src.transferData(dst, (_, _, _, it) -> {
+            var e = (ElectrodeDescription) it;
             assert e != null;
             if (tester.test(e)) {
                 ret.add(e);
@@ -156,8 +190,8 @@ public class ProbeView<T> extends InteractionXYChart {
                                                        XYSeries dst,
                                                        Predicate<ElectrodeDescription> tester) {
         var ret = new ArrayList<ElectrodeDescription>(src.size());
-        src.copyData(dst, it -> {
-            var e = (ElectrodeDescription) it.external();
+        src.copyData(dst, (_, _, _, it) -> {
+            var e = (ElectrodeDescription) it;
             assert e != null;
             if (tester.test(e)) {
                 ret.add(e);
@@ -308,7 +342,7 @@ public class ProbeView<T> extends InteractionXYChart {
         scatter.setVerticalZeroLineVisible(blueprint == null);
         scatter.setHorizontalZeroLineVisible(blueprint == null);
 
-        interaction.repaint();
+        repaintElectrodes();
     }
 
     public void setStateForCaptured(int state) {
@@ -368,7 +402,7 @@ public class ProbeView<T> extends InteractionXYChart {
         }
 
         if (reset && !ret.isEmpty() && !Platform.isFxApplicationThread()) {
-            Platform.runLater(interaction::repaint);
+            Platform.runLater(this::repaintElectrodes);
         }
         return ret;
     }
@@ -378,7 +412,7 @@ public class ProbeView<T> extends InteractionXYChart {
         if (name == null) throw new IllegalArgumentException();
         var ret = getCaptured(name, reset);
         if (reset && !ret.isEmpty() && !Platform.isFxApplicationThread()) {
-            Platform.runLater(interaction::repaint);
+            Platform.runLater(this::repaintElectrodes);
         }
         return ret;
     }
@@ -389,7 +423,7 @@ public class ProbeView<T> extends InteractionXYChart {
         if (src == null || dst == null) throw new IllegalArgumentException();
         var ret = transferData(src, reset ? dst : null);
         if (reset && !ret.isEmpty() && !Platform.isFxApplicationThread()) {
-            Platform.runLater(interaction::repaint);
+            Platform.runLater(this::repaintElectrodes);
         }
         return ret;
     }
@@ -400,7 +434,7 @@ public class ProbeView<T> extends InteractionXYChart {
             setCaptured(state, s);
         }
         if (!Platform.isFxApplicationThread()) {
-            Platform.runLater(interaction::repaint);
+            Platform.runLater(this::repaintElectrodes);
         }
     }
 
@@ -417,7 +451,7 @@ public class ProbeView<T> extends InteractionXYChart {
             unsetCaptured(state, s);
         }
         if (!Platform.isFxApplicationThread()) {
-            Platform.runLater(interaction::repaint);
+            Platform.runLater(this::repaintElectrodes);
         }
     }
 
@@ -431,12 +465,12 @@ public class ProbeView<T> extends InteractionXYChart {
     public void clearCaptured() {
         getCaptured(true);
         if (!Platform.isFxApplicationThread()) {
-            Platform.runLater(interaction::repaint);
+            Platform.runLater(this::repaintElectrodes);
         }
     }
 
     public List<ElectrodeDescription> getHighlighted() {
-        return probe.copyElectrodes(highlighted.data().map(it -> (ElectrodeDescription) it.external()).toList());
+        return probe.copyElectrodes(electrodesOf(highlighted));
     }
 
     public void setHighlight(List<ElectrodeDescription> electrodes, boolean includeInvalid) {
@@ -455,7 +489,7 @@ public class ProbeView<T> extends InteractionXYChart {
         }
 
         if (!Platform.isFxApplicationThread()) {
-            Platform.runLater(interaction::repaint);
+            Platform.runLater(highlighting::repaint);
         }
     }
 
@@ -469,7 +503,7 @@ public class ProbeView<T> extends InteractionXYChart {
     public void clearHighlight() {
         highlighted.clearData();
         if (!Platform.isFxApplicationThread()) {
-            Platform.runLater(interaction::repaint);
+            Platform.runLater(highlighting::repaint);
         }
     }
 
@@ -589,10 +623,10 @@ public class ProbeView<T> extends InteractionXYChart {
             var src = electrodes.get(state);
             var dst = captured.get(state);
             if (src != null && dst != null) {
-                src.transferData(dst, xy -> {
-                    var t = e.bounds.contains(xy.x(), xy.y());
+                src.transferData(dst, (x, y, _, it) -> {
+                    var t = e.bounds.contains(x, y);
                     if (t) {
-                        ret.add((ElectrodeDescription) xy.external());
+                        ret.add((ElectrodeDescription) it);
                     }
                     return t;
                 });
@@ -607,7 +641,16 @@ public class ProbeView<T> extends InteractionXYChart {
             setHighlight(ret, true);
         }
 
+        repaintElectrodes();
+    }
+
+    /**
+     * repaint electrodes, captured and highlighted electrodes.
+     */
+    private void repaintElectrodes() {
         interaction.repaint();
+        capturing.repaint();
+        highlighting.repaint();
     }
 
 }
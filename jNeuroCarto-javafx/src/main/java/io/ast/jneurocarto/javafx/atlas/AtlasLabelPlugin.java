@@ -51,6 +51,7 @@ import io.ast.jneurocarto.javafx.chart.event.DataSelectEvent;
 import io.ast.jneurocarto.javafx.script.BlueprintScriptCallable.Parameter;
 import io.ast.jneurocarto.javafx.utils.DiscreteColorMapping;
 import io.ast.jneurocarto.javafx.utils.FormattedTextField;
+import io.ast.jneurocarto.javafx.utils.FxTransforms;
 import io.ast.jneurocarto.javafx.utils.Result;
 import io.ast.jneurocarto.javafx.view.InvisibleView;
 import io.ast.jneurocarto.javafx.view.ProbeUpdateHandler;
@@ -64,7 +65,7 @@ public class AtlasLabelPlugin extends InvisibleView implements StateView<AtlasLa
 
     private final ProbeDescription<Object> probe;
     private ShankCoordinate shankTransform = ShankCoordinate.ZERO;
-    private static final ProbeTransform.Domain<Point2D> CHART_DOMAIN = new ProbeTransform.Project2D("chart");
+    private static final ProbeTransform.Domain<Point2D> CHART_DOMAIN = new FxTransforms.Project2D("chart");
 
     private final AtlasPlugin atlas;
     private final AtlasReferenceService references;
@@ -739,14 +740,14 @@ public class AtlasLabelPlugin extends InvisibleView implements StateView<AtlasLa
         private @Nullable Point2D cs(@Nullable SliceCoordinate c) {
             if (c == null) return null;
             if (cs == null) {
-                cs = ProbeTransform.create(SliceDomain.INSTANCE, CHART_DOMAIN, atlas.painter().getChartTransform());
+                cs = FxTransforms.create(SliceDomain.INSTANCE, CHART_DOMAIN, atlas.painter().getChartTransform());
             }
             return cs.transform(c);
         }
 
         private Point3D scd(Point2D c) {
             if (sc == null) {
-                sc = ProbeTransform.create(CHART_DOMAIN, SliceDomain.INSTANCE, atlas.painter().getImageTransform());
+                sc = FxTransforms.create(CHART_DOMAIN, SliceDomain.INSTANCE, atlas.painter().getImageTransform());
             }
             return sc.deltaTransform(new Point3D(c.getX(), c.getY(), 0));
         }
@@ -754,7 +755,7 @@ public class AtlasLabelPlugin extends InvisibleView implements StateView<AtlasLa
         private @Nullable SliceCoordinate sp(@Nullable ProbeCoordinate c) {
             if (c == null) return null;
             if (sp == null) {
-                sp = ProbeTransform.create(ProbeTransform.PROBE, SliceDomain.INSTANCE, atlas.painter().getImageTransform());
+                sp = FxTransforms.create(ProbeTransform.PROBE, SliceDomain.INSTANCE, atlas.painter().getImageTransform());
             }
             return sp.transform(c);
         }
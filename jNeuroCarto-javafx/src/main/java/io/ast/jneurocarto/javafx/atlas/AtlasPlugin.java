@@ -2,9 +2,11 @@ package io.ast.jneurocarto.javafx.atlas;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -15,8 +17,6 @@ import javafx.geometry.Point2D;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.*;
 
@@ -30,13 +30,13 @@ import io.ast.jneurocarto.core.Coordinate;
 import io.ast.jneurocarto.core.ProbeCoordinate;
 import io.ast.jneurocarto.core.ProbeTransform;
 import io.ast.jneurocarto.core.cli.CartoConfig;
-import io.ast.jneurocarto.core.numpy.FlatIntArray;
 import io.ast.jneurocarto.javafx.app.LogMessageService;
 import io.ast.jneurocarto.javafx.app.PluginSetupService;
 import io.ast.jneurocarto.javafx.app.PluginStateService;
 import io.ast.jneurocarto.javafx.app.ProbeView;
 import io.ast.jneurocarto.javafx.chart.ImagePainter;
 import io.ast.jneurocarto.javafx.chart.event.ChartMouseEvent;
+import io.ast.jneurocarto.javafx.utils.FxTransforms;
 import io.ast.jneurocarto.javafx.utils.IOAction;
 import io.ast.jneurocarto.javafx.view.InvisibleView;
 import io.ast.jneurocarto.javafx.view.Plugin;
@@ -84,13 +84,27 @@ import io.ast.jneurocarto.javafx.view.StateView;
 public class AtlasPlugin extends InvisibleView implements Plugin, StateView<AtlasBrainViewState> {
 
     private BrainGlobeDownloader.DownloadResult download;
-    private @Nullable BrainAtlas brain;
-    private @Nullable ImageVolume volume;
+    /*
+     * atlas fields below are assigned by background loading tasks and read in FX thread.
+     */
+    private volatile @Nullable BrainAtlas brain;
+    private volatile @Nullable ImageVolume volume;
+    private volatile @Nullable VolumePyramid referencePyramid;
+    /**
+     * normalized reference volume on each level of {@link VolumePyramid}, where level 0 is {@link #volume}.
+     * Levels are filled on demand.
+     */
+    private volatile @Nullable ImageVolume @Nullable [] volumeLevels;
+    private volatile @Nullable VolumePyramid annotationPyramid;
+    private final LevelStacks volumeLevelStacks = new LevelStacks();
+    private final LevelStacks annotationLevelStacks = new LevelStacks();
+    private final Set<String> levelLoading = ConcurrentHashMap.newKeySet();
     private final AtlasReferenceService references;
     private ProbeTransform</*global*/Coordinate, /*reference*/Coordinate> transform = ProbeTransform.identify(ProbeTransform.ANATOMICAL);
     private ProbeView<?> canvas;
     private SlicePainter painter;
     private ImagePainter maskPainter;
+    private final ImageSliceCache sliceCache = new ImageSliceCache();
 
     private final Logger log = LoggerFactory.getLogger(AtlasPlugin.class);
 
@@ -168,6 +182,13 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
         return painter;
     }
 
+    /**
+     * {@return rendered slice image cache, shared by reference and annotation images.}
+     */
+    public ImageSliceCache getSliceCache() {
+        return sliceCache;
+    }
+
     /*============*
      * properties *
      *============*/
@@ -221,16 +242,6 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
         this.reference.set(reference);
     }
 
-    public record RegionMask(Structure structure, boolean exclude, boolean includeChildren) {
-        public int id() {
-            return structure.id();
-        }
-
-        public String name() {
-            return structure.name();
-        }
-    }
-
     /*=================*
      * state load/save *
      *=================*/
@@ -354,16 +365,129 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
         var brain = this.brain;
         if (brain == null) return;
 
+        // drop the pyramid of the previous atlas, which is replaced once the reference is loaded.
+        referencePyramid = null;
+        annotationPyramid = null;
+        volumeLevels = null;
+
         fireAtlasImageUpdateEvent(AtlasUpdateEvent.LOADED);
         IOAction.measure(log, "load reference", () -> {
-            volume = new ImageVolume(brain.reference());
+            var volume = new ImageVolume(brain.reference(this::onReferenceLoading));
             volume.normalizeGrayLevel();
+            this.volume = volume;
             Platform.runLater(() -> updateProjection(projection.get()));
+
+            // level 0 of the pyramid is the volume, so it waits for the volume loaded.
+            loadBrainAtlasPyramid(brain, volume);
         });
         IOAction.measure(log, "pre load annotation", brain::annotation);
         IOAction.measure(log, "pre load hemispheres", brain::hemispheres);
     }
 
+    private void loadBrainAtlasPyramid(BrainAtlas brain, ImageVolume volume) throws IOException {
+        // levels are loaded on demand, so it does not decode the lazy annotation volume here.
+        var pyramid = brain.referencePyramid();
+        var levels = new ImageVolume[pyramid.levels()];
+        levels[0] = volume;
+
+        referencePyramid = pyramid;
+        annotationPyramid = brain.annotationPyramid();
+        volumeLevels = levels;
+        Platform.runLater(() -> {
+            painter.updateLevel(canvas.getCanvasTransform());
+            updateMaskedRegion();
+        });
+    }
+
+    /**
+     * Load {@code level} of the reference pyramid in background, then re-render the slice.
+     *
+     * @param level level index
+     */
+    private void loadReferenceLevel(int level) {
+        var brain = this.brain;
+        var pyramid = referencePyramid;
+        var levels = volumeLevels;
+        if (brain == null || pyramid == null || levels == null) return;
+        if (!levelLoading.add("reference" + level)) return;
+
+        IOAction.measure(log, "load reference level " + level, () -> {
+            try {
+                // share the gray scale with the full-resolution volume.
+                var max = brain.reference().maxGrayLevel();
+                var volume = new ImageVolume(pyramid.level(level));
+                volume.normalizeGrayLevel(max, 1);
+                Platform.runLater(() -> {
+                    levels[level] = volume;
+                    painter.refresh();
+                });
+            } finally {
+                levelLoading.remove("reference" + level);
+            }
+        });
+    }
+
+    /**
+     * Load {@code level} of the annotation pyramid in background, then update masked region.
+     *
+     * @param pyramid annotation pyramid
+     * @param level   level index
+     */
+    private void loadAnnotationLevel(VolumePyramid pyramid, int level) {
+        if (!levelLoading.add("annotation" + level)) return;
+
+        IOAction.measure(log, "load annotation level " + level, () -> {
+            try {
+                pyramid.level(level);
+                Platform.runLater(this::updateMaskedRegion);
+            } finally {
+                levelLoading.remove("annotation" + level);
+            }
+        });
+    }
+
+    private @Nullable ImageSlice sliceAtLevel(ImageSlice slice, int level) {
+        var levels = volumeLevels;
+        if (levels == null || level >= levels.length) return null;
+
+        var volume = levels[level];
+        if (volume == null) {
+            loadReferenceLevel(level);
+            return null;
+        }
+        return slice.resample(volumeLevelStacks.get(slice.stack(), volume, level));
+    }
+
+    /**
+     * Downsampled stacks of a full-resolution stack. Each level is created once, until the full-resolution stack
+     * is changed, for example, by changing the projection.
+     */
+    private static final class LevelStacks {
+        private @Nullable ImageSliceStack source;
+        private final @Nullable ImageSliceStack[] stacks = new ImageSliceStack[VolumePyramid.FACTORS.length];
+
+        ImageSliceStack get(ImageSliceStack source, ImageVolume volume, int level) {
+            if (this.source != source) {
+                this.source = source;
+                Arrays.fill(stacks, null);
+            }
+
+            var ret = stacks[level];
+            if (ret == null || ret.getVolume() != volume) {
+                stacks[level] = ret = source.downsample(volume, VolumePyramid.factor(level));
+            }
+            return ret;
+        }
+    }
+
+    private void onReferenceLoading(int loaded, int total) {
+        // report on every quarter
+        if (loaded * 4 / total != (loaded - 1) * 4 / total) {
+            var message = "loading atlas brain image %d%%".formatted(loaded * 100 / total);
+            Platform.runLater(() -> LogMessageService.printMessage(message));
+        }
+    }
+
     private void onAtlasReferenceUpdate(@Nullable AtlasReference reference) {
         if (reference != null) {
             transform = reference.getTransform();
@@ -607,12 +731,19 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
     protected void setupChartContent(PluginSetupService service, ProbeView<?> canvas) {
         this.canvas = canvas;
 
-        painter = new SlicePainter();
+        painter = new SlicePainter(sliceCache);
         painter.z(-50);
         painter.flipUD(true);
         painter.flipLR(true);
         painter.invertRotation(false);
         painter.setImageAlpha(0.5);
+        painter.setLevelProvider(this::sliceAtLevel);
+        painter.levelProperty().addListener((_, _, _) -> Platform.runLater(this::updateMaskedRegion));
+        InvalidationListener updateLevel = _ -> painter.updateLevel(canvas.getCanvasTransform());
+        canvas.getXAxis().lowerBoundProperty().addListener(updateLevel);
+        canvas.getXAxis().upperBoundProperty().addListener(updateLevel);
+        canvas.widthProperty().addListener(updateLevel);
+        painter.sx.addListener(updateLevel);
         canvas.addBackgroundPlotting(painter);
 
         maskPainter = new ImagePainter();
@@ -1020,7 +1151,7 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
      * @return a transform from slice coordinate to chart (probe) coordinate
      */
     public ProbeTransform<SliceCoordinate, ProbeCoordinate> getChartTransform() {
-        return ProbeTransform.create(SliceDomain.INSTANCE, ProbeTransform.PROBE, painter.getChartTransform());
+        return FxTransforms.create(SliceDomain.INSTANCE, ProbeTransform.PROBE, painter.getChartTransform());
     }
 
     /*=====================*
@@ -1035,7 +1166,7 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
         var volume = this.volume;
         if (brain == null || volume == null) return;
 
-        log.debug("updateProjection({})", projection);
+        log.debug("updateProjection({}) {}", projection, sliceCache);
         canvas.repaintBackground(() -> {
             this.projection.set(projection);
             images = new ImageSliceStack(brain, volume, projection);
@@ -1100,10 +1231,15 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
      *=============================*/
 
     private @Nullable ImageSliceStack annotations;
-    private @Nullable FlatIntArray cacheAnnImage;
 
     private final List<RegionMask> maskedRegions = new ArrayList<>();
 
+    /**
+     * increased on every masked region update in FX thread, so a mask image rendered in background
+     * is dropped when a newer update has started.
+     */
+    private volatile int maskGeneration;
+
     public List<RegionMask> getMaskedRegions() {
         return Collections.unmodifiableList(maskedRegions);
     }
@@ -1148,13 +1284,21 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
     }
 
     private void updateMaskedRegion(List<RegionMask> masks) {
-        if (!updateMaskedRegionUncheck(masks)) {
+        var generation = ++maskGeneration;
+        if (!updateMaskedRegionUncheck(masks, generation)) {
             maskPainter.setImage(null);
+            canvas.repaintBackground();
         }
-        canvas.repaintBackground();
     }
 
-    private boolean updateMaskedRegionUncheck(List<RegionMask> masks) {
+    /**
+     * Start rendering the mask image in background.
+     *
+     * @param masks      masked regions
+     * @param generation the generation of this update
+     * @return {@code false} if there is nothing to mask.
+     */
+    private boolean updateMaskedRegionUncheck(List<RegionMask> masks, int generation) {
         if (masks.isEmpty()) return false;
 
         //
@@ -1162,67 +1306,50 @@ public class AtlasPlugin extends InvisibleView implements Plugin, StateView<Atla
         var image = this.image;
         if (brain == null || image == null) return false;
 
+        // fetch masked stricture ids
+        var mask = StructureMask.compile(brain.structures(), masks);
+        if (mask.isEmpty()) return false;
+
         // init annotations
         var annotations = getAnnotationImageStack(image.projection());
         if (annotations == null) return false;
 
-        var annImage = cacheAnnImage = annotations.sliceAtPlane(image)
-            .image(ImageSlice.INT_IMAGE, cacheAnnImage);
-
-        // fetch masked stricture ids
-        var root = brain.structures();
-        var set = new HashSet<Integer>();
-        for (var mask : masks) {
-            if (mask.includeChildren) {
-                if (mask.exclude) {
-                    root.forAllChildren(mask.structure, s -> set.remove(s.id()));
-                } else {
-                    root.forAllChildren(mask.structure, s -> set.add(s.id()));
-                }
+        // follow the level used by the reference image
+        var annSlice = annotations.sliceAtPlane(image);
+        var level = painter.level();
+        var pyramid = annotationPyramid;
+        if (level > 0 && pyramid != null) {
+            var volume = pyramid.levelIfLoaded(level);
+            if (volume != null) {
+                annSlice = annSlice.resample(annotationLevelStacks.get(annotations, volume, level));
             } else {
-                if (mask.exclude) {
-                    set.remove(mask.id());
-                } else {
-                    set.add(mask.id());
-                }
+                // use full-resolution until the level is loaded.
+                loadAnnotationLevel(pyramid, level);
             }
         }
-        if (set.isEmpty()) return true;
 
-        var mask = image.image(new MaskImageWriter(annImage, set));
-        maskPainter.setImage(mask);
+        // the annotation volume is a lazy page cache, so decoding its pages is kept out of FX thread.
+        var finalSlice = annSlice;
+        Thread.ofVirtual().name("updateMaskedRegion").start(() -> {
+            if (generation != maskGeneration) return;
 
-        return true;
-    }
-
-
-    private static class MaskImageWriter implements ImageSlice.ImageWriter<Image> {
-        private final FlatIntArray ann;
-        private final Set<Integer> values;
-        private WritableImage image;
-        private PixelWriter writer;
-
-        private MaskImageWriter(FlatIntArray annImage, Set<Integer> values) {
-            this.ann = annImage;
-            this.values = values;
-        }
-
-        @Override
-        public void create(int w, int h, @Nullable Image init) {
-            image = new WritableImage(w, h);
-            writer = image.getPixelWriter();
-        }
+            Image maskImage;
+            try {
+                var annImage = sliceCache.image(finalSlice, ImageSlice::newIntImageWriter);
+                maskImage = mask.image(annImage, ImageSlice.JFX_IMAGE, 0x00000000, 0x50000000);
+            } catch (Exception e) {
+                log.warn("updateMaskedRegion fail", e);
+                return;
+            }
 
-        @Override
-        public void set(int x, int y, int v) {
-            var t = values.contains(ann.get(y, x));
-            writer.setArgb(x, y, t ? 0x00000000 : 0x50000000);
-        }
+            Platform.runLater(() -> {
+                if (generation != maskGeneration) return;
+                maskPainter.setImage(maskImage);
+                canvas.repaintBackground();
+            });
+        });
 
-        @Override
-        public Image get() {
-            return image;
-        }
+        return true;
     }
 
     /*====================*
@@ -268,7 +268,7 @@ public class ImplantPlugin implements Plugin, ProbeUpdateHandler<Object>, StateV
      * implant coordinate handle *
      *===========================*/
 
-    private ImplantCoordinate toGlobalCoordinate(ImplantCoordinate coordinate) {
+    public ImplantCoordinate toGlobalCoordinate(ImplantCoordinate coordinate) {
         var reference = coordinate.reference();
         if (reference != null) {
             var ref = references.getReference(reference);
@@ -278,7 +278,7 @@ public class ImplantPlugin implements Plugin, ProbeUpdateHandler<Object>, StateV
         return coordinate;
     }
 
-    private ImplantCoordinate toReferenceCoordinate(ImplantCoordinate coordinate, @Nullable String reference) {
+    public ImplantCoordinate toReferenceCoordinate(ImplantCoordinate coordinate, @Nullable String reference) {
         if (coordinate.reference() != null) {
             coordinate = toGlobalCoordinate(coordinate);
         }
@@ -0,0 +1,109 @@
+package io.ast.jneurocarto.javafx.atlas;
+
+import java.io.IOException;
+
+import javafx.application.Platform;
+
+import org.jspecify.annotations.NullMarked;
+
+import io.ast.jneurocarto.atlas.ImplantSearch;
+import io.ast.jneurocarto.atlas.Structure;
+import io.ast.jneurocarto.core.ShankCoordinate;
+import io.ast.jneurocarto.javafx.app.BlueprintAppToolkit;
+import io.ast.jneurocarto.javafx.script.BlueprintScript;
+import io.ast.jneurocarto.javafx.script.PyValue;
+import io.ast.jneurocarto.javafx.script.ScriptParameter;
+
+@NullMarked
+@BlueprintScript("implant")
+public final class ImplantSearchScript {
+
+    @BlueprintScript(value = "implant_search", async = true, description = """
+        Search implant coordinates around the current implant, which maximize
+        the number of electrodes inside the region (and its sub-regions).
+        Ranges are offsets (start, stop, step) to the current implant.
+        """)
+    public void implantSearch(
+        BlueprintAppToolkit<Object> bp,
+        AtlasPlugin atlas,
+        ImplantPlugin plugin,
+        @ScriptParameter(value = "region", label = "NAME",
+            description = "region ID, acronym or its partial description") PyValue region,
+        @ScriptParameter(value = "ap", label = "(START,STOP,STEP)", defaultValue = "(-500, 500, 50)",
+            description = "ap offset range in um") double[] ap,
+        @ScriptParameter(value = "ml", label = "(START,STOP,STEP)", defaultValue = "(-500, 500, 50)",
+            description = "ml offset range in um") double[] ml,
+        @ScriptParameter(value = "depth", label = "(START,STOP,STEP)", defaultValue = "(-500, 500, 50)",
+            description = "depth offset range in um") double[] depth,
+        @ScriptParameter(value = "rap", label = "(START,STOP,STEP)", defaultValue = "[0]",
+            description = "rotation offset range along ap-axis in degree") double[] rap,
+        @ScriptParameter(value = "rdv", label = "(START,STOP,STEP)", defaultValue = "[0]",
+            description = "rotation offset range along dv-axis in degree") double[] rdv,
+        @ScriptParameter(value = "rml", label = "(START,STOP,STEP)", defaultValue = "[0]",
+            description = "rotation offset range along ml-axis in degree") double[] rml,
+        @ScriptParameter(value = "top", defaultValue = "5",
+            description = "number of printed candidates") int top,
+        @ScriptParameter(value = "apply", defaultValue = "True",
+            description = "move implant to the best candidate") boolean apply
+    ) throws IOException {
+        var brain = atlas.getBrainAtlas();
+        if (brain == null) throw new RuntimeException("atlas is not loaded.");
+
+        Structure structure = switch (region) {
+            case PyValue.PyInt32(var id) -> atlas.getRegion(id);
+            case PyValue.PyStr(var value) -> atlas.getRegion(value);
+            case PyValue.PyToken(var value) -> atlas.getRegion(value);
+            default -> throw new RuntimeException("unknown region : " + region);
+        };
+        if (structure == null) throw new RuntimeException("structure " + region + " not found.");
+
+        var current = plugin.getImplantCoordinate();
+        if (current == null) current = plugin.newImplantCoordinate();
+        if (current == null) throw new RuntimeException("no implant coordinate.");
+        var base = plugin.toGlobalCoordinate(current);
+
+        // electrode x relative to the insertion shank
+        var chmap = bp.channelmap();
+        var shank = chmap == null ? ShankCoordinate.ZERO : bp.probe().getShankCoordinate(chmap);
+        var origin = shank.apply(base.s()).x();
+        var x = bp.posx().clone();
+        for (int i = 0; i < x.length; i++) {
+            x[i] -= (int) origin;
+        }
+
+        var search = new ImplantSearch(brain, structure)
+            .setBase(base)
+            .setRange(ImplantSearch.Axis.ap, range(ap, base.ap()))
+            .setRange(ImplantSearch.Axis.ml, range(ml, base.ml()))
+            .setRange(ImplantSearch.Axis.depth, range(depth, base.depth()))
+            .setRange(ImplantSearch.Axis.rap, range(rap, base.rap()))
+            .setRange(ImplantSearch.Axis.rdv, range(rdv, base.rdv()))
+            .setRange(ImplantSearch.Axis.rml, range(rml, base.rml()));
+
+        bp.printLogMessage("search implant for " + structure.acronym() + " ...");
+        var result = search.search(x, bp.posy(), top);
+        bp.printLogMessage("evaluate " + search.evaluated() + " candidates");
+
+        for (var candidate : result) {
+            var implant = candidate.implant();
+            bp.printLogMessage("%d electrodes, ap=%.0f, ml=%.0f, depth=%.0f, rap=%.1f, rdv=%.1f, rml=%.1f".formatted(
+                candidate.count(), implant.ap(), implant.ml(), implant.depth(), implant.rap(), implant.rdv(), implant.rml()));
+        }
+
+        if (apply && !result.isEmpty()) {
+            var best = plugin.toReferenceCoordinate(result.getFirst().implant(), current.reference());
+            Platform.runLater(() -> {
+                plugin.setImplantCoordinate(best);
+                plugin.focusImplantCoordinate(best);
+            });
+        }
+    }
+
+    private static ImplantSearch.Range range(double[] range, double center) {
+        return switch (range.length) {
+            case 1 -> ImplantSearch.Range.of(center + range[0]);
+            case 3 -> new ImplantSearch.Range(center + range[0], center + range[1], range[2]);
+            default -> throw new RuntimeException("not a range (start, stop, step) : " + range.length);
+        };
+    }
+}
@@ -2,23 +2,119 @@ package io.ast.jneurocarto.javafx.atlas;
 
 import java.util.Objects;
 
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.scene.transform.Affine;
+
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import io.ast.jneurocarto.atlas.ImageSlice;
+import io.ast.jneurocarto.atlas.ImageSliceCache;
+import io.ast.jneurocarto.atlas.VolumePyramid;
 import io.ast.jneurocarto.javafx.chart.ImagePainter;
 
 @NullMarked
 public class SlicePainter extends ImagePainter {
 
+    /**
+     * Provide the slice on a downsampled level.
+     */
+    @FunctionalInterface
+    public interface LevelProvider {
+        /**
+         * @param slice full-resolution slice
+         * @param level level index of {@link VolumePyramid}, larger than 0.
+         * @return slice on the downsampled level. {@code null} if the level is not available yet.
+         */
+        @Nullable
+        ImageSlice sliceAtLevel(ImageSlice slice, int level);
+    }
+
+    private final @Nullable ImageSliceCache cache;
     private @Nullable ImageSlice sliceCache;
+    private @Nullable LevelProvider levels;
+    private final ReadOnlyIntegerWrapper level = new ReadOnlyIntegerWrapper();
+
+    public SlicePainter() {
+        this(null);
+    }
+
+    /**
+     * @param cache rendered image cache. {@code null} to always render the slice.
+     */
+    public SlicePainter(@Nullable ImageSliceCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param levels downsampled level provider. {@code null} to always render the full-resolution slice.
+     */
+    public void setLevelProvider(@Nullable LevelProvider levels) {
+        this.levels = levels;
+        if (levels == null) level.set(0);
+        refresh();
+    }
+
+    /**
+     * {@return current used level of {@link VolumePyramid}, which is picked from the chart scale by {@link #updateLevel(Affine)}.}
+     */
+    public ReadOnlyIntegerProperty levelProperty() {
+        return level.getReadOnlyProperty();
+    }
+
+    public int level() {
+        return level.get();
+    }
 
     public void update(ImageSlice slice) {
         if (!Objects.equals(slice, sliceCache)) {
             sliceCache = slice;
             width(slice.width());
             height(slice.height());
+            refresh();
+        }
+    }
+
+    /**
+     * Re-render current slice, for example, when downsampled levels become available.
+     */
+    public void refresh() {
+        var slice = sliceCache;
+        if (slice == null) return;
+
+        // width and height are kept from the full-resolution slice, so the image transform does not change.
+        var levels = this.levels;
+        var level = level();
+        if (levels != null && level > 0) {
+            var ret = levels.sliceAtLevel(slice, level);
+            if (ret != null) slice = ret;
+        }
+
+        var cache = this.cache;
+        if (cache == null) {
             setImage(slice.image(ImageSlice.JFX_IMAGE));
+        } else {
+            setImage(cache.image(slice, ImageSlice::newJfxImageWriter));
+        }
+    }
+
+    /**
+     * Pick the level of {@link VolumePyramid} from the chart scale, and re-render the slice when the level is changed.
+     * It should be called when the chart scale is changed, for example, on zooming or resizing.
+     *
+     * @param canvasTransform an affine transform from chart to canvas coordinate system,
+     *                        likes {@link io.ast.jneurocarto.javafx.chart.InteractionXYChart#getCanvasTransform()}.
+     */
+    public void updateLevel(Affine canvasTransform) {
+        var slice = sliceCache;
+        if (levels == null || slice == null) return;
+
+        var pixelPerUm = Math.hypot(canvasTransform.getMxx(), canvasTransform.getMyx()) * Math.abs(sx());
+        var level = VolumePyramid.pickLevel(pixelPerUm * slice.resolution()[1]);
+        if (level != level()) {
+            this.level.set(level);
+            refresh();
         }
     }
 }
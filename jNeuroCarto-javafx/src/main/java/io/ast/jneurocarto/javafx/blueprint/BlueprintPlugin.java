@@ -163,6 +163,7 @@ public class BlueprintPlugin extends InvisibleView implements ProbeUpdateHandler
     @Override
     protected void setupChartContent(PluginSetupService service, ProbeView<?> canvas) {
         foreground = canvas.getForegroundPainter();
+        foreground.setCached(true);
         painter = (BlueprintPainter<Object>) checkBlueprintPainter(service);
         if (painter == null) visible.set(false);
     }
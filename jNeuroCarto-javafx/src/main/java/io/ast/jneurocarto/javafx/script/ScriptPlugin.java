@@ -33,6 +33,7 @@ import io.ast.jneurocarto.core.RequestChannelmapException;
 import io.ast.jneurocarto.core.RequestChannelmapInfo;
 import io.ast.jneurocarto.core.cli.CartoConfig;
 import io.ast.jneurocarto.javafx.app.*;
+import io.ast.jneurocarto.javafx.atlas.ImplantSearchScript;
 import io.ast.jneurocarto.javafx.view.InvisibleView;
 import io.github.classgraph.ClassInfo;
 
@@ -70,6 +71,10 @@ public class ScriptPlugin extends InvisibleView {
             }
         }
 
+        for (var handle : BlueprintScriptHandles.lookupClass(lookup, ImplantSearchScript.class)) {
+            initBlueprintScript(service, handle);
+        }
+
         for (var clazz : service.scanAnnotation(BlueprintScript.class, this::filterBlueprintScript)) {
             var coll = new ArrayList<>(BlueprintScriptHandles.lookupClass(lookup, clazz));
             coll.sort(Comparator.comparing(BlueprintScriptCallable::name));
@@ -0,0 +1,135 @@
+package io.ast.jneurocarto.javafx.utils;
+
+import java.util.function.Supplier;
+
+import javafx.geometry.Point2D;
+import javafx.scene.transform.Affine;
+
+import org.jspecify.annotations.NullMarked;
+
+import io.ast.jneurocarto.core.Affine3D;
+import io.ast.jneurocarto.core.Coordinate;
+import io.ast.jneurocarto.core.ProbeCoordinate;
+import io.ast.jneurocarto.core.ProbeTransform;
+
+/**
+ * Conversions between JavaFX {@link Affine} and {@link ProbeTransform}/{@link Affine3D},
+ * which are kept out of the core module.
+ */
+@NullMarked
+public final class FxTransforms {
+
+    private FxTransforms() {
+        throw new RuntimeException();
+    }
+
+    /**
+     * A 2D projection domain. Just drop the z value.
+     *
+     * @param name domain name.
+     */
+    public record Project2D(String name) implements ProbeTransform.Domain<Point2D> {
+        @Override
+        public Point2D fromValues(double x, double y, double z) {
+            return new Point2D(x, y);
+        }
+
+        @Override
+        public void toValues(Point2D coordinate, double[] xyz) {
+            xyz[0] = coordinate.getX();
+            xyz[1] = coordinate.getY();
+            xyz[2] = 0;
+        }
+    }
+
+    /*========*
+     * Affine *
+     *========*/
+
+    public static Affine3D of(Affine t) {
+        return new Affine3D(
+            t.getMxx(), t.getMxy(), t.getMxz(), t.getTx(),
+            t.getMyx(), t.getMyy(), t.getMyz(), t.getTy(),
+            t.getMzx(), t.getMzy(), t.getMzz(), t.getTz()
+        );
+    }
+
+    public static Affine toAffine(Affine3D t) {
+        return new Affine(
+            t.mxx, t.mxy, t.mxz, t.tx,
+            t.myx, t.myy, t.myz, t.ty,
+            t.mzx, t.mzy, t.mzz, t.tz
+        );
+    }
+
+    /**
+     * {@return a copied transform of {@code transform}}
+     */
+    public static Affine getTransform(ProbeTransform<?, ?> transform) {
+        return toAffine(transform.getAffine3D());
+    }
+
+    /*================*
+     * ProbeTransform *
+     *================*/
+
+    /**
+     * Create a coordinate transformation from {@link ProbeCoordinate} to {@link Coordinate}.
+     *
+     * @param transform transformation from {@link ProbeCoordinate} to {@link Coordinate}
+     * @return a transformation
+     * @see ProbeTransform#create(Affine3D)
+     */
+    public static ProbeTransform<ProbeCoordinate, Coordinate> create(Affine transform) {
+        return ProbeTransform.create(of(transform));
+    }
+
+    /**
+     * Create transformation from {@code source} to {@code target} with given fixed {@code transform}.
+     *
+     * @param source    source domain
+     * @param target    target domain
+     * @param transform a transform
+     * @param <C1>      coordinate in source domain
+     * @param <C2>      coordinate in target domain
+     * @return a transformation
+     */
+    public static <C1, C2> ProbeTransform<C1, C2> create(ProbeTransform.Domain<C1> source,
+                                                         ProbeTransform.Domain<C2> target,
+                                                         Affine transform) {
+        return ProbeTransform.create(source, target, of(transform));
+    }
+
+    /**
+     * Create transformation from {@code source} to {@code target} with given dynamic {@code transform}.
+     *
+     * @param source    source domain
+     * @param target    target domain
+     * @param transform a transform supplier.
+     * @param <C1>      coordinate in source domain
+     * @param <C2>      coordinate in target domain
+     * @return a transformation
+     */
+    public static <C1, C2> ProbeTransform<C1, C2> create(ProbeTransform.Domain<C1> source,
+                                                         ProbeTransform.Domain<C2> target,
+                                                         Supplier<Affine> transform) {
+        return ProbeTransform.create(source, target, () -> of(transform.get()));
+    }
+
+    /**
+     * Compose transformation.
+     *
+     * @param transform transformation
+     * @param domain    target domain
+     * @param then      composed transformation
+     * @param <C1>      coordinate from source domain.
+     * @param <C3>      coordinate from target domain.
+     * @return a transformation from {@code Domain<C1>} to {@code Domain <C3>}
+     * @see ProbeTransform#then(ProbeTransform.Domain, Affine3D)
+     */
+    public static <C1, C3> ProbeTransform<C1, C3> then(ProbeTransform<C1, ?> transform,
+                                                       ProbeTransform.Domain<C3> domain,
+                                                       Affine then) {
+        return transform.then(domain, of(then));
+    }
+}
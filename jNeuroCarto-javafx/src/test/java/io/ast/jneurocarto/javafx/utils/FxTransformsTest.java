@@ -0,0 +1,84 @@
+package io.ast.jneurocarto.javafx.utils;
+
+import javafx.geometry.Point2D;
+import javafx.geometry.Point3D;
+import javafx.scene.transform.Affine;
+import javafx.scene.transform.MatrixType;
+import javafx.scene.transform.NonInvertibleTransformException;
+
+import org.junit.jupiter.api.Test;
+
+import io.ast.jneurocarto.core.Affine3D;
+import io.ast.jneurocarto.core.ImplantCoordinate;
+import io.ast.jneurocarto.core.ProbeTransform;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FxTransformsTest {
+
+    private static void assertAffineEquals(Affine expected, Affine3D actual) {
+        assertArrayEquals(FxTransforms.of(expected).toArray(), actual.toArray(), 1e-9);
+    }
+
+    @Test
+    public void affineRotate() {
+        var expected = new Affine();
+        expected.appendTranslation(10, 20, 30);
+        expected.appendRotation(15, new Point3D(1, 2, 3), new Point3D(1, 0, 0));
+        expected.appendRotation(-25, new Point3D(1, 2, 3), new Point3D(0, 1, 0));
+        expected.appendRotation(35, new Point3D(1, 2, 3), new Point3D(1, 1, 1));
+
+        var actual = Affine3D.translate(10, 20, 30)
+            .append(Affine3D.rotate(15, 1, 2, 3, 1, 0, 0))
+            .append(Affine3D.rotate(-25, 1, 2, 3, 0, 1, 0))
+            .append(Affine3D.rotate(35, 1, 2, 3, 1, 1, 1));
+        assertAffineEquals(expected, actual);
+    }
+
+    @Test
+    public void affineCompose() throws NonInvertibleTransformException {
+        var a = new Affine(2, 0, 1, 1, 0, 3, 0, 2, 1, 0, 2, 3);
+        var b = new Affine();
+        b.appendRotation(30, new Point3D(5, 0, 0), new Point3D(0, 0, 1));
+
+        var expected = new Affine(a);
+        expected.prepend(b);
+        assertAffineEquals(expected, FxTransforms.of(a).prepend(FxTransforms.of(b)));
+
+        expected = new Affine(a);
+        expected.append(b);
+        assertAffineEquals(expected, FxTransforms.of(a).append(FxTransforms.of(b)));
+
+        var inverse = FxTransforms.of(a).inverse();
+        assertNotNull(inverse);
+        assertAffineEquals(a.createInverse(), inverse);
+    }
+
+    @Test
+    public void toAffine() {
+        var a = new Affine(2, 0, 1, 1, 0, 3, 0, 2, 1, 0, 2, 3);
+        var actual = FxTransforms.toAffine(FxTransforms.of(a));
+        assertArrayEquals(a.toArray(MatrixType.MT_3D_3x4), actual.toArray(MatrixType.MT_3D_3x4));
+    }
+
+    @Test
+    public void thenAffine() {
+        var implant = ProbeTransform.create(new ImplantCoordinate(1000, 2000, 3000));
+        var t = new Affine(2, 0, 0, 1, 0, 2, 0, 2, 0, 0, 2, 3);
+        var transform = FxTransforms.then(implant, ProbeTransform.ANATOMICAL, t);
+
+        var expected = t.transform(implant.transform(10, 100, 0));
+        var actual = transform.transform(10, 100, 0);
+        assertEquals(expected.getX(), actual.getX(), 1e-9);
+        assertEquals(expected.getY(), actual.getY(), 1e-9);
+        assertEquals(expected.getZ(), actual.getZ(), 1e-9);
+    }
+
+    @Test
+    public void project2D() {
+        var domain = new FxTransforms.Project2D("chart");
+        var transform = FxTransforms.create(domain, domain, new Affine(2, 0, 0, 1, 0, 4, 0, 2, 0, 0, 1, 5));
+        assertEquals(new Point2D(3, 6), transform.transform(new Point2D(1, 1)));
+        assertEquals(new Point2D(1, 1), transform.inverseTransform(new Point2D(3, 6)));
+    }
+}
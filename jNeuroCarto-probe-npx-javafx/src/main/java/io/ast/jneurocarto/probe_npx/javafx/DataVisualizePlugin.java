@@ -256,6 +256,7 @@ public class DataVisualizePlugin extends AbstractImagePlugin implements ProbePlu
               .extent(ps * shank - w - pc, 0, w, h)
               .colormap(colormap)
               .z(-1)
+              .raster(true)
               .graphics();
         }
 